@@ -0,0 +1,179 @@
+package com.uber.coding_challange.food_trucks_benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Reads and writes of the accessor under contention. Every group runs readers and writers at the same time:
+ *
+ * getUpdate: 3 threads get food trucks by object id while 1 thread updates existing food trucks
+ * getAddRemove: 3 threads get food trucks while 1 thread adds and removes its own food truck
+ * updates: 4 threads update food trucks, so they wait for each other on the writer lock
+ *
+ * The storage is loaded with the given number of synthetic food trucks (see FoodTruckDataGenerator)
+ * before every trial.
+ *
+ * @author alper.karacelik
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FoodTruckAccessorBenchmark
+{
+	// Constants ---------------------------------------------------------
+	private static final int RANDOM_ID_COUNT = 4096; // power of two
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	@Param({"1000", "10000", "100000"})
+	public int size;
+
+	private FoodTruckAccessor accessor;
+	private long[] randomIds;
+	// -------------------------------------------------------------------
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		accessor = FoodTruckAccessor.getInstance();
+		clear(accessor);
+		accessor.addFoodTrucks(FoodTruckDataGenerator.generate(size));
+
+		Random random = new Random(FoodTruckDataGenerator.DEFAULT_SEED);
+		randomIds = new long[RANDOM_ID_COUNT];
+		for (int i = 0; i < RANDOM_ID_COUNT; i++)
+		{
+			randomIds[i] = random.nextInt(size);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		clear(accessor);
+	}
+
+	/**
+	 * Removes all the food trucks from the storage
+	 */
+	private static void clear(FoodTruckAccessor accessor)
+	{
+		List<Long> ids = new ArrayList<Long>();
+		for (FoodTruck foodTruck : accessor.getAllFoodTrucks())
+		{
+			ids.add(foodTruck.getObjectid());
+		}
+		accessor.applyChanges(Collections.<FoodTruck>emptyList(), Collections.<FoodTruck>emptyList(), ids);
+	}
+
+	/**
+	 * Per-thread state of the readers and the writers: a cursor over the random ids,
+	 * the pre-generated updates and the object id that is owned by the thread
+	 */
+	@State(Scope.Thread)
+	public static class ThreadState
+	{
+		private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+		int cursor;
+		List<FoodTruck> updates;
+		FoodTruck ownFoodTruck;
+
+		@Setup(Level.Trial)
+		public void setUp(FoodTruckAccessorBenchmark benchmark)
+		{
+			int threadIndex = THREAD_COUNT.getAndIncrement();
+			FoodTruckDataGenerator generator =
+					new FoodTruckDataGenerator(FoodTruckDataGenerator.DEFAULT_SEED + 1 + threadIndex);
+
+			// Updates move existing food trucks to new positions
+			updates = new ArrayList<FoodTruck>(RANDOM_ID_COUNT);
+			for (int i = 0; i < RANDOM_ID_COUNT; i++)
+			{
+				updates.add(generator.nextFoodTruck(benchmark.randomIds[i]));
+			}
+
+			// Object ids that are not used by the loaded food trucks
+			ownFoodTruck = generator.nextFoodTruck(benchmark.size + threadIndex);
+			cursor = threadIndex * 7;
+		}
+
+		long nextId(FoodTruckAccessorBenchmark benchmark)
+		{
+			return benchmark.randomIds[cursor++ & (RANDOM_ID_COUNT - 1)];
+		}
+
+		FoodTruck nextUpdate()
+		{
+			return updates.get(cursor++ & (RANDOM_ID_COUNT - 1));
+		}
+	}
+
+	@Benchmark
+	@Group("getUpdate")
+	@GroupThreads(3)
+	public FoodTruck getUpdate_get(ThreadState threadState)
+	{
+		return accessor.getFoodTruck(threadState.nextId(this));
+	}
+
+	@Benchmark
+	@Group("getUpdate")
+	@GroupThreads(1)
+	public void getUpdate_update(ThreadState threadState)
+	{
+		accessor.updateFoodTruck(threadState.nextUpdate());
+	}
+
+	@Benchmark
+	@Group("getAddRemove")
+	@GroupThreads(3)
+	public FoodTruck getAddRemove_get(ThreadState threadState)
+	{
+		return accessor.getFoodTruck(threadState.nextId(this));
+	}
+
+	@Benchmark
+	@Group("getAddRemove")
+	@GroupThreads(1)
+	public FoodTruck getAddRemove_addRemove(ThreadState threadState)
+	{
+		accessor.addFoodTruck(threadState.ownFoodTruck);
+		return accessor.removeFoodTruck(threadState.ownFoodTruck.getObjectid());
+	}
+
+	@Benchmark
+	@Group("updates")
+	@GroupThreads(4)
+	public void updates_update(ThreadState threadState)
+	{
+		accessor.updateFoodTruck(threadState.nextUpdate());
+	}
+}
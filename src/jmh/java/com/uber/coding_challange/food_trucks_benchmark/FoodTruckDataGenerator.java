@@ -0,0 +1,161 @@
+package com.uber.coding_challange.food_trucks_benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Deterministic generator of synthetic food trucks for the benchmarks.
+ * The same seed and count always produce the same food trucks, so the results of different runs
+ * (and of different versions of the code) are comparable.
+ *
+ * Food trucks are spread over the bounding box of San Francisco and their fields look like the DataSF data:
+ * the statuses follow the distribution of the real data set, and the applicants, food items, permits
+ * and schedules are drawn from small vocabularies.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckDataGenerator
+{
+	// Constants ---------------------------------------------------------
+	public static final long DEFAULT_SEED = 20171001L;
+
+	public static final double MIN_LATITUDE = 37.70;
+	public static final double MAX_LATITUDE = 37.83;
+	public static final double MIN_LONGITUDE = -122.52;
+	public static final double MAX_LONGITUDE = -122.35;
+
+	// Statuses and their cumulative ratios (in percent) in the DataSF data
+	private static final String[] STATUSES = {"APPROVED", "REQUESTED", "EXPIRED", "SUSPEND", "INACTIVE"};
+	private static final int[] STATUS_PERCENTILES = {45, 80, 94, 98, 100};
+
+	private static final String[] FACILITY_TYPES = {"Truck", "Push Cart"};
+	private static final String[] APPLICANT_WORDS = {
+			"Senor", "Sisig", "Curry", "Up", "Kettle", "Corn", "Natan's", "Grill", "Halal", "Cart",
+			"Tacos", "El", "Gallo", "Giro", "Off", "The", "Grid", "Bay", "Area", "Dogs"};
+	private static final String[] FOOD_ITEMS = {
+			"Tacos", "Burritos", "Quesadillas", "Hot dogs", "Chips", "Sodas", "Water", "Coffee", "Kettle corn",
+			"Filipino fusion", "Curry", "Rice", "Noodles", "Sandwiches", "Salads", "Ice cream", "Juice", "Cookies"};
+	private static final String[] DAYS = {"Mo", "Tu", "We", "Th", "Fr", "Sa", "Su"};
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final Random random;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckDataGenerator(long seed)
+	{
+		random = new Random(seed);
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns the given number of food trucks of the default seed, with the object ids [0, count)
+	 *
+	 * @param count Number of the food trucks
+	 * @return The food trucks
+	 */
+	public static List<FoodTruck> generate(int count)
+	{
+		return new FoodTruckDataGenerator(DEFAULT_SEED).nextFoodTrucks(0, count);
+	}
+
+	/**
+	 * Returns the given number of food trucks with the object ids [firstObjectid, firstObjectid + count)
+	 *
+	 * @param firstObjectid Object id of the first food truck
+	 * @param count Number of the food trucks
+	 * @return The food trucks
+	 */
+	public List<FoodTruck> nextFoodTrucks(long firstObjectid, int count)
+	{
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>(count);
+		for (int i = 0; i < count; i++)
+		{
+			foodTrucks.add(nextFoodTruck(firstObjectid + i));
+		}
+		return foodTrucks;
+	}
+
+	/**
+	 * Returns a new food truck with the given object id
+	 *
+	 * @param objectid Object id of the food truck
+	 * @return The food truck
+	 */
+	public FoodTruck nextFoodTruck(long objectid)
+	{
+		FoodTruck foodTruck = new FoodTruck();
+		foodTruck.setObjectid(objectid);
+		foodTruck.setApplicant(nextWords(APPLICANT_WORDS, 2 + random.nextInt(3), " "));
+		foodTruck.setFacilitytype(FACILITY_TYPES[random.nextInt(10) < 8 ? 0 : 1]);
+		foodTruck.setFooditems(nextWords(FOOD_ITEMS, 1 + random.nextInt(6), ": "));
+		foodTruck.setStatus(nextStatus());
+		foodTruck.setCnn(100000 + random.nextInt(1000000));
+		foodTruck.setPermit(String.format("%02dMFF-%04d", 13 + random.nextInt(5), random.nextInt(10000)));
+		foodTruck.setAddress((1 + random.nextInt(3000)) + " MARKET ST");
+		foodTruck.setLocationdescription("MARKET ST: " + (1 + random.nextInt(30)) + "TH ST");
+		foodTruck.setDayshours(DAYS[random.nextInt(5)] + "-" + DAYS[5 + random.nextInt(2)] + ":"
+				+ (6 + random.nextInt(6)) + "AM-" + (1 + random.nextInt(11)) + "PM");
+		foodTruck.setSchedule("http://bsm.sfdpw.org/PermitsTracker/reports/report.aspx?title=schedule&permit="
+				+ foodTruck.getPermit());
+		foodTruck.setLatitude(nextLatitude());
+		foodTruck.setLongitude(nextLongitude());
+		return foodTruck;
+	}
+
+	/**
+	 * Returns a random latitude inside the bounding box of the food trucks
+	 *
+	 * @return Latitude in decimal degrees
+	 */
+	public double nextLatitude()
+	{
+		return MIN_LATITUDE + random.nextDouble() * (MAX_LATITUDE - MIN_LATITUDE);
+	}
+
+	/**
+	 * Returns a random longitude inside the bounding box of the food trucks
+	 *
+	 * @return Longitude in decimal degrees
+	 */
+	public double nextLongitude()
+	{
+		return MIN_LONGITUDE + random.nextDouble() * (MAX_LONGITUDE - MIN_LONGITUDE);
+	}
+
+	/**
+	 * Returns a status drawn from the status distribution of the DataSF data
+	 */
+	private String nextStatus()
+	{
+		int percentile = random.nextInt(100);
+		int i = 0;
+		while (percentile >= STATUS_PERCENTILES[i])
+		{
+			i++;
+		}
+		return STATUSES[i];
+	}
+
+	/**
+	 * Returns the given number of words of the given vocabulary, joined with the given separator
+	 */
+	private String nextWords(String[] vocabulary, int count, String separator)
+	{
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < count; i++)
+		{
+			if (i > 0)
+			{
+				builder.append(separator);
+			}
+			builder.append(vocabulary[random.nextInt(vocabulary.length)]);
+		}
+		return builder.toString();
+	}
+}
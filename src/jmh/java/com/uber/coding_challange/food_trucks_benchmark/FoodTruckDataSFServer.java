@@ -0,0 +1,166 @@
+package com.uber.coding_challange.food_trucks_benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Local stand-in of the DataSF API: serves a DataSF shaped JSON array of synthetic food trucks
+ * (see FoodTruckDataGenerator) on every path, so the service can be loaded with any number of food trucks
+ * without the live API. Point the service to it with "--datasf.url=http://localhost:{port}/resource/6a9r-agq8.json".
+ *
+ * As in DataSF, every value is a string and the rows carry a few fields that the service ignores.
+ * The response is generated while it is written, so large data sets are not kept in memory.
+ * The same seed always produces the same food trucks; with "--changes=N", every response after the first
+ * changes the status of a window of N food trucks (the window moves by N on every response),
+ * so the background refreshes of the service apply updates.
+ *
+ * Arguments (all optional): --port=18090 --count=10000 --seed=20171001 --changes=0
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckDataSFServer
+{
+	// Constants ---------------------------------------------------------
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final int count;
+	private final long seed;
+	private final int changes;
+	private final AtomicLong responseCount = new AtomicLong();
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckDataSFServer(int count, long seed, int changes)
+	{
+		this.count = count;
+		this.seed = seed;
+		this.changes = changes;
+	}
+	// -------------------------------------------------------------------
+
+	public static void main(String[] args) throws IOException
+	{
+		int port = Integer.parseInt(getArgument(args, "port", "18090"));
+		int count = Integer.parseInt(getArgument(args, "count", "10000"));
+		long seed = Long.parseLong(getArgument(args, "seed", String.valueOf(FoodTruckDataGenerator.DEFAULT_SEED)));
+		int changes = Integer.parseInt(getArgument(args, "changes", "0"));
+
+		HttpServer server = new FoodTruckDataSFServer(count, seed, changes).start(port);
+		System.out.println("Serving " + count + " food trucks on http://localhost:"
+				+ server.getAddress().getPort() + "/resource/6a9r-agq8.json");
+	}
+
+	/**
+	 * Starts the server on the given port (0 picks a free port)
+	 *
+	 * @param port Port of the server
+	 * @return The started server
+	 * @throws IOException If the port cannot be bound
+	 */
+	public HttpServer start(int port) throws IOException
+	{
+		HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+		server.createContext("/", new HttpHandler()
+		{
+			@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{
+				try
+				{
+					exchange.getResponseHeaders().set("Content-Type", "application/json");
+					exchange.sendResponseHeaders(200, 0);
+					write(exchange.getResponseBody(), responseCount.getAndIncrement());
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+				finally
+				{
+					exchange.close();
+				}
+			}
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		return server;
+	}
+
+	/**
+	 * Writes the food trucks of the given response (0 is the first response) as a DataSF shaped JSON array
+	 *
+	 * @param outputStream Response body
+	 * @param response Number of the response
+	 * @throws IOException If the response cannot be written
+	 */
+	public void write(OutputStream outputStream, long response) throws IOException
+	{
+		FoodTruckDataGenerator generator = new FoodTruckDataGenerator(seed);
+
+		// Rows [firstChanged, firstChanged + changes) (wrapping around) have a different status
+		long firstChanged = (response > 0 && count > 0) ? ((response - 1) * changes) % count : 0;
+		long changed = (response > 0) ? Math.min(changes, count) : 0;
+
+		JsonGenerator json = JSON_FACTORY.createGenerator(outputStream);
+		json.writeStartArray();
+		for (int i = 0; i < count; i++)
+		{
+			FoodTruck foodTruck = generator.nextFoodTruck(i);
+
+			if ((i - firstChanged + count) % count < changed)
+			{
+				foodTruck.setStatus("APPROVED".equals(foodTruck.getStatus()) ? "EXPIRED" : "APPROVED");
+			}
+
+			json.writeStartObject();
+			json.writeStringField("objectid", String.valueOf(foodTruck.getObjectid()));
+			json.writeStringField("applicant", foodTruck.getApplicant());
+			json.writeStringField("facilitytype", foodTruck.getFacilitytype());
+			json.writeStringField("cnn", String.valueOf(foodTruck.getCnn()));
+			json.writeStringField("locationdescription", foodTruck.getLocationdescription());
+			json.writeStringField("address", foodTruck.getAddress());
+			json.writeStringField("blocklot", "3720008");
+			json.writeStringField("permit", foodTruck.getPermit());
+			json.writeStringField("status", foodTruck.getStatus());
+			json.writeStringField("fooditems", foodTruck.getFooditems());
+			json.writeStringField("latitude", String.valueOf(foodTruck.getLatitude()));
+			json.writeStringField("longitude", String.valueOf(foodTruck.getLongitude()));
+			json.writeStringField("schedule", foodTruck.getSchedule());
+			json.writeStringField("dayshours", foodTruck.getDayshours());
+			json.writeStringField("received", "2017-10-01");
+			json.writeStringField("priorpermit", "0");
+			json.writeEndObject();
+		}
+		json.writeEndArray();
+		json.flush();
+	}
+
+	/**
+	 * Returns the value of the "--name=value" argument, or the given default value
+	 */
+	static String getArgument(String[] args, String name, String defaultValue)
+	{
+		String prefix = "--" + name + "=";
+		for (String arg : args)
+		{
+			if (arg.startsWith(prefix))
+			{
+				return arg.substring(prefix.length());
+			}
+		}
+		return defaultValue;
+	}
+}
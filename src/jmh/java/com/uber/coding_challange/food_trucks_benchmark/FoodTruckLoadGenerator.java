@@ -0,0 +1,359 @@
+package com.uber.coding_challange.food_trucks_benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load generator of the web service: drives /food-trucks and /food-trucks/query with a fixed mix of requests
+ * (see REQUEST_TYPES) from several threads and reports the throughput and the p50, p99 and p99.9 latencies
+ * of every request type.
+ *
+ * Without a rate, every thread sends its next request as soon as the previous one is answered (closed loop).
+ * With "--rate=R", the threads send R requests per second in total on a fixed schedule and a latency is
+ * measured from the scheduled start of the request, so the time a request waits behind a slow one is counted
+ * (the closed loop would send fewer requests instead and hide it).
+ *
+ * Requests of the warm-up period are not recorded. If "--max-p99-ms" is given and the p99 latency of any
+ * request type is greater, or any request fails, then the generator exits with status 1, so it can fail a build.
+ *
+ * Arguments (all optional):
+ * --url=http://localhost:8080 --threads=8 --duration-seconds=30 --warmup-seconds=5 --rate=0 --seed=20171001
+ * --max-p99-ms=0
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckLoadGenerator
+{
+	// Constants ---------------------------------------------------------
+	// Request types and their shares (in percent) of the mix
+	private static final String[] REQUEST_TYPES = {"all", "status", "circle", "circle+status", "text+circle"};
+	private static final int[] REQUEST_PERCENTILES = {5, 20, 60, 90, 100}; // cumulative
+
+	private static final String[] STATUSES = {"APPROVED", "REQUESTED", "EXPIRED"};
+	private static final String[] RADII = {"0.25", "0.5", "1", "2"}; // in kilometers
+	private static final String[] WORDS = {"tacos", "coffee", "curry", "hot+dogs", "burritos"};
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final String url;
+	private final int threadCount;
+	private final long durationNanos;
+	private final long warmupNanos;
+	private final double rate;
+	private final long seed;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckLoadGenerator(String url, int threadCount, int durationSeconds, int warmupSeconds, double rate, long seed)
+	{
+		this.url = url;
+		this.threadCount = threadCount;
+		this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+		this.warmupNanos = TimeUnit.SECONDS.toNanos(warmupSeconds);
+		this.rate = rate;
+		this.seed = seed;
+	}
+	// -------------------------------------------------------------------
+
+	public static void main(String[] args) throws InterruptedException
+	{
+		FoodTruckLoadGenerator generator = new FoodTruckLoadGenerator(
+				FoodTruckDataSFServer.getArgument(args, "url", "http://localhost:8080"),
+				Integer.parseInt(FoodTruckDataSFServer.getArgument(args, "threads", "8")),
+				Integer.parseInt(FoodTruckDataSFServer.getArgument(args, "duration-seconds", "30")),
+				Integer.parseInt(FoodTruckDataSFServer.getArgument(args, "warmup-seconds", "5")),
+				Double.parseDouble(FoodTruckDataSFServer.getArgument(args, "rate", "0")),
+				Long.parseLong(FoodTruckDataSFServer.getArgument(args, "seed",
+						String.valueOf(FoodTruckDataGenerator.DEFAULT_SEED))));
+		double maxP99Millis = Double.parseDouble(FoodTruckDataSFServer.getArgument(args, "max-p99-ms", "0"));
+
+		Recorder[] recorders = generator.run();
+		boolean passed = report(recorders, generator.durationNanos, maxP99Millis);
+
+		System.exit(passed ? 0 : 1);
+	}
+
+	/**
+	 * Runs the load and returns the recorded latencies of every request type (in the order of REQUEST_TYPES)
+	 *
+	 * @return The recorders of the request types
+	 * @throws InterruptedException If the calling thread is interrupted
+	 */
+	public Recorder[] run() throws InterruptedException
+	{
+		final long start = System.nanoTime();
+		final Recorder[][] threadRecorders = new Recorder[threadCount][];
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int t = 0; t < threadCount; t++)
+		{
+			final int threadIndex = t;
+			threadRecorders[t] = newRecorders();
+
+			Thread thread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					drive(threadIndex, start, threadRecorders[threadIndex]);
+				}
+			}, "food-truck-load-" + t);
+			thread.start();
+			threads.add(thread);
+		}
+
+		for (Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		// Merge the recorders of the threads
+		Recorder[] recorders = newRecorders();
+		for (Recorder[] recordersOfThread : threadRecorders)
+		{
+			for (int i = 0; i < recorders.length; i++)
+			{
+				recorders[i].addAll(recordersOfThread[i]);
+			}
+		}
+		return recorders;
+	}
+
+	/**
+	 * Sends the requests of one thread until the end of the run
+	 */
+	private void drive(int threadIndex, long start, Recorder[] recorders)
+	{
+		Random random = new Random(seed + threadIndex);
+		FoodTruckDataGenerator positions = new FoodTruckDataGenerator(seed + threadIndex);
+		byte[] buffer = new byte[64 * 1024];
+
+		long end = start + warmupNanos + durationNanos;
+		long interval = (rate > 0) ? (long) (threadCount * 1e9 / rate) : 0;
+		long scheduled = start + ((rate > 0) ? (long) (threadIndex * 1e9 / rate) : 0);
+
+		while (true)
+		{
+			// Open loop: wait for the scheduled time of the request
+			long now = System.nanoTime();
+			if (interval > 0 && scheduled > now)
+			{
+				sleepNanos(scheduled - now);
+				now = System.nanoTime();
+			}
+			long requestStart = (interval > 0) ? scheduled : now;
+			if (requestStart >= end)
+			{
+				return;
+			}
+
+			int type = nextRequestType(random);
+			boolean succeeded = send(nextRequest(type, random, positions), buffer);
+			long latency = System.nanoTime() - requestStart;
+
+			if (requestStart - start >= warmupNanos)
+			{
+				recorders[type].record(latency, succeeded);
+			}
+
+			scheduled += interval;
+		}
+	}
+
+	/**
+	 * Returns a request type of the mix
+	 */
+	private static int nextRequestType(Random random)
+	{
+		int percentile = random.nextInt(100);
+		int type = 0;
+		while (percentile >= REQUEST_PERCENTILES[type])
+		{
+			type++;
+		}
+		return type;
+	}
+
+	/**
+	 * Returns the URL of a request of the given type; centers are inside the area of the food trucks
+	 */
+	private String nextRequest(int type, Random random, FoodTruckDataGenerator positions)
+	{
+		String status = STATUSES[random.nextInt(STATUSES.length)];
+		String circle = "latitude=" + positions.nextLatitude() + "&longitude=" + positions.nextLongitude()
+				+ "&radius=" + RADII[random.nextInt(RADII.length)] + "&radius_unit=km";
+
+		switch (REQUEST_TYPES[type])
+		{
+			case "all":
+				return url + "/food-trucks";
+			case "status":
+				return url + "/food-trucks/query?status=" + status;
+			case "circle":
+				return url + "/food-trucks/query?" + circle;
+			case "circle+status":
+				return url + "/food-trucks/query?status=" + status + "&" + circle;
+			default:
+				return url + "/food-trucks/query?q=" + WORDS[random.nextInt(WORDS.length)] + "&" + circle;
+		}
+	}
+
+	/**
+	 * Sends a GET request and reads the whole response, so the connection is kept alive
+	 *
+	 * @return True if the response status is 200
+	 */
+	private static boolean send(String requestUrl, byte[] buffer)
+	{
+		HttpURLConnection connection = null;
+		try
+		{
+			connection = (HttpURLConnection) new URL(requestUrl).openConnection();
+			connection.setRequestProperty("Accept", "application/json");
+			int status = connection.getResponseCode();
+
+			InputStream inputStream = (status < 400) ? connection.getInputStream() : connection.getErrorStream();
+			if (inputStream != null)
+			{
+				while (inputStream.read(buffer) >= 0)
+				{
+					// Drain the response
+				}
+				inputStream.close();
+			}
+			return status == 200;
+		}
+		catch (IOException e)
+		{
+			if (connection != null)
+			{
+				connection.disconnect();
+			}
+			return false;
+		}
+	}
+
+	private static void sleepNanos(long nanos)
+	{
+		try
+		{
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static Recorder[] newRecorders()
+	{
+		Recorder[] recorders = new Recorder[REQUEST_TYPES.length];
+		for (int i = 0; i < recorders.length; i++)
+		{
+			recorders[i] = new Recorder(REQUEST_TYPES[i]);
+		}
+		return recorders;
+	}
+
+	/**
+	 * Prints the throughput and the latency percentiles of every request type and of all the requests
+	 *
+	 * @return False if a request failed or a p99 latency is greater than the given limit (if it is positive)
+	 */
+	static boolean report(Recorder[] recorders, long durationNanos, double maxP99Millis)
+	{
+		Recorder total = new Recorder("total");
+		for (Recorder recorder : recorders)
+		{
+			total.addAll(recorder);
+		}
+
+		boolean passed = true;
+		double seconds = durationNanos / 1e9;
+
+		System.out.println(String.format("%-14s %10s %8s %12s %10s %10s %10s %10s",
+				"Request", "Count", "Errors", "Req/s", "p50 ms", "p99 ms", "p99.9 ms", "Max ms"));
+		for (Recorder recorder : append(recorders, total))
+		{
+			recorder.sort();
+			System.out.println(String.format("%-14s %10d %8d %12.1f %10.3f %10.3f %10.3f %10.3f",
+					recorder.name, recorder.size, recorder.errorCount, recorder.size / seconds,
+					recorder.percentile(50) / 1e6, recorder.percentile(99) / 1e6,
+					recorder.percentile(99.9) / 1e6, recorder.percentile(100) / 1e6));
+
+			passed &= recorder.errorCount == 0 && (maxP99Millis <= 0 || recorder.percentile(99) / 1e6 <= maxP99Millis);
+		}
+
+		return passed;
+	}
+
+	private static Recorder[] append(Recorder[] recorders, Recorder recorder)
+	{
+		Recorder[] result = Arrays.copyOf(recorders, recorders.length + 1);
+		result[recorders.length] = recorder;
+		return result;
+	}
+
+	/**
+	 * Latencies (in nanoseconds) and the error count of one request type, recorded by a single thread
+	 */
+	static final class Recorder
+	{
+		final String name;
+		long[] latencies = new long[1024];
+		int size;
+		long errorCount;
+
+		Recorder(String name)
+		{
+			this.name = name;
+		}
+
+		void record(long latency, boolean succeeded)
+		{
+			if (size == latencies.length)
+			{
+				latencies = Arrays.copyOf(latencies, size * 2);
+			}
+			latencies[size++] = latency;
+			errorCount += succeeded ? 0 : 1;
+		}
+
+		void addAll(Recorder recorder)
+		{
+			if (size + recorder.size > latencies.length)
+			{
+				latencies = Arrays.copyOf(latencies, Math.max(size + recorder.size, latencies.length * 2));
+			}
+			System.arraycopy(recorder.latencies, 0, latencies, size, recorder.size);
+			size += recorder.size;
+			errorCount += recorder.errorCount;
+		}
+
+		void sort()
+		{
+			Arrays.sort(latencies, 0, size);
+		}
+
+		/**
+		 * Returns the given percentile (nearest rank) of the sorted latencies, 0 if there is no latency
+		 */
+		long percentile(double percentile)
+		{
+			if (size == 0)
+			{
+				return 0;
+			}
+			int rank = (int) Math.ceil(percentile / 100 * size);
+			return latencies[Math.max(0, Math.min(rank, size) - 1)];
+		}
+	}
+}
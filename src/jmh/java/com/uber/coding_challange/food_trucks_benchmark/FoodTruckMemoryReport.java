@@ -0,0 +1,95 @@
+package com.uber.coding_challange.food_trucks_benchmark;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckIngester;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Reports the heap cost of the food trucks: a DataSF shaped JSON array of synthetic food trucks
+ * (see FoodTruckDataSFServer) is written to a temporary file and ingested like a refresh of the service.
+ *
+ * Two numbers are reported per food truck:
+ * storage: the whole accessor (food truck objects, their strings and all the indexes of the snapshot)
+ * records: the food truck objects and their strings only (measured after the storage is emptied
+ *          while the food trucks are still referenced)
+ *
+ * Used heap is measured after repeated full collections, so run it with a heap that fits the data set
+ * and nothing else running in the JVM (MAVEN_OPTS="-Xmx3g" for 1,000,000 food trucks).
+ *
+ * Arguments (all optional): --count=1000000 --seed=20171001
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckMemoryReport
+{
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		int count = Integer.parseInt(FoodTruckDataSFServer.getArgument(args, "count", "1000000"));
+		long seed = Long.parseLong(FoodTruckDataSFServer.getArgument(
+				args, "seed", String.valueOf(FoodTruckDataGenerator.DEFAULT_SEED)));
+
+		File file = File.createTempFile("food-trucks", ".json");
+		file.deleteOnExit();
+		OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
+		try
+		{
+			new FoodTruckDataSFServer(count, seed, 0).write(outputStream, 0);
+		}
+		finally
+		{
+			outputStream.close();
+		}
+
+		FoodTruckAccessor accessor = FoodTruckAccessor.getInstance();
+		long emptyHeap = getUsedHeap();
+		FoodTruckIngester.getInstance().ingest(file);
+		long storageHeap = getUsedHeap();
+
+		// Keep the food trucks (and nothing else) while the storage is emptied
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>(accessor.getSnapshot().getAllFoodTrucks());
+		List<Long> ids = new ArrayList<Long>(foodTrucks.size());
+		for (FoodTruck foodTruck : foodTrucks)
+		{
+			ids.add(foodTruck.getObjectid());
+		}
+		accessor.applyChanges(Collections.<FoodTruck>emptyList(), Collections.<FoodTruck>emptyList(), ids);
+		ids = null;
+		long recordsHeap = getUsedHeap() - 4L * foodTrucks.size(); // without the references of the list
+
+		System.out.println("Food trucks: " + foodTrucks.size() + " (JSON: " + file.length() / foodTrucks.size()
+				+ " bytes per food truck)");
+		System.out.println("Storage: " + (storageHeap - emptyHeap) / foodTrucks.size() + " bytes per food truck");
+		System.out.println("Records: " + (recordsHeap - emptyHeap) / foodTrucks.size() + " bytes per food truck");
+	}
+
+	/**
+	 * Returns the used heap after the garbage collector stops freeing memory
+	 */
+	private static long getUsedHeap() throws InterruptedException
+	{
+		Runtime runtime = Runtime.getRuntime();
+		long usedHeap = Long.MAX_VALUE;
+		for (int i = 0; i < 10; i++)
+		{
+			System.gc();
+			Thread.sleep(100);
+			long currentUsedHeap = runtime.totalMemory() - runtime.freeMemory();
+			if (currentUsedHeap >= usedHeap)
+			{
+				break;
+			}
+			usedHeap = currentUsedHeap;
+		}
+		return usedHeap;
+	}
+}
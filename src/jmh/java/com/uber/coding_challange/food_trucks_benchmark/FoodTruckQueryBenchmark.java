@@ -0,0 +1,121 @@
+package com.uber.coding_challange.food_trucks_benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckQueryHandler;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Latency of getFoodTrucksByQuery(...) (the /query endpoint without the web layer)
+ * for the given dataset sizes and radii.
+ *
+ * The centers are drawn from more positions than the capacity of the query cache, so circleQuery
+ * measures the index lookups; cachedCircleQuery repeats a single center, so it measures the cache hits.
+ * statusQuery is a query without a circle.
+ *
+ * @author alper.karacelik
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FoodTruckQueryBenchmark
+{
+	// Constants ---------------------------------------------------------
+	private static final int CENTER_COUNT = 8192; // power of two, larger than the query cache
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	@Param({"1000", "10000", "100000"})
+	public int size;
+
+	@Param({"0.1", "0.5", "2"})
+	public String radius; // in kilometers
+
+	@Param({"APPROVED"})
+	public String status;
+
+	private FoodTruckQueryHandler queryHandler;
+	private String[] latitudes;
+	private String[] longitudes;
+	private int cursor;
+	// -------------------------------------------------------------------
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		FoodTruckAccessor accessor = FoodTruckAccessor.getInstance();
+		clear(accessor);
+		accessor.addFoodTrucks(FoodTruckDataGenerator.generate(size));
+
+		queryHandler = FoodTruckQueryHandler.getInstance();
+
+		FoodTruckDataGenerator generator = new FoodTruckDataGenerator(FoodTruckDataGenerator.DEFAULT_SEED + 1);
+		latitudes = new String[CENTER_COUNT];
+		longitudes = new String[CENTER_COUNT];
+		for (int i = 0; i < CENTER_COUNT; i++)
+		{
+			latitudes[i] = String.valueOf(generator.nextLatitude());
+			longitudes[i] = String.valueOf(generator.nextLongitude());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		clear(FoodTruckAccessor.getInstance());
+	}
+
+	/**
+	 * Removes all the food trucks from the storage
+	 */
+	private static void clear(FoodTruckAccessor accessor)
+	{
+		List<Long> ids = new ArrayList<Long>();
+		for (FoodTruck foodTruck : accessor.getAllFoodTrucks())
+		{
+			ids.add(foodTruck.getObjectid());
+		}
+		accessor.applyChanges(Collections.<FoodTruck>emptyList(), Collections.<FoodTruck>emptyList(), ids);
+	}
+
+	@Benchmark
+	public List<FoodTruck> circleQuery()
+	{
+		int i = cursor++ & (CENTER_COUNT - 1);
+		return queryHandler.getFoodTrucksByQuery(status, latitudes[i], longitudes[i], radius, "km");
+	}
+
+	@Benchmark
+	public List<FoodTruck> cachedCircleQuery()
+	{
+		return queryHandler.getFoodTrucksByQuery(status, latitudes[0], longitudes[0], radius, "km");
+	}
+
+	@Benchmark
+	public List<FoodTruck> statusQuery()
+	{
+		return queryHandler.getFoodTrucksByQuery(status, null, null, null, null);
+	}
+}
@@ -0,0 +1,74 @@
+package com.uber.coding_challange.food_trucks_benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Jackson serialization of food truck lists (the response bodies of the query endpoints)
+ * for the given list sizes: writeValueAsBytes(...) of a shared mapper, and a list writer
+ * that streams into a reused buffer.
+ *
+ * @author alper.karacelik
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FoodTruckSerializationBenchmark
+{
+	// Attributes --------------------------------------------------------
+	@Param({"10", "100", "1000", "10000"})
+	public int size;
+
+	private ObjectMapper mapper;
+	private ObjectWriter listWriter;
+	private List<FoodTruck> foodTrucks;
+	private ByteArrayOutputStream buffer;
+	// -------------------------------------------------------------------
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		mapper = new ObjectMapper();
+		listWriter = mapper.writerFor(new TypeReference<List<FoodTruck>>() {});
+		foodTrucks = FoodTruckDataGenerator.generate(size);
+		buffer = new ByteArrayOutputStream();
+	}
+
+	@Benchmark
+	public byte[] writeValueAsBytes() throws IOException
+	{
+		return mapper.writeValueAsBytes(foodTrucks);
+	}
+
+	@Benchmark
+	public int listWriter() throws IOException
+	{
+		buffer.reset();
+		listWriter.writeValue(buffer, foodTrucks);
+		return buffer.size();
+	}
+}
@@ -0,0 +1,85 @@
+package com.uber.coding_challange.food_trucks_benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.uber.coding_challange.food_trucks_web_service.ctrl.GeodesicDistanceCalculator;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.DistanceUnitEnum;
+
+/**
+ * Throughput of the distance calculations: distance(...) for one pair of positions
+ * and distances(...) for a center and a batch of positions (the loop of the circle queries).
+ * Positions are synthetic food truck positions (see FoodTruckDataGenerator).
+ *
+ * @author alper.karacelik
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeodesicDistanceBenchmark
+{
+	// Constants ---------------------------------------------------------
+	private static final int POSITION_COUNT = 1024; // power of two
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private GeodesicDistanceCalculator calculator;
+	private double[] latitudes;
+	private double[] longitudes;
+	private double[] distances;
+	private double centerLatitude;
+	private double centerLongitude;
+	private int cursor;
+	// -------------------------------------------------------------------
+
+	@Setup(Level.Trial)
+	public void setUp()
+	{
+		calculator = GeodesicDistanceCalculator.getInstance();
+
+		FoodTruckDataGenerator generator = new FoodTruckDataGenerator(FoodTruckDataGenerator.DEFAULT_SEED);
+		latitudes = new double[POSITION_COUNT];
+		longitudes = new double[POSITION_COUNT];
+		distances = new double[POSITION_COUNT];
+		for (int i = 0; i < POSITION_COUNT; i++)
+		{
+			latitudes[i] = generator.nextLatitude();
+			longitudes[i] = generator.nextLongitude();
+		}
+		centerLatitude = generator.nextLatitude();
+		centerLongitude = generator.nextLongitude();
+	}
+
+	@Benchmark
+	public double distance()
+	{
+		int i = cursor++ & (POSITION_COUNT - 1);
+		return calculator.distance(centerLatitude, centerLongitude, latitudes[i], longitudes[i],
+				DistanceUnitEnum.KILOMETERS);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(POSITION_COUNT)
+	public double[] distances()
+	{
+		calculator.distances(centerLatitude, centerLongitude, latitudes, longitudes, POSITION_COUNT,
+				DistanceUnitEnum.KILOMETERS, distances);
+		return distances;
+	}
+}
@@ -0,0 +1,93 @@
+package com.uber.coding_challange.food_trucks_web_service;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckMetrics;
+
+/**
+ * Servlet filter that records the latency of every request of the web service (see FoodTruckMetrics),
+ * from the moment the request reaches the filter until the response is written (streamed responses included).
+ * The latency of an asynchronous request (see FoodTruckRequestExecutor) is recorded when its response is completed,
+ * also if its response is streamed in a further asynchronous cycle (see StreamingResponseBody).
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckMetricsFilter implements Filter
+{
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException
+	{
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException
+	{
+		final long startTime = System.nanoTime();
+		final String path = ((HttpServletRequest) request).getRequestURI();
+		boolean failed = true;
+		try
+		{
+			chain.doFilter(request, response);
+			failed = false;
+		}
+		finally
+		{
+			if (! failed && request.isAsyncStarted())
+			{
+				// The response of an asynchronous request is written after the container thread is released
+				request.getAsyncContext().addListener(new AsyncListener()
+				{
+					@Override
+					public void onComplete(AsyncEvent event) throws IOException
+					{
+						FoodTruckMetrics.getInstance().recordRequest(path,
+								((HttpServletResponse) event.getSuppliedResponse()).getStatus(),
+								System.nanoTime() - startTime);
+					}
+
+					@Override
+					public void onTimeout(AsyncEvent event) throws IOException
+					{
+					}
+
+					@Override
+					public void onError(AsyncEvent event) throws IOException
+					{
+					}
+
+					@Override
+					public void onStartAsync(AsyncEvent event) throws IOException
+					{
+						// Listeners are removed when a new asynchronous cycle is started
+						event.getAsyncContext().addListener(this);
+					}
+				});
+			}
+			else
+			{
+				// A request that throws is answered with "500 Internal Server Error" after this filter
+				int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR
+						: ((HttpServletResponse) response).getStatus();
+				FoodTruckMetrics.getInstance().recordRequest(path, status, System.nanoTime() - startTime);
+			}
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+	}
+}
@@ -1,20 +1,96 @@
 package com.uber.coding_challange.food_trucks_web_service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckBinaryEncoder;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckMetrics;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckNdjsonWriter;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckProjection;
 import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckQueryHandler;
-import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckRequestExecutor;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckFilter;
 import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckBatchQuery;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckCluster;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckMetricsReport;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckPage;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckPayload;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckQueryCacheStats;
 
 /**
- * This class provides the entry point for the web service by providing two different GET methods.
+ * This class provides the entry point for the web service by providing the following GET and POST methods.
  * 1) getFoodTrucks(): Returns all the food trucks.
  * 2) getFoodTrucksByQuery(): Returns the food trucks that provides the given query conditions.
+ * 3) getNearestFoodTrucks(): Returns the food trucks that are nearest to the given position.
+ * 4) getQueryCacheStats(): Returns the hit, miss and eviction counts of the query cache.
+ * 5) getFoodTruckClusters(): Returns the marker clusters (count and centroid) of a map viewport at a zoom level.
+ * 6) getFoodTrucksByBatchQuery(): Evaluates a list of status / circle queries (POST) in parallel
+ *    and returns their results keyed by the index of the query.
+ * 7) getMetrics(): Returns the latency histograms of the endpoints and the query phases, the result sizes,
+ *    the lock wait times of the accessor and the ingest statistics (see FoodTruckMetrics).
+ * 
+ * The full list and the status queries are answered with pre-serialized payloads 
+ * that have strong entity tags; if the "If-None-Match" header of the request matches, 
+ * then "304 Not Modified" is returned without a body.
+ * 
+ * getFoodTrucks() and getFoodTrucksByQuery() can also stream their results as newline delimited JSON
+ * (one food truck per line) if the request has the "Accept: application/x-ndjson" header 
+ * or the "stream=true" parameter. Streamed food trucks are written while they are read from the storage, 
+ * so large results are not kept in memory, and the query is stopped if the client is disconnected.
+ * 
+ * Both methods accept the "fields" parameter (comma separated field names, only these fields are written)
+ * and the "limit" and "cursor" parameters. If "limit" or "cursor" is given, then a page sorted by objectid
+ * is returned and the cursor of the next page is sent in the "X-Next-Cursor" header.
+ * 
+ * getFoodTrucks(), getFoodTrucksByQuery() and getNearestFoodTrucks() return the compact binary format
+ * of FoodTruckBinaryEncoder if the request has the "Accept: application/x-food-trucks" header 
+ * (the "fields" parameter is ignored, since the records have a fixed layout).
+ * 
+ * getFoodTrucksByQuery() accepts the "q" parameter; only the food trucks whose food items or applicant
+ * contain all the words of "q" are returned (combined with the status and the circle conditions).
+ * It also accepts multi-value attribute filters; "status", "facilitytype", "cnn" and "permit" (prefix) 
+ * are comma separated lists (OR), different parameters are combined with AND, and a list that starts with '!'
+ * rejects its values (NOT), e.g. "status=APPROVED,REQUESTED&facilitytype=!Push Cart". 
+ * These filters are evaluated on the bitmap indexes (see FoodTruckFilter).
+ * "open_at" (a time of the week, e.g. "Mo 13:30", or an ISO local date and time) or "open_now=true" 
+ * (the current time in San Francisco) returns only the food trucks whose days and hours include the time, 
+ * combined with the other conditions; the days and hours are parsed into an interval index when they are stored.
+ * If "explain=true" is given, then the query is executed (without the query cache) and its plan is returned 
+ * instead of the food trucks: the access path chosen by the query planner, the estimates of the considered 
+ * access paths, the examined and returned food truck counts and the planning and execution times.
+ * 
+ * getFoodTrucksByQuery(), getNearestFoodTrucks() and getFoodTrucksByBatchQuery() are mapped through their 
+ * asynchronous variants, which run them on the bounded pool of FoodTruckRequestExecutor instead of 
+ * the threads of the servlet container. If the queue of the pool is full or the deadline of the request passes, 
+ * then "503 Service Unavailable" is returned with a "Retry-After" header. The other methods are cheap 
+ * (pre-serialized payloads and pre-aggregated clusters), so they stay on the container threads.
+ * Streamed queries are not run on the bounded pool, since a slow client would hold its thread for the whole
+ * response; they are written on the asynchronous request threads of Spring MVC (see StreamingResponseBody).
+ * The tasks of the pool never write the servlet response, so a task whose deadline has passed
+ * cannot touch the response of another request.
  * 
  * @author alper.karacelik
  *
@@ -23,36 +99,607 @@ import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
 @RequestMapping(value= "/food-trucks") //Root resource (exposed at "/food-trucks" path)
 public class FoodTruckRestController 
 {
+    // Constants ---------------------------------------------------------
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final MediaType BINARY_MEDIA_TYPE = MediaType.valueOf(FoodTruckBinaryEncoder.MEDIA_TYPE);
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final ResponseEntity<?> OVERLOADED_RESPONSE = ResponseEntity
+    		.status(HttpStatus.SERVICE_UNAVAILABLE)
+    		.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+    		.build();
+    // -------------------------------------------------------------------
+    
+    /**
+     * Method handling HTTP GET requests. The returned object will be sent
+     * to the client as "application/json", "application/x-ndjson" or "application/x-food-trucks" media type.
+     *
+     * @param request Web request, used for the entity tag check and the content negotiation
+     * @param response Servlet response, used for streaming
+     * @return Food Trucks in JSON or binary format, null if they are streamed
+     * @throws IOException If the output stream of the response cannot be obtained
+     */
+    @GetMapping(
+            produces = {"application/json", FoodTruckNdjsonWriter.MEDIA_TYPE, FoodTruckBinaryEncoder.MEDIA_TYPE})
+    public ResponseEntity<byte[]> getFoodTrucks(
+    		@RequestParam(value = "fields", required = false) String fields,
+    		@RequestParam(value = "limit", required = false) String limit,
+    		@RequestParam(value = "cursor", required = false) String cursor,
+    		@RequestParam(value = "stream", required = false) String stream,
+    		WebRequest request,
+    		HttpServletResponse response) throws IOException
+    {
+    	FoodTruckProjection projection = FoodTruckProjection.parse(fields);
+    	
+    	if (isStreamRequested(stream, request))
+    	{
+    		setStreamContentType(response);
+    		streamFoodTrucks(null, null, null, null, null, null, null, projection, response.getOutputStream());
+    		return null;
+    	}
+    	
+    	boolean binary = isBinaryRequested(request);
+    	
+    	if (limit != null || cursor != null)
+    	{
+    		return createPageResponse(FoodTruckQueryHandler.getInstance().getFoodTrucksPageByQuery(
+    				null, null, null, null, null, null, limit, cursor), projection, binary);
+    	}
+    	
+    	if (! projection.isAllFields() && ! binary)
+    	{
+    		return createProjectedResponse(FoodTruckQueryHandler.getInstance().getFoodTrucksByQuery(
+    				null, null, null, null, null), projection);
+    	}
+    	
+    	return createPayloadResponse(FoodTruckQueryHandler.getInstance().getFoodTrucksPayload(null, binary), request);
+    }
+    
+    /**
+     * Method handling HTTP GET requests. The returned object will be sent
+     * to the client as "application/json", "application/x-ndjson" or "application/x-food-trucks" media type.
+     * The query runs on the request executor (see FoodTruckRequestExecutor); if its queue is full
+     * or its deadline passes, then "503 Service Unavailable" is returned.
+     * A streamed query is written by a StreamingResponseBody on the asynchronous request threads instead.
+     *
+     * @param request Web request, used for the entity tag check and the content negotiation
+     * @param response Servlet response, used for streaming
+     * @return Future of the response of getFoodTrucksByQuery(), or of the StreamingResponseBody of a streamed query
+     */
+    @GetMapping(
+    		value = "/query",
+            produces = {"application/json", FoodTruckNdjsonWriter.MEDIA_TYPE, FoodTruckBinaryEncoder.MEDIA_TYPE})
+    public CompletableFuture<?> getFoodTrucksByQueryAsync(
+    		@RequestParam(value = "status", required = false) final String status,
+    		@RequestParam(value = "latitude", required = false) final String latitude,
+    		@RequestParam(value = "longitude", required = false) final String longitude,
+    		@RequestParam(value = "radius", required = false) final String radius,
+    		@RequestParam(value = "radius_unit", required = false) final String radius_unit,
+    		@RequestParam(value = "q", required = false) final String q,
+    		@RequestParam(value = "facilitytype", required = false) final String facilitytype,
+    		@RequestParam(value = "cnn", required = false) final String cnn,
+    		@RequestParam(value = "permit", required = false) final String permit,
+    		@RequestParam(value = "open_at", required = false) final String open_at,
+    		@RequestParam(value = "open_now", required = false) final String open_now,
+    		@RequestParam(value = "fields", required = false) final String fields,
+    		@RequestParam(value = "limit", required = false) final String limit,
+    		@RequestParam(value = "cursor", required = false) final String cursor,
+    		@RequestParam(value = "stream", required = false) final String stream,
+    		@RequestParam(value = "explain", required = false) final String explain,
+    		final WebRequest request,
+    		final HttpServletResponse response)
+    {
+    	if (FoodTruckRequestExecutor.getInstance().isEnabled() 
+    			&& ! "true".equalsIgnoreCase(explain) && isStreamRequested(stream, request))
+    	{
+    		// Parameters are checked before the response is started
+    		final FoodTruckProjection projection = FoodTruckProjection.parse(fields);
+    		final FoodTruckFilter filter = FoodTruckQueryHandler.getInstance().parseFilter(
+    				status, facilitytype, cnn, permit, open_at, open_now);
+    		setStreamContentType(response);
+    		
+    		return CompletableFuture.completedFuture(new StreamingResponseBody()
+    		{
+    			@Override
+    			public void writeTo(OutputStream outputStream) throws IOException
+    			{
+    				streamFoodTrucks(filter, status, latitude, longitude, radius, radius_unit, q, projection, 
+    						outputStream);
+    			}
+    		});
+    	}
+    	
+    	return execute(new Callable<ResponseEntity<?>>()
+    	{
+    		@Override
+    		public ResponseEntity<?> call() throws Exception
+    		{
+    			return getFoodTrucksByQuery(status, latitude, longitude, radius, radius_unit, q, facilitytype, cnn, 
+    					permit, open_at, open_now, fields, limit, cursor, stream, explain, request, response);
+    		}
+    	});
+    }
+    
+    /**
+     * Evaluates a request of "/query" on the calling thread (see getFoodTrucksByQueryAsync()).
+     *
+     * @param request Web request, used for the entity tag check and the content negotiation
+     * @param response Servlet response, used for streaming
+     * @return Food Trucks in JSON or binary format (or the plan of the query in JSON format), 
+     * null if they are streamed
+     * @throws IOException If the output stream of the response cannot be obtained
+     */
+    public ResponseEntity<?> getFoodTrucksByQuery(
+    		String status,
+    		String latitude,
+    		String longitude,
+    		String radius,
+    		String radius_unit,
+    		String q,
+    		String facilitytype,
+    		String cnn,
+    		String permit,
+    		String open_at,
+    		String open_now,
+    		String fields,
+    		String limit,
+    		String cursor,
+    		String stream,
+    		String explain,
+    		WebRequest request,
+    		HttpServletResponse response) throws IOException
+    {
+    	FoodTruckProjection projection = FoodTruckProjection.parse(fields);
+    	FoodTruckFilter filter = FoodTruckQueryHandler.getInstance().parseFilter(
+    			status, facilitytype, cnn, permit, open_at, open_now);
+    	
+    	// Debug flag: the executed plan of the query is returned instead of the food trucks
+    	if ("true".equalsIgnoreCase(explain))
+    	{
+    		return ResponseEntity.ok(FoodTruckQueryHandler.getInstance().explainQuery(
+    				filter, status, latitude, longitude, radius, radius_unit, q));
+    	}
+    	
+    	if (isStreamRequested(stream, request))
+    	{
+    		setStreamContentType(response);
+    		streamFoodTrucks(filter, status, latitude, longitude, radius, radius_unit, q, projection, 
+    				response.getOutputStream());
+    		return null;
+    	}
+    	
+    	boolean binary = isBinaryRequested(request);
+    	
+    	// Multi-value attribute filters (and opening hours) are answered from the bitmap indexes
+    	if (filter != null)
+    	{
+    		if (limit != null || cursor != null)
+    		{
+    			return createPageResponse(FoodTruckQueryHandler.getInstance().getFoodTrucksPageByFilter(
+    					filter, latitude, longitude, radius, radius_unit, q, limit, cursor), projection, binary);
+    		}
+    		
+    		List<FoodTruck> foodTrucks = FoodTruckQueryHandler.getInstance().getFoodTrucksByFilter(
+    				filter, latitude, longitude, radius, radius_unit, q);
+    		
+    		if (binary)
+    		{
+    			return createBinaryResponse(foodTrucks);
+    		}
+    		return createProjectedResponse(foodTrucks, projection);
+    	}
+    	
+    	if (limit != null || cursor != null)
+    	{
+    		return createPageResponse(FoodTruckQueryHandler.getInstance().getFoodTrucksPageByQuery(
+    				status, latitude, longitude, radius, radius_unit, q, limit, cursor), projection, binary);
+    	}
+    	
+    	if (! projection.isAllFields() && ! binary)
+    	{
+    		return createProjectedResponse(FoodTruckQueryHandler.getInstance().getFoodTrucksByQuery(
+    				status, latitude, longitude, radius, radius_unit, q), projection);
+    	}
+    	
+    	// Status queries are answered with the pre-serialized payloads
+    	if (q == null && (latitude == null || longitude == null || radius == null || radius_unit == null))
+    	{
+    		FoodTruckPayload payload = FoodTruckQueryHandler.getInstance().getFoodTrucksPayload(status, binary);
+    		
+    		if (payload != null)
+    		{
+    			return createPayloadResponse(payload, request);
+    		}
+    	}
+    	
+    	List<FoodTruck> foodTrucks = FoodTruckQueryHandler.getInstance().getFoodTrucksByQuery(
+    			status, latitude, longitude, radius, radius_unit, q);
+    	
+    	if (binary)
+    	{
+    		return createBinaryResponse(foodTrucks);
+    	}
+    	return ResponseEntity.ok(foodTrucks);
+    }
+    
+    /**
+     * Method handling HTTP GET requests. The returned object will be sent
+     * to the client as "application/json" or "application/x-food-trucks" media type.
+     * The query runs on the request executor, like getFoodTrucksByQueryAsync().
+     *
+     * @param request Web request, used for the content negotiation
+     * @return Future of the response of getNearestFoodTrucks()
+     */
+    @GetMapping(
+    		value = "/nearest",
+            produces = {"application/json", FoodTruckBinaryEncoder.MEDIA_TYPE})
+    public CompletableFuture<ResponseEntity<?>> getNearestFoodTrucksAsync(
+    		@RequestParam(value = "latitude") final String latitude,
+    		@RequestParam(value = "longitude") final String longitude,
+    		@RequestParam(value = "k", required = false) final String k,
+    		@RequestParam(value = "status", required = false) final String status,
+    		final WebRequest request)
+    {
+    	return execute(new Callable<ResponseEntity<?>>()
+    	{
+    		@Override
+    		public ResponseEntity<?> call() throws Exception
+    		{
+    			return getNearestFoodTrucks(latitude, longitude, k, status, request);
+    		}
+    	});
+    }
+    
+    /**
+     * Evaluates a request of "/nearest" on the calling thread (see getNearestFoodTrucksAsync()).
+     * If "k" is not an integer in [1, FoodTruckQueryHandler.MAX_NEAREST_COUNT], then "400 Bad Request" is returned.
+     *
+     * @param request Web request, used for the content negotiation
+     * @return Nearest Food Trucks in JSON or binary format, sorted by distance
+     */
+    public ResponseEntity<?> getNearestFoodTrucks(
+    		String latitude,
+    		String longitude,
+    		String k,
+    		String status,
+    		WebRequest request)
+    {
+    	if (! FoodTruckQueryHandler.getInstance().isValidNearestCount(k))
+    	{
+    		return ResponseEntity.badRequest().build();
+    	}
+    	
+    	List<FoodTruck> foodTrucks = FoodTruckQueryHandler.getInstance().getNearestFoodTrucks(
+    			status, latitude, longitude, k);
+    	
+    	if (isBinaryRequested(request))
+    	{
+    		return createBinaryResponse(foodTrucks);
+    	}
+    	return ResponseEntity.ok(foodTrucks);
+    }
+    
     /**
      * Method handling HTTP GET requests. The returned object will be sent
      * to the client as "application/json" media type.
+     * Clusters are pre-aggregated for every zoom level, so the response size depends on the viewport,
+     * not on the number of the food trucks in it.
      *
-     * @return Food Trucks in JSON format
+     * @param minLat Southern edge of the viewport (in decimal degrees)
+     * @param minLon Western edge of the viewport (in decimal degrees)
+     * @param maxLat Northern edge of the viewport (in decimal degrees)
+     * @param maxLon Eastern edge of the viewport (in decimal degrees)
+     * @param zoom Zoom level of the map
+     * @return Food Truck Clusters of the viewport in JSON format
      */
     @GetMapping(
+    		value = "/viewport",
+            produces = "application/json")
+    public List<FoodTruckCluster> getFoodTruckClusters(
+    		@RequestParam(value = "minLat") String minLat,
+    		@RequestParam(value = "minLon") String minLon,
+    		@RequestParam(value = "maxLat") String maxLat,
+    		@RequestParam(value = "maxLon") String maxLon,
+    		@RequestParam(value = "zoom") String zoom)
+    {
+    	return FoodTruckQueryHandler.getInstance().getFoodTruckClusters(minLat, minLon, maxLat, maxLon, zoom);
+    }
+    
+    /**
+     * Method handling HTTP POST requests. The returned object will be sent
+     * to the client as "application/json" media type.
+     * Every query of the body has the parameters of "/query" (status, latitude, longitude, radius, radius_unit),
+     * e.g. [{"status":"APPROVED","latitude":37.77,"longitude":-122.41,"radius":1,"radius_unit":"km"}].
+     * The batch runs on the request executor, like getFoodTrucksByQueryAsync().
+     *
+     * @param queries Queries of the batch in JSON format
+     * @return Future of the response of getFoodTrucksByBatchQuery()
+     */
+    @PostMapping(
+    		value = "/batch",
+    		consumes = "application/json",
             produces = "application/json")
-    public List<FoodTruck> getFoodTrucks() 
+    public CompletableFuture<ResponseEntity<?>> getFoodTrucksByBatchQueryAsync(
+    		@RequestBody final List<FoodTruckBatchQuery> queries)
     {
-    	return FoodTruckAccessor.getInstance().getAllFoodTrucks();
+    	return execute(new Callable<ResponseEntity<?>>()
+    	{
+    		@Override
+    		public ResponseEntity<?> call() throws Exception
+    		{
+    			return getFoodTrucksByBatchQuery(queries);
+    		}
+    	});
+    }
+    
+    /**
+     * Evaluates a request of "/batch" on the calling thread (see getFoodTrucksByBatchQueryAsync()).
+     * All the queries are evaluated on the same snapshot, in parallel.
+     * If the batch has more than FoodTruckQueryHandler.MAX_BATCH_SIZE queries, then "413 Payload Too Large" is returned.
+     *
+     * @param queries Queries of the batch
+     * @return Results of the queries keyed by the query index, and the storage version
+     */
+    public ResponseEntity<?> getFoodTrucksByBatchQuery(List<FoodTruckBatchQuery> queries)
+    {
+    	if (queries == null)
+    	{
+    		return ResponseEntity.badRequest().build();
+    	}
+    	if (! FoodTruckQueryHandler.getInstance().isValidBatchSize(queries))
+    	{
+    		return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).build();
+    	}
+    	
+    	return ResponseEntity.ok(FoodTruckQueryHandler.getInstance().getFoodTrucksByBatchQuery(queries));
     }
     
     /**
      * Method handling HTTP GET requests. The returned object will be sent
      * to the client as "application/json" media type.
      *
-     * @return Food Trucks in JSON format
+     * @return Statistics of the query cache in JSON format
      */
     @GetMapping(
-    		value = "/query",
+    		value = "/query-cache",
             produces = "application/json")
-    public List<FoodTruck> getFoodTrucksByQuery(
-    		@RequestParam(value = "status", required = false) String status,
-    		@RequestParam(value = "latitude", required = false) String latitude,
-    		@RequestParam(value = "longitude", required = false) String longitude,
-    		@RequestParam(value = "radius", required = false) String radius,
-    		@RequestParam(value = "radius_unit", required = false) String radius_unit)
-    {
-    	return FoodTruckQueryHandler.getInstance().getFoodTrucksByQuery(
-    			status, latitude, longitude, radius, radius_unit);
+    public FoodTruckQueryCacheStats getQueryCacheStats()
+    {
+    	return FoodTruckQueryHandler.getInstance().getQueryCacheStats();
+    }
+    
+    /**
+     * Method handling HTTP GET requests. The returned object will be sent
+     * to the client as "application/json" media type.
+     *
+     * @return Histograms, counters and gauges of the service in JSON format
+     */
+    @GetMapping(
+    		value = "/metrics",
+            produces = "application/json")
+    public FoodTruckMetricsReport getMetrics()
+    {
+    	return FoodTruckMetrics.getInstance().getReport();
+    }
+    
+    /**
+     * Runs the given task on the request executor. If the task is rejected (the queue is full) 
+     * or its deadline passes, then the future is completed with OVERLOADED_RESPONSE.
+     * 
+     * @param task Task that creates the response, it must not write the servlet response
+     * @return Future of the response
+     */
+    private static CompletableFuture<ResponseEntity<?>> execute(Callable<ResponseEntity<?>> task)
+    {
+    	CompletableFuture<ResponseEntity<?>> future = FoodTruckRequestExecutor.getInstance().submit(task);
+    	
+    	return future.exceptionally(new Function<Throwable, ResponseEntity<?>>()
+    	{
+    		@Override
+    		public ResponseEntity<?> apply(Throwable exception)
+    		{
+    			Throwable cause = (exception instanceof CompletionException) ? exception.getCause() : exception;
+    			if (cause instanceof RejectedExecutionException || cause instanceof TimeoutException)
+    			{
+    				return OVERLOADED_RESPONSE;
+    			}
+    			
+    			// Other failures of the task are handled by Spring like the synchronous requests
+    			throw (exception instanceof CompletionException) 
+    					? (CompletionException) exception 
+    					: new CompletionException(exception);
+    		}
+    	});
+    }
+    
+    /**
+     * Creates the response of the given payload.
+     * If the client already has the payload, then a "304 Not Modified" response without a body is returned.
+     * The servlet response is not touched, since this method also runs on the request executor, 
+     * whose task may still be running after the deadline of its request has passed.
+     * 
+     * JSON and binary payloads have different entity tags, so the response varies by the "Accept" header.
+     * 
+     * @param payload Pre-serialized payload
+     * @param request Web request
+     * @return Response with the payload and its entity tag, or "304 Not Modified" with the entity tag
+     */
+    private static ResponseEntity<byte[]> createPayloadResponse(FoodTruckPayload payload, WebRequest request)
+    {
+    	if (isNotModified(payload.getEtag(), request))
+    	{
+    		return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+    				.eTag(payload.getEtag())
+    				.varyBy(HttpHeaders.ACCEPT)
+    				.build();
+    	}
+    	
+    	return ResponseEntity.ok()
+    			.eTag(payload.getEtag())
+    			.varyBy(HttpHeaders.ACCEPT)
+    			.contentType(isBinaryRequested(request) ? BINARY_MEDIA_TYPE : MediaType.APPLICATION_JSON_UTF8)
+    			.body(payload.getBody());
+    }
+    
+    /**
+     * Creates the response of the given food trucks in the binary format
+     * 
+     * @param foodTrucks Food trucks
+     * @return Response with the encoded food trucks
+     */
+    private static ResponseEntity<byte[]> createBinaryResponse(List<FoodTruck> foodTrucks)
+    {
+    	return ResponseEntity.ok()
+    			.contentType(BINARY_MEDIA_TYPE)
+    			.body(FoodTruckBinaryEncoder.getInstance().encode(foodTrucks));
+    }
+    
+    /**
+     * Creates the response of the given page, the cursor of the next page is sent 
+     * in the NEXT_CURSOR_HEADER header (if there is a next page).
+     * 
+     * @param page Page of a query result
+     * @param projection Written fields of the food trucks (JSON format only)
+     * @param binary True for the binary format, false for the JSON format
+     * @return Response with the projected food trucks of the page
+     */
+    private static ResponseEntity<byte[]> createPageResponse(
+    		FoodTruckPage page, 
+    		FoodTruckProjection projection, 
+    		boolean binary)
+    {
+    	ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+    	
+    	if (page.getNextCursor() != null)
+    	{
+    		builder.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+    	}
+    	
+    	if (binary)
+    	{
+    		return builder.contentType(BINARY_MEDIA_TYPE)
+    				.body(FoodTruckBinaryEncoder.getInstance().encode(page.getFoodTrucks()));
+    	}
+    	return builder.contentType(MediaType.APPLICATION_JSON_UTF8)
+    			.body(projection.writeValueAsBytes(page.getFoodTrucks()));
+    }
+    
+    /**
+     * Creates the response of the given food trucks, only the fields of the projection are written
+     * 
+     * @param foodTrucks Food trucks
+     * @param projection Written fields of the food trucks
+     * @return Response with the projected food trucks
+     */
+    private static ResponseEntity<byte[]> createProjectedResponse(
+    		List<FoodTruck> foodTrucks, 
+    		FoodTruckProjection projection)
+    {
+    	return ResponseEntity.ok()
+    			.contentType(MediaType.APPLICATION_JSON_UTF8)
+    			.body(projection.writeValueAsBytes(foodTrucks));
+    }
+    
+    /**
+     * Returns true if the "If-None-Match" header of the request has the given entity tag (or "*")
+     * 
+     * @param etag Strong entity tag of the payload
+     * @param request Web request
+     * @return True if the client already has the payload
+     */
+    private static boolean isNotModified(String etag, WebRequest request)
+    {
+    	String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+    	if (ifNoneMatch == null)
+    	{
+    		return false;
+    	}
+    	
+    	// Weak comparison is used for "If-None-Match"
+    	for (String clientEtag : ifNoneMatch.split(","))
+    	{
+    		clientEtag = clientEtag.trim();
+    		if (clientEtag.startsWith("W/"))
+    		{
+    			clientEtag = clientEtag.substring(2);
+    		}
+    		if (clientEtag.equals("*") || clientEtag.equals(etag))
+    		{
+    			return true;
+    		}
+    	}
+    	return false;
+    }
+    
+    /**
+     * Returns true if the food trucks should be streamed as newline delimited JSON
+     * 
+     * @param stream Value of the "stream" parameter
+     * @param request Web request
+     * @return True if streaming is requested
+     */
+    private static boolean isStreamRequested(String stream, WebRequest request)
+    {
+    	if ("true".equalsIgnoreCase(stream))
+    	{
+    		return true;
+    	}
+    	
+    	String accept = request.getHeader(HttpHeaders.ACCEPT);
+    	return accept != null && accept.contains(FoodTruckNdjsonWriter.MEDIA_TYPE);
+    }
+    
+    /**
+     * Returns true if the food trucks should be sent in the binary format
+     * 
+     * @param request Web request
+     * @return True if the "Accept" header asks for the binary format
+     */
+    private static boolean isBinaryRequested(WebRequest request)
+    {
+    	String accept = request.getHeader(HttpHeaders.ACCEPT);
+    	return accept != null && accept.contains(FoodTruckBinaryEncoder.MEDIA_TYPE);
+    }
+    
+    /**
+     * Sets the content type of a streamed response
+     * 
+     * @param response Servlet response
+     */
+    private static void setStreamContentType(HttpServletResponse response)
+    {
+    	response.setContentType(FoodTruckNdjsonWriter.MEDIA_TYPE);
+    	response.setCharacterEncoding("UTF-8");
+    }
+    
+    /**
+     * Writes the food trucks of the given query to the output stream of the response, one food truck per line.
+     * If the attribute filter is given, then it is used instead of the status.
+     * If the client is disconnected, the query is stopped.
+     * 
+     * @throws IOException If the food trucks cannot be written
+     */
+    private static void streamFoodTrucks(
+    		FoodTruckFilter filter,
+    		String status,
+    		String latitude,
+    		String longitude,
+    		String radius,
+    		String radius_unit,
+    		String q,
+    		FoodTruckProjection projection,
+    		OutputStream outputStream) throws IOException
+    {
+    	FoodTruckNdjsonWriter writer = new FoodTruckNdjsonWriter(outputStream, projection);
+    	if (filter != null)
+    	{
+    		FoodTruckQueryHandler.getInstance().visitFoodTrucksByFilter(
+    				filter, latitude, longitude, radius, radius_unit, q, writer);
+    	}
+    	else
+    	{
+    		FoodTruckQueryHandler.getInstance().visitFoodTrucksByQuery(
+    				status, latitude, longitude, radius, radius_unit, q, writer);
+    	}
+    	writer.finish();
     }
 }
@@ -1,21 +1,62 @@
 package com.uber.coding_challange.food_trucks_web_service;
 
+import java.io.File;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
 import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckClient;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckQueryHandler;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckRequestExecutor;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckParallelScanner;
 
 @SpringBootApplication
 public class Main {
 
     public static void main(String[] args) 
     {
-        SpringApplication.run(Main.class, args);
+        ConfigurableApplicationContext context = SpringApplication.run(Main.class, args);
+        Environment environment = context.getEnvironment();
+        
+        FoodTruckQueryHandler.getInstance().setBatchParallelism(
+        		environment.getProperty("query.batch-parallelism", Integer.class, 0));
+        if (environment.getProperty("query.async-enabled", Boolean.class, false))
+        {
+        	FoodTruckRequestExecutor.getInstance().enable(
+        			environment.getProperty("query.async-threads", Integer.class, 0),
+        			environment.getProperty("query.async-queue-capacity", Integer.class, 0),
+        			environment.getProperty("query.async-timeout-millis", Long.class, 0L));
+        }
+        FoodTruckParallelScanner.getInstance().setParallelism(
+        		environment.getProperty("query.parallel-scan-parallelism", Integer.class, 0));
+        FoodTruckParallelScanner.getInstance().setThreshold(
+        		environment.getProperty("query.parallel-scan-threshold", Integer.class, 0));
+        FoodTruckClient.getInstance().setDataSourceUrl(
+        		environment.getProperty("datasf.url", FoodTruckClient.DATASF_URL));
+        FoodTruckClient.getInstance().setTimeouts(
+        		environment.getProperty("datasf.connect-timeout-millis", Integer.class, 0),
+        		environment.getProperty("datasf.read-timeout-millis", Integer.class, 0));
+        String snapshotFile = environment.getProperty("datasf.snapshot-file", "");
+        FoodTruckClient.getInstance().setSnapshotFile(snapshotFile.isEmpty() ? null : new File(snapshotFile));
         FoodTruckClient.getInstance().initialize();
+        FoodTruckClient.getInstance().startRefresher(
+        		environment.getProperty("datasf.refresh-interval-seconds", Long.class, 0L));
+    }
+    
+    @Bean
+    public FilterRegistrationBean metricsFilter()
+    {
+    	// Records the latency of the requests of the web service
+    	FilterRegistrationBean registration = new FilterRegistrationBean(new FoodTruckMetricsFilter());
+    	registration.addUrlPatterns("/food-trucks", "/food-trucks/*");
+    	return registration;
     }
     
     @Bean
@@ -28,6 +69,9 @@ public class Main {
             {
                 registry.addMapping("/").allowedOrigins("https://foodtruckradar.herokuapp.com/");
                 registry.addMapping("/query").allowedOrigins("https://foodtruckradar.herokuapp.com/");
+                registry.addMapping("/nearest").allowedOrigins("https://foodtruckradar.herokuapp.com/");
+                registry.addMapping("/batch").allowedOrigins("https://foodtruckradar.herokuapp.com/");
+                registry.addMapping("/metrics").allowedOrigins("https://foodtruckradar.herokuapp.com/");
             }
         };
     }
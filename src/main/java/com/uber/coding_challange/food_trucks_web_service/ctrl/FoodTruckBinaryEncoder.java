@@ -0,0 +1,148 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Binary encoder of the food truck lists ("application/x-food-trucks" media type). Singleton pattern is used.
+ * Records have a fixed layout and refer to the strings by their index in a string table,
+ * so the repeated values (facility type, status, food items, day/hours...) are written once
+ * and a client can read the i-th record without parsing the preceding ones.
+ *
+ * Format (big-endian):
+ * Header:       magic (int), format version (int), record count (int), string count (int)
+ * String table: for each string; UTF-8 length (int), then the bytes
+ * Records:      for each food truck (RECORD_SIZE bytes); objectid (long), latitude (double),
+ *               longitude (double), cnn (int), then the string indexes (int, -1 for null) of
+ *               address, locationdescription, applicant, dayshours, facilitytype, fooditems,
+ *               permit, schedule and status
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckBinaryEncoder
+{
+	// Constants ---------------------------------------------------------
+	public static final String MEDIA_TYPE = "application/x-food-trucks";
+	public static final int MAGIC = 0x46544231; // "FTB1"
+	public static final int FORMAT_VERSION = 1;
+	public static final int HEADER_SIZE = 16;
+	public static final int STRING_FIELD_COUNT = 9;
+	public static final int RECORD_SIZE = 28 + STRING_FIELD_COUNT * 4;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	// -------------------------------------------------------------------
+
+	// SINGLETON Implementation ------------------------------------------
+	private static FoodTruckBinaryEncoder INSTANCE = new FoodTruckBinaryEncoder();
+	private FoodTruckBinaryEncoder() {}
+	public static FoodTruckBinaryEncoder getInstance() {return INSTANCE;}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Encodes the given food trucks
+	 *
+	 * @param foodTrucks Food trucks, null is encoded as an empty list
+	 * @return The encoded food trucks
+	 */
+	public byte[] encode(List<FoodTruck> foodTrucks)
+	{
+		int recordCount = (foodTrucks != null) ? foodTrucks.size() : 0;
+		HashMap<String, Integer> stringIndexes = new HashMap<String, Integer>();
+		List<byte[]> strings = new ArrayList<byte[]>();
+		int[] references = new int[recordCount * STRING_FIELD_COUNT];
+		int stringTableSize = 0;
+
+		// First pass builds the string table
+		for (int i = 0; i < recordCount; i++)
+		{
+			FoodTruck foodTruck = foodTrucks.get(i);
+			String[] values = getStringFields(foodTruck);
+
+			for (int field = 0; field < STRING_FIELD_COUNT; field++)
+			{
+				String value = values[field];
+				int index = -1;
+
+				if (value != null)
+				{
+					Integer existingIndex = stringIndexes.get(value);
+					if (existingIndex == null)
+					{
+						byte[] bytes = value.getBytes(UTF8);
+						existingIndex = strings.size();
+						stringIndexes.put(value, existingIndex);
+						strings.add(bytes);
+						stringTableSize += 4 + bytes.length;
+					}
+					index = existingIndex;
+				}
+
+				references[i * STRING_FIELD_COUNT + field] = index;
+			}
+		}
+
+		try
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+					HEADER_SIZE + stringTableSize + recordCount * RECORD_SIZE);
+			DataOutputStream output = new DataOutputStream(bytes);
+
+			output.writeInt(MAGIC);
+			output.writeInt(FORMAT_VERSION);
+			output.writeInt(recordCount);
+			output.writeInt(strings.size());
+
+			for (byte[] string : strings)
+			{
+				output.writeInt(string.length);
+				output.write(string);
+			}
+
+			for (int i = 0; i < recordCount; i++)
+			{
+				FoodTruck foodTruck = foodTrucks.get(i);
+				output.writeLong(foodTruck.getObjectid());
+				output.writeDouble(foodTruck.getLatitude());
+				output.writeDouble(foodTruck.getLongitude());
+				output.writeInt(foodTruck.getCnn());
+
+				for (int field = 0; field < STRING_FIELD_COUNT; field++)
+				{
+					output.writeInt(references[i * STRING_FIELD_COUNT + field]);
+				}
+			}
+
+			output.flush();
+			return bytes.toByteArray();
+		}
+		catch (IOException e)
+		{
+			// Not expected, bytes are written to the memory
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns the string fields of the given food truck in the order of the record layout
+	 */
+	private static String[] getStringFields(FoodTruck foodTruck)
+	{
+		return new String[] {
+				foodTruck.getAddress(),
+				foodTruck.getLocationdescription(),
+				foodTruck.getApplicant(),
+				foodTruck.getDayshours(),
+				foodTruck.getFacilitytype(),
+				foodTruck.getFooditems(),
+				foodTruck.getPermit(),
+				foodTruck.getSchedule(),
+				foodTruck.getStatus()};
+	}
+}
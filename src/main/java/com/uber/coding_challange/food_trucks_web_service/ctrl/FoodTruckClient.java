@@ -1,86 +1,383 @@
 package com.uber.coding_challange.food_trucks_web_service.ctrl;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckSnapshotFile;
 import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckRefreshResult;
 
 /**
- * The client class. Singleton pattern is used. 
- * Responsible for establishing a connection with DataSF API and obtaining the food truck data. 
- * It is initialized only once (with lazy initialization); 
- * therefore, the connection is established only once.
- * 
+ * The client class. Singleton pattern is used.
+ * Responsible for establishing a connection with DataSF API and obtaining the food truck data.
+ * It is initialized only once (with lazy initialization);
+ * after that, the data can be refreshed periodically by a background refresher.
+ * A refresh only applies the differences between the received data and the storage.
+ * If a snapshot file is set, the storage is written to it after each load that changes it,
+ * and the first load reads the snapshot file instead of waiting for the DataSF API.
+ *
+ * Fetches are bounded by the connect and read timeouts. They are serialized by their own lock, 
+ * not by the monitor of the class, so a slow data source does not block the refresher control 
+ * (startRefresher, stopRefresher), the snapshot load or the refresh history.
+ *
  * @author alper.karacelik
  *
  */
-public class FoodTruckClient 
+public class FoodTruckClient
 {
 	// Constants ---------------------------------------------------------
-	private static final String DATASF_URL = "https://data.sfgov.org/resource/6a9r-agq8.json";
+	public static final String DATASF_URL = "https://data.sfgov.org/resource/6a9r-agq8.json";
+	public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10000;
+	public static final int DEFAULT_READ_TIMEOUT_MILLIS = 30000;
+	private static final Object INITIALIZE_LOCK = new Object();
+	private static final Object REFRESH_LOCK = new Object();
+	private static final int REFRESH_HISTORY_SIZE = 20;
 	// -------------------------------------------------------------------
-	
+
 	// Attributes --------------------------------------------------------
 	private static boolean initialized = false;
+	private static boolean loadedFromSnapshot = false;
+	private static volatile String dataSourceUrl = DATASF_URL;
+	private static volatile int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+	private static volatile int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+	private static volatile File snapshotFile;
+	private static ScheduledExecutorService refresher;
+	private static final LinkedList<FoodTruckRefreshResult> refreshHistory =
+			new LinkedList<FoodTruckRefreshResult>();
 	// -------------------------------------------------------------------
-	
+
 	// SINGLETON Implementation ------------------------------------------
 	private static FoodTruckClient INSTANCE = new FoodTruckClient();
 	private FoodTruckClient() {}
 	public static FoodTruckClient getInstance() {return INSTANCE;}
 	// -------------------------------------------------------------------
-	
+
 	/**
-	 * Uses the public API provided by DataSF, 
+	 * Uses the public API provided by DataSF,
 	 * Obtains all the food truck data
 	 * Pushes the obtained data to the Food Truck Accessor (the storage handler)
-	 * Uses lazy initialization. 
+	 * Uses lazy initialization.
 	 * This method is called after the first request to the web service.
 	 * Other calls will simply be ignored.
-	 * No two different threads can access this method at the same time.
+	 * No two different threads can access this method at the same time
+	 * (the monitor of the class is not held, see refresh()).
+	 * Received food trucks are parsed without the writer lock of the accessor,
+	 * then pushed to the accessor in batches and published in a single snapshot,
+	 * so readers are not blocked and never see a partially loaded storage.
+	 * If a valid snapshot file exists, the storage is loaded from it instead
+	 * and the refresher fetches the DataSF data in the background (see startRefresher).
+	 * A missing or corrupt snapshot file falls back to a full fetch.
 	 */
 	public void initialize()
 	{
 		System.out.println("Initializing Food Truck Data...");
-		synchronized (FoodTruckAccessor.class) 
+		synchronized (INITIALIZE_LOCK)
 		{
 			// Continue if not already initialized.
 			if (! initialized)
 			{
-				try 
+				try
 				{
-					URL url = new URL(DATASF_URL);
-					ObjectMapper jsonMapper = new ObjectMapper();
-					
-					// Obtain the food trucks
-					List<FoodTruck> foodTruckList = 
-							jsonMapper.readValue(url, new TypeReference<List<FoodTruck>>(){});
-					
-					// Add the received food trucks to our storage
-					for (FoodTruck foodTruck : foodTruckList)
+					if (loadSnapshot())
+					{
+						synchronized (FoodTruckClient.class)
+						{
+							loadedFromSnapshot = true;
+						}
+					}
+					else
 					{
-						FoodTruckAccessor.getInstance().addFoodTruck(foodTruck);
+						refresh();
 					}
-					
+
 					// set initialized flag true
 					initialized = true;
-				} 
-				catch (MalformedURLException e) 
+				}
+				catch (MalformedURLException e)
 				{
 					e.printStackTrace();
-				} 
-				catch (IOException e) 
+				}
+				catch (IOException e)
 				{
 					e.printStackTrace();
 				}
 			}
 		}
-		
+
 		System.out.println("Food Truck Data Inizialization is Finished!");
 	}
+
+	/**
+	 * Obtains all the food truck data from the data source,
+	 * compares it with the storage by object id
+	 * and applies only the added, updated and removed food trucks (in a single snapshot).
+	 * The response is parsed as a stream without the writer lock, then the changes are pushed to the storage
+	 * in batches (see FoodTruckIngester), so a slow data source does not block the other writers.
+	 * If the data source returns no food trucks while the storage is not empty,
+	 * then the storage is kept as it is (an empty response is treated as an outage).
+	 * No two different threads can access this method at the same time; the refreshes are serialized
+	 * by their own lock, the monitor of the class is only held to record the result.
+	 *
+	 * @return The changes that are applied to the storage
+	 * @throws IOException If the data source cannot be read or a timeout expires
+	 */
+	public FoodTruckRefreshResult refresh() throws IOException
+	{
+		synchronized (REFRESH_LOCK)
+		{
+			// Stream the food trucks to our storage
+			FoodTruckRefreshResult result;
+			try
+			{
+				result = FoodTruckIngester.getInstance().ingest(
+						new URL(dataSourceUrl), connectTimeoutMillis, readTimeoutMillis);
+			}
+			catch (IOException e)
+			{
+				FoodTruckMetrics.getInstance().recordIngestFailure();
+				throw e;
+			}
+
+			// Keep the snapshot file up to date, a failed write must not fail the refresh
+			File file = snapshotFile;
+			if (file != null && (result.hasChanges() || ! file.exists()))
+			{
+				try
+				{
+					FoodTruckSnapshotFile.getInstance().write(FoodTruckAccessor.getInstance().getSnapshot(), file);
+				}
+				catch (IOException e)
+				{
+					e.printStackTrace();
+				}
+			}
+
+			// Record the changes
+			FoodTruckMetrics.getInstance().recordIngest(result);
+			synchronized (FoodTruckClient.class)
+			{
+				refreshHistory.addFirst(result);
+				if (refreshHistory.size() > REFRESH_HISTORY_SIZE)
+				{
+					refreshHistory.removeLast();
+				}
+			}
+			System.out.println("Food Truck Data is Refreshed (" + result + ")");
+
+			return result;
+		}
+	}
+
+	/**
+	 * Loads the food trucks from the snapshot file (memory-mapped) in a single snapshot.
+	 * No two different threads can access this method at the same time.
+	 *
+	 * @return True if the snapshot file is loaded,
+	 * false if no snapshot file is set, it does not exist or it is corrupt
+	 */
+	public boolean loadSnapshot()
+	{
+		synchronized (FoodTruckClient.class)
+		{
+			File file = snapshotFile;
+			if (file == null || ! file.exists())
+			{
+				return false;
+			}
+
+			long start = System.currentTimeMillis();
+			try
+			{
+				List<FoodTruck> foodTrucks = FoodTruckSnapshotFile.getInstance().read(file);
+				FoodTruckAccessor.getInstance().addFoodTrucks(foodTrucks);
+
+				System.out.println("Food Truck Data is Loaded from " + file + " (" + foodTrucks.size()
+						+ " food trucks in " + (System.currentTimeMillis() - start) + " ms)");
+				return true;
+			}
+			catch (IOException e)
+			{
+				// Corrupt snapshot, the data is fetched from the data source
+				e.printStackTrace();
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Starts refreshing the food truck data in the background with the given interval.
+	 * A running refresher is stopped first. Zero or negative interval disables the refresher.
+	 * If the storage is loaded from the snapshot file, the first refresh starts immediately
+	 * (even if the refresher is disabled).
+	 *
+	 * @param intervalSeconds Delay between the end of a refresh and the start of the next one
+	 */
+	public void startRefresher(long intervalSeconds)
+	{
+		synchronized (FoodTruckClient.class)
+		{
+			stopRefresher();
+
+			if (intervalSeconds <= 0 && ! loadedFromSnapshot)
+			{
+				return;
+			}
+
+			refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+			{
+				@Override
+				public Thread newThread(Runnable runnable)
+				{
+					Thread thread = new Thread(runnable, "food-truck-refresher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+			Runnable refreshTask = new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					// A failed refresh must not cancel the next ones
+					try
+					{
+						refresh();
+					}
+					catch (Exception e)
+					{
+						e.printStackTrace();
+					}
+				}
+			};
+
+			if (intervalSeconds > 0)
+			{
+				long initialDelay = loadedFromSnapshot ? 0 : intervalSeconds;
+				refresher.scheduleWithFixedDelay(refreshTask, initialDelay, intervalSeconds, TimeUnit.SECONDS);
+			}
+			else
+			{
+				refresher.schedule(refreshTask, 0, TimeUnit.SECONDS);
+			}
+			loadedFromSnapshot = false;
+		}
+	}
+
+	/**
+	 * Stops the background refresher (if it is running)
+	 */
+	public void stopRefresher()
+	{
+		synchronized (FoodTruckClient.class)
+		{
+			if (refresher != null)
+			{
+				refresher.shutdownNow();
+				refresher = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the results of the latest refreshes, the latest one is the first
+	 *
+	 * @return The results of the latest refreshes
+	 */
+	public List<FoodTruckRefreshResult> getRefreshHistory()
+	{
+		synchronized (FoodTruckClient.class)
+		{
+			return new ArrayList<FoodTruckRefreshResult>(refreshHistory);
+		}
+	}
+
+	/**
+	 * Returns the URL of the data source
+	 *
+	 * @return The URL of the data source
+	 */
+	public String getDataSourceUrl()
+	{
+		return dataSourceUrl;
+	}
+
+	/**
+	 * Sets the timeouts of the data source connection
+	 *
+	 * @param connectMillis Timeout of the connection in milliseconds, the default is used if it is not positive
+	 * @param readMillis Timeout of a read of the response in milliseconds, the default is used if it is not positive
+	 */
+	public void setTimeouts(int connectMillis, int readMillis)
+	{
+		connectTimeoutMillis = (connectMillis > 0) ? connectMillis : DEFAULT_CONNECT_TIMEOUT_MILLIS;
+		readTimeoutMillis = (readMillis > 0) ? readMillis : DEFAULT_READ_TIMEOUT_MILLIS;
+	}
+
+	/**
+	 * Returns the timeout of the data source connection
+	 *
+	 * @return The connect timeout in milliseconds
+	 */
+	public int getConnectTimeoutMillis()
+	{
+		return connectTimeoutMillis;
+	}
+
+	/**
+	 * Returns the timeout of a read of the data source response
+	 *
+	 * @return The read timeout in milliseconds
+	 */
+	public int getReadTimeoutMillis()
+	{
+		return readTimeoutMillis;
+	}
+
+	/**
+	 * Returns the snapshot file
+	 *
+	 * @return The snapshot file, null if snapshots are disabled
+	 */
+	public File getSnapshotFile()
+	{
+		return snapshotFile;
+	}
+
+	/**
+	 * Sets the snapshot file
+	 *
+	 * @param file The snapshot file, null to disable snapshots
+	 */
+	public void setSnapshotFile(File file)
+	{
+		synchronized (FoodTruckClient.class)
+		{
+			snapshotFile = file;
+		}
+	}
+
+	/**
+	 * Sets the URL of the data source.
+	 * Any URL that returns a DataSF shaped JSON array can be used (for example, a local file).
+	 *
+	 * @param url The URL of the data source
+	 */
+	public void setDataSourceUrl(String url)
+	{
+		synchronized (FoodTruckClient.class)
+		{
+			dataSourceUrl = url;
+		}
+	}
 }
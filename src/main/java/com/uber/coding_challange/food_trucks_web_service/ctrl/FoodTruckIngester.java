@@ -0,0 +1,320 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckSnapshot;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckStringPool;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckWriteSession;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckRefreshResult;
+
+/**
+ * Food truck ingester class. Singleton pattern is used.
+ * Reads a DataSF shaped JSON array (from a URL, a file or an input stream) with the streaming parser
+ * and keeps only the food trucks that differ from the storage, then pushes them to the Food Truck Accessor
+ * in bounded batches, so the whole response is never held in memory as a list.
+ * The repeated strings of the stored food trucks are deduplicated (see FoodTruckStringPool).
+ *
+ * Food trucks are compared with the storage by object id and only the changes are applied.
+ * The input is read without the writer lock of the accessor (only the changed food trucks are kept),
+ * then all the batches go to a single write session; readers see the new data at once
+ * when the whole input is read, and if reading fails, nothing is applied.
+ * If the input has no food trucks while the storage is not empty,
+ * then the storage is kept as it is (an empty response is treated as an outage).
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckIngester
+{
+	// Constants ---------------------------------------------------------
+	public static final int BATCH_SIZE = 5000;
+	public static final int MAX_RECORDED_IDS = 1000; // per change type in the refresh result
+	private static final ObjectReader FOOD_TRUCK_READER =
+			new ObjectMapper().configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false).readerFor(FoodTruck.class);
+	// -------------------------------------------------------------------
+
+	// SINGLETON Implementation ------------------------------------------
+	private static FoodTruckIngester INSTANCE = new FoodTruckIngester();
+	private FoodTruckIngester() {}
+	public static FoodTruckIngester getInstance() {return INSTANCE;}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Ingests the food trucks from the given URL.
+	 * The connection and every read of the response are bounded by the given timeouts,
+	 * so a stalled data source fails the ingest instead of blocking it.
+	 *
+	 * @param url URL of a DataSF shaped JSON array
+	 * @param connectTimeoutMillis Timeout of the connection in milliseconds (0 waits forever)
+	 * @param readTimeoutMillis Timeout of a read of the response in milliseconds (0 waits forever)
+	 * @return The changes that are applied to the storage
+	 * @throws IOException If the input cannot be read or parsed, or a timeout expires
+	 */
+	public FoodTruckRefreshResult ingest(URL url, int connectTimeoutMillis, int readTimeoutMillis) throws IOException
+	{
+		URLConnection connection = url.openConnection();
+		connection.setConnectTimeout(connectTimeoutMillis);
+		connection.setReadTimeout(readTimeoutMillis);
+
+		InputStream inputStream = connection.getInputStream();
+		try
+		{
+			return ingest(inputStream);
+		}
+		finally
+		{
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Ingests the food trucks from the given file
+	 *
+	 * @param file File that contains a DataSF shaped JSON array
+	 * @return The changes that are applied to the storage
+	 * @throws IOException If the input cannot be read or parsed
+	 */
+	public FoodTruckRefreshResult ingest(File file) throws IOException
+	{
+		InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+		try
+		{
+			return ingest(inputStream);
+		}
+		finally
+		{
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Ingests the food trucks from the given input stream.
+	 * The stream is not closed.
+	 * If an object id appears more than once, the last food truck is used.
+	 *
+	 * The input is read and compared with the current snapshot without the writer lock, so a slow input
+	 * does not block the other writers; only the added and updated food trucks are kept.
+	 * Then the write session is opened and the changes are applied. If another writer published
+	 * in the meantime, then the changes are compared with its snapshot again (see applyChanges()).
+	 *
+	 * @param inputStream Input stream of a DataSF shaped JSON array
+	 * @return The changes that are applied to the storage
+	 * @throws IOException If the input cannot be read or parsed
+	 */
+	public FoodTruckRefreshResult ingest(InputStream inputStream) throws IOException
+	{
+		long start = System.currentTimeMillis();
+
+		// Food trucks that are added or updated against the base snapshot, in the order they are received
+		List<FoodTruck> changedFoodTrucks = new ArrayList<FoodTruck>();
+
+		// Received ids are kept as primitives, they are only needed to find the removed food trucks
+		long[] receivedIds = new long[BATCH_SIZE];
+		int receivedCount = 0;
+
+		// Added and updated food trucks share the instances of their repeated strings
+		FoodTruckStringPool stringPool = new FoodTruckStringPool();
+
+		FoodTruckSnapshot baseSnapshot = FoodTruckAccessor.getInstance().getSnapshot();
+		JsonParser parser = FOOD_TRUCK_READER.getFactory().createParser(inputStream);
+		try
+		{
+			if (parser.nextToken() != JsonToken.START_ARRAY)
+			{
+				throw new JsonParseException(parser, "Food truck array is expected");
+			}
+
+			while (parser.nextToken() == JsonToken.START_OBJECT)
+			{
+				FoodTruck foodTruck = FOOD_TRUCK_READER.readValue(parser);
+
+				if (receivedCount == receivedIds.length)
+				{
+					receivedIds = Arrays.copyOf(receivedIds, receivedCount * 2);
+				}
+				receivedIds[receivedCount++] = foodTruck.getObjectid();
+
+				// Compare the received food truck with the storage
+				FoodTruck existingFoodTruck = baseSnapshot.getFoodTruck(foodTruck.getObjectid());
+
+				if (existingFoodTruck == null || ! existingFoodTruck.contentEquals(foodTruck))
+				{
+					stringPool.deduplicate(foodTruck);
+					changedFoodTrucks.add(foodTruck);
+				}
+			}
+
+			if (parser.getCurrentToken() != JsonToken.END_ARRAY)
+			{
+				throw new JsonParseException(parser, "Food truck object is expected");
+			}
+		}
+		finally
+		{
+			parser.close();
+		}
+
+		Arrays.sort(receivedIds, 0, receivedCount);
+
+		return applyChanges(start, baseSnapshot, changedFoodTrucks, receivedIds, receivedCount);
+	}
+
+	/**
+	 * Applies the changes of a read input in a single write session.
+	 *
+	 * The changed food trucks are compared with the snapshot of the session, they are pushed in batches.
+	 * If the snapshot is not the base snapshot (another writer published after the input was read),
+	 * then the received food trucks that were not changed are equal to their instances in the base snapshot;
+	 * the ones that the other writer changed or removed are restored from the base snapshot, so the storage
+	 * matches the input as if it was read again.
+	 * Food trucks that are not received are removed (unless nothing is received).
+	 */
+	private FoodTruckRefreshResult applyChanges(
+			long start,
+			FoodTruckSnapshot baseSnapshot,
+			List<FoodTruck> changedFoodTrucks,
+			long[] receivedIds,
+			int receivedCount)
+	{
+		List<FoodTruck> addedFoodTrucks = new ArrayList<FoodTruck>(BATCH_SIZE);
+		List<FoodTruck> updatedFoodTrucks = new ArrayList<FoodTruck>(BATCH_SIZE);
+		List<Long> addedIds = new ArrayList<Long>();
+		List<Long> updatedIds = new ArrayList<Long>();
+		List<Long> removedIds = new ArrayList<Long>();
+		int addedCount = 0;
+		int updatedCount = 0;
+		int removedCount = 0;
+
+		FoodTruckWriteSession session = FoodTruckAccessor.getInstance().openWriteSession();
+		try
+		{
+			FoodTruckSnapshot snapshot = session.getBaseSnapshot();
+
+			if (snapshot != baseSnapshot)
+			{
+				restoreFoodTrucks(baseSnapshot, snapshot, changedFoodTrucks, receivedIds, receivedCount);
+			}
+
+			for (FoodTruck foodTruck : changedFoodTrucks)
+			{
+				FoodTruck existingFoodTruck = snapshot.getFoodTruck(foodTruck.getObjectid());
+
+				if (existingFoodTruck == null)
+				{
+					addedFoodTrucks.add(foodTruck);
+					addedCount++;
+					recordId(addedIds, foodTruck.getObjectid());
+				}
+				else if (! existingFoodTruck.contentEquals(foodTruck))
+				{
+					updatedFoodTrucks.add(foodTruck);
+					updatedCount++;
+					recordId(updatedIds, foodTruck.getObjectid());
+				}
+
+				// Push the batch to the storage
+				if ((addedFoodTrucks.size() + updatedFoodTrucks.size()) >= BATCH_SIZE)
+				{
+					pushBatch(session, addedFoodTrucks, updatedFoodTrucks);
+				}
+			}
+
+			pushBatch(session, addedFoodTrucks, updatedFoodTrucks);
+
+			// Food trucks that are not received are removed (unless nothing is received)
+			if (receivedCount > 0)
+			{
+				for (FoodTruck existingFoodTruck : snapshot.getAllFoodTrucks())
+				{
+					if (Arrays.binarySearch(receivedIds, 0, receivedCount, existingFoodTruck.getObjectid()) < 0)
+					{
+						session.remove(existingFoodTruck.getObjectid());
+						removedCount++;
+						recordId(removedIds, existingFoodTruck.getObjectid());
+					}
+				}
+			}
+
+			session.publish();
+		}
+		finally
+		{
+			session.close();
+		}
+
+		return new FoodTruckRefreshResult(
+				start, System.currentTimeMillis() - start, receivedCount,
+				addedIds, updatedIds, removedIds,
+				addedCount, updatedCount, removedCount);
+	}
+
+	/**
+	 * Adds the base snapshot instances of the received food trucks that were not changed against the base snapshot,
+	 * but are changed or removed in the current snapshot, to the changed food trucks
+	 */
+	private static void restoreFoodTrucks(
+			FoodTruckSnapshot baseSnapshot,
+			FoodTruckSnapshot snapshot,
+			List<FoodTruck> changedFoodTrucks,
+			long[] receivedIds,
+			int receivedCount)
+	{
+		HashSet<Long> changedIds = new HashSet<Long>();
+		for (FoodTruck foodTruck : changedFoodTrucks)
+		{
+			changedIds.add(foodTruck.getObjectid());
+		}
+
+		for (int i = 0; i < receivedCount; i++)
+		{
+			if (! changedIds.contains(receivedIds[i]))
+			{
+				// Snapshots share the instances of the food trucks that are not changed
+				FoodTruck receivedFoodTruck = baseSnapshot.getFoodTruck(receivedIds[i]);
+				if (receivedFoodTruck != null && snapshot.getFoodTruck(receivedIds[i]) != receivedFoodTruck)
+				{
+					changedFoodTrucks.add(receivedFoodTruck);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Pushes the changed food trucks to the write session and clears the batch
+	 */
+	private static void pushBatch(
+			FoodTruckWriteSession session,
+			List<FoodTruck> addedFoodTrucks,
+			List<FoodTruck> updatedFoodTrucks)
+	{
+		session.update(updatedFoodTrucks);
+		session.add(addedFoodTrucks);
+		updatedFoodTrucks.clear();
+		addedFoodTrucks.clear();
+	}
+
+	private static void recordId(List<Long> ids, long id)
+	{
+		if (ids.size() < MAX_RECORDED_IDS)
+		{
+			ids.add(id);
+		}
+	}
+}
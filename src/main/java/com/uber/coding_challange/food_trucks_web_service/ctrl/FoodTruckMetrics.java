@@ -0,0 +1,216 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckHistogram;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckHistogramStats;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckMetricsReport;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckQueryCacheStats;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckRefreshResult;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.QueryAccessPathEnum;
+
+/**
+ * The Metrics class. Singleton pattern is used.
+ * Keeps the histograms and counters of the hot paths of the service:
+ *
+ * request.{path}: Latency of the requests of every endpoint (see FoodTruckMetricsFilter)
+ * query.plan: Planning time of a query (see FoodTruckQueryPlanner)
+ * query.execute.{access path}: Execution time of a query by its access path; the access path produces
+ * the candidates (e.g. the status bitmap or the grid cells) and the status and distance checks run on them
+ * in the same pass, so the count of every access path is also its hit count
+ * query.examinedRows / query.resultRows: Number of the checked and the returned food trucks of a query
+ * accessor.lockWait: Time a writer waits for the writer lock of the accessor (readers never lock)
+ * executor.queueWait: Time a query request waits for a worker thread (see FoodTruckRequestExecutor)
+ * ingest.duration / ingest.receivedRecords: Duration and size of every refresh of the data source
+ *
+ * All the histograms and counters are created up front and are never removed, so recording is allocation-free
+ * (see FoodTruckHistogram). Latencies are recorded in nanoseconds and reported in microseconds.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckMetrics
+{
+	// Constants ---------------------------------------------------------
+	private static final String[] REQUEST_PATHS = {
+			"/food-trucks", "/food-trucks/query", "/food-trucks/nearest", "/food-trucks/viewport",
+			"/food-trucks/batch", "/food-trucks/query-cache", "/food-trucks/metrics"};
+	private static final double NANOS_PER_MICRO = 1000.0;
+	private static final String MICROSECONDS = "us";
+	private static final String ROWS = "rows";
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final long startTime = System.currentTimeMillis();
+
+	private final Map<String, FoodTruckHistogram> requestHistograms; // read-only after construction
+	private final FoodTruckHistogram otherRequestHistogram = new FoodTruckHistogram();
+	private final AtomicLong serverErrorCount = new AtomicLong();
+
+	private final FoodTruckHistogram planHistogram = new FoodTruckHistogram();
+	private final EnumMap<QueryAccessPathEnum, FoodTruckHistogram> executeHistograms =
+			new EnumMap<QueryAccessPathEnum, FoodTruckHistogram>(QueryAccessPathEnum.class);
+	private final FoodTruckHistogram examinedRowsHistogram = new FoodTruckHistogram();
+	private final FoodTruckHistogram resultRowsHistogram = new FoodTruckHistogram();
+
+	private final FoodTruckHistogram ingestDurationHistogram = new FoodTruckHistogram();
+	private final FoodTruckHistogram ingestRecordsHistogram = new FoodTruckHistogram();
+	private final AtomicLong ingestAddedCount = new AtomicLong();
+	private final AtomicLong ingestUpdatedCount = new AtomicLong();
+	private final AtomicLong ingestRemovedCount = new AtomicLong();
+	private final AtomicLong ingestFailureCount = new AtomicLong();
+	// -------------------------------------------------------------------
+
+	// SINGLETON Implementation ------------------------------------------
+	private static FoodTruckMetrics INSTANCE = new FoodTruckMetrics();
+	private FoodTruckMetrics()
+	{
+		Map<String, FoodTruckHistogram> histograms = new LinkedHashMap<String, FoodTruckHistogram>();
+		for (String path : REQUEST_PATHS)
+		{
+			histograms.put(path, new FoodTruckHistogram());
+		}
+		requestHistograms = Collections.unmodifiableMap(histograms);
+
+		for (QueryAccessPathEnum accessPath : QueryAccessPathEnum.values())
+		{
+			executeHistograms.put(accessPath, new FoodTruckHistogram());
+		}
+	}
+	public static FoodTruckMetrics getInstance() {return INSTANCE;}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Records the latency of a request
+	 *
+	 * @param path Request URI, the paths that are not an endpoint are recorded together
+	 * @param status Status code of the response
+	 * @param nanos Latency in nanoseconds
+	 */
+	public void recordRequest(String path, int status, long nanos)
+	{
+		FoodTruckHistogram histogram = requestHistograms.get(path);
+		(histogram != null ? histogram : otherRequestHistogram).record(nanos);
+
+		if (status >= 500)
+		{
+			serverErrorCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Records the planning time of a query
+	 *
+	 * @param nanos Planning time in nanoseconds
+	 */
+	public void recordPlan(long nanos)
+	{
+		planHistogram.record(nanos);
+	}
+
+	/**
+	 * Records the execution of a query
+	 *
+	 * @param accessPath Access path of the query
+	 * @param nanos Execution time in nanoseconds
+	 * @param examinedRows Number of the checked food trucks
+	 * @param resultRows Number of the returned food trucks
+	 */
+	public void recordQuery(QueryAccessPathEnum accessPath, long nanos, long examinedRows, long resultRows)
+	{
+		executeHistograms.get(accessPath).record(nanos);
+		examinedRowsHistogram.record(examinedRows);
+		resultRowsHistogram.record(resultRows);
+	}
+
+	/**
+	 * Records a refresh of the data source
+	 *
+	 * @param result Changes of the refresh
+	 */
+	public void recordIngest(FoodTruckRefreshResult result)
+	{
+		ingestDurationHistogram.record(result.getDurationMillis() * 1000000L);
+		ingestRecordsHistogram.record(result.getReceivedCount());
+		ingestAddedCount.addAndGet(result.getAddedCount());
+		ingestUpdatedCount.addAndGet(result.getUpdatedCount());
+		ingestRemovedCount.addAndGet(result.getRemovedCount());
+	}
+
+	/**
+	 * Records a refresh that failed to read the data source
+	 */
+	public void recordIngestFailure()
+	{
+		ingestFailureCount.incrementAndGet();
+	}
+
+	/**
+	 * Returns the statistics of all the histograms, the counters and the gauges (sorted by name)
+	 *
+	 * @return The metrics report
+	 */
+	public FoodTruckMetricsReport getReport()
+	{
+		Map<String, FoodTruckHistogramStats> histograms = new TreeMap<String, FoodTruckHistogramStats>();
+		for (Map.Entry<String, FoodTruckHistogram> entry : requestHistograms.entrySet())
+		{
+			histograms.put("request." + entry.getKey(), entry.getValue().getStats(NANOS_PER_MICRO, MICROSECONDS));
+		}
+		histograms.put("request.other", otherRequestHistogram.getStats(NANOS_PER_MICRO, MICROSECONDS));
+
+		long queryCount = 0;
+		histograms.put("query.plan", planHistogram.getStats(NANOS_PER_MICRO, MICROSECONDS));
+		for (Map.Entry<QueryAccessPathEnum, FoodTruckHistogram> entry : executeHistograms.entrySet())
+		{
+			histograms.put("query.execute." + entry.getKey(), entry.getValue().getStats(NANOS_PER_MICRO, MICROSECONDS));
+			queryCount += entry.getValue().getCount();
+		}
+		histograms.put("query.examinedRows", examinedRowsHistogram.getStats(1, ROWS));
+		histograms.put("query.resultRows", resultRowsHistogram.getStats(1, ROWS));
+
+		histograms.put("accessor.lockWait",
+				FoodTruckAccessor.getInstance().getLockWaitHistogram().getStats(NANOS_PER_MICRO, MICROSECONDS));
+
+		histograms.put("executor.queueWait",
+				FoodTruckRequestExecutor.getInstance().getQueueWaitHistogram().getStats(NANOS_PER_MICRO, MICROSECONDS));
+
+		histograms.put("ingest.duration", ingestDurationHistogram.getStats(NANOS_PER_MICRO, MICROSECONDS));
+		histograms.put("ingest.receivedRecords", ingestRecordsHistogram.getStats(1, ROWS));
+
+		Map<String, Long> counters = new TreeMap<String, Long>();
+		FoodTruckQueryCacheStats cacheStats = FoodTruckQueryHandler.getInstance().getQueryCacheStats();
+		counters.put("request.serverErrors", serverErrorCount.get());
+		counters.put("queryCache.hits", cacheStats.getHitCount());
+		counters.put("queryCache.misses", cacheStats.getMissCount());
+		counters.put("executor.rejected", FoodTruckRequestExecutor.getInstance().getRejectedCount());
+		counters.put("executor.expired", FoodTruckRequestExecutor.getInstance().getExpiredCount());
+		counters.put("ingest.added", ingestAddedCount.get());
+		counters.put("ingest.updated", ingestUpdatedCount.get());
+		counters.put("ingest.removed", ingestRemovedCount.get());
+		counters.put("ingest.failures", ingestFailureCount.get());
+
+		// Share of every access path among the executed queries, and the hit rate of the query cache
+		Map<String, Double> gauges = new TreeMap<String, Double>();
+		for (Map.Entry<QueryAccessPathEnum, FoodTruckHistogram> entry : executeHistograms.entrySet())
+		{
+			gauges.put("query.accessPathRate." + entry.getKey(),
+					(queryCount > 0) ? entry.getValue().getCount() / (double) queryCount : 0);
+		}
+		long cacheLookups = cacheStats.getHitCount() + cacheStats.getMissCount();
+		gauges.put("queryCache.hitRate", (cacheLookups > 0) ? cacheStats.getHitCount() / (double) cacheLookups : 0);
+		gauges.put("executor.queueSize", (double) FoodTruckRequestExecutor.getInstance().getQueueSize());
+		gauges.put("executor.activeThreads", (double) FoodTruckRequestExecutor.getInstance().getActiveCount());
+		gauges.put("storage.size", (double) FoodTruckAccessor.getInstance().getSnapshot().size());
+		gauges.put("storage.version", (double) FoodTruckAccessor.getInstance().getSnapshot().getVersion());
+
+		return new FoodTruckMetricsReport(System.currentTimeMillis(), System.currentTimeMillis() - startTime,
+				histograms, counters, gauges);
+	}
+}
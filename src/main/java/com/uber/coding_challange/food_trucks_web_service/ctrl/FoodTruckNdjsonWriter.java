@@ -0,0 +1,131 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckVisitor;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Writes the visited food trucks to an output stream as newline delimited JSON (NDJSON),
+ * one food truck per line, while they are read from the storage.
+ * Only the buffer of the JSON generator is kept in memory;
+ * the output is flushed every FLUSH_INTERVAL food trucks, so the client receives the first
+ * food trucks before the query is finished.
+ * If writing fails (for example, the client is disconnected), the traversal is stopped.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckNdjsonWriter implements FoodTruckVisitor
+{
+	// Constants ---------------------------------------------------------
+	public static final String MEDIA_TYPE = "application/x-ndjson";
+	public static final int FLUSH_INTERVAL = 256;
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final ObjectWriter writer;
+	private final JsonGenerator generator;
+	private int writtenCount = 0;
+	private IOException failure;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	/**
+	 * Creates the writer, the given output stream is not closed
+	 *
+	 * @param outputStream Output stream of the response
+	 * @throws IOException If the JSON generator cannot be created
+	 */
+	public FoodTruckNdjsonWriter(OutputStream outputStream) throws IOException
+	{
+		this(outputStream, FoodTruckProjection.ALL_FIELDS);
+	}
+
+	/**
+	 * Creates the writer that writes only the fields of the given projection,
+	 * the given output stream is not closed
+	 *
+	 * @param outputStream Output stream of the response
+	 * @param projection Written fields of the food trucks
+	 * @throws IOException If the JSON generator cannot be created
+	 */
+	public FoodTruckNdjsonWriter(OutputStream outputStream, FoodTruckProjection projection) throws IOException
+	{
+		this.writer = projection.getWriter().forType(FoodTruck.class);
+		this.generator = writer.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+		this.generator.setRootValueSeparator(null);
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Writes the given food truck as a single line
+	 *
+	 * @param foodTruck The next food truck
+	 * @return True if the food truck is written, false if writing failed
+	 */
+	@Override
+	public boolean visit(FoodTruck foodTruck)
+	{
+		try
+		{
+			writer.writeValue(generator, foodTruck);
+			generator.writeRaw('\n');
+			writtenCount++;
+
+			if ((writtenCount % FLUSH_INTERVAL) == 0)
+			{
+				generator.flush();
+			}
+			return true;
+		}
+		catch (IOException e)
+		{
+			failure = e;
+			return false;
+		}
+	}
+
+	/**
+	 * Flushes the remaining lines.
+	 * Does nothing if writing has already failed.
+	 */
+	public void finish()
+	{
+		if (failure == null)
+		{
+			try
+			{
+				generator.flush();
+			}
+			catch (IOException e)
+			{
+				failure = e;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of food trucks that are written
+	 *
+	 * @return The number of food trucks that are written
+	 */
+	public int getWrittenCount()
+	{
+		return writtenCount;
+	}
+
+	/**
+	 * Returns true if writing failed and the traversal is stopped
+	 *
+	 * @return True if writing failed, false otherwise
+	 */
+	public boolean isAborted()
+	{
+		return failure != null;
+	}
+}
@@ -0,0 +1,158 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckVisitor;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckPage;
+
+/**
+ * Collects a page of the visited food trucks.
+ * Pages are ordered by objectid and the cursor is the objectid of the last food truck of the page,
+ * so a page does not shift when food trucks are added to or removed from the earlier pages.
+ *
+ * Only the 'limit + 1' smallest objectids after the cursor are kept (in a max-heap),
+ * the extra food truck tells whether there is a next page.
+ *
+ * The collector accepts the food trucks in any order, so a query can use the access path of its plan;
+ * then every match of the query is visited for every page, and reading all the pages of M matches
+ * visits about M * M / limit food trucks. Queries that match many food trucks are visited in objectid order
+ * from the cursor instead (see FoodTruckSnapshot.visitFoodTrucksAfter()), and the traversal stops as soon as
+ * the collector is full (see FoodTruckQueryHandler).
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckPageCollector implements FoodTruckVisitor
+{
+	// Constants ---------------------------------------------------------
+	private static final Comparator<FoodTruck> DESCENDING_OBJECTID = new Comparator<FoodTruck>()
+	{
+		@Override
+		public int compare(FoodTruck first, FoodTruck second)
+		{
+			return Long.compare(second.getObjectid(), first.getObjectid());
+		}
+	};
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final int limit;
+	private final long afterObjectid;
+	private final PriorityQueue<FoodTruck> heap;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	/**
+	 * Creates an empty collector
+	 *
+	 * @param limit Maximum number of food trucks in the page, must be positive
+	 * @param afterObjectid Only the food trucks with greater objectids are collected
+	 */
+	public FoodTruckPageCollector(int limit, long afterObjectid)
+	{
+		this.limit = limit;
+		this.afterObjectid = afterObjectid;
+		this.heap = new PriorityQueue<FoodTruck>(Math.min(limit + 1, 1024), DESCENDING_OBJECTID);
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns the maximum number of food trucks in the page
+	 *
+	 * @return The limit of the page
+	 */
+	public int getLimit()
+	{
+		return limit;
+	}
+
+	/**
+	 * Returns the objectid of the cursor
+	 *
+	 * @return Only the food trucks with greater objectids are collected
+	 */
+	public long getAfterObjectid()
+	{
+		return afterObjectid;
+	}
+
+	/**
+	 * Returns true if the page and the food truck that tells whether there is a next page are collected.
+	 * If the food trucks are visited in objectid order, then the later ones cannot change the page.
+	 *
+	 * @return True if 'limit + 1' food trucks are collected
+	 */
+	public boolean isFull()
+	{
+		return heap.size() > limit;
+	}
+
+	/**
+	 * Returns the cursor that points after the given food truck
+	 *
+	 * @param foodTruck Last food truck of a page
+	 * @return The cursor
+	 */
+	public static String encodeCursor(FoodTruck foodTruck)
+	{
+		return Long.toString(foodTruck.getObjectid());
+	}
+
+	/**
+	 * Returns the objectid that the given cursor points after
+	 *
+	 * @param cursor Cursor of a page
+	 * @return The objectid of the last food truck of the previous page
+	 * @throws NumberFormatException If the cursor is not valid
+	 */
+	public static long decodeCursor(String cursor)
+	{
+		return Long.parseLong(cursor.trim());
+	}
+
+	@Override
+	public boolean visit(FoodTruck foodTruck)
+	{
+		long objectid = foodTruck.getObjectid();
+
+		if (objectid > afterObjectid)
+		{
+			if (heap.size() <= limit)
+			{
+				heap.add(foodTruck);
+			}
+			else if (objectid < heap.peek().getObjectid())
+			{
+				heap.poll();
+				heap.add(foodTruck);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the collected page
+	 *
+	 * @return The food trucks sorted by objectid and the cursor of the next page
+	 */
+	public FoodTruckPage getPage()
+	{
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>(heap);
+		Collections.sort(foodTrucks, Collections.reverseOrder(DESCENDING_OBJECTID));
+
+		String nextCursor = null;
+		if (foodTrucks.size() > limit)
+		{
+			foodTrucks.remove(limit);
+			nextCursor = encodeCursor(foodTrucks.get(limit - 1));
+		}
+
+		return new FoodTruckPage(foodTrucks, nextCursor);
+	}
+}
@@ -0,0 +1,136 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckSnapshot;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckPayload;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+
+/**
+ * Payload cache class. Singleton pattern is used.
+ * Keeps the JSON and the binary (see FoodTruckBinaryEncoder) payloads of the full food truck list 
+ * and of the per-status lists, serialized once per storage version (see FoodTruckSnapshot.getVersion()).
+ * Each payload has a strong entity tag (MD5 of the body), so clients that already have
+ * the same payload can be answered with "304 Not Modified".
+ * Payloads are created on the first request after the storage changes.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckPayloadCache
+{
+	// Constants ---------------------------------------------------------
+	private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final EnumMap<FoodTruckStatusEnum, FoodTruckPayload> payloads =
+			new EnumMap<FoodTruckStatusEnum, FoodTruckPayload>(FoodTruckStatusEnum.class);
+	private final EnumMap<FoodTruckStatusEnum, FoodTruckPayload> binaryPayloads =
+			new EnumMap<FoodTruckStatusEnum, FoodTruckPayload>(FoodTruckStatusEnum.class);
+	private long version = -1;
+	// -------------------------------------------------------------------
+
+	// SINGLETON Implementation ------------------------------------------
+	private static FoodTruckPayloadCache INSTANCE = new FoodTruckPayloadCache();
+	private FoodTruckPayloadCache() {}
+	public static FoodTruckPayloadCache getInstance() {return INSTANCE;}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns the JSON payload of the food trucks that have the specified status
+	 * in the current snapshot of the storage.
+	 * If the specified status is ALL, then the payload of all food trucks is returned.
+	 *
+	 * @param status Food Truck Status for querying
+	 * @return The payload, null if the storage has no list for the given status
+	 */
+	public synchronized FoodTruckPayload getPayload(FoodTruckStatusEnum status)
+	{
+		return getPayload(payloads, status, false);
+	}
+
+	/**
+	 * Returns the binary payload of the food trucks that have the specified status
+	 * in the current snapshot of the storage.
+	 * If the specified status is ALL, then the payload of all food trucks is returned.
+	 *
+	 * @param status Food Truck Status for querying
+	 * @return The payload, null if the storage has no list for the given status
+	 */
+	public synchronized FoodTruckPayload getBinaryPayload(FoodTruckStatusEnum status)
+	{
+		return getPayload(binaryPayloads, status, true);
+	}
+
+	private FoodTruckPayload getPayload(
+			EnumMap<FoodTruckStatusEnum, FoodTruckPayload> formatPayloads, 
+			FoodTruckStatusEnum status, 
+			boolean binary)
+	{
+		FoodTruckSnapshot snapshot = FoodTruckAccessor.getInstance().getSnapshot();
+
+		// Payloads of the older versions are dropped
+		if (snapshot.getVersion() != version)
+		{
+			payloads.clear();
+			binaryPayloads.clear();
+			version = snapshot.getVersion();
+		}
+
+		FoodTruckPayload payload = formatPayloads.get(status);
+		if (payload == null)
+		{
+			List<FoodTruck> foodTrucks = snapshot.getFoodTrucks(status);
+			if (foodTrucks == null)
+			{
+				return null;
+			}
+
+			payload = createPayload(foodTrucks, snapshot.getVersion(), binary);
+			formatPayloads.put(status, payload);
+		}
+
+		return payload;
+	}
+
+	/**
+	 * Serializes the given food trucks and calculates the entity tag of the body
+	 */
+	private static FoodTruckPayload createPayload(List<FoodTruck> foodTrucks, long storageVersion, boolean binary)
+	{
+		try
+		{
+			byte[] body = binary 
+					? FoodTruckBinaryEncoder.getInstance().encode(foodTrucks) 
+					: JSON_MAPPER.writeValueAsBytes(foodTrucks);
+			byte[] digest = MessageDigest.getInstance("MD5").digest(body);
+
+			StringBuilder etag = new StringBuilder(digest.length * 2 + 2);
+			etag.append('"');
+			for (byte b : digest)
+			{
+				etag.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+			}
+			etag.append('"');
+
+			return new FoodTruckPayload(body, etag.toString(), storageVersion);
+		}
+		catch (JsonProcessingException e)
+		{
+			throw new IllegalStateException(e);
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Field projection of the food truck JSON objects (the "fields" parameter).
+ * The projection is applied by a Jackson property filter while the food trucks are serialized,
+ * so only the requested properties are written and no intermediate maps are built.
+ * Unknown field names are ignored; if no known field is requested, all the fields are written.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckProjection
+{
+	// Constants ---------------------------------------------------------
+	private static final String FILTER_ID = "foodTruckFields";
+	private static final ObjectMapper JSON_MAPPER = new ObjectMapper()
+			.addMixIn(FoodTruck.class, FilteredFoodTruck.class)
+			.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+			.configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false);
+	private static final Set<String> FIELD_NAMES = findFieldNames();
+	public static final FoodTruckProjection ALL_FIELDS = new FoodTruckProjection(FIELD_NAMES);
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final Set<String> fieldNames;
+	private final ObjectWriter writer;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	private FoodTruckProjection(Set<String> fieldNames)
+	{
+		SimpleBeanPropertyFilter filter = (fieldNames == FIELD_NAMES)
+				? SimpleBeanPropertyFilter.serializeAll()
+				: SimpleBeanPropertyFilter.filterOutAllExcept(fieldNames);
+
+		this.fieldNames = Collections.unmodifiableSet(fieldNames);
+		this.writer = JSON_MAPPER.writer(new SimpleFilterProvider().addFilter(FILTER_ID, filter));
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns the projection of the given comma separated field names
+	 *
+	 * @param fields Comma separated field names, e.g. "objectid,latitude,longitude,status"
+	 * @return The projection, ALL_FIELDS if no known field is given
+	 */
+	public static FoodTruckProjection parse(String fields)
+	{
+		if (fields == null)
+		{
+			return ALL_FIELDS;
+		}
+
+		Set<String> fieldNames = new LinkedHashSet<String>();
+		for (String field : fields.split(","))
+		{
+			String fieldName = field.trim();
+			if (FIELD_NAMES.contains(fieldName))
+			{
+				fieldNames.add(fieldName);
+			}
+		}
+
+		if (fieldNames.isEmpty() || fieldNames.equals(FIELD_NAMES))
+		{
+			return ALL_FIELDS;
+		}
+
+		return new FoodTruckProjection(fieldNames);
+	}
+
+	/**
+	 * Returns true if all the fields are written
+	 *
+	 * @return True if this projection is ALL_FIELDS
+	 */
+	public boolean isAllFields()
+	{
+		return this == ALL_FIELDS;
+	}
+
+	/**
+	 * Returns the written field names
+	 *
+	 * @return The field names
+	 */
+	public Set<String> getFieldNames()
+	{
+		return fieldNames;
+	}
+
+	/**
+	 * Returns the writer that applies this projection
+	 *
+	 * @return The JSON writer
+	 */
+	public ObjectWriter getWriter()
+	{
+		return writer;
+	}
+
+	/**
+	 * Serializes the given food trucks with this projection
+	 *
+	 * @param foodTrucks Food trucks
+	 * @return JSON array of the projected food trucks
+	 */
+	public byte[] writeValueAsBytes(List<FoodTruck> foodTrucks)
+	{
+		try
+		{
+			return writer.writeValueAsBytes(foodTrucks);
+		}
+		catch (JsonProcessingException e)
+		{
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns the names of the serialized properties of the food truck class
+	 */
+	private static Set<String> findFieldNames()
+	{
+		Set<String> fieldNames = new LinkedHashSet<String>();
+		for (BeanPropertyDefinition property : JSON_MAPPER.getSerializationConfig()
+				.introspect(JSON_MAPPER.constructType(FoodTruck.class)).findProperties())
+		{
+			if (property.couldSerialize())
+			{
+				fieldNames.add(property.getName());
+			}
+		}
+		return fieldNames;
+	}
+
+	/**
+	 * Mix-in that attaches the property filter to the food truck class
+	 */
+	@JsonFilter(FILTER_ID)
+	private static abstract class FilteredFoodTruck
+	{
+	}
+}
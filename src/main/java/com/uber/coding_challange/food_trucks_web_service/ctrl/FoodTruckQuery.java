@@ -0,0 +1,281 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import java.util.Set;
+
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckBitmap;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckFilter;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckRowFilter;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckSnapshot;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckTextIndex;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.DistanceUnitEnum;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.QueryAccessPathEnum;
+
+/**
+ * Conditions of a query on one snapshot of the storage: a status, the rows of an attribute filter,
+ * a circle and a text. Every condition is optional.
+ * The query planner chooses the access path that produces the food trucks the query starts from
+ * (see FoodTruckQueryPlanner); the other conditions are checked by this class.
+ *
+ * The attribute filter is evaluated on the bitmap indexes when the query is created;
+ * the text of a filtered query is evaluated with the filter, so it is not checked separately.
+ *
+ * The numbers of the checked and the returned food trucks are counted, so the plans can be compared
+ * with their estimates.
+ * A query is used by a single thread; only the filter of getConcurrentRowFilter() can be shared
+ * with the threads of a parallel scan (its rows are counted by the caller).
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckQuery implements FoodTruckRowFilter
+{
+	// Constants ---------------------------------------------------------
+	private static final double BOUNDING_BOX_MARGIN = 1e-9; // in decimal degrees, covers rounding errors
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final FoodTruckSnapshot snapshot;
+	private final FoodTruckStatusEnum status;
+	private final FoodTruckBitmap rows; // null if there is no attribute filter
+	private final String text; // null if there is no text to check
+	private final Set<String> textTerms;
+
+	private GeodesicCircle circle; // null if there is no circle
+	private boolean hasBoundingBox;
+	private double minLatitude;
+	private double minLongitude;
+	private double maxLatitude;
+	private double maxLongitude;
+
+	private long examinedRowCount;
+	private long resultRowCount;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	/**
+	 * Creates a query on the given snapshot
+	 *
+	 * @param snapshot Snapshot of the storage
+	 * @param status Food Truck Status, ALL if the status is not queried
+	 * @param filter Attribute filter, may be null
+	 * @param text Words that should be contained in the food items or the applicant, may be null
+	 */
+	public FoodTruckQuery(FoodTruckSnapshot snapshot, FoodTruckStatusEnum status, FoodTruckFilter filter, String text)
+	{
+		boolean hasText = text != null && ! text.trim().isEmpty();
+
+		this.snapshot = snapshot;
+		this.status = status;
+
+		if (filter != null)
+		{
+			this.rows = snapshot.evaluate(hasText ? FoodTruckFilter.and(filter, FoodTruckFilter.text(text)) : filter);
+			this.text = null;
+		}
+		else
+		{
+			this.rows = null;
+			this.text = hasText ? text : null;
+		}
+
+		this.textTerms = (this.text != null) ? FoodTruckTextIndex.tokenize(this.text) : null;
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Adds the circle condition to the query and calculates the bounding box of the circle.
+	 * If the bounding box cannot be expressed as a single latitude/longitude range
+	 * (the circle contains a pole or crosses the 180th meridian), then the query has no bounding box.
+	 *
+	 * @param latitude Latitude of the center of the circle
+	 * @param longitude Longitude of the center of the circle
+	 * @param radius Radius of the circle
+	 * @param radiusUnit Unit of the radius
+	 */
+	public void setCircle(double latitude, double longitude, double radius, DistanceUnitEnum radiusUnit)
+	{
+		circle = new GeodesicCircle(latitude, longitude, radius, radiusUnit);
+
+		// Calculate the bounding box of the circle
+		double angularRadius =
+				GeodesicDistanceCalculator.getInstance().toAngularDistance(radius, radiusUnit);
+		double longitudeDelta = Math.toDegrees(Math.asin(
+				Math.sin(Math.toRadians(angularRadius)) / Math.cos(Math.toRadians(latitude))));
+
+		minLatitude = latitude - angularRadius;
+		maxLatitude = latitude + angularRadius;
+		minLongitude = longitude - longitudeDelta;
+		maxLongitude = longitude + longitudeDelta;
+		hasBoundingBox = ! (minLatitude <= -90 || maxLatitude >= 90 || minLongitude < -180 || maxLongitude > 180);
+
+		minLatitude -= BOUNDING_BOX_MARGIN;
+		minLongitude -= BOUNDING_BOX_MARGIN;
+		maxLatitude += BOUNDING_BOX_MARGIN;
+		maxLongitude += BOUNDING_BOX_MARGIN;
+	}
+
+	/**
+	 * Column check of the status and the circle conditions (used by the scans of the column store)
+	 */
+	@Override
+	public boolean accept(
+			long objectid,
+			double foodTruckLatitude,
+			double foodTruckLongitude,
+			FoodTruckStatusEnum foodTruckStatus)
+	{
+		examinedRowCount++;
+
+		return matchesColumns(foodTruckLatitude, foodTruckLongitude, foodTruckStatus);
+	}
+
+	/**
+	 * Returns a column check of the status and the circle conditions that does not count the checked rows,
+	 * so it can be called by several threads at the same time (see FoodTruckParallelScanner).
+	 * The caller adds the number of the checked rows with addExaminedRowCount().
+	 *
+	 * @return The thread-safe row filter of the query
+	 */
+	public FoodTruckRowFilter getConcurrentRowFilter()
+	{
+		return new FoodTruckRowFilter()
+		{
+			@Override
+			public boolean accept(
+					long objectid,
+					double foodTruckLatitude,
+					double foodTruckLongitude,
+					FoodTruckStatusEnum foodTruckStatus)
+			{
+				return matchesColumns(foodTruckLatitude, foodTruckLongitude, foodTruckStatus);
+			}
+		};
+	}
+
+	/**
+	 * Adds the given number of the rows that are checked outside the query (e.g. by a parallel scan)
+	 *
+	 * @param rowCount Number of the checked rows
+	 */
+	public void addExaminedRowCount(long rowCount)
+	{
+		examinedRowCount += rowCount;
+	}
+
+	/**
+	 * Counts a food truck that provides all the conditions of the query
+	 *
+	 * @return Always true, so it can be chained with the visitor of the result
+	 */
+	public boolean addResultRow()
+	{
+		resultRowCount++;
+		return true;
+	}
+
+	/**
+	 * Returns true if the given column values provide the status and the circle conditions
+	 */
+	private boolean matchesColumns(
+			double foodTruckLatitude,
+			double foodTruckLongitude,
+			FoodTruckStatusEnum foodTruckStatus)
+	{
+		return (status == FoodTruckStatusEnum.ALL || foodTruckStatus == status)
+				&& (circle == null || circle.contains(foodTruckLatitude, foodTruckLongitude));
+	}
+
+	/**
+	 * Returns true if the given food truck provides the conditions of the query
+	 * that are not guaranteed by the given access path
+	 *
+	 * @param foodTruck Food truck produced by the access path
+	 * @param accessPath Access path of the query
+	 * @return True if the food truck provides the query conditions, false otherwise
+	 */
+	public boolean accept(FoodTruck foodTruck, QueryAccessPathEnum accessPath)
+	{
+		examinedRowCount++;
+
+		return (accessPath == QueryAccessPathEnum.STATUS_INDEX
+						|| status == FoodTruckStatusEnum.ALL || foodTruck.getStatusEnum() == status)
+				&& (accessPath == QueryAccessPathEnum.ATTRIBUTE_INDEX
+						|| rows == null || snapshot.containsRow(rows, foodTruck.getObjectid()))
+				&& (circle == null || circle.contains(foodTruck.getLatitude(), foodTruck.getLongitude()))
+				&& (accessPath == QueryAccessPathEnum.TEXT_INDEX || matchesText(foodTruck));
+	}
+
+	/**
+	 * Returns true if the food items or the applicant of the given food truck contain all the words of the text
+	 * (or there is no text condition)
+	 *
+	 * @param foodTruck Food truck
+	 * @return True if the food truck provides the text condition, false otherwise
+	 */
+	public boolean matchesText(FoodTruck foodTruck)
+	{
+		return textTerms == null || FoodTruckTextIndex.getTerms(foodTruck).containsAll(textTerms);
+	}
+
+	// Getters -----------------------------------------------------------
+	public FoodTruckSnapshot getSnapshot() {
+		return snapshot;
+	}
+	public FoodTruckStatusEnum getStatus() {
+		return status;
+	}
+	/**
+	 * @return Rows of the attribute filter (with the text), null if there is no attribute filter
+	 */
+	public FoodTruckBitmap getRows() {
+		return rows;
+	}
+	/**
+	 * @return Text condition, null if there is no text condition or the text is evaluated with the attribute filter
+	 */
+	public String getText() {
+		return text;
+	}
+	/**
+	 * @return Distinct terms of the text condition, null if there is no text condition
+	 */
+	public Set<String> getTextTerms() {
+		return textTerms;
+	}
+	public boolean hasCircle() {
+		return circle != null;
+	}
+	/**
+	 * @return True if the query has a circle whose bounding box is a single latitude/longitude range
+	 */
+	public boolean hasBoundingBox() {
+		return circle != null && hasBoundingBox;
+	}
+	public double getMinLatitude() {
+		return minLatitude;
+	}
+	public double getMinLongitude() {
+		return minLongitude;
+	}
+	public double getMaxLatitude() {
+		return maxLatitude;
+	}
+	public double getMaxLongitude() {
+		return maxLongitude;
+	}
+	/**
+	 * @return Number of the food trucks that are checked so far
+	 */
+	public long getExaminedRowCount() {
+		return examinedRowCount;
+	}
+	/**
+	 * @return Number of the food trucks that provided all the conditions so far
+	 */
+	public long getResultRowCount() {
+		return resultRowCount;
+	}
+	// -------------------------------------------------------------------
+}
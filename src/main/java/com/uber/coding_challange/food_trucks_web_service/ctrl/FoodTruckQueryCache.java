@@ -0,0 +1,250 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckQueryCacheStats;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.DistanceUnitEnum;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+
+/**
+ * Bounded LRU cache of the circle query results.
+ * Queries are keyed on the status, the center snapped to a grid of QUANTUM degrees (~1 meter),
+ * the radius and the radius unit; so queries whose centers are a few centimeters apart share an entry.
+ *
+ * Every entry belongs to a storage version (see FoodTruckSnapshot.getVersion()).
+ * When a newer version is seen, all the entries are dropped;
+ * results of an older version are never returned or stored.
+ * All the methods are synchronized, cached lists are read-only.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckQueryCache
+{
+	// Constants ---------------------------------------------------------
+	public static final double QUANTUM = 1e-5; // in decimal degrees
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final int capacity;
+	private final LinkedHashMap<QueryKey, List<FoodTruck>> entries;
+	private long version = -1;
+	private long hitCount = 0;
+	private long missCount = 0;
+	private long evictionCount = 0;
+	private long invalidationCount = 0;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	/**
+	 * Creates an empty cache
+	 *
+	 * @param capacity Maximum number of cached query results
+	 */
+	public FoodTruckQueryCache(final int capacity)
+	{
+		this.capacity = capacity;
+		this.entries = new LinkedHashMap<QueryKey, List<FoodTruck>>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<QueryKey, List<FoodTruck>> eldest)
+			{
+				if (size() > capacity)
+				{
+					evictionCount++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Snaps the given coordinate to the quantization grid
+	 *
+	 * @param degrees Latitude or longitude (in decimal degrees)
+	 * @return Index of the nearest grid line
+	 */
+	public static long quantize(double degrees)
+	{
+		return Math.round(degrees / QUANTUM);
+	}
+
+	/**
+	 * Returns the coordinate of the given grid line
+	 *
+	 * @param key Index of a grid line
+	 * @return Latitude or longitude of the grid line (in decimal degrees)
+	 */
+	public static double toDegrees(long key)
+	{
+		return key * QUANTUM;
+	}
+
+	/**
+	 * Returns the cached result of the given query
+	 *
+	 * @param status Food Truck Status of the query
+	 * @param latitudeKey Quantized latitude of the center
+	 * @param longitudeKey Quantized longitude of the center
+	 * @param radius Radius of the circle
+	 * @param radiusUnit Unit of the radius
+	 * @param storageVersion Version of the snapshot the caller reads
+	 * @return The cached (read-only) result, null if it is not cached for the given version
+	 */
+	public synchronized List<FoodTruck> get(
+			FoodTruckStatusEnum status,
+			long latitudeKey,
+			long longitudeKey,
+			double radius,
+			DistanceUnitEnum radiusUnit,
+			long storageVersion)
+	{
+		List<FoodTruck> result = null;
+
+		if (checkVersion(storageVersion))
+		{
+			result = entries.get(new QueryKey(status, latitudeKey, longitudeKey, radius, radiusUnit));
+		}
+
+		if (result != null)
+		{
+			hitCount++;
+		}
+		else
+		{
+			missCount++;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Caches the result of the given query and returns the read-only version of it.
+	 * Results of older versions are not cached.
+	 *
+	 * @param status Food Truck Status of the query
+	 * @param latitudeKey Quantized latitude of the center
+	 * @param longitudeKey Quantized longitude of the center
+	 * @param radius Radius of the circle
+	 * @param radiusUnit Unit of the radius
+	 * @param storageVersion Version of the snapshot the result is computed on
+	 * @param result Result of the query
+	 * @return The read-only result
+	 */
+	public synchronized List<FoodTruck> put(
+			FoodTruckStatusEnum status,
+			long latitudeKey,
+			long longitudeKey,
+			double radius,
+			DistanceUnitEnum radiusUnit,
+			long storageVersion,
+			List<FoodTruck> result)
+	{
+		List<FoodTruck> readOnlyResult = Collections.unmodifiableList(result);
+
+		if (checkVersion(storageVersion))
+		{
+			entries.put(new QueryKey(status, latitudeKey, longitudeKey, radius, radiusUnit), readOnlyResult);
+		}
+
+		return readOnlyResult;
+	}
+
+	/**
+	 * Drops all the entries
+	 */
+	public synchronized void clear()
+	{
+		invalidationCount += entries.size();
+		entries.clear();
+	}
+
+	/**
+	 * Returns the hit, miss, eviction and invalidation counts and the size of the cache
+	 *
+	 * @return Statistics of the cache
+	 */
+	public synchronized FoodTruckQueryCacheStats getStats()
+	{
+		return new FoodTruckQueryCacheStats(
+				hitCount, missCount, evictionCount, invalidationCount, entries.size(), capacity, version);
+	}
+
+	/**
+	 * Drops the entries of the older versions
+	 *
+	 * @return True if the given version is the current version of the cache
+	 */
+	private boolean checkVersion(long storageVersion)
+	{
+		if (storageVersion > version)
+		{
+			clear();
+			version = storageVersion;
+		}
+
+		return storageVersion == version;
+	}
+
+	/**
+	 * Key of a cached query
+	 */
+	private static final class QueryKey
+	{
+		private final FoodTruckStatusEnum status;
+		private final long latitudeKey;
+		private final long longitudeKey;
+		private final double radius;
+		private final DistanceUnitEnum radiusUnit;
+
+		QueryKey(
+				FoodTruckStatusEnum status,
+				long latitudeKey,
+				long longitudeKey,
+				double radius,
+				DistanceUnitEnum radiusUnit)
+		{
+			this.status = status;
+			this.latitudeKey = latitudeKey;
+			this.longitudeKey = longitudeKey;
+			this.radius = radius;
+			this.radiusUnit = radiusUnit;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			long bits = Double.doubleToLongBits(radius);
+			int hash = status.hashCode();
+			hash = 31 * hash + (int) (latitudeKey ^ (latitudeKey >>> 32));
+			hash = 31 * hash + (int) (longitudeKey ^ (longitudeKey >>> 32));
+			hash = 31 * hash + (int) (bits ^ (bits >>> 32));
+			hash = 31 * hash + radiusUnit.hashCode();
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object object)
+		{
+			if (! (object instanceof QueryKey))
+			{
+				return false;
+			}
+
+			QueryKey other = (QueryKey) object;
+			return status == other.status
+					&& latitudeKey == other.latitudeKey
+					&& longitudeKey == other.longitudeKey
+					&& Double.doubleToLongBits(radius) == Double.doubleToLongBits(other.radius)
+					&& radiusUnit == other.radiusUnit;
+		}
+	}
+}
@@ -1,22 +1,71 @@
 package com.uber.coding_challange.food_trucks_web_service.ctrl;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckFilter;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckOpeningHours;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckSnapshot;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckVisitor;
 import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckAccessPathCost;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckBatchQuery;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckBatchResult;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckCluster;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckPage;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckPayload;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckQueryCacheStats;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckQueryPlan;
 import com.uber.coding_challange.food_trucks_web_service.model.enums.DistanceUnitEnum;
 import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.QueryAccessPathEnum;
 
 /**
  * The Query Handler class. Singleton pattern is used.
  * Rest Controller propagates the incoming queries to this class
+ * Circle query results are cached (see FoodTruckQueryCache).
+ * Multi-value attribute filters are evaluated on the bitmap indexes (see FoodTruckFilter),
+ * "open at" conditions on the interval index of the opening hours (see FoodTruckOpeningHoursIndex).
+ * The access path of every query is chosen by the query planner (see FoodTruckQueryPlanner).
+ * Queries of a batch request are evaluated in parallel on a dedicated fork-join pool.
  * 
  * @author alper.karacelik
  *
  */
 public class FoodTruckQueryHandler 
 {
+	// Constants ---------------------------------------------------------
+	public static final int MAX_NEAREST_COUNT = 1000;
+	public static final int MAX_BATCH_SIZE = 256; // Queries of a batch
+	private static final int DEFAULT_NEAREST_COUNT = 10;
+	private static final int QUERY_CACHE_CAPACITY = 1024;
+	private static final int DEFAULT_PAGE_LIMIT = 100;
+	private static final int MAX_PAGE_LIMIT = 10000;
+	private static final int BATCH_SPLIT_SIZE = 4; // Queries of a batch that are evaluated by one fork-join task
+	private static final Comparator<FoodTruck> OBJECTID_ORDER = new Comparator<FoodTruck>()
+	{
+		@Override
+		public int compare(FoodTruck first, FoodTruck second)
+		{
+			return Long.compare(first.getObjectid(), second.getObjectid());
+		}
+	};
+	// -------------------------------------------------------------------
+	
+	// Attributes --------------------------------------------------------
+	private final FoodTruckQueryCache queryCache = new FoodTruckQueryCache(QUERY_CACHE_CAPACITY);
+	private volatile ForkJoinPool batchPool = createBatchPool(Runtime.getRuntime().availableProcessors());
+	// -------------------------------------------------------------------
+	
 	// SINGLETON Implementation ------------------------------------------
 	private static FoodTruckQueryHandler INSTANCE = new FoodTruckQueryHandler();
 	private FoodTruckQueryHandler() {}
@@ -27,6 +76,8 @@ public class FoodTruckQueryHandler
 	 * 
 	 * Checks query inputs and 
 	 * returns a list of food trucks that provides the given query conditions
+	 * Circle queries are answered from the query cache when possible;
+	 * the center is snapped to the quantization grid of the cache (~1 meter).
 	 * 
 	 * @param statusStr Food Track status in String format
 	 * @param latitudeStr Latitude of the center in String format
@@ -55,9 +106,6 @@ public class FoodTruckQueryHandler
     		statusEnum = FoodTruckStatusEnum.getFromStringValue(statusStr);
     	}
     	
-    	// Update the query results by querying on 'status'
-		queryResult = FoodTruckAccessor.getInstance().getFoodTrucks(statusEnum);
-    	
     	// If latitude and longitude is specified
     	if (latitudeStr != null && longitudeStr != null && radiusStr != null && radiusUnitStr != null)
     	{
@@ -69,9 +117,9 @@ public class FoodTruckQueryHandler
         		double radius = Double.parseDouble(radiusStr);
         		DistanceUnitEnum radiusUnit = DistanceUnitEnum.getFromStringValue(radiusUnitStr); 
         		
-        		// Update the query results 
+        		// Update the query results by querying on 'status' and the circle together
         		queryResult = 
-        				getFoodTrucksInsideCircle(queryResult, latitude, longitude, radius, radiusUnit);
+        				getCachedFoodTrucksInsideCircle(statusEnum, latitude, longitude, radius, radiusUnit);
 			} 
     		catch (Exception e) 
     		{
@@ -79,15 +127,945 @@ public class FoodTruckQueryHandler
 			}
     	}
     	
+    	// If the circle is not specified (or it is invalid)
+    	if (queryResult == null)
+    	{
+    		// Update the query results by querying on 'status'
+    		queryResult = FoodTruckAccessor.getInstance().getFoodTrucks(statusEnum);
+    	}
+    	
     	// Return the query result
     	return queryResult;
     }
 	
+	/**
+	 * 
+	 * Checks query inputs and 
+	 * returns a list of food trucks that provides the given query conditions.
+	 * If a text is given, then only the food trucks whose food items or applicant contain
+	 * all the words of the text are returned, sorted by objectid (the query cache is not used).
+	 * Otherwise, same with getFoodTrucksByQuery(statusStr, latitudeStr, longitudeStr, radiusStr, radiusUnitStr).
+	 * 
+	 * @param statusStr Food Track status in String format
+	 * @param latitudeStr Latitude of the center in String format
+	 * @param longitudeStr Longitude of the center in String format
+	 * @param radiusStr Radius of the circle in String format
+	 * @param radiusUnitStr Radius unit in String format
+	 * @param text Words that should be contained in the food items or the applicant, may be null
+	 * @return The food trucks that provide the given query conditions
+	 */
+	public List<FoodTruck> getFoodTrucksByQuery(
+			String statusStr,
+			String latitudeStr,
+			String longitudeStr,
+			String radiusStr,
+			String radiusUnitStr,
+			String text)
+	{
+		if (! hasText(text))
+		{
+			return getFoodTrucksByQuery(statusStr, latitudeStr, longitudeStr, radiusStr, radiusUnitStr);
+		}
+		
+		final List<FoodTruck> queryResult = new ArrayList<FoodTruck>();
+		
+		visitFoodTrucksByQuery(statusStr, latitudeStr, longitudeStr, radiusStr, radiusUnitStr, text, 
+				new FoodTruckVisitor()
+		{
+			@Override
+			public boolean visit(FoodTruck foodTruck)
+			{
+				return queryResult.add(foodTruck);
+			}
+		});
+		
+		// Only the text index visits the food trucks in objectid order
+		Collections.sort(queryResult, OBJECTID_ORDER);
+		
+		return queryResult;
+	}
+	
+	/**
+	 * 
+	 * Checks query inputs and passes the food trucks that provide the given query conditions
+	 * to the given visitor one by one, without building a result list.
+	 * Conditions are the same with getFoodTrucksByQuery(...); the query cache is not used.
+	 * The traversal stops when the visitor returns false.
+	 * 
+	 * @param statusStr Food Track status in String format
+	 * @param latitudeStr Latitude of the center in String format
+	 * @param longitudeStr Longitude of the center in String format
+	 * @param radiusStr Radius of the circle in String format
+	 * @param radiusUnitStr Radius unit in String format
+	 * @param visitor Receives the food trucks
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	public boolean visitFoodTrucksByQuery(
+			String statusStr,
+			String latitudeStr,
+			String longitudeStr,
+			String radiusStr,
+			String radiusUnitStr,
+			FoodTruckVisitor visitor)
+	{
+		return visitFoodTrucksByQuery(
+				statusStr, latitudeStr, longitudeStr, radiusStr, radiusUnitStr, null, visitor);
+	}
+	
+	/**
+	 * 
+	 * Checks query inputs and passes the food trucks that provide the given query conditions
+	 * to the given visitor one by one, without building a result list.
+	 * The query planner chooses where the query starts from: the status lists, the grid cells around the circle,
+	 * the posting lists of the words of the text or all the food trucks (see FoodTruckQueryPlanner);
+	 * the other conditions are checked on the food trucks of the chosen access path.
+	 * The traversal stops when the visitor returns false.
+	 * 
+	 * @param statusStr Food Track status in String format
+	 * @param latitudeStr Latitude of the center in String format
+	 * @param longitudeStr Longitude of the center in String format
+	 * @param radiusStr Radius of the circle in String format
+	 * @param radiusUnitStr Radius unit in String format
+	 * @param text Words that should be contained in the food items or the applicant, may be null
+	 * @param visitor Receives the food trucks
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	public boolean visitFoodTrucksByQuery(
+			String statusStr,
+			String latitudeStr,
+			String longitudeStr,
+			String radiusStr,
+			String radiusUnitStr,
+			String text,
+			FoodTruckVisitor visitor)
+	{
+		FoodTruckQuery query = createQuery(
+				null, statusStr, latitudeStr, longitudeStr, radiusStr, radiusUnitStr, text);
+		
+		return visitFoodTrucks(query, plan(query), visitor);
+	}
+	
+	/**
+	 * 
+	 * Checks query and paging inputs and
+	 * returns a page of the food trucks that provide the given query conditions, sorted by objectid.
+	 * The page starts after the objectid of the given cursor, so it is stable while the storage changes.
+	 * If 'limit' is not specified, then 100 food trucks are returned (at most 10000 per page).
+	 * Invalid limits and cursors are ignored.
+	 * 
+	 * @param statusStr Food Track status in String format
+	 * @param latitudeStr Latitude of the center in String format
+	 * @param longitudeStr Longitude of the center in String format
+	 * @param radiusStr Radius of the circle in String format
+	 * @param radiusUnitStr Radius unit in String format
+	 * @param text Words that should be contained in the food items or the applicant, may be null
+	 * @param limitStr Maximum number of food trucks in the page in String format
+	 * @param cursorStr Cursor of the page (returned with the previous page)
+	 * @return The page and the cursor of the next page
+	 */
+	public FoodTruckPage getFoodTrucksPageByQuery(
+			String statusStr,
+			String latitudeStr,
+			String longitudeStr,
+			String radiusStr,
+			String radiusUnitStr,
+			String text,
+			String limitStr,
+			String cursorStr)
+	{
+		FoodTruckPageCollector collector = createPageCollector(limitStr, cursorStr);
+		FoodTruckQuery query = createQuery(
+				null, statusStr, latitudeStr, longitudeStr, radiusStr, radiusUnitStr, text);
+		
+		visitPage(query, plan(query), collector);
+		return collector.getPage();
+	}
+	
+	/**
+	 * 
+	 * Parses the attribute filter of a query. Every parameter is a comma separated list of values;
+	 * a food truck is accepted if it has one of the values of every given parameter (OR inside a parameter,
+	 * AND between the parameters). If a parameter starts with '!', then the food trucks that have
+	 * one of its values are rejected instead (NOT).
+	 * Example: status=APPROVED,REQUESTED and facilitytype=!Push Cart
+	 * 
+	 * Permits are matched by prefix (the part before the first '-', e.g. 17MFF), facility types and permits
+	 * are compared case-insensitively. Unknown statuses and invalid cnn numbers match no food truck.
+	 * 
+	 * @param statusStr Food Track statuses in String format
+	 * @param facilityTypeStr Facility types
+	 * @param cnnStr Street segment (cnn) numbers in String format
+	 * @param permitStr Permit prefixes
+	 * @return The attribute filter, null if only a single status (or nothing) is given, 
+	 * which is answered by the status queries
+	 */
+	public FoodTruckFilter parseFilter(
+			String statusStr,
+			String facilityTypeStr,
+			String cnnStr,
+			String permitStr)
+	{
+		return parseFilter(statusStr, facilityTypeStr, cnnStr, permitStr, null, null);
+	}
+	
+	/**
+	 * 
+	 * Parses the attribute filter of a query (see parseFilter(String, String, String, String)) 
+	 * together with its opening hours condition: only the food trucks whose days and hours include 
+	 * the given time of the week are accepted. The time is a day and a time (e.g. "Mo 13:30", "Fr 7:15PM") 
+	 * or an ISO local date and time (e.g. "2017-10-02T13:30"); "open now" is the current time in San Francisco.
+	 * The days and hours are parsed when the food trucks are stored (see FoodTruckOpeningHoursIndex), 
+	 * so the condition is a bitmap lookup. An invalid time matches no food truck.
+	 * 
+	 * @param statusStr Food Track statuses in String format
+	 * @param facilityTypeStr Facility types
+	 * @param cnnStr Street segment (cnn) numbers in String format
+	 * @param permitStr Permit prefixes
+	 * @param openAtStr Time of the week, may be null
+	 * @param openNowStr "true" for the current time (ignored if a time is given), may be null
+	 * @return The attribute filter, null if only a single status (or nothing) is given, 
+	 * which is answered by the status queries
+	 */
+	public FoodTruckFilter parseFilter(
+			String statusStr,
+			String facilityTypeStr,
+			String cnnStr,
+			String permitStr,
+			String openAtStr,
+			String openNowStr)
+	{
+		boolean openNow = "true".equalsIgnoreCase(openNowStr);
+		
+		if (facilityTypeStr == null && cnnStr == null && permitStr == null && openAtStr == null && ! openNow
+				&& (statusStr == null || (statusStr.indexOf(',') < 0 && ! isNegated(statusStr))))
+		{
+			return null;
+		}
+		
+		List<FoodTruckFilter> filters = new ArrayList<FoodTruckFilter>();
+		
+		if (statusStr != null)
+		{
+			List<FoodTruckStatusEnum> statuses = new ArrayList<FoodTruckStatusEnum>();
+			for (String value : splitValues(statusStr))
+			{
+				statuses.add(FoodTruckStatusEnum.getFromStringValue(value));
+			}
+			filters.add(negateIfRequested(statusStr, FoodTruckFilter.status(statuses)));
+		}
+		
+		if (facilityTypeStr != null)
+		{
+			filters.add(negateIfRequested(facilityTypeStr, 
+					FoodTruckFilter.facilityType(splitValues(facilityTypeStr))));
+		}
+		
+		if (cnnStr != null)
+		{
+			List<Integer> cnns = new ArrayList<Integer>();
+			for (String value : splitValues(cnnStr))
+			{
+				try 
+				{
+					cnns.add(Integer.parseInt(value));
+				} 
+				catch (NumberFormatException e) 
+				{
+					e.printStackTrace();
+				}
+			}
+			filters.add(negateIfRequested(cnnStr, FoodTruckFilter.cnn(cnns)));
+		}
+		
+		if (permitStr != null)
+		{
+			filters.add(negateIfRequested(permitStr, FoodTruckFilter.permitPrefix(splitValues(permitStr))));
+		}
+		
+		if (openAtStr != null || openNow)
+		{
+			filters.add(FoodTruckFilter.openAt((openAtStr != null) 
+					? FoodTruckOpeningHours.parseMinuteOfWeek(openAtStr) 
+					: FoodTruckOpeningHours.getCurrentMinuteOfWeek()));
+		}
+		
+		return FoodTruckFilter.and(filters);
+	}
+	
+	/**
+	 * 
+	 * Returns the food trucks that are accepted by the given attribute filter, 
+	 * contain all the words of the given text (if it is given) and reside in the given circle 
+	 * (if it is given and valid). The query cache is not used.
+	 * 
+	 * @param filter Attribute filter (see parseFilter())
+	 * @param latitudeStr Latitude of the center in String format
+	 * @param longitudeStr Longitude of the center in String format
+	 * @param radiusStr Radius of the circle in String format
+	 * @param radiusUnitStr Radius unit in String format
+	 * @param text Words that should be contained in the food items or the applicant, may be null
+	 * @return The food trucks that provide the given query conditions
+	 */
+	public List<FoodTruck> getFoodTrucksByFilter(
+			FoodTruckFilter filter,
+			String latitudeStr,
+			String longitudeStr,
+			String radiusStr,
+			String radiusUnitStr,
+			String text)
+	{
+		final List<FoodTruck> queryResult = new ArrayList<FoodTruck>();
+		
+		visitFoodTrucksByFilter(filter, latitudeStr, longitudeStr, radiusStr, radiusUnitStr, text, 
+				new FoodTruckVisitor()
+		{
+			@Override
+			public boolean visit(FoodTruck foodTruck)
+			{
+				return queryResult.add(foodTruck);
+			}
+		});
+		
+		return queryResult;
+	}
+	
+	/**
+	 * 
+	 * Passes the food trucks that are accepted by the given attribute filter, 
+	 * contain all the words of the given text (if it is given) and reside in the given circle 
+	 * (if it is given and valid) to the given visitor, until the visitor stops the traversal.
+	 * The filter and the text are evaluated as bitmap operations first; then the query planner chooses 
+	 * between the resulting rows (the distance check only reads their columns) and the grid cells around the circle.
+	 * 
+	 * @param filter Attribute filter (see parseFilter())
+	 * @param latitudeStr Latitude of the center in String format
+	 * @param longitudeStr Longitude of the center in String format
+	 * @param radiusStr Radius of the circle in String format
+	 * @param radiusUnitStr Radius unit in String format
+	 * @param text Words that should be contained in the food items or the applicant, may be null
+	 * @param visitor Receives the food trucks
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	public boolean visitFoodTrucksByFilter(
+			FoodTruckFilter filter,
+			String latitudeStr,
+			String longitudeStr,
+			String radiusStr,
+			String radiusUnitStr,
+			String text,
+			FoodTruckVisitor visitor)
+	{
+		FoodTruckQuery query = createQuery(
+				filter, null, latitudeStr, longitudeStr, radiusStr, radiusUnitStr, text);
+		
+		return visitFoodTrucks(query, plan(query), visitor);
+	}
+	
+	/**
+	 * 
+	 * Runs the given query without the query cache and returns its plan: the access path that is chosen
+	 * by the query planner, the estimates of all the considered access paths, the number of the examined
+	 * and the returned food trucks, and the planning and execution times.
+	 * Inputs are the same with visitFoodTrucksByFilter(...) if a filter is given, 
+	 * visitFoodTrucksByQuery(...) otherwise. The food trucks are counted, not returned.
+	 * 
+	 * @param filter Attribute filter (see parseFilter()), may be null
+	 * @param statusStr Food Track status in String format (ignored if a filter is given)
+	 * @param latitudeStr Latitude of the center in String format
+	 * @param longitudeStr Longitude of the center in String format
+	 * @param radiusStr Radius of the circle in String format
+	 * @param radiusUnitStr Radius unit in String format
+	 * @param text Words that should be contained in the food items or the applicant, may be null
+	 * @return The executed plan of the query
+	 */
+	public FoodTruckQueryPlan explainQuery(
+			FoodTruckFilter filter,
+			String statusStr,
+			String latitudeStr,
+			String longitudeStr,
+			String radiusStr,
+			String radiusUnitStr,
+			String text)
+	{
+		long startTime = System.nanoTime();
+		FoodTruckQuery query = createQuery(
+				filter, statusStr, latitudeStr, longitudeStr, radiusStr, radiusUnitStr, text);
+		FoodTruckQueryPlan plan = plan(query);
+		long planTime = System.nanoTime();
+		
+		final long[] resultCount = new long[1];
+		visitFoodTrucks(query, plan, new FoodTruckVisitor()
+		{
+			@Override
+			public boolean visit(FoodTruck foodTruck)
+			{
+				resultCount[0]++;
+				return true;
+			}
+		});
+		
+		plan.setExaminedRows(query.getExaminedRowCount());
+		plan.setResultRows(resultCount[0]);
+		plan.setPlanningMicros((planTime - startTime) / 1000);
+		plan.setExecutionMicros((System.nanoTime() - planTime) / 1000);
+		
+		return plan;
+	}
+	
+	/**
+	 * 
+	 * Returns a page of the food trucks that provide the given query conditions (see visitFoodTrucksByFilter()),
+	 * sorted by objectid. Paging inputs are the same with getFoodTrucksPageByQuery(...).
+	 * 
+	 * @param filter Attribute filter (see parseFilter())
+	 * @param latitudeStr Latitude of the center in String format
+	 * @param longitudeStr Longitude of the center in String format
+	 * @param radiusStr Radius of the circle in String format
+	 * @param radiusUnitStr Radius unit in String format
+	 * @param text Words that should be contained in the food items or the applicant, may be null
+	 * @param limitStr Maximum number of food trucks in the page in String format
+	 * @param cursorStr Cursor of the page (returned with the previous page)
+	 * @return The page and the cursor of the next page
+	 */
+	public FoodTruckPage getFoodTrucksPageByFilter(
+			FoodTruckFilter filter,
+			String latitudeStr,
+			String longitudeStr,
+			String radiusStr,
+			String radiusUnitStr,
+			String text,
+			String limitStr,
+			String cursorStr)
+	{
+		FoodTruckPageCollector collector = createPageCollector(limitStr, cursorStr);
+		FoodTruckQuery query = createQuery(
+				filter, null, latitudeStr, longitudeStr, radiusStr, radiusUnitStr, text);
+		
+		visitPage(query, plan(query), collector);
+		return collector.getPage();
+	}
+	
+	/**
+	 * Creates the collector of a page, invalid limits and cursors are ignored
+	 * 
+	 * @param limitStr Maximum number of food trucks in the page in String format
+	 * @param cursorStr Cursor of the page
+	 * @return The page collector
+	 */
+	private static FoodTruckPageCollector createPageCollector(String limitStr, String cursorStr)
+	{
+		int limit = DEFAULT_PAGE_LIMIT;
+		long afterObjectid = Long.MIN_VALUE;
+		
+		try 
+		{
+			if (limitStr != null)
+			{
+				limit = Math.max(1, Math.min(Integer.parseInt(limitStr.trim()), MAX_PAGE_LIMIT));
+			}
+		} 
+		catch (NumberFormatException e) 
+		{
+			e.printStackTrace();
+		}
+		
+		try 
+		{
+			if (cursorStr != null)
+			{
+				afterObjectid = FoodTruckPageCollector.decodeCursor(cursorStr);
+			}
+		} 
+		catch (NumberFormatException e) 
+		{
+			e.printStackTrace();
+		}
+		
+		return new FoodTruckPageCollector(limit, afterObjectid);
+	}
+	
+	/**
+	 * 
+	 * Returns the pre-serialized JSON payload of the food trucks that have the given status.
+	 * If status is not specified, then the payload of all the food trucks is returned.
+	 * 
+	 * @param statusStr Food Track status in String format
+	 * @return The payload of the food trucks that have the given status, 
+	 * null if the storage has no list for the given status
+	 */
+	public FoodTruckPayload getFoodTrucksPayload(String statusStr)
+	{
+		return getFoodTrucksPayload(statusStr, false);
+	}
+	
+	/**
+	 * 
+	 * Returns the pre-serialized JSON or binary (see FoodTruckBinaryEncoder) payload 
+	 * of the food trucks that have the given status.
+	 * If status is not specified, then the payload of all the food trucks is returned.
+	 * 
+	 * @param statusStr Food Track status in String format
+	 * @param binary True for the binary payload, false for the JSON payload
+	 * @return The payload of the food trucks that have the given status, 
+	 * null if the storage has no list for the given status
+	 */
+	public FoodTruckPayload getFoodTrucksPayload(String statusStr, boolean binary)
+	{
+		// Food truck status
+		FoodTruckStatusEnum statusEnum = FoodTruckStatusEnum.ALL;
+		
+		// If status is specified
+		if (statusStr != null)
+		{
+			// Obtain the status
+			statusEnum = FoodTruckStatusEnum.getFromStringValue(statusStr);
+		}
+		
+		return binary 
+				? FoodTruckPayloadCache.getInstance().getBinaryPayload(statusEnum) 
+				: FoodTruckPayloadCache.getInstance().getPayload(statusEnum);
+	}
+	
+	/**
+	 * 
+	 * Checks nearest query inputs and 
+	 * returns at most 'k' food trucks that are nearest to the given position, 
+	 * sorted by their distance to the given position.
+	 * If 'k' is not specified, then 10 food trucks are returned; at most MAX_NEAREST_COUNT food trucks are returned.
+	 * 
+	 * @param statusStr Food Track status in String format
+	 * @param latitudeStr Latitude of the position in String format
+	 * @param longitudeStr Longitude of the position in String format
+	 * @param kStr Maximum number of food trucks in String format
+	 * @return Nearest food trucks that have the given status
+	 */
+	public List<FoodTruck> getNearestFoodTrucks(
+			String statusStr,
+			String latitudeStr,
+			String longitudeStr,
+			String kStr)
+	{
+		// Food truck status
+		FoodTruckStatusEnum statusEnum = FoodTruckStatusEnum.ALL;
+		
+		// If status is specified
+		if (statusStr != null)
+		{
+			// Obtain the status
+			statusEnum = FoodTruckStatusEnum.getFromStringValue(statusStr);
+		}
+		
+		try 
+		{
+			// Obtain the latitude, longitude and the number of food trucks
+			double latitude = Double.parseDouble(latitudeStr);
+			double longitude = Double.parseDouble(longitudeStr);
+			int k = Math.min(parseNearestCount(kStr), MAX_NEAREST_COUNT);
+			
+			return FoodTruckAccessor.getInstance().getNearestFoodTrucks(latitude, longitude, k, statusEnum);
+		} 
+		catch (Exception e) 
+		{
+			e.printStackTrace();
+		}
+		
+		return new ArrayList<FoodTruck>();
+	}
+	
+	/**
+	 * Returns true if the given number of the nearest food trucks is valid: not specified (the default is used)
+	 * or an integer in [1, MAX_NEAREST_COUNT]
+	 * 
+	 * @param kStr Maximum number of food trucks in String format, may be null
+	 * @return True if the number is valid
+	 */
+	public boolean isValidNearestCount(String kStr)
+	{
+		try 
+		{
+			int k = parseNearestCount(kStr);
+			return k >= 1 && k <= MAX_NEAREST_COUNT;
+		} 
+		catch (NumberFormatException e) 
+		{
+			return false;
+		}
+	}
+	
+	/**
+	 * Returns the number of the nearest food trucks of the given input, DEFAULT_NEAREST_COUNT if it is not specified.
+	 * Both getNearestFoodTrucks() and isValidNearestCount() parse the input here, so they always agree.
+	 * 
+	 * @throws NumberFormatException If the input is not an integer
+	 */
+	private static int parseNearestCount(String kStr)
+	{
+		return (kStr != null) ? Integer.parseInt(kStr.trim()) : DEFAULT_NEAREST_COUNT;
+	}
+	
+	/**
+	 * 
+	 * Checks viewport query inputs and 
+	 * returns the marker clusters (count and centroid) of the given zoom level inside the given viewport.
+	 * If the western edge is greater than the eastern edge, then the viewport crosses the 180th meridian.
+	 * Zoom levels greater than FoodTruckClusterIndex.MAX_ZOOM use the clusters of the maximum zoom level.
+	 * 
+	 * @param minLatitudeStr Southern edge of the viewport in String format
+	 * @param minLongitudeStr Western edge of the viewport in String format
+	 * @param maxLatitudeStr Northern edge of the viewport in String format
+	 * @param maxLongitudeStr Eastern edge of the viewport in String format
+	 * @param zoomStr Zoom level of the map in String format
+	 * @return The clusters of the viewport
+	 */
+	public List<FoodTruckCluster> getFoodTruckClusters(
+			String minLatitudeStr,
+			String minLongitudeStr,
+			String maxLatitudeStr,
+			String maxLongitudeStr,
+			String zoomStr)
+	{
+		try 
+		{
+			// Obtain the edges of the viewport and the zoom level
+			double minLatitude = Double.parseDouble(minLatitudeStr);
+			double minLongitude = Double.parseDouble(minLongitudeStr);
+			double maxLatitude = Double.parseDouble(maxLatitudeStr);
+			double maxLongitude = Double.parseDouble(maxLongitudeStr);
+			int zoom = Integer.parseInt(zoomStr);
+			
+			return FoodTruckAccessor.getInstance().getClusters(
+					zoom, minLatitude, minLongitude, maxLatitude, maxLongitude);
+		} 
+		catch (Exception e) 
+		{
+			e.printStackTrace();
+		}
+		
+		return new ArrayList<FoodTruckCluster>();
+	}
+	
+	/**
+	 * 
+	 * Checks the inputs of the given queries and returns the food trucks that provide each of them,
+	 * keyed by the index of the query in the given list.
+	 * Every query is checked like getFoodTrucksByQuery(statusStr, latitudeStr, longitudeStr, radiusStr, radiusUnitStr);
+	 * a query with an invalid circle returns the food trucks of its status.
+	 * 
+	 * Queries are evaluated in parallel on the batch pool (see setBatchParallelism), in tasks of 
+	 * BATCH_SPLIT_SIZE queries. All the queries read the same snapshot, so their results are consistent
+	 * with each other. The query cache is not used, since its lock would serialize the workers;
+	 * therefore, the circles are exact (their centers are not snapped). Queries without a circle
+	 * share the read-only status lists of the snapshot, which are not copied.
+	 * The batch size is not checked here (see isValidBatchSize).
+	 * 
+	 * @param queries Queries of the batch
+	 * @return Results of the queries and the storage version they are read from
+	 */
+	public FoodTruckBatchResult getFoodTrucksByBatchQuery(List<FoodTruckBatchQuery> queries)
+	{
+		FoodTruckSnapshot snapshot = FoodTruckAccessor.getInstance().getSnapshot();
+		List<List<FoodTruck>> results = new ArrayList<List<FoodTruck>>(
+				Collections.<List<FoodTruck>>nCopies(queries.size(), null));
+		
+		BatchQueryTask task = new BatchQueryTask(snapshot, queries, results, 0, queries.size());
+		if (queries.size() <= BATCH_SPLIT_SIZE)
+		{
+			// Small batches are not worth a hand-off to the pool
+			task.compute();
+		}
+		else
+		{
+			try
+			{
+				batchPool.invoke(task);
+			}
+			catch (RejectedExecutionException e)
+			{
+				// The pool is replaced (see setBatchParallelism) after this batch obtained it
+				batchPool.invoke(task);
+			}
+		}
+		
+		Map<Integer, List<FoodTruck>> resultMap = new LinkedHashMap<Integer, List<FoodTruck>>();
+		for (int i = 0; i < results.size(); i++)
+		{
+			resultMap.put(i, results.get(i));
+		}
+		
+		return new FoodTruckBatchResult(snapshot.getVersion(), resultMap);
+	}
+	
+	/**
+	 * Returns true if the given batch can be evaluated: it has at most MAX_BATCH_SIZE queries
+	 * 
+	 * @param queries Queries of a batch, may be null
+	 * @return True if the batch is not null and not larger than MAX_BATCH_SIZE
+	 */
+	public boolean isValidBatchSize(List<FoodTruckBatchQuery> queries)
+	{
+		return queries != null && queries.size() <= MAX_BATCH_SIZE;
+	}
+	
+	/**
+	 * Sets the number of the worker threads of the batch pool.
+	 * The current pool finishes its running batches and is shut down.
+	 * 
+	 * @param parallelism Number of the worker threads, the number of the processors if it is not positive
+	 */
+	public void setBatchParallelism(int parallelism)
+	{
+		ForkJoinPool previousPool = batchPool;
+		batchPool = createBatchPool((parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors());
+		previousPool.shutdown();
+	}
+	
+	/**
+	 * Returns the number of the worker threads of the batch pool
+	 * 
+	 * @return The parallelism of the batch pool
+	 */
+	public int getBatchParallelism()
+	{
+		return batchPool.getParallelism();
+	}
+	
+	/**
+	 * Returns the food trucks of the given snapshot that provide the given batch query
+	 */
+	private List<FoodTruck> getFoodTrucksByQuery(FoodTruckSnapshot snapshot, FoodTruckBatchQuery query)
+	{
+		if (query == null)
+		{
+			return Collections.emptyList();
+		}
+		
+		FoodTruckStatusEnum statusEnum = (query.getStatus() != null) 
+				? FoodTruckStatusEnum.getFromStringValue(query.getStatus()) 
+				: FoodTruckStatusEnum.ALL;
+		
+		if (query.getLatitude() != null && query.getLongitude() != null 
+				&& query.getRadius() != null && query.getRadiusUnit() != null)
+		{
+			try 
+			{
+				double latitude = Double.parseDouble(query.getLatitude());
+				double longitude = Double.parseDouble(query.getLongitude());
+				double radius = Double.parseDouble(query.getRadius());
+				DistanceUnitEnum radiusUnit = DistanceUnitEnum.getFromStringValue(query.getRadiusUnit());
+				
+				return getFoodTrucksInsideCircle(snapshot, statusEnum, latitude, longitude, radius, radiusUnit);
+			} 
+			catch (Exception e) 
+			{
+				e.printStackTrace();
+			}
+		}
+		
+		return snapshot.getFoodTrucks(statusEnum);
+	}
+	
+	/**
+	 * Creates the fork-join pool of the batch queries, its workers are daemon threads
+	 */
+	private static ForkJoinPool createBatchPool(int parallelism)
+	{
+		return new ForkJoinPool(parallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory()
+		{
+			@Override
+			public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+			{
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName("food-truck-batch-" + thread.getPoolIndex());
+				return thread;
+			}
+		}, null, false);
+	}
+	
+	/**
+	 * Evaluates the queries [from, to) of a batch; ranges of more than BATCH_SPLIT_SIZE queries
+	 * are split in two halves that are evaluated in parallel.
+	 * Every task writes the results of its own queries, the results are read after the root task is joined.
+	 */
+	private final class BatchQueryTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		
+		private final FoodTruckSnapshot snapshot;
+		private final List<FoodTruckBatchQuery> queries;
+		private final List<List<FoodTruck>> results;
+		private final int from;
+		private final int to;
+		
+		BatchQueryTask(
+				FoodTruckSnapshot snapshot, 
+				List<FoodTruckBatchQuery> queries, 
+				List<List<FoodTruck>> results, 
+				int from, 
+				int to)
+		{
+			this.snapshot = snapshot;
+			this.queries = queries;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if (to - from <= BATCH_SPLIT_SIZE)
+			{
+				for (int i = from; i < to; i++)
+				{
+					results.set(i, getFoodTrucksByQuery(snapshot, queries.get(i)));
+				}
+				return;
+			}
+			
+			int middle = (from + to) >>> 1;
+			invokeAll(new BatchQueryTask(snapshot, queries, results, from, middle), 
+					new BatchQueryTask(snapshot, queries, results, middle, to));
+		}
+	}
+	
+	/**
+	 * Returns the food trucks that have the given status and reside in the specified circle.
+	 * The query planner chooses between the grid cells that overlap the bounding box of the circle,
+	 * the status bitmap and a scan of the column store of all the food trucks (parallel on large stores, 
+	 * see FoodTruckParallelScanner); if the bounding box cannot be expressed as a single latitude/longitude 
+	 * range (the circle contains a pole or crosses the 180th meridian), then the grid cells are not used.
+	 * All the reads are made on the same snapshot of the storage.
+	 * 
+	 * @param status Food Truck Status for querying
+	 * @param latitude Latitude of the center of the circle
+	 * @param longitude Longitude of the center of the circle
+	 * @param radius Radius of the circle
+	 * @param radiusUnit Unit of the radius
+	 * @return The food trucks that have the given status and reside in the specified circle.
+	 */
+	public List<FoodTruck> getFoodTrucksInsideCircle(
+			FoodTruckStatusEnum status,
+			double latitude, 
+			double longitude, 
+			double radius,
+			DistanceUnitEnum radiusUnit)
+	{
+		return getFoodTrucksInsideCircle(
+				FoodTruckAccessor.getInstance().getSnapshot(), status, latitude, longitude, radius, radiusUnit);
+	}
+	
+	/**
+	 * Returns the food trucks that have the given status and reside in the specified circle,
+	 * from the query cache if the same query (with the quantized center) is cached for the current snapshot.
+	 * The center of the circle is snapped to the quantization grid of the cache,
+	 * so the result is exact for the snapped center.
+	 * 
+	 * @param status Food Truck Status for querying
+	 * @param latitude Latitude of the center of the circle
+	 * @param longitude Longitude of the center of the circle
+	 * @param radius Radius of the circle
+	 * @param radiusUnit Unit of the radius
+	 * @return The food trucks that have the given status and reside in the specified circle (read-only).
+	 */
+	public List<FoodTruck> getCachedFoodTrucksInsideCircle(
+			FoodTruckStatusEnum status,
+			double latitude, 
+			double longitude, 
+			double radius,
+			DistanceUnitEnum radiusUnit)
+	{
+		// Positions that cannot be snapped are not cached
+		if (Double.isNaN(latitude) || Double.isInfinite(latitude)
+				|| Double.isNaN(longitude) || Double.isInfinite(longitude))
+		{
+			return getFoodTrucksInsideCircle(status, latitude, longitude, radius, radiusUnit);
+		}
+		
+		FoodTruckSnapshot snapshot = FoodTruckAccessor.getInstance().getSnapshot();
+		long latitudeKey = FoodTruckQueryCache.quantize(latitude);
+		long longitudeKey = FoodTruckQueryCache.quantize(longitude);
+		
+		List<FoodTruck> result = queryCache.get(
+				status, latitudeKey, longitudeKey, radius, radiusUnit, snapshot.getVersion());
+		
+		if (result == null)
+		{
+			result = getFoodTrucksInsideCircle(snapshot, status, 
+					FoodTruckQueryCache.toDegrees(latitudeKey), FoodTruckQueryCache.toDegrees(longitudeKey), 
+					radius, radiusUnit);
+			result = queryCache.put(
+					status, latitudeKey, longitudeKey, radius, radiusUnit, snapshot.getVersion(), result);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Returns the hit, miss, eviction and invalidation counts of the query cache
+	 * 
+	 * @return Statistics of the query cache
+	 */
+	public FoodTruckQueryCacheStats getQueryCacheStats()
+	{
+		return queryCache.getStats();
+	}
+	
+	/**
+	 * Returns the food trucks of the given snapshot 
+	 * that have the given status and reside in the specified circle.
+	 */
+	private List<FoodTruck> getFoodTrucksInsideCircle(
+			FoodTruckSnapshot snapshot,
+			FoodTruckStatusEnum status,
+			double latitude, 
+			double longitude, 
+			double radius,
+			DistanceUnitEnum radiusUnit)
+	{
+		// Initialize the result list
+		final List<FoodTruck> foodTrucksInsideCircle = new ArrayList<FoodTruck>();
+		
+		visitFoodTrucksInsideCircle(snapshot, status, latitude, longitude, radius, radiusUnit, 
+				new FoodTruckVisitor()
+		{
+			@Override
+			public boolean visit(FoodTruck foodTruck)
+			{
+				return foodTrucksInsideCircle.add(foodTruck);
+			}
+		});
+		
+		// Return the resulting list.
+		return foodTrucksInsideCircle;
+	}
+	
+	/**
+	 * Passes the food trucks of the given snapshot
+	 * that have the given status and reside in the specified circle to the given visitor,
+	 * until the visitor stops the traversal.
+	 * 
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	private boolean visitFoodTrucksInsideCircle(
+			FoodTruckSnapshot snapshot,
+			FoodTruckStatusEnum status,
+			double latitude, 
+			double longitude, 
+			double radius,
+			DistanceUnitEnum radiusUnit,
+			FoodTruckVisitor visitor)
+	{
+		FoodTruckQuery query = new FoodTruckQuery(snapshot, status, null, null);
+		query.setCircle(latitude, longitude, radius, radiusUnit);
+		
+		return visitFoodTrucks(query, plan(query), visitor);
+	}
+	
 	/**
 	 * Returns the food trucks that reside in the specified circle.
 	 * Center of the circle: ['latitude', 'longitude'], 
 	 * Radius of the circle: 'radius', Unit of the radius: 'radiusUnit'
-	 * This method is synchronized on this class (Manipulation on storage elements is prevented.)
+	 * The given list must not be modified during the call (lists of a snapshot are never modified.)
 	 * 
 	 * @param foodTrucks List that contains trucks that will be checked
 	 * @param latitude Latitude of the center of the circle
@@ -103,30 +1081,264 @@ public class FoodTruckQueryHandler
 			double radius,
 			DistanceUnitEnum radiusUnit)
 	{
-		synchronized (FoodTruckAccessor.class) 
+		// Initialize the result list
+		List<FoodTruck> foodTrucksInsideCircle = new ArrayList<FoodTruck>();
+		GeodesicCircle circle = new GeodesicCircle(latitude, longitude, radius, radiusUnit);
+		
+		// Traverse through the food trucks
+		for (FoodTruck foodTruck:foodTrucks)
 		{
-			// Initialize the result list
-			List<FoodTruck> foodTrucksInsideCircle = new ArrayList<FoodTruck>();
-			
-			// Traverse through the food trucks
-			for (FoodTruck foodTruck:foodTrucks)
-			{
-				// Calculate the distance between current food truck and the center of the circle
-				double distance = 
-						GeodesicDistanceCalculator.getInstance().distance(
-								foodTruck.getLatitude(), foodTruck.getLongitude(),
-								latitude, longitude, radiusUnit);
+			// If the distance to the center of the circle is smaller than the radius,
+			if (circle.contains(foodTruck.getLatitude(), foodTruck.getLongitude()))
+			{
+				// Then it is in the circle, add it to the result list.
+				foodTrucksInsideCircle.add(foodTruck);
+			}
+		}
+		
+		// Return the resulting list.
+		return foodTrucksInsideCircle;
+	}
+	
+	/**
+	 * Creates the query of the given inputs on the current snapshot.
+	 * If the circle is invalid, then it is ignored (the query runs on the other conditions).
+	 * 
+	 * @return The query conditions
+	 */
+	private static FoodTruckQuery createQuery(
+			FoodTruckFilter filter,
+			String statusStr,
+			String latitudeStr,
+			String longitudeStr,
+			String radiusStr,
+			String radiusUnitStr,
+			String text)
+	{
+		// Food truck status
+		FoodTruckStatusEnum statusEnum = FoodTruckStatusEnum.ALL;
+		
+		// If status is specified (statuses of a filter are evaluated with the filter)
+		if (statusStr != null && filter == null)
+		{
+			// Obtain the status
+			statusEnum = FoodTruckStatusEnum.getFromStringValue(statusStr);
+		}
+		
+		FoodTruckQuery query = new FoodTruckQuery(
+				FoodTruckAccessor.getInstance().getSnapshot(), statusEnum, filter, text);
+		
+		// If latitude and longitude is specified
+		if (latitudeStr != null && longitudeStr != null && radiusStr != null && radiusUnitStr != null)
+		{
+			try 
+			{
+				// Obtain the latitude, longitude, radius and radius unit
+				query.setCircle(
+						Double.parseDouble(latitudeStr), 
+						Double.parseDouble(longitudeStr), 
+						Double.parseDouble(radiusStr), 
+						DistanceUnitEnum.getFromStringValue(radiusUnitStr));
+			} 
+			catch (Exception e) 
+			{
+				// Invalid circle, query on the other conditions only
+				e.printStackTrace();
+			}
+		}
+		
+		return query;
+	}
+	
+	/**
+	 * Returns the plan of the given query (see FoodTruckQueryPlanner), the planning time is recorded
+	 */
+	private static FoodTruckQueryPlan plan(FoodTruckQuery query)
+	{
+		long startTime = System.nanoTime();
+		FoodTruckQueryPlan plan = FoodTruckQueryPlanner.getInstance().plan(query);
+		FoodTruckMetrics.getInstance().recordPlan(System.nanoTime() - startTime);
+		
+		return plan;
+	}
+	
+	/**
+	 * Passes the food trucks that provide the conditions of the given query to the given visitor,
+	 * starting from the access path of the given plan, until the visitor stops the traversal.
+	 * The execution time and the examined and returned food truck counts are recorded (see FoodTruckMetrics);
+	 * the time includes the visitor (e.g. a streamed response).
+	 * 
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	private static boolean visitFoodTrucks(
+			FoodTruckQuery query, 
+			FoodTruckQueryPlan plan, 
+			FoodTruckVisitor visitor)
+	{
+		long startTime = System.nanoTime();
+		boolean completed = visitAccessPath(query, plan.getAccessPath(), visitor);
+		
+		FoodTruckMetrics.getInstance().recordQuery(plan.getAccessPath(), System.nanoTime() - startTime, 
+				query.getExaminedRowCount(), query.getResultRowCount());
+		
+		return completed;
+	}
+	
+	/**
+	 * Passes the food trucks that provide the conditions of the given query to the given page collector.
+	 * 
+	 * The access path of the plan produces all the matches of the query, for every page. If the query matches
+	 * many food trucks, then the food trucks after the cursor are visited in objectid order instead, and the traversal
+	 * stops when the page is full: if the matches are spread over the objectids, a page examines about 
+	 * (limit + 1) * size / matches food trucks. The number of the matches is estimated with the rows of the access path,
+	 * and the objectid order is used if it examines fewer food trucks than the access path produces.
+	 * Every condition is checked on the visited food trucks (like a full scan), which is recorded as a full scan.
+	 */
+	private static void visitPage(
+			final FoodTruckQuery query, 
+			FoodTruckQueryPlan plan, 
+			final FoodTruckPageCollector collector)
+	{
+		double matchCount = 0;
+		for (FoodTruckAccessPathCost candidate : plan.getCandidates())
+		{
+			if (candidate.getAccessPath() == plan.getAccessPath())
+			{
+				matchCount = candidate.getEstimatedRows();
+			}
+		}
+		
+		if ((collector.getLimit() + 1.0) * query.getSnapshot().size() >= matchCount * matchCount)
+		{
+			visitFoodTrucks(query, plan, collector);
+			return;
+		}
+		
+		long startTime = System.nanoTime();
+		query.getSnapshot().visitFoodTrucksAfter(collector.getAfterObjectid(), new FoodTruckVisitor()
+		{
+			@Override
+			public boolean visit(FoodTruck foodTruck)
+			{
+				if (query.accept(foodTruck, QueryAccessPathEnum.FULL_SCAN) && query.addResultRow())
+				{
+					collector.visit(foodTruck);
+				}
+				return ! collector.isFull();
+			}
+		});
+		
+		FoodTruckMetrics.getInstance().recordQuery(QueryAccessPathEnum.FULL_SCAN, System.nanoTime() - startTime, 
+				query.getExaminedRowCount(), query.getResultRowCount());
+	}
+	
+	/**
+	 * Passes the food trucks that provide the conditions of the given query to the given visitor,
+	 * starting from the given access path, until the visitor stops the traversal.
+	 * Column store scans check the status and the circle on the columns;
+	 * only the food trucks that pass them are read to check the text.
+	 * 
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	private static boolean visitAccessPath(
+			final FoodTruckQuery query, 
+			final QueryAccessPathEnum accessPath, 
+			final FoodTruckVisitor visitor)
+	{
+		FoodTruckSnapshot snapshot = query.getSnapshot();
+		
+		// Receives the food trucks of the access path and checks the other conditions
+		FoodTruckVisitor objectVisitor = new FoodTruckVisitor()
+		{
+			@Override
+			public boolean visit(FoodTruck foodTruck)
+			{
+				return ! query.accept(foodTruck, accessPath) || query.addResultRow() && visitor.visit(foodTruck);
+			}
+		};
+		
+		// Receives the food trucks of a column store scan, which are checked on the columns
+		FoodTruckVisitor columnVisitor = new FoodTruckVisitor()
+		{
+			@Override
+			public boolean visit(FoodTruck foodTruck)
+			{
+				return ! query.matchesText(foodTruck) || query.addResultRow() && visitor.visit(foodTruck);
+			}
+		};
+		
+		switch (accessPath)
+		{
+			case ATTRIBUTE_INDEX:
+				return snapshot.visitFoodTrucks(query.getRows(), query, columnVisitor);
+				
+			case STATUS_INDEX:
+				// The status bitmap is scanned on the columns for the circle
+				return query.hasCircle()
+						? snapshot.visitFoodTrucks(
+								snapshot.evaluate(FoodTruckFilter.status(query.getStatus())), query, columnVisitor)
+						: snapshot.visitFoodTrucks(query.getStatus(), objectVisitor);
+				
+			case TEXT_INDEX:
+				return snapshot.visitFoodTrucksMatchingText(query.getText(), objectVisitor);
 				
-				// If distance is smaller than the radius,
-				if (distance < radius)
+			case SPATIAL_INDEX:
+				return snapshot.visitFoodTrucksInsideBox(
+						query.getMinLatitude(), query.getMinLongitude(), 
+						query.getMaxLatitude(), query.getMaxLongitude(), 
+						objectVisitor);
+				
+			default:
+				if (query.hasCircle())
 				{
-					// Then it is in the circle, add it to the result list.
-					foodTrucksInsideCircle.add(foodTruck);
+					// Every row is checked, on several threads if there are enough of them
+					query.addExaminedRowCount(snapshot.size());
+					return snapshot.parallelScan(query.getConcurrentRowFilter(), columnVisitor);
 				}
+				return snapshot.visitFoodTrucks(FoodTruckStatusEnum.ALL, objectVisitor);
+		}
+	}
+	
+	/**
+	 * Returns the trimmed, non-empty values of the given comma separated list (without the leading '!')
+	 */
+	private static List<String> splitValues(String valuesStr)
+	{
+		List<String> values = new ArrayList<String>();
+		
+		for (String value : valuesStr.trim().replaceFirst("^!", "").split(","))
+		{
+			if (! value.trim().isEmpty())
+			{
+				values.add(value.trim());
 			}
-			
-			// Return the resulting list.
-			return foodTrucksInsideCircle;
 		}
+		
+		return values;
+	}
+	
+	/**
+	 * Returns true if the given comma separated list starts with '!'
+	 */
+	private static boolean isNegated(String valuesStr)
+	{
+		return valuesStr.trim().startsWith("!");
+	}
+	
+	/**
+	 * Returns the negation of the given filter if the given comma separated list starts with '!',
+	 * the filter itself otherwise
+	 */
+	private static FoodTruckFilter negateIfRequested(String valuesStr, FoodTruckFilter filter)
+	{
+		return isNegated(valuesStr) ? FoodTruckFilter.not(filter) : filter;
+	}
+	
+	/**
+	 * Returns true if the given text query is specified (blank texts are ignored)
+	 */
+	private static boolean hasText(String text)
+	{
+		return text != null && ! text.trim().isEmpty();
 	}
-}
+}
\ No newline at end of file
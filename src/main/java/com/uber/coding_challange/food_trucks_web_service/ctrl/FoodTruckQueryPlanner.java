@@ -0,0 +1,149 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckSnapshot;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckAccessPathCost;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckQueryPlan;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.QueryAccessPathEnum;
+
+/**
+ * The Query Planner class. Singleton pattern is used.
+ * Chooses the access path of a query (see QueryAccessPathEnum) from the cardinality statistics
+ * of the snapshot: the number of the food trucks of every status, the number of the food trucks
+ * in the grid cells (and cell blocks) around the circle, the lengths of the posting lists of the words
+ * and the cardinality of the attribute filter. Statistics are read from the snapshot of the query,
+ * so they are always up to date; no statistics are collected separately.
+ *
+ * The cost of an access path is the number of the food trucks it produces times the cost of reading one,
+ * plus the cost of checking the remaining conditions on them. Conditions are checked in the order
+ * status, attribute filter, circle, text; so the expensive text check only runs on the food trucks
+ * that passed the others (their number is estimated with the selectivities of the other conditions).
+ * Costs are relative: visiting a food truck object of a list is 1 (about 10 nanoseconds);
+ * the other costs are measured against it on 200,000 food trucks.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckQueryPlanner
+{
+	// Constants ---------------------------------------------------------
+	private static final double OBJECT_ROW_COST = 1.0; // Food truck object of a list (no field is read)
+	private static final double GRID_ROW_COST = 5.0; // Food truck object of a grid cell, its position is checked
+	private static final double COLUMN_ROW_COST = 0.7; // Row of a sequential column scan
+	private static final double BITMAP_ROW_COST = 1.0; // Row of a bitmap (column read of the row)
+	private static final double LOOKUP_ROW_COST = 4.0; // Food truck object that is looked up by its objectid
+	private static final double CELL_COST = 2.0; // Lookup of a grid cell
+	private static final double POSTING_COST = 0.1; // Object id of a posting list during the intersection
+	private static final double ROW_CHECK_COST = 4.0; // Attribute filter check of a food truck object
+	private static final double TEXT_CHECK_COST = 60.0; // Tokenizing the food items and the applicant
+	private static final double CIRCLE_IN_BOX_RATIO = Math.PI / 4;
+	// -------------------------------------------------------------------
+
+	// SINGLETON Implementation ------------------------------------------
+	private static FoodTruckQueryPlanner INSTANCE = new FoodTruckQueryPlanner();
+	private FoodTruckQueryPlanner() {}
+	public static FoodTruckQueryPlanner getInstance() {return INSTANCE;}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Estimates the cost of every access path that can answer the given query
+	 * and returns the plan of the cheapest one.
+	 *
+	 * @param query Query conditions
+	 * @return The plan of the query
+	 */
+	public FoodTruckQueryPlan plan(FoodTruckQuery query)
+	{
+		FoodTruckSnapshot snapshot = query.getSnapshot();
+		double size = Math.max(snapshot.size(), 1);
+		List<FoodTruckAccessPathCost> candidates = new ArrayList<FoodTruckAccessPathCost>();
+
+		// Selectivities of the conditions (ratio of the food trucks that provide them)
+		long statusRows = snapshot.getStatusCount(query.getStatus());
+		double statusSelectivity = statusRows / size;
+
+		long attributeRows = (query.getRows() != null) ? query.getRows().cardinality() : snapshot.size();
+		double attributeSelectivity = attributeRows / size;
+
+		long spatialRows = 0;
+		double circleSelectivity = 1;
+		if (query.hasBoundingBox())
+		{
+			spatialRows = snapshot.estimateFoodTrucksInsideBox(
+					query.getMinLatitude(), query.getMinLongitude(), query.getMaxLatitude(), query.getMaxLongitude());
+			circleSelectivity = Math.min(1, spatialRows * CIRCLE_IN_BOX_RATIO / size);
+		}
+
+		long textRows = 0;
+		long postingCount = 0;
+		double textCheckCost = 0;
+		if (query.getText() != null)
+		{
+			textRows = Long.MAX_VALUE;
+			for (String term : query.getTextTerms())
+			{
+				int count = snapshot.getTextPostingCount(term);
+				textRows = Math.min(textRows, count);
+				postingCount += count;
+			}
+			textRows = (textRows == Long.MAX_VALUE) ? 0 : textRows;
+			textCheckCost = TEXT_CHECK_COST;
+		}
+
+		if (query.getRows() != null)
+		{
+			// Attribute rows are read from the columns, the text is a part of the filter
+			candidates.add(new FoodTruckAccessPathCost(QueryAccessPathEnum.ATTRIBUTE_INDEX,
+					attributeRows, attributeRows * BITMAP_ROW_COST));
+		}
+		else if (query.getStatus() != FoodTruckStatusEnum.ALL)
+		{
+			double rowCost = query.hasCircle()
+					? BITMAP_ROW_COST + circleSelectivity * textCheckCost
+					: OBJECT_ROW_COST + textCheckCost;
+			candidates.add(new FoodTruckAccessPathCost(QueryAccessPathEnum.STATUS_INDEX,
+					statusRows, statusRows * rowCost));
+		}
+
+		if (query.getText() != null)
+		{
+			candidates.add(new FoodTruckAccessPathCost(QueryAccessPathEnum.TEXT_INDEX,
+					textRows, postingCount * POSTING_COST + textRows * LOOKUP_ROW_COST));
+		}
+
+		if (query.hasBoundingBox())
+		{
+			long cellCount = snapshot.getGridCellCountInsideBox(
+					query.getMinLatitude(), query.getMinLongitude(), query.getMaxLatitude(), query.getMaxLongitude());
+			double rowCost = GRID_ROW_COST
+					+ ((query.getRows() != null) ? statusSelectivity * ROW_CHECK_COST : 0)
+					+ statusSelectivity * attributeSelectivity * circleSelectivity * textCheckCost;
+			candidates.add(new FoodTruckAccessPathCost(QueryAccessPathEnum.SPATIAL_INDEX,
+					spatialRows, cellCount * CELL_COST + spatialRows * rowCost));
+		}
+
+		if (query.getRows() == null)
+		{
+			double rowCost = query.hasCircle()
+					? COLUMN_ROW_COST + statusSelectivity * circleSelectivity * textCheckCost
+					: OBJECT_ROW_COST + statusSelectivity * textCheckCost;
+			candidates.add(new FoodTruckAccessPathCost(QueryAccessPathEnum.FULL_SCAN,
+					snapshot.size(), snapshot.size() * rowCost));
+		}
+
+		// The cheapest access path, the first one on ties
+		FoodTruckAccessPathCost cheapest = candidates.get(0);
+		for (FoodTruckAccessPathCost candidate : candidates)
+		{
+			if (candidate.getEstimatedCost() < cheapest.getEstimatedCost())
+			{
+				cheapest = candidate;
+			}
+		}
+
+		return new FoodTruckQueryPlan(cheapest.getAccessPath(), candidates, snapshot.getVersion());
+	}
+}
@@ -0,0 +1,273 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckHistogram;
+
+/**
+ * The Request Executor class. Singleton pattern is used.
+ * Runs the queries of the web service on a bounded pool instead of the threads of the servlet container,
+ * so slow queries cannot occupy all the container threads and the cheap requests (e.g. the pre-serialized
+ * payloads) are never queued behind them.
+ *
+ * The pool has a fixed number of threads and a bounded queue. A task that does not fit in the queue is rejected
+ * at once, and a task that is not completed before its deadline is completed with a TimeoutException; the
+ * web service answers both with "503 Service Unavailable", so the latency stays bounded under overload.
+ * A queued task whose deadline has passed is not started. A running query cannot be stopped, so it runs to the
+ * end, but its result is dropped; therefore a task must not write the servlet response itself.
+ * Streamed responses are not run on this pool (a slow client would hold a worker for the whole response).
+ *
+ * If the executor is disabled, then the tasks run on the calling thread (synchronous mode).
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckRequestExecutor
+{
+	// Constants ---------------------------------------------------------
+	public static final int DEFAULT_QUEUE_CAPACITY = 256; // tasks
+	public static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private volatile ThreadPoolExecutor pool = null; // null in synchronous mode
+	private volatile long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+	private final ScheduledThreadPoolExecutor deadlineTimer;
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+	private final AtomicLong expiredCount = new AtomicLong();
+	private final FoodTruckHistogram queueWaitHistogram = new FoodTruckHistogram();
+	// -------------------------------------------------------------------
+
+	// SINGLETON Implementation ------------------------------------------
+	private static FoodTruckRequestExecutor INSTANCE = new FoodTruckRequestExecutor();
+	private FoodTruckRequestExecutor()
+	{
+		deadlineTimer = new ScheduledThreadPoolExecutor(1, createThreadFactory("food-truck-deadline-"));
+		// Almost every deadline is cancelled, since the task is completed before it
+		deadlineTimer.setRemoveOnCancelPolicy(true);
+	}
+	public static FoodTruckRequestExecutor getInstance() {return INSTANCE;}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Runs the given task on the pool and returns its future result.
+	 * The future is completed with a RejectedExecutionException if the queue is full,
+	 * with a TimeoutException if the deadline has passed, and with the exception of the task if it fails.
+	 * In synchronous mode, the task is run before this method returns.
+	 *
+	 * @param task Task that creates the result
+	 * @return The future result of the task
+	 */
+	public <T> CompletableFuture<T> submit(final Callable<T> task)
+	{
+		final CompletableFuture<T> future = new CompletableFuture<T>();
+		ThreadPoolExecutor currentPool = pool;
+
+		if (currentPool == null)
+		{
+			run(task, future);
+			return future;
+		}
+
+		final long startTime = System.nanoTime();
+		final long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+
+		try
+		{
+			currentPool.execute(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					long now = System.nanoTime();
+					queueWaitHistogram.record(now - startTime);
+
+					// The deadline passed while the task was queued (or the future is already completed)
+					if (future.isDone() || now - deadline >= 0)
+					{
+						expire(future);
+						return;
+					}
+
+					FoodTruckRequestExecutor.this.run(task, future);
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			rejectedCount.incrementAndGet();
+			future.completeExceptionally(e);
+			return future;
+		}
+
+		final ScheduledFuture<?> timeout = deadlineTimer.schedule(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				expire(future);
+			}
+		}, deadline - startTime, TimeUnit.NANOSECONDS);
+
+		future.whenComplete(new BiConsumer<T, Throwable>()
+		{
+			@Override
+			public void accept(T result, Throwable exception)
+			{
+				timeout.cancel(false);
+			}
+		});
+
+		return future;
+	}
+
+	/**
+	 * Enables the asynchronous mode with the given pool size, queue capacity and deadline.
+	 * The current pool finishes its queued and running tasks and is shut down.
+	 *
+	 * @param threads Number of the worker threads, the number of the processors if it is not positive
+	 * @param queueCapacity Number of the waiting tasks, DEFAULT_QUEUE_CAPACITY if it is not positive
+	 * @param timeoutMillis Deadline of a task (from its submission), DEFAULT_TIMEOUT_MILLIS if it is not positive
+	 */
+	public void enable(int threads, int queueCapacity, long timeoutMillis)
+	{
+		int poolSize = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+		ThreadPoolExecutor newPool = new ThreadPoolExecutor(
+				poolSize,
+				poolSize,
+				0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>((queueCapacity > 0) ? queueCapacity : DEFAULT_QUEUE_CAPACITY),
+				createThreadFactory("food-truck-query-"));
+		newPool.prestartAllCoreThreads();
+
+		this.timeoutMillis = (timeoutMillis > 0) ? timeoutMillis : DEFAULT_TIMEOUT_MILLIS;
+		replacePool(newPool);
+	}
+
+	/**
+	 * Disables the asynchronous mode, the tasks run on the calling thread.
+	 * The current pool finishes its queued and running tasks and is shut down.
+	 */
+	public void disable()
+	{
+		replacePool(null);
+	}
+
+	/**
+	 * Returns true if the tasks run on the pool
+	 *
+	 * @return True in asynchronous mode
+	 */
+	public boolean isEnabled()
+	{
+		return pool != null;
+	}
+
+	/**
+	 * Returns the number of the waiting tasks
+	 *
+	 * @return The size of the queue, 0 in synchronous mode
+	 */
+	public int getQueueSize()
+	{
+		ThreadPoolExecutor currentPool = pool;
+		return (currentPool != null) ? currentPool.getQueue().size() : 0;
+	}
+
+	/**
+	 * Returns the number of the running tasks
+	 *
+	 * @return The number of the busy worker threads, 0 in synchronous mode
+	 */
+	public int getActiveCount()
+	{
+		ThreadPoolExecutor currentPool = pool;
+		return (currentPool != null) ? currentPool.getActiveCount() : 0;
+	}
+
+	// Getters -----------------------------------------------------------
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+	public long getRejectedCount() {
+		return rejectedCount.get();
+	}
+	public long getExpiredCount() {
+		return expiredCount.get();
+	}
+	public FoodTruckHistogram getQueueWaitHistogram() {
+		return queueWaitHistogram;
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Completes the given future with the result of the given task
+	 */
+	private <T> void run(Callable<T> task, CompletableFuture<T> future)
+	{
+		try
+		{
+			future.complete(task.call());
+		}
+		catch (Exception e)
+		{
+			future.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * Completes the given future with a TimeoutException (if it is not completed yet)
+	 */
+	private void expire(CompletableFuture<?> future)
+	{
+		if (future.completeExceptionally(new TimeoutException("Deadline of the request has passed")))
+		{
+			expiredCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Replaces the pool with the given pool and shuts down the previous pool
+	 */
+	private synchronized void replacePool(ThreadPoolExecutor newPool)
+	{
+		ThreadPoolExecutor previousPool = pool;
+		pool = newPool;
+
+		if (previousPool != null)
+		{
+			previousPool.shutdown();
+		}
+	}
+
+	/**
+	 * Creates a factory of daemon threads with the given name prefix
+	 */
+	private static ThreadFactory createThreadFactory(final String namePrefix)
+	{
+		final AtomicInteger threadCount = new AtomicInteger();
+		return new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable runnable)
+			{
+				Thread thread = new Thread(runnable, namePrefix + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+}
@@ -0,0 +1,167 @@
+package com.uber.coding_challange.food_trucks_web_service.ctrl;
+
+import com.uber.coding_challange.food_trucks_web_service.model.enums.DistanceUnitEnum;
+
+/**
+ * A circle on the surface with precomputed center values, used for fast "within radius" checks.
+ * A position is inside the circle if its distance to the center is smaller than the radius
+ * (same condition with GeodesicDistanceCalculator.distance(...) < radius).
+ *
+ * Each check runs the cheapest test that can decide:
+ * 1) Latitude difference: a position whose latitude is farther than the radius is outside.
+ * 2) Equirectangular bounds: for small circles away from the poles, the flat distance is computed
+ *    with the largest and the smallest cosine of the latitude range of the circle.
+ *    These bound the true distance, so positions clearly inside or outside are decided without trigonometry.
+ * 3) Haversine: only positions close to the boundary reach the exact formula.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class GeodesicCircle
+{
+	// Constants ---------------------------------------------------------
+	private static final double MAX_EQUIRECTANGULAR_RADIUS = 1.0; // in decimal degrees
+	private static final double MAX_EQUIRECTANGULAR_LATITUDE = 80.0; // in decimal degrees
+	private static final double EQUIRECTANGULAR_MARGIN = 0.01; // relative to the radius
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final double latitude;
+	private final double longitude;
+	private final double angularRadius; // in decimal degrees
+	private final double cosLatitude;
+	private final double haversineLimit; // sin^2(angularRadius / 2)
+	private final boolean containsAll;
+
+	private final boolean equirectangular;
+	private final double cosMax; // largest cosine of the latitude range of the circle
+	private final double cosMin; // smallest cosine of the latitude range of the circle
+	private final double innerLimit; // squared radius that is certainly inside
+	private final double outerLimit; // squared radius that is certainly outside
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	/**
+	 * Creates the circle and precomputes the values of its center
+	 *
+	 * @param latitude Latitude of the center (in decimal degrees)
+	 * @param longitude Longitude of the center (in decimal degrees)
+	 * @param radius Radius of the circle
+	 * @param radiusUnit Unit of the radius
+	 */
+	public GeodesicCircle(double latitude, double longitude, double radius, DistanceUnitEnum radiusUnit)
+	{
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.angularRadius = GeodesicDistanceCalculator.getInstance().toAngularDistance(radius, radiusUnit);
+		this.cosLatitude = Math.cos(Math.toRadians(latitude));
+
+		// Radius is greater than half of the circumference, every position is inside
+		this.containsAll = angularRadius > 180;
+
+		double halfRadius = Math.sin(Math.toRadians(Math.min(angularRadius, 180)) / 2);
+		this.haversineLimit = halfRadius * halfRadius;
+
+		double minLatitude = latitude - angularRadius;
+		double maxLatitude = latitude + angularRadius;
+		this.equirectangular = angularRadius > 0
+				&& angularRadius <= MAX_EQUIRECTANGULAR_RADIUS
+				&& minLatitude >= -MAX_EQUIRECTANGULAR_LATITUDE
+				&& maxLatitude <= MAX_EQUIRECTANGULAR_LATITUDE;
+
+		double cosMinLatitude = Math.cos(Math.toRadians(minLatitude));
+		double cosMaxLatitude = Math.cos(Math.toRadians(maxLatitude));
+		this.cosMax = (minLatitude <= 0 && maxLatitude >= 0) ? 1 : Math.max(cosMinLatitude, cosMaxLatitude);
+		this.cosMin = Math.min(cosMinLatitude, cosMaxLatitude);
+
+		double inner = angularRadius * (1 - EQUIRECTANGULAR_MARGIN);
+		double outer = angularRadius * (1 + EQUIRECTANGULAR_MARGIN);
+		this.innerLimit = inner * inner;
+		this.outerLimit = outer * outer;
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns true if the given position is inside the circle
+	 *
+	 * @param pointLatitude Latitude of the position (in decimal degrees)
+	 * @param pointLongitude Longitude of the position (in decimal degrees)
+	 * @return True if the given position is inside the circle, false otherwise
+	 */
+	public boolean contains(double pointLatitude, double pointLongitude)
+	{
+		if (containsAll)
+		{
+			return true;
+		}
+
+		// Distance is never smaller than the latitude difference
+		double latitudeDelta = pointLatitude - latitude;
+		if (Math.abs(latitudeDelta) >= angularRadius)
+		{
+			return false;
+		}
+
+		double longitudeDelta = pointLongitude - longitude;
+		if (longitudeDelta > 180)
+		{
+			longitudeDelta -= 360;
+		}
+		else if (longitudeDelta < -180)
+		{
+			longitudeDelta += 360;
+		}
+
+		if (equirectangular)
+		{
+			double latitudeDelta2 = latitudeDelta * latitudeDelta;
+
+			double farX = longitudeDelta * cosMax;
+			if (farX * farX + latitudeDelta2 < innerLimit)
+			{
+				return true;
+			}
+
+			double nearX = longitudeDelta * cosMin;
+			if (nearX * nearX + latitudeDelta2 > outerLimit)
+			{
+				return false;
+			}
+		}
+
+		// Haversine formula for the positions close to the boundary
+		double sinHalfLatitude = Math.sin(Math.toRadians(latitudeDelta) / 2);
+		double sinHalfLongitude = Math.sin(Math.toRadians(longitudeDelta) / 2);
+		double haversine = sinHalfLatitude * sinHalfLatitude
+				+ cosLatitude * Math.cos(Math.toRadians(pointLatitude)) * sinHalfLongitude * sinHalfLongitude;
+
+		return haversine < haversineLimit;
+	}
+
+	/**
+	 * Checks the given positions and sets the related flag to true if the position is inside the circle.
+	 *
+	 * @param latitudes Latitudes of the positions (in decimal degrees)
+	 * @param longitudes Longitudes of the positions (in decimal degrees)
+	 * @param count Number of positions to check (starting from index 0)
+	 * @param result Flags of the positions, true if the position is inside the circle
+	 * @return Number of positions inside the circle
+	 */
+	public int contains(double[] latitudes, double[] longitudes, int count, boolean[] result)
+	{
+		int insideCount = 0;
+
+		for (int i = 0; i < count; i++)
+		{
+			boolean inside = contains(latitudes[i], longitudes[i]);
+			result[i] = inside;
+
+			if (inside)
+			{
+				insideCount++;
+			}
+		}
+
+		return insideCount;
+	}
+}
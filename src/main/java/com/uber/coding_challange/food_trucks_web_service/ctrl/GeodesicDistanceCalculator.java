@@ -34,10 +34,99 @@ public class GeodesicDistanceCalculator
 	 */
 	public double distance(double lat1, double lon1, double lat2, double lon2, DistanceUnitEnum unit) 
 	{
-		double theta = lon1 - lon2;
-		double dist = Math.sin(deg2rad(lat1)) * Math.sin(deg2rad(lat2)) 
-					  + Math.cos(deg2rad(lat1)) * Math.cos(deg2rad(lat2)) * Math.cos(deg2rad(theta));
-		dist = Math.acos(dist);
+		double lat1Rad = deg2rad(lat1);
+		double lat2Rad = deg2rad(lat2);
+		
+		return centralAngleToDistance(
+				Math.sin(lat1Rad), Math.cos(lat1Rad), 
+				Math.sin(lat2Rad), Math.cos(lat2Rad), 
+				deg2rad(lon1 - lon2), unit);
+	}
+	
+	/**
+	 * Calculates the distances between the given center and the given positions.
+	 * Trigonometric values of the center are calculated only once.
+	 * 
+	 * @param latitude Latitude of the center (in decimal degrees)
+	 * @param longitude Longitude of the center (in decimal degrees)
+	 * @param latitudes Latitudes of the positions (in decimal degrees)
+	 * @param longitudes Longitudes of the positions (in decimal degrees)
+	 * @param count Number of positions (starting from index 0)
+	 * @param unit Distance unit
+	 * @param result Distances between the center and the positions
+	 */
+	public void distances(
+			double latitude, 
+			double longitude, 
+			double[] latitudes, 
+			double[] longitudes, 
+			int count, 
+			DistanceUnitEnum unit,
+			double[] result)
+	{
+		double latitudeRad = deg2rad(latitude);
+		double sinLatitude = Math.sin(latitudeRad);
+		double cosLatitude = Math.cos(latitudeRad);
+		
+		for (int i = 0; i < count; i++)
+		{
+			double pointLatitudeRad = deg2rad(latitudes[i]);
+			
+			result[i] = centralAngleToDistance(
+					Math.sin(pointLatitudeRad), Math.cos(pointLatitudeRad), 
+					sinLatitude, cosLatitude, 
+					deg2rad(longitudes[i] - longitude), unit);
+		}
+	}
+	
+	/**
+	 * Checks whether the given positions are inside the given circle.
+	 * A position is inside if its distance to the center is smaller than the radius.
+	 * Most of the positions are decided by cheap bounding box and equirectangular checks, 
+	 * only the positions close to the boundary are checked by the haversine formula (see GeodesicCircle).
+	 * 
+	 * @param latitude Latitude of the center (in decimal degrees)
+	 * @param longitude Longitude of the center (in decimal degrees)
+	 * @param radius Radius of the circle
+	 * @param unit Unit of the radius
+	 * @param latitudes Latitudes of the positions (in decimal degrees)
+	 * @param longitudes Longitudes of the positions (in decimal degrees)
+	 * @param count Number of positions (starting from index 0)
+	 * @param result Flags of the positions, true if the position is inside the circle
+	 * @return Number of positions inside the circle
+	 */
+	public int withinRadius(
+			double latitude, 
+			double longitude, 
+			double radius, 
+			DistanceUnitEnum unit,
+			double[] latitudes, 
+			double[] longitudes, 
+			int count, 
+			boolean[] result)
+	{
+		return new GeodesicCircle(latitude, longitude, radius, unit).contains(latitudes, longitudes, count, result);
+	}
+	
+	/**
+	 * Calculates the distance from the trigonometric values of two positions.
+	 * Cosine of the central angle is limited to [-1, 1], 
+	 * since rounding errors may push it out of the range for very close positions 
+	 * (acos would return NaN).
+	 * 
+	 * @param sinLat1 Sine of the latitude of first position
+	 * @param cosLat1 Cosine of the latitude of first position
+	 * @param sinLat2 Sine of the latitude of second position
+	 * @param cosLat2 Cosine of the latitude of second position
+	 * @param thetaRad Longitude difference (in radians)
+	 * @param unit Distance unit
+	 * @return Distance between the two positions
+	 */
+	private static double centralAngleToDistance(
+			double sinLat1, double cosLat1, double sinLat2, double cosLat2, double thetaRad, DistanceUnitEnum unit)
+	{
+		double dist = sinLat1 * sinLat2 + cosLat1 * cosLat2 * Math.cos(thetaRad);
+		dist = Math.acos(Math.max(-1, Math.min(1, dist)));
 		dist = rad2deg(dist);
 		dist = dist * 60 * 1.1515;
 		
@@ -53,6 +142,31 @@ public class GeodesicDistanceCalculator
 		return (dist);
 	}
 	
+	/**
+	 * Converts the given distance to the central angle (in decimal degrees) 
+	 * that covers the same distance on the surface.
+	 * It is the inverse of the conversion applied in the distance method.
+	 * 
+	 * @param distance Distance on the surface
+	 * @param unit Distance unit
+	 * @return Central angle equivalent of the given distance (in decimal degrees)
+	 */
+	public double toAngularDistance(double distance, DistanceUnitEnum unit)
+	{
+		double dist = distance;
+		
+		if (unit == DistanceUnitEnum.KILOMETERS) 
+		{
+			dist = dist / 1.609344;
+		} 
+		else if (unit == DistanceUnitEnum.NAUTICAL_MILES) 
+		{
+			dist = dist / 0.8684;
+		}
+		
+		return (dist / (60 * 1.1515));
+	}
+	
 	/**
 	 * Converts decimal degree to radian
 	 * 
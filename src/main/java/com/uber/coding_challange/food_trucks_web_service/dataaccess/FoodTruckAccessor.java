@@ -1,243 +1,313 @@
 package com.uber.coding_challange.food_trucks_web_service.dataaccess;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckCluster;
 import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
 
 /**
  * Storage accessor class. Singleton pattern is used.
  * Allows to add/update/delete food trucks.
  * Maintains a food truck status -> food truck list map for faster query results.
- * 
+ * Maintains a spatial grid index for faster radius queries
+ * and a KD-tree for nearest food truck queries.
+ * Maintains the marker clusters of every zoom level for viewport queries.
+ *
+ * Storage is kept in immutable, versioned snapshots (see FoodTruckSnapshot).
+ * Read methods are lock-free, they work on the snapshot that is current when they are called.
+ * Write methods are serialized on a writer lock; each call builds the next snapshot
+ * and publishes it at once, so readers never see a half-applied change.
+ * Since every write copies the maps, bulk changes should be applied with a single call
+ * or pushed in batches through a write session (see FoodTruckWriteSession).
+ *
  * @author alper.karacelik
  *
  */
-public class FoodTruckAccessor 
+public class FoodTruckAccessor
 {
 	// Attributes --------------------------------------------------------
-	private static HashMap<Long, FoodTruck> foodTruckMap;
-	private static HashMap<FoodTruckStatusEnum, List<FoodTruck>> statusMap;
+	private static volatile FoodTruckSnapshot snapshot;
+	private static final ReentrantLock writeLock = new ReentrantLock();
+	private static final FoodTruckHistogram lockWaitHistogram = new FoodTruckHistogram(); // in nanoseconds
 	// -------------------------------------------------------------------
-	
+
 	// SINGLETON Implementation ------------------------------------------
 	private static FoodTruckAccessor INSTANCE = new FoodTruckAccessor();
 	private FoodTruckAccessor() {initialize();}
 	public static FoodTruckAccessor getInstance() {return INSTANCE;}
 	// -------------------------------------------------------------------
-	
+
 	/**
-	 * Initializes the mappings
+	 * Initializes the storage with an empty snapshot
 	 */
 	private static void initialize()
 	{
-		foodTruckMap = new HashMap<Long, FoodTruck>();
-		statusMap = new HashMap<FoodTruckStatusEnum, List<FoodTruck>>();
+		snapshot = new FoodTruckSnapshot();
+	}
+
+	/**
+	 * Returns the current snapshot of the storage.
+	 * Callers that need more than one read to be consistent should use the same snapshot.
+	 *
+	 * @return The current snapshot of the storage
+	 */
+	public FoodTruckSnapshot getSnapshot()
+	{
+		return snapshot;
 	}
-	
+
 	/**
 	 * Returns all the food trucks in the storage
-	 * This method is synchronized on this class (Manipulation on storage elements is prevented.)
-	 * 
+	 *
 	 * @return All the food trucks in the storage
 	 */
 	public List<FoodTruck> getAllFoodTrucks()
 	{
-		synchronized (FoodTruckAccessor.class) 
-		{
-			return new ArrayList<FoodTruck>(foodTruckMap.values());
-		}
+		return snapshot.getAllFoodTrucks();
 	}
-	
+
 	/**
 	 * Returns the food trucks that have the specified status.
 	 * If the specified status is ALL, then all food trucks are returned.
 	 * If the specified status is NO_STATEMENT, then an empty list is returned.
-	 * This method is synchronized on this class (Manipulation on storage elements is prevented.)
-	 * 
+	 *
 	 * @param status Food Truck Status for querying
-	 * @return The food trucks which have the specified status
+	 * @return The food trucks which have the specified status (read-only)
 	 */
 	public List<FoodTruck>getFoodTrucks(FoodTruckStatusEnum status)
 	{
-		synchronized (FoodTruckAccessor.class) 
-		{
-			if (status == FoodTruckStatusEnum.ALL)
-			{
-				return getAllFoodTrucks();
-			}
-			else if (status == FoodTruckStatusEnum.NO_STATEMENT)
-			{
-				return new ArrayList<FoodTruck>();
-			}
-			else
-			{
-				return statusMap.get(status);
-			}
-		}
+		return snapshot.getFoodTrucks(status);
 	}
-	
+
+	/**
+	 * Returns the food trucks that reside in the grid cells overlapping the given bounding box.
+	 * Returned list is a candidate list, exact position checks are left to the caller.
+	 *
+	 * @param minLatitude Southern edge of the box (in decimal degrees)
+	 * @param minLongitude Western edge of the box (in decimal degrees)
+	 * @param maxLatitude Northern edge of the box (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the box (in decimal degrees)
+	 * @return The food trucks in the grid cells that overlap the given bounding box
+	 */
+	public List<FoodTruck> getFoodTrucksInsideBox(
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude)
+	{
+		return snapshot.getFoodTrucksInsideBox(minLatitude, minLongitude, maxLatitude, maxLongitude);
+	}
+
+	/**
+	 * Returns at most 'k' food trucks that are nearest to the given position and have the given status.
+	 * If the specified status is NO_STATEMENT, then an empty list is returned.
+	 *
+	 * @param latitude Latitude of the position (in decimal degrees)
+	 * @param longitude Longitude of the position (in decimal degrees)
+	 * @param k Maximum number of food trucks
+	 * @param status Food Truck Status for querying
+	 * @return Nearest food trucks, sorted by their distance to the given position
+	 */
+	public List<FoodTruck> getNearestFoodTrucks(
+			double latitude,
+			double longitude,
+			int k,
+			FoodTruckStatusEnum status)
+	{
+		return snapshot.getNearestFoodTrucks(latitude, longitude, k, status);
+	}
+
+	/**
+	 * Returns the marker clusters of the given zoom level inside the given viewport.
+	 * Clusters are updated when food trucks are added, updated or removed.
+	 *
+	 * @param zoom Zoom level of the map
+	 * @param minLatitude Southern edge of the viewport (in decimal degrees)
+	 * @param minLongitude Western edge of the viewport (in decimal degrees)
+	 * @param maxLatitude Northern edge of the viewport (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the viewport (in decimal degrees)
+	 * @return The clusters of the viewport
+	 */
+	public List<FoodTruckCluster> getClusters(
+			int zoom,
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude)
+	{
+		return snapshot.getClusters(zoom, minLatitude, minLongitude, maxLatitude, maxLongitude);
+	}
+
 	/**
 	 * Returns true if a food truck with given id exist, false otherwise
-	 * This method is synchronized on this class (Manipulation on storage elements is prevented.)
-	 * 
+	 *
 	 * @param id Object id of a food truck
 	 * @return True if a food truck with given id exist, false otherwise
 	 */
 	public boolean foodTruckExist(long id)
 	{
-		synchronized (FoodTruckAccessor.class) 
-		{
-			return foodTruckMap.containsKey(id);
-		}
+		return snapshot.foodTruckExist(id);
 	}
-	
+
 	/**
 	 * Returns the food truck with the given id
-	 * This method is synchronized on this class (Manipulation on storage elements is prevented.)
-	 * 
+	 *
 	 * @param id Object id of a food truck
 	 * @return The food truck with the given id
 	 */
 	public FoodTruck getFoodTruck(long id)
 	{
-		synchronized (FoodTruckAccessor.class) 
-		{
-			return foodTruckMap.get(id);
-		}
+		return snapshot.getFoodTruck(id);
 	}
-	
+
 	/**
 	 * Adds the given food truck to the storage
-	 * Also populates the status map
-	 * This method is synchronized on this class (Manipulation on storage elements is prevented.)
-	 * 
+	 * Also populates the status map, the grid index and the KD-tree
+	 * If a food truck with the same object id exists, then it is updated instead.
+	 *
 	 * @param foodTruck new food truck
 	 */
 	public void addFoodTruck(FoodTruck foodTruck)
 	{
-		synchronized (FoodTruckAccessor.class) 
-		{
-			foodTruckMap.put(foodTruck.getObjectid(), foodTruck);
-			addToStatusMap(foodTruck);
-		}
+		applyChanges(
+				Collections.singletonList(foodTruck),
+				Collections.<FoodTruck>emptyList(),
+				Collections.<Long>emptyList());
 	}
 
 	/**
-	 * Updates the given food truck. 
+	 * Adds the given food trucks to the storage in a single snapshot
+	 *
+	 * @param foodTrucks new food trucks
+	 */
+	public void addFoodTrucks(Collection<FoodTruck> foodTrucks)
+	{
+		applyChanges(foodTrucks, Collections.<FoodTruck>emptyList(), Collections.<Long>emptyList());
+	}
+
+	/**
+	 * Updates the given food truck.
 	 * If there no food truck with the object id of the given food truck, then does nothing.
 	 * Also update the status map if the status is changed.
-	 * This method is synchronized on this class (Manipulation on storage elements is prevented.)
-	 * 
+	 * Grid index and KD-tree are updated, since the position may be changed.
+	 *
 	 * @param foodTruck updated food truck
 	 */
 	public void updateFoodTruck(FoodTruck foodTruck)
 	{
-		synchronized (FoodTruckAccessor.class) 
-		{
-			// Update the status map first.
-			updateStatusChange(foodTruck);
-			foodTruckMap.put(foodTruck.getObjectid(), foodTruck);
-		}
+		applyChanges(
+				Collections.<FoodTruck>emptyList(),
+				Collections.singletonList(foodTruck),
+				Collections.<Long>emptyList());
 	}
-	
+
 	/**
 	 * Removes and returns the food truck with the given id.
-	 * Also updates the status map
-	 * This method is synchronized on this class (Manipulation on storage elements is prevented.)
-	 * 
+	 * Also updates the status map, the grid index and the KD-tree
+	 *
 	 * @param id
 	 * @return The removed food truck
 	 */
 	public FoodTruck removeFoodTruck(long id)
 	{
-		synchronized (FoodTruckAccessor.class) 
-		{
-			removeFromStatusMap(foodTruckMap.get(id));
-			return foodTruckMap.remove(id);
-		}
+		List<FoodTruck> removedFoodTrucks = applyChanges(
+				Collections.<FoodTruck>emptyList(),
+				Collections.<FoodTruck>emptyList(),
+				Collections.singletonList(id));
+
+		return removedFoodTrucks.isEmpty() ? null : removedFoodTrucks.get(0);
 	}
-	
+
 	/**
-	 * Adds the given food truck to the related list in the status map.
-	 * Example: If the status of the given food truck is 'REQUESTED';
-	 * then, the given truck is added to the list of the 'REQUESTED' map item.
-	 * This method is synchronized on this class (Manipulation on storage elements is prevented.)
-	 * 
-	 * @param foodTruck new food truck
+	 * Applies the given changes in a single snapshot.
+	 * Readers see either none or all of the changes.
+	 * Removals are applied first, then updates, then additions.
+	 * This method holds the writer lock (Only one snapshot is built at a time.)
+	 *
+	 * @param addedFoodTrucks new food trucks
+	 * @param updatedFoodTrucks updated food trucks
+	 * @param removedIds Object ids of the removed food trucks
+	 * @return The removed food trucks
 	 */
-	private void addToStatusMap(FoodTruck foodTruck)
+	public List<FoodTruck> applyChanges(
+			Collection<FoodTruck> addedFoodTrucks,
+			Collection<FoodTruck> updatedFoodTrucks,
+			Collection<Long> removedIds)
 	{
-		synchronized (FoodTruckAccessor.class) 
+		FoodTruckWriteSession session = openWriteSession();
+		try
 		{
-			FoodTruckStatusEnum status = foodTruck.getStatusEnum();
-			List<FoodTruck> foodTrucks;
-			
-			// If an existing entry will be updated.
-			if (statusMap.containsKey(status))
-			{
-				foodTrucks = statusMap.get(status);
-			}
-			// If a new entry is created.
-			else
+			List<FoodTruck> removedFoodTrucks = new ArrayList<FoodTruck>();
+
+			for (long id : removedIds)
 			{
-				foodTrucks = new ArrayList<FoodTruck>();
-				statusMap.put(status, foodTrucks);
+				FoodTruck removedFoodTruck = session.remove(id);
+
+				if (removedFoodTruck != null)
+				{
+					removedFoodTrucks.add(removedFoodTruck);
+				}
 			}
-			
-			foodTrucks.add(foodTruck);
+			session.update(updatedFoodTrucks);
+			session.add(addedFoodTrucks);
+
+			// Publish the next snapshot
+			session.publish();
+
+			return removedFoodTrucks;
+		}
+		finally
+		{
+			session.close();
 		}
 	}
-	
+
 	/**
-	 * Updates the status map if the status of the given food truck is changed.
-	 * This method is synchronized on this class (Manipulation on storage elements is prevented.)
-	 * 
-	 * @param updatedFoodTruck Updated food truck
+	 * Opens a write session on the current snapshot.
+	 * The writer lock is held until the session is published or closed,
+	 * so other writers wait; readers are never blocked.
+	 * The time spent waiting for the lock is recorded (see getLockWaitHistogram()).
+	 *
+	 * @return The write session
 	 */
-	private void updateStatusChange(FoodTruck updatedFoodTruck)
+	public FoodTruckWriteSession openWriteSession()
 	{
-		synchronized (FoodTruckAccessor.class) 
+		long startTime = System.nanoTime();
+		writeLock.lock();
+		lockWaitHistogram.record(System.nanoTime() - startTime);
+		try
 		{
-			// Continue only if the given food truck already exist
-			if (foodTruckMap.containsKey(updatedFoodTruck.getObjectid()))
-			{
-				FoodTruck existingFoodTruck = foodTruckMap.get(updatedFoodTruck.getObjectid());
-				
-				// Check if the status is changed.
-				if (existingFoodTruck.getStatusEnum() != updatedFoodTruck.getStatusEnum())
-				{
-					// Remove the food truck from the map of previous status
-					removeFromStatusMap(existingFoodTruck);
-					// Add the food truck to the map of current status
-					addToStatusMap(updatedFoodTruck);
-				}
-			}
+			return new FoodTruckWriteSession(snapshot, writeLock);
 		}
+		catch (RuntimeException e)
+		{
+			writeLock.unlock();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the histogram of the times (in nanoseconds) the writers waited for the writer lock
+	 *
+	 * @return The lock wait histogram
+	 */
+	public FoodTruckHistogram getLockWaitHistogram()
+	{
+		return lockWaitHistogram;
 	}
-	
+
 	/**
-	 * Updates the status map by removing the given food truack from the related status map item.
-	 * Example: If the status of the given food truck is 'REQUESTED';
-	 * then, the given truck is from the list of the 'REQUESTED' map item.
-	 * This method is synchronized on this class (Manipulation on storage elements is prevented.)
-	 * 
-	 * @param foodTruck Removed food truck
+	 * Publishes the given (frozen) snapshot, the writer lock must be held by the caller
+	 *
+	 * @param nextSnapshot The next snapshot
 	 */
-	private void removeFromStatusMap(FoodTruck foodTruck)
+	static void publish(FoodTruckSnapshot nextSnapshot)
 	{
-		synchronized (FoodTruckAccessor.class) 
-		{
-			// Continue only if the given food truck already exist
-			if (foodTruckMap.containsKey(foodTruck.getObjectid()))
-			{
-				if (statusMap.containsKey(foodTruck.getStatusEnum()))
-				{
-					statusMap.get(foodTruck.getStatusEnum()).remove(foodTruck);
-				}
-			}
-		}
+		snapshot = nextSnapshot;
 	}
 }
@@ -0,0 +1,651 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.Arrays;
+
+/**
+ * Compressed bitmap of row ids (non-negative integers).
+ * Row ids are split into chunks of 65536 by their high 16 bits; every non-empty chunk has a container
+ * that is either a sorted array of the low 16 bits (up to ARRAY_MAX_SIZE rows, 2 bytes per row)
+ * or a plain bitset of 1024 words (8 KB). So sparse values (e.g. a cnn) cost a few bytes
+ * and dense values (e.g. a status) cost one bit per row.
+ *
+ * AND, OR and AND NOT are evaluated chunk by chunk on the containers and return new bitmaps;
+ * the operands are never modified. A bitmap that is published in a snapshot is never modified,
+ * writers modify their own copies (see copy()).
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckBitmap
+{
+	// Constants ---------------------------------------------------------
+	public static final int ARRAY_MAX_SIZE = 4096;
+	private static final int BITSET_WORDS = 1024;
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private char[] keys;          // high 16 bits of the chunks, sorted
+	private Object[] containers;  // char[] (array container) or long[] (bitset container) of each chunk
+	private int[] cardinalities;  // number of rows of each chunk
+	private int size;             // number of chunks
+
+	// Index that may modify the bitmap (see FoodTruckBitmapIndex), null if no index owns it
+	Object owner;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckBitmap()
+	{
+		this(4);
+	}
+
+	private FoodTruckBitmap(int capacity)
+	{
+		keys = new char[capacity];
+		containers = new Object[capacity];
+		cardinalities = new int[capacity];
+		size = 0;
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns the bitmap of the rows [0, rowCount)
+	 *
+	 * @param rowCount Number of rows
+	 * @return The bitmap that contains all the rows
+	 */
+	public static FoodTruckBitmap range(int rowCount)
+	{
+		FoodTruckBitmap bitmap = new FoodTruckBitmap((rowCount >>> 16) + 1);
+
+		for (int start = 0; start < rowCount; start += 65536)
+		{
+			int count = Math.min(65536, rowCount - start);
+			long[] words = new long[BITSET_WORDS];
+			Arrays.fill(words, 0, count >>> 6, -1L);
+			if ((count & 63) != 0)
+			{
+				words[count >>> 6] = (1L << (count & 63)) - 1;
+			}
+			bitmap.append((char) (start >>> 16), toContainer(words, count), count);
+		}
+
+		return bitmap;
+	}
+
+	/**
+	 * Returns a modifiable copy of this bitmap
+	 *
+	 * @return The copy
+	 */
+	public FoodTruckBitmap copy()
+	{
+		FoodTruckBitmap copy = new FoodTruckBitmap(Math.max(size, 1));
+		for (int i = 0; i < size; i++)
+		{
+			Object container = containers[i];
+			copy.append(keys[i], (container instanceof char[])
+					? ((char[]) container).clone()
+					: ((long[]) container).clone(), cardinalities[i]);
+		}
+		return copy;
+	}
+
+	/**
+	 * Returns the number of rows in the bitmap
+	 *
+	 * @return The number of rows
+	 */
+	public int cardinality()
+	{
+		int cardinality = 0;
+		for (int i = 0; i < size; i++)
+		{
+			cardinality += cardinalities[i];
+		}
+		return cardinality;
+	}
+
+	/**
+	 * Returns true if the bitmap has no rows
+	 *
+	 * @return True if the bitmap is empty
+	 */
+	public boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+	/**
+	 * Returns true if the given row is in the bitmap
+	 *
+	 * @param row Row id
+	 * @return True if the row is in the bitmap
+	 */
+	public boolean contains(int row)
+	{
+		int index = Arrays.binarySearch(keys, 0, size, (char) (row >>> 16));
+		return index >= 0 && containerContains(containers[index], cardinalities[index], (char) row);
+	}
+
+	/**
+	 * Adds the given row
+	 *
+	 * @param row Row id
+	 */
+	public void add(int row)
+	{
+		char key = (char) (row >>> 16);
+		char low = (char) row;
+
+		// Rows are mostly added in ascending order, so the last chunk is checked first
+		int index = (size > 0 && keys[size - 1] == key) ? size - 1 : Arrays.binarySearch(keys, 0, size, key);
+
+		if (index < 0)
+		{
+			index = -index - 1;
+			insertChunk(index, key, new char[] {low}, 1);
+			return;
+		}
+
+		Object container = containers[index];
+		if (container instanceof long[])
+		{
+			long[] words = (long[]) container;
+			long bit = 1L << (low & 63);
+			if ((words[low >>> 6] & bit) == 0)
+			{
+				words[low >>> 6] |= bit;
+				cardinalities[index]++;
+			}
+			return;
+		}
+
+		char[] values = (char[]) container;
+		int cardinality = cardinalities[index];
+		int position = (values[cardinality - 1] < low) ? -cardinality - 1 : Arrays.binarySearch(values, 0, cardinality, low);
+		if (position >= 0)
+		{
+			return;
+		}
+		position = -position - 1;
+
+		if (cardinality == ARRAY_MAX_SIZE)
+		{
+			long[] words = toWords(values, cardinality);
+			words[low >>> 6] |= 1L << (low & 63);
+			containers[index] = words;
+		}
+		else
+		{
+			if (cardinality == values.length)
+			{
+				values = Arrays.copyOf(values, Math.min(ARRAY_MAX_SIZE, cardinality * 2));
+				containers[index] = values;
+			}
+			System.arraycopy(values, position, values, position + 1, cardinality - position);
+			values[position] = low;
+		}
+		cardinalities[index]++;
+	}
+
+	/**
+	 * Removes the given row
+	 *
+	 * @param row Row id
+	 */
+	public void remove(int row)
+	{
+		char low = (char) row;
+		int index = Arrays.binarySearch(keys, 0, size, (char) (row >>> 16));
+
+		if (index < 0)
+		{
+			return;
+		}
+
+		Object container = containers[index];
+		int cardinality = cardinalities[index];
+
+		if (container instanceof long[])
+		{
+			long[] words = (long[]) container;
+			long bit = 1L << (low & 63);
+			if ((words[low >>> 6] & bit) == 0)
+			{
+				return;
+			}
+			words[low >>> 6] &= ~bit;
+			cardinality--;
+			if (cardinality <= ARRAY_MAX_SIZE)
+			{
+				containers[index] = toContainer(words, cardinality);
+			}
+		}
+		else
+		{
+			char[] values = (char[]) container;
+			int position = Arrays.binarySearch(values, 0, cardinality, low);
+			if (position < 0)
+			{
+				return;
+			}
+			System.arraycopy(values, position + 1, values, position, cardinality - position - 1);
+			cardinality--;
+		}
+
+		if (cardinality == 0)
+		{
+			removeChunk(index);
+		}
+		else
+		{
+			cardinalities[index] = cardinality;
+		}
+	}
+
+	/**
+	 * Passes the rows of the bitmap to the given visitor in ascending order,
+	 * until the visitor stops the traversal
+	 *
+	 * @param visitor Receives the rows
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	public boolean forEach(RowVisitor visitor)
+	{
+		for (int i = 0; i < size; i++)
+		{
+			int high = keys[i] << 16;
+			Object container = containers[i];
+
+			if (container instanceof char[])
+			{
+				char[] values = (char[]) container;
+				for (int j = 0; j < cardinalities[i]; j++)
+				{
+					if (! visitor.visit(high | values[j]))
+					{
+						return false;
+					}
+				}
+			}
+			else
+			{
+				long[] words = (long[]) container;
+				for (int w = 0; w < BITSET_WORDS; w++)
+				{
+					long word = words[w];
+					while (word != 0)
+					{
+						if (! visitor.visit(high | (w << 6) | Long.numberOfTrailingZeros(word)))
+						{
+							return false;
+						}
+						word &= word - 1;
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the rows that are in both bitmaps
+	 *
+	 * @param first Bitmap
+	 * @param second Bitmap
+	 * @return first AND second
+	 */
+	public static FoodTruckBitmap and(FoodTruckBitmap first, FoodTruckBitmap second)
+	{
+		FoodTruckBitmap result = new FoodTruckBitmap(Math.max(1, Math.min(first.size, second.size)));
+		int i = 0;
+		int j = 0;
+
+		while (i < first.size && j < second.size)
+		{
+			if (first.keys[i] < second.keys[j])
+			{
+				i++;
+			}
+			else if (first.keys[i] > second.keys[j])
+			{
+				j++;
+			}
+			else
+			{
+				result.appendIfNotEmpty(first.keys[i], Operation.AND,
+						first.containers[i], first.cardinalities[i],
+						second.containers[j], second.cardinalities[j]);
+				i++;
+				j++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the rows that are in any of the bitmaps
+	 *
+	 * @param first Bitmap
+	 * @param second Bitmap
+	 * @return first OR second
+	 */
+	public static FoodTruckBitmap or(FoodTruckBitmap first, FoodTruckBitmap second)
+	{
+		FoodTruckBitmap result = new FoodTruckBitmap(Math.max(1, first.size + second.size));
+		int i = 0;
+		int j = 0;
+
+		while (i < first.size || j < second.size)
+		{
+			if (j == second.size || (i < first.size && first.keys[i] < second.keys[j]))
+			{
+				result.append(first.keys[i], copyContainer(first.containers[i]), first.cardinalities[i]);
+				i++;
+			}
+			else if (i == first.size || first.keys[i] > second.keys[j])
+			{
+				result.append(second.keys[j], copyContainer(second.containers[j]), second.cardinalities[j]);
+				j++;
+			}
+			else
+			{
+				result.appendIfNotEmpty(first.keys[i], Operation.OR,
+						first.containers[i], first.cardinalities[i],
+						second.containers[j], second.cardinalities[j]);
+				i++;
+				j++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the rows of the first bitmap that are not in the second one
+	 *
+	 * @param first Bitmap
+	 * @param second Bitmap
+	 * @return first AND NOT second
+	 */
+	public static FoodTruckBitmap andNot(FoodTruckBitmap first, FoodTruckBitmap second)
+	{
+		FoodTruckBitmap result = new FoodTruckBitmap(Math.max(1, first.size));
+		int j = 0;
+
+		for (int i = 0; i < first.size; i++)
+		{
+			while (j < second.size && second.keys[j] < first.keys[i])
+			{
+				j++;
+			}
+
+			if (j < second.size && second.keys[j] == first.keys[i])
+			{
+				result.appendIfNotEmpty(first.keys[i], Operation.AND_NOT,
+						first.containers[i], first.cardinalities[i],
+						second.containers[j], second.cardinalities[j]);
+			}
+			else
+			{
+				result.append(first.keys[i], copyContainer(first.containers[i]), first.cardinalities[i]);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the approximate memory usage of the containers in bytes
+	 *
+	 * @return The number of bytes used by the containers
+	 */
+	public long getSizeInBytes()
+	{
+		long bytes = 0;
+		for (int i = 0; i < size; i++)
+		{
+			bytes += (containers[i] instanceof char[])
+					? 2L * ((char[]) containers[i]).length
+					: 8L * BITSET_WORDS;
+		}
+		return bytes;
+	}
+
+	/**
+	 * Receives the rows of a bitmap
+	 */
+	public interface RowVisitor
+	{
+		/**
+		 * @param row Row id
+		 * @return True to continue the traversal, false to stop it
+		 */
+		boolean visit(int row);
+	}
+
+	private enum Operation {AND, OR, AND_NOT}
+
+	/**
+	 * Combines two containers of the same chunk and appends the result if it is not empty
+	 */
+	private void appendIfNotEmpty(
+			char key,
+			Operation operation,
+			Object first,
+			int firstCardinality,
+			Object second,
+			int secondCardinality)
+	{
+		// Sorted arrays are filtered without expanding them to bitsets
+		if (first instanceof char[] && (operation != Operation.OR || second instanceof char[]))
+		{
+			char[] values = (char[]) first;
+			if (operation == Operation.OR)
+			{
+				char[] result = new char[firstCardinality + secondCardinality];
+				int count = mergeArrays(values, firstCardinality, (char[]) second, secondCardinality, result);
+				if (count > ARRAY_MAX_SIZE)
+				{
+					append(key, toWords(result, count), count);
+				}
+				else
+				{
+					append(key, Arrays.copyOf(result, count), count);
+				}
+				return;
+			}
+
+			char[] result = new char[firstCardinality];
+			int count = 0;
+			boolean keepContained = (operation == Operation.AND);
+
+			if (second instanceof char[])
+			{
+				// Both arrays are sorted, they are walked together
+				char[] others = (char[]) second;
+				int j = 0;
+				for (int k = 0; k < firstCardinality; k++)
+				{
+					while (j < secondCardinality && others[j] < values[k])
+					{
+						j++;
+					}
+					if ((j < secondCardinality && others[j] == values[k]) == keepContained)
+					{
+						result[count++] = values[k];
+					}
+				}
+			}
+			else
+			{
+				for (int k = 0; k < firstCardinality; k++)
+				{
+					if (containerContains(second, secondCardinality, values[k]) == keepContained)
+					{
+						result[count++] = values[k];
+					}
+				}
+			}
+			if (count > 0)
+			{
+				append(key, (count == result.length) ? result : Arrays.copyOf(result, count), count);
+			}
+			return;
+		}
+
+		// Intersection of a bitset with an array is at most the array
+		if (operation == Operation.AND && second instanceof char[])
+		{
+			appendIfNotEmpty(key, operation, second, secondCardinality, first, firstCardinality);
+			return;
+		}
+
+		long[] firstWords = (first instanceof long[]) ? (long[]) first : toWords((char[]) first, firstCardinality);
+		long[] secondWords = (second instanceof long[]) ? (long[]) second : toWords((char[]) second, secondCardinality);
+		long[] words = new long[BITSET_WORDS];
+		int cardinality = 0;
+
+		// One loop for each operation, so the loops have no branches
+		if (operation == Operation.AND)
+		{
+			for (int w = 0; w < BITSET_WORDS; w++)
+			{
+				words[w] = firstWords[w] & secondWords[w];
+				cardinality += Long.bitCount(words[w]);
+			}
+		}
+		else if (operation == Operation.OR)
+		{
+			for (int w = 0; w < BITSET_WORDS; w++)
+			{
+				words[w] = firstWords[w] | secondWords[w];
+				cardinality += Long.bitCount(words[w]);
+			}
+		}
+		else
+		{
+			for (int w = 0; w < BITSET_WORDS; w++)
+			{
+				words[w] = firstWords[w] & ~secondWords[w];
+				cardinality += Long.bitCount(words[w]);
+			}
+		}
+
+		if (cardinality > 0)
+		{
+			append(key, toContainer(words, cardinality), cardinality);
+		}
+	}
+
+	private static int mergeArrays(char[] first, int firstCount, char[] second, int secondCount, char[] result)
+	{
+		int i = 0;
+		int j = 0;
+		int count = 0;
+
+		while (i < firstCount || j < secondCount)
+		{
+			if (j == secondCount || (i < firstCount && first[i] < second[j]))
+			{
+				result[count++] = first[i++];
+			}
+			else if (i == firstCount || first[i] > second[j])
+			{
+				result[count++] = second[j++];
+			}
+			else
+			{
+				result[count++] = first[i++];
+				j++;
+			}
+		}
+
+		return count;
+	}
+
+	private static boolean containerContains(Object container, int cardinality, char low)
+	{
+		if (container instanceof long[])
+		{
+			return (((long[]) container)[low >>> 6] & (1L << (low & 63))) != 0;
+		}
+
+		return Arrays.binarySearch((char[]) container, 0, cardinality, low) >= 0;
+	}
+
+	/**
+	 * Returns the array container of the given bitset if it is small enough, the bitset otherwise
+	 */
+	private static Object toContainer(long[] words, int cardinality)
+	{
+		if (cardinality > ARRAY_MAX_SIZE)
+		{
+			return words;
+		}
+
+		char[] values = new char[cardinality];
+		int count = 0;
+		for (int w = 0; w < BITSET_WORDS; w++)
+		{
+			long word = words[w];
+			while (word != 0)
+			{
+				values[count++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+				word &= word - 1;
+			}
+		}
+		return values;
+	}
+
+	private static long[] toWords(char[] values, int cardinality)
+	{
+		long[] words = new long[BITSET_WORDS];
+		for (int k = 0; k < cardinality; k++)
+		{
+			words[values[k] >>> 6] |= 1L << (values[k] & 63);
+		}
+		return words;
+	}
+
+	private static Object copyContainer(Object container)
+	{
+		return (container instanceof char[]) ? ((char[]) container).clone() : ((long[]) container).clone();
+	}
+
+	private void append(char key, Object container, int cardinality)
+	{
+		insertChunk(size, key, container, cardinality);
+	}
+
+	private void insertChunk(int index, char key, Object container, int cardinality)
+	{
+		if (size == keys.length)
+		{
+			int capacity = Math.max(4, size * 2);
+			keys = Arrays.copyOf(keys, capacity);
+			containers = Arrays.copyOf(containers, capacity);
+			cardinalities = Arrays.copyOf(cardinalities, capacity);
+		}
+
+		System.arraycopy(keys, index, keys, index + 1, size - index);
+		System.arraycopy(containers, index, containers, index + 1, size - index);
+		System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+		keys[index] = key;
+		containers[index] = container;
+		cardinalities[index] = cardinality;
+		size++;
+	}
+
+	private void removeChunk(int index)
+	{
+		System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+		System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+		System.arraycopy(cardinalities, index + 1, cardinalities, index, size - index - 1);
+		size--;
+		containers[size] = null;
+	}
+}
@@ -0,0 +1,160 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Set;
+
+/**
+ * Bitmap index of one food truck attribute: every value of the attribute has the bitmap
+ * of the column store rows that have the value.
+ *
+ * Copies share the bitmaps with the original index; a bitmap is copied before its first
+ * modification in the copy. An index that is published in a snapshot is never modified.
+ *
+ * @author alper.karacelik
+ *
+ * @param <K> Type of the attribute values
+ */
+public class FoodTruckBitmapIndex<K>
+{
+	// Attributes --------------------------------------------------------
+	private final HashMap<K, FoodTruckBitmap> bitmapMap;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckBitmapIndex()
+	{
+		bitmapMap = new HashMap<K, FoodTruckBitmap>();
+	}
+
+	/**
+	 * Creates a modifiable copy of the given index.
+	 * Bitmaps are shared until they are modified.
+	 *
+	 * @param bitmapIndex The index that will be copied
+	 */
+	public FoodTruckBitmapIndex(FoodTruckBitmapIndex<K> bitmapIndex)
+	{
+		bitmapMap = new HashMap<K, FoodTruckBitmap>(bitmapIndex.bitmapMap);
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Adds the given row to the bitmap of the given value
+	 *
+	 * @param value Attribute value of the row
+	 * @param row Row id
+	 */
+	public void add(K value, int row)
+	{
+		FoodTruckBitmap bitmap = bitmapMap.get(value);
+
+		if (bitmap == null)
+		{
+			bitmap = new FoodTruckBitmap();
+			bitmap.owner = this;
+			bitmapMap.put(value, bitmap);
+		}
+		else
+		{
+			bitmap = getOwnedBitmap(value, bitmap);
+		}
+
+		bitmap.add(row);
+	}
+
+	/**
+	 * Removes the given row from the bitmap of the given value
+	 *
+	 * @param value Attribute value of the row
+	 * @param row Row id
+	 */
+	public void remove(K value, int row)
+	{
+		FoodTruckBitmap bitmap = bitmapMap.get(value);
+
+		if (bitmap == null)
+		{
+			return;
+		}
+
+		bitmap = getOwnedBitmap(value, bitmap);
+		bitmap.remove(row);
+
+		if (bitmap.isEmpty())
+		{
+			bitmapMap.remove(value);
+		}
+	}
+
+	/**
+	 * Replaces the rows of the given value with a copy of the given bitmap
+	 *
+	 * @param value Attribute value
+	 * @param bitmap Rows of the value (not modified)
+	 */
+	public void put(K value, FoodTruckBitmap bitmap)
+	{
+		FoodTruckBitmap ownedBitmap = bitmap.copy();
+		ownedBitmap.owner = this;
+		bitmapMap.put(value, ownedBitmap);
+	}
+
+	/**
+	 * Returns the bitmap of the rows that have the given value
+	 *
+	 * @param value Attribute value
+	 * @return The bitmap of the value (must not be modified), null if no row has the value
+	 */
+	public FoodTruckBitmap get(K value)
+	{
+		return bitmapMap.get(value);
+	}
+
+	/**
+	 * Returns the indexed values
+	 *
+	 * @return The values that have a bitmap (read-only)
+	 */
+	public Set<K> getValues()
+	{
+		return Collections.unmodifiableSet(bitmapMap.keySet());
+	}
+
+	/**
+	 * Returns the number of the distinct values
+	 *
+	 * @return The number of the values that have a bitmap
+	 */
+	public int getValueCount()
+	{
+		return bitmapMap.size();
+	}
+
+	/**
+	 * Returns the number of the rows that have the given value
+	 *
+	 * @param value Attribute value
+	 * @return The number of the rows that have the value
+	 */
+	public int getCardinality(K value)
+	{
+		FoodTruckBitmap bitmap = bitmapMap.get(value);
+		return (bitmap != null) ? bitmap.cardinality() : 0;
+	}
+
+	/**
+	 * Returns the given bitmap if it is created by this index, a copy of it (that replaces it) otherwise
+	 */
+	private FoodTruckBitmap getOwnedBitmap(K value, FoodTruckBitmap bitmap)
+	{
+		if (bitmap.owner != this)
+		{
+			bitmap = bitmap.copy();
+			bitmap.owner = this;
+			bitmapMap.put(value, bitmap);
+		}
+
+		return bitmap;
+	}
+}
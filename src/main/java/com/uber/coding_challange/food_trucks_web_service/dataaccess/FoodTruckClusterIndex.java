@@ -0,0 +1,334 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckCluster;
+
+/**
+ * Marker clusters of the food trucks for every zoom level of a web map (Web Mercator tiles, 256 pixels).
+ * At every zoom level, the map is divided into cells of 64x64 pixels; a cell keeps the number
+ * of the food trucks in it and the sums of their latitudes, longitudes and object ids.
+ * The centroid of a cluster is the average position, and the food truck of a single truck cluster
+ * is the sum of the object ids. Cells are updated when a food truck is added or removed,
+ * so a viewport query only reads the (pre-aggregated) cells of the viewport.
+ *
+ * Every cell of a zoom level is split into 2x2 cells at the next zoom level, so the cells form a quadtree:
+ * the root is the whole map, and the cells of zoom level z are the nodes at depth z + 2.
+ * Empty cells have no node. Adding or removing a food truck updates the nodes on its path.
+ *
+ * Copies share the nodes with the original index; a node is copied the first time a copy modifies it
+ * (with its parent, up to the root). Therefore, a copy costs nothing, a modification copies at most
+ * one node per level, and an index that is published in a snapshot is never modified.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckClusterIndex
+{
+	// Constants ---------------------------------------------------------
+	public static final int MAX_ZOOM = 18;
+	private static final int CELL_BITS = 2; // 4x4 cells per 256 pixel tile
+	private static final int DEPTH = MAX_ZOOM + CELL_BITS; // Depth of the cells of the maximum zoom level
+	private static final double MAX_LATITUDE = 85.05112878; // Latitude limit of Web Mercator
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private Node root;
+	private boolean frozen;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckClusterIndex()
+	{
+		root = new Node(this);
+	}
+
+	/**
+	 * Creates a modifiable copy of the given index.
+	 * Nodes are shared until they are modified.
+	 *
+	 * @param clusterIndex The index that will be copied
+	 */
+	public FoodTruckClusterIndex(FoodTruckClusterIndex clusterIndex)
+	{
+		root = clusterIndex.root;
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Marks the index as read-only. Modifications after this call throw an exception.
+	 */
+	public void freeze()
+	{
+		frozen = true;
+	}
+
+	/**
+	 * Adds the given food truck to its cell at every zoom level
+	 *
+	 * @param foodTruck new food truck
+	 */
+	public void add(FoodTruck foodTruck)
+	{
+		update(foodTruck, 1);
+	}
+
+	/**
+	 * Removes the given food truck from its cell at every zoom level.
+	 * Empty cells are dropped.
+	 *
+	 * @param foodTruck Removed food truck
+	 */
+	public void remove(FoodTruck foodTruck)
+	{
+		update(foodTruck, -1);
+	}
+
+	/**
+	 * Adds the given food truck to (sign: 1) or removes it from (sign: -1) the cells on its path
+	 */
+	private void update(FoodTruck foodTruck, int sign)
+	{
+		if (frozen)
+		{
+			throw new IllegalStateException("Cluster index is frozen");
+		}
+
+		long cellCount = 1L << DEPTH;
+		long row = getCell(getY(foodTruck.getLatitude()), cellCount);
+		long column = getCell(getX(foodTruck.getLongitude()), cellCount);
+
+		// A food truck that is not in the index is not removed
+		if (sign < 0 && ! contains(row, column))
+		{
+			return;
+		}
+
+		root = getOwnedNode(root);
+		root.add(foodTruck, sign);
+
+		Node node = root;
+		for (int depth = 1; depth <= DEPTH; depth++)
+		{
+			int childIndex = getChildIndex(row, column, depth);
+			Node child = (node.children != null) ? node.children[childIndex] : null;
+
+			if (child == null)
+			{
+				child = new Node(this);
+				if (node.children == null)
+				{
+					node.children = new Node[4];
+				}
+			}
+			else
+			{
+				child = getOwnedNode(child);
+			}
+
+			child.add(foodTruck, sign);
+
+			// Empty cells (and their sub-cells) are dropped
+			if (child.count <= 0)
+			{
+				node.children[childIndex] = null;
+				return;
+			}
+
+			node.children[childIndex] = child;
+			node = child;
+		}
+	}
+
+	/**
+	 * Returns true if the cell of the maximum zoom level that contains the given position has a food truck
+	 */
+	private boolean contains(long row, long column)
+	{
+		Node node = root;
+		for (int depth = 1; depth <= DEPTH && node != null; depth++)
+		{
+			node = (node.children != null) ? node.children[getChildIndex(row, column, depth)] : null;
+		}
+		return node != null;
+	}
+
+	/**
+	 * Returns the given node if it is owned by this index, a copy of it otherwise
+	 */
+	private Node getOwnedNode(Node node)
+	{
+		return (node.owner == this) ? node : node.copy(this);
+	}
+
+	/**
+	 * Returns the clusters of the given zoom level whose cells overlap the given viewport.
+	 * If the western edge is greater than the eastern edge, then the viewport crosses the 180th meridian.
+	 * Only the nodes whose cells overlap the viewport are read.
+	 *
+	 * @param zoom Zoom level, limited to [0, MAX_ZOOM]
+	 * @param minLatitude Southern edge of the viewport (in decimal degrees)
+	 * @param minLongitude Western edge of the viewport (in decimal degrees)
+	 * @param maxLatitude Northern edge of the viewport (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the viewport (in decimal degrees)
+	 * @param foodTruckMap Food trucks by object id, used for the single truck clusters
+	 * @return The clusters of the viewport
+	 */
+	public List<FoodTruckCluster> getClusters(
+			int zoom,
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude,
+			Map<Long, FoodTruck> foodTruckMap)
+	{
+		int depth = Math.max(0, Math.min(zoom, MAX_ZOOM)) + CELL_BITS;
+		long cellCount = 1L << depth;
+
+		// North is the smaller row in Web Mercator
+		long minRow = getCell(getY(maxLatitude), cellCount);
+		long maxRow = getCell(getY(minLatitude), cellCount);
+		long minColumn = getCell(getX(minLongitude), cellCount);
+		long maxColumn = getCell(getX(maxLongitude), cellCount);
+
+		List<FoodTruckCluster> clusters = new ArrayList<FoodTruckCluster>();
+
+		if (minLongitude > maxLongitude)
+		{
+			addClusters(root, 0, 0, 0, depth, minRow, maxRow, minColumn, cellCount - 1, foodTruckMap, clusters);
+			addClusters(root, 0, 0, 0, depth, minRow, maxRow, 0, maxColumn, foodTruckMap, clusters);
+		}
+		else
+		{
+			addClusters(root, 0, 0, 0, depth, minRow, maxRow, minColumn, maxColumn, foodTruckMap, clusters);
+		}
+
+		return clusters;
+	}
+
+	/**
+	 * Adds the clusters of the cells of the target depth that are under the given node
+	 * and in the given cell range (of the target depth) to the given list
+	 */
+	private static void addClusters(
+			Node node,
+			int depth,
+			long row,
+			long column,
+			int targetDepth,
+			long minRow,
+			long maxRow,
+			long minColumn,
+			long maxColumn,
+			Map<Long, FoodTruck> foodTruckMap,
+			List<FoodTruckCluster> clusters)
+	{
+		// Cells of the target depth under the node
+		int shift = targetDepth - depth;
+		if ((row << shift) > maxRow || (((row + 1) << shift) - 1) < minRow
+				|| (column << shift) > maxColumn || (((column + 1) << shift) - 1) < minColumn
+				|| node.count <= 0)
+		{
+			return;
+		}
+
+		if (depth == targetDepth)
+		{
+			FoodTruck foodTruck = (node.count == 1) ? foodTruckMap.get(node.objectidSum) : null;
+
+			clusters.add((foodTruck != null)
+					? new FoodTruckCluster(foodTruck.getLatitude(), foodTruck.getLongitude(), 1, foodTruck)
+					: new FoodTruckCluster(node.latitudeSum / node.count,
+							node.longitudeSum / node.count, node.count, null));
+			return;
+		}
+
+		if (node.children != null)
+		{
+			for (int childIndex = 0; childIndex < 4; childIndex++)
+			{
+				Node child = node.children[childIndex];
+				if (child != null)
+				{
+					addClusters(child, depth + 1, (row << 1) | (childIndex >> 1), (column << 1) | (childIndex & 1),
+							targetDepth, minRow, maxRow, minColumn, maxColumn, foodTruckMap, clusters);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the child (at the given depth) that contains the given cell of the maximum depth
+	 */
+	private static int getChildIndex(long row, long column, int depth)
+	{
+		int shift = DEPTH - depth;
+		return (int) (((row >> shift) & 1) << 1 | ((column >> shift) & 1));
+	}
+
+	/**
+	 * Returns the cell of the given Web Mercator coordinate (in [0, 1])
+	 */
+	private static long getCell(double coordinate, long cellCount)
+	{
+		return Math.max(0, Math.min((long) Math.floor(coordinate * cellCount), cellCount - 1));
+	}
+
+	/**
+	 * Returns the Web Mercator x coordinate (in [0, 1], west to east) of the given longitude
+	 */
+	private static double getX(double longitude)
+	{
+		return (longitude + 180) / 360;
+	}
+
+	/**
+	 * Returns the Web Mercator y coordinate (in [0, 1], north to south) of the given latitude
+	 */
+	private static double getY(double latitude)
+	{
+		double radians = Math.toRadians(Math.max(-MAX_LATITUDE, Math.min(latitude, MAX_LATITUDE)));
+		return 0.5 - Math.log(Math.tan(Math.PI / 4 + radians / 2)) / (2 * Math.PI);
+	}
+
+	/**
+	 * Cell of the quadtree: aggregates of the food trucks in it and its 2x2 sub-cells.
+	 * Modified only by the index that created (or copied) the node.
+	 */
+	private static final class Node
+	{
+		final Object owner;
+		int count;
+		double latitudeSum;
+		double longitudeSum;
+		long objectidSum;
+		Node[] children; // null at the maximum depth or if the node has no child yet
+
+		Node(Object owner)
+		{
+			this.owner = owner;
+		}
+
+		void add(FoodTruck foodTruck, int sign)
+		{
+			count += sign;
+			latitudeSum += sign * foodTruck.getLatitude();
+			longitudeSum += sign * foodTruck.getLongitude();
+			objectidSum += sign * foodTruck.getObjectid();
+		}
+
+		Node copy(Object newOwner)
+		{
+			Node node = new Node(newOwner);
+			node.count = count;
+			node.latitudeSum = latitudeSum;
+			node.longitudeSum = longitudeSum;
+			node.objectidSum = objectidSum;
+			node.children = (children != null) ? children.clone() : null;
+			return node;
+		}
+	}
+}
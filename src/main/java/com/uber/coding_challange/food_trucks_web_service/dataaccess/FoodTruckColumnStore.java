@@ -0,0 +1,444 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+
+/**
+ * Columnar (struct of arrays) copy of the food truck fields that are used by the filters.
+ * Latitude, longitude, object id and status ordinal of each food truck are kept
+ * in primitive arrays at the same row, so a scan reads contiguous memory
+ * instead of following a reference to every food truck.
+ * Food truck objects are only touched for the rows that pass the filter.
+ *
+ * Rows are kept dense: a removed row is filled with the last row.
+ * Copies share the arrays with the original store until the first modification.
+ *
+ * The store also keeps bitmap indexes (see FoodTruckBitmapIndex) of the status, facility type, cnn
+ * and permit prefix (the part of the permit before the first '-', e.g. "17MFF") over its row ids,
+ * so attribute filters are evaluated as bitmap operations (see FoodTruckFilter).
+ * Facility types and permit prefixes are indexed in upper case, missing values are indexed as "".
+ * The days and hours of the food trucks are parsed when they are stored, and their weekly intervals
+ * are kept in an interval index (see FoodTruckOpeningHoursIndex), so "open at" filters do not read the strings.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckColumnStore
+{
+	// Constants ---------------------------------------------------------
+	private static final int INITIAL_CAPACITY = 16;
+	private static final FoodTruckStatusEnum[] STATUS_VALUES = FoodTruckStatusEnum.values();
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private double[] latitudes;
+	private double[] longitudes;
+	private long[] objectids;
+	private byte[] statuses;
+	private FoodTruck[] foodTrucks;
+	private int size;
+	private HashMap<Long, Integer> rowMap; // object id -> row
+	private FoodTruckBitmapIndex<FoodTruckStatusEnum> statusBitmaps;
+	private FoodTruckBitmapIndex<String> facilityTypeBitmaps;
+	private FoodTruckBitmapIndex<Integer> cnnBitmaps;
+	private FoodTruckBitmapIndex<String> permitPrefixBitmaps;
+	private FoodTruckOpeningHoursIndex openingHoursIndex;
+
+	private boolean owned; // True if the arrays are not shared with another store
+	private boolean frozen;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckColumnStore()
+	{
+		latitudes = new double[INITIAL_CAPACITY];
+		longitudes = new double[INITIAL_CAPACITY];
+		objectids = new long[INITIAL_CAPACITY];
+		statuses = new byte[INITIAL_CAPACITY];
+		foodTrucks = new FoodTruck[INITIAL_CAPACITY];
+		size = 0;
+		rowMap = new HashMap<Long, Integer>();
+		statusBitmaps = new FoodTruckBitmapIndex<FoodTruckStatusEnum>();
+		facilityTypeBitmaps = new FoodTruckBitmapIndex<String>();
+		cnnBitmaps = new FoodTruckBitmapIndex<Integer>();
+		permitPrefixBitmaps = new FoodTruckBitmapIndex<String>();
+		openingHoursIndex = new FoodTruckOpeningHoursIndex();
+		owned = true;
+	}
+
+	/**
+	 * Creates a modifiable copy of the given store.
+	 * Arrays are shared until the copy is modified.
+	 *
+	 * @param columnStore The store that will be copied
+	 */
+	public FoodTruckColumnStore(FoodTruckColumnStore columnStore)
+	{
+		latitudes = columnStore.latitudes;
+		longitudes = columnStore.longitudes;
+		objectids = columnStore.objectids;
+		statuses = columnStore.statuses;
+		foodTrucks = columnStore.foodTrucks;
+		size = columnStore.size;
+		rowMap = columnStore.rowMap;
+		statusBitmaps = columnStore.statusBitmaps;
+		facilityTypeBitmaps = columnStore.facilityTypeBitmaps;
+		cnnBitmaps = columnStore.cnnBitmaps;
+		permitPrefixBitmaps = columnStore.permitPrefixBitmaps;
+		openingHoursIndex = columnStore.openingHoursIndex;
+		owned = false;
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Marks the store as read-only. Modifications after this call throw an exception.
+	 */
+	public void freeze()
+	{
+		frozen = true;
+	}
+
+	/**
+	 * Returns the number of rows
+	 *
+	 * @return The number of rows
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Adds the given food truck, or replaces the row of the food truck with the same object id.
+	 *
+	 * @param foodTruck new or updated food truck
+	 */
+	public void put(FoodTruck foodTruck)
+	{
+		makeOwned(size + 1);
+
+		Integer row = rowMap.get(foodTruck.getObjectid());
+		if (row == null)
+		{
+			row = size++;
+			rowMap.put(foodTruck.getObjectid(), row);
+		}
+		else
+		{
+			removeFromBitmaps(row);
+		}
+
+		latitudes[row] = foodTruck.getLatitude();
+		longitudes[row] = foodTruck.getLongitude();
+		objectids[row] = foodTruck.getObjectid();
+		statuses[row] = (byte) foodTruck.getStatusEnum().ordinal();
+		foodTrucks[row] = foodTruck;
+		addToBitmaps(row);
+	}
+
+	/**
+	 * Removes the row of the food truck with the given object id.
+	 * The last row is moved to the removed row.
+	 *
+	 * @param id Object id of the food truck
+	 */
+	public void remove(long id)
+	{
+		if (! rowMap.containsKey(id))
+		{
+			return;
+		}
+
+		makeOwned(size);
+
+		int row = rowMap.remove(id);
+		int lastRow = --size;
+
+		removeFromBitmaps(row);
+
+		if (row != lastRow)
+		{
+			removeFromBitmaps(lastRow);
+			latitudes[row] = latitudes[lastRow];
+			longitudes[row] = longitudes[lastRow];
+			objectids[row] = objectids[lastRow];
+			statuses[row] = statuses[lastRow];
+			foodTrucks[row] = foodTrucks[lastRow];
+			rowMap.put(objectids[row], row);
+			addToBitmaps(row);
+		}
+
+		foodTrucks[lastRow] = null;
+	}
+
+	/**
+	 * Returns the food trucks whose rows are accepted by the given filter.
+	 * The filter is evaluated on the primitive columns,
+	 * and only the accepted rows are added to the result list.
+	 *
+	 * @param filter Row filter
+	 * @return The food trucks whose rows are accepted by the given filter
+	 */
+	public List<FoodTruck> scan(FoodTruckRowFilter filter)
+	{
+		final List<FoodTruck> result = new ArrayList<FoodTruck>();
+
+		scan(filter, new FoodTruckVisitor()
+		{
+			@Override
+			public boolean visit(FoodTruck foodTruck)
+			{
+				return result.add(foodTruck);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Passes the food trucks whose rows are accepted by the given filter to the given visitor,
+	 * until the visitor stops the scan.
+	 *
+	 * @param filter Row filter
+	 * @param visitor Receives the accepted food trucks
+	 * @return False if the visitor stopped the scan, true otherwise
+	 */
+	public boolean scan(FoodTruckRowFilter filter, FoodTruckVisitor visitor)
+	{
+		for (int row = 0; row < size; row++)
+		{
+			if (filter.accept(objectids[row], latitudes[row], longitudes[row], STATUS_VALUES[statuses[row]])
+					&& ! visitor.visit(foodTrucks[row]))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Passes the food trucks of the given rows that are accepted by the given filter to the given visitor,
+	 * in row order, until the visitor stops the scan. Only the rows of the bitmap are read.
+	 *
+	 * @param rows Rows that will be scanned (e.g. the result of a FoodTruckFilter)
+	 * @param filter Row filter, null to accept all the given rows
+	 * @param visitor Receives the accepted food trucks
+	 * @return False if the visitor stopped the scan, true otherwise
+	 */
+	public boolean scan(FoodTruckBitmap rows, final FoodTruckRowFilter filter, final FoodTruckVisitor visitor)
+	{
+		return rows.forEach(new FoodTruckBitmap.RowVisitor()
+		{
+			@Override
+			public boolean visit(int row)
+			{
+				if (filter != null
+						&& ! filter.accept(objectids[row], latitudes[row], longitudes[row], STATUS_VALUES[statuses[row]]))
+				{
+					return true;
+				}
+				return visitor.visit(foodTrucks[row]);
+			}
+		});
+	}
+
+	/**
+	 * Returns the rows in [from, to) that are accepted by the given filter, in row order.
+	 * Used by the partitions of a parallel scan (see FoodTruckParallelScanner).
+	 *
+	 * @param filter Row filter
+	 * @param from First row of the partition
+	 * @param to Row after the last row of the partition
+	 * @return The accepted rows
+	 */
+	int[] scanRows(FoodTruckRowFilter filter, int from, int to)
+	{
+		int[] rows = new int[16];
+		int count = 0;
+
+		for (int row = from; row < to; row++)
+		{
+			if (filter.accept(objectids[row], latitudes[row], longitudes[row], STATUS_VALUES[statuses[row]]))
+			{
+				if (count == rows.length)
+				{
+					rows = Arrays.copyOf(rows, count * 2);
+				}
+				rows[count++] = row;
+			}
+		}
+
+		return Arrays.copyOf(rows, count);
+	}
+
+	/**
+	 * Returns the food truck of the given row
+	 *
+	 * @param row Row of the food truck
+	 * @return The food truck of the given row
+	 */
+	FoodTruck getFoodTruck(int row)
+	{
+		return foodTrucks[row];
+	}
+
+	/**
+	 * Returns the row of the food truck with the given object id
+	 *
+	 * @param id Object id of the food truck
+	 * @return The row of the food truck, -1 if there is no food truck with the given id
+	 */
+	public int getRow(long id)
+	{
+		Integer row = rowMap.get(id);
+		return (row != null) ? row : -1;
+	}
+
+	/**
+	 * Returns the bitmap index of the statuses
+	 *
+	 * @return The status index (must not be modified)
+	 */
+	public FoodTruckBitmapIndex<FoodTruckStatusEnum> getStatusBitmaps()
+	{
+		return statusBitmaps;
+	}
+
+	/**
+	 * Returns the bitmap index of the facility types
+	 *
+	 * @return The facility type index (must not be modified)
+	 */
+	public FoodTruckBitmapIndex<String> getFacilityTypeBitmaps()
+	{
+		return facilityTypeBitmaps;
+	}
+
+	/**
+	 * Returns the bitmap index of the cnn (street segment) numbers
+	 *
+	 * @return The cnn index (must not be modified)
+	 */
+	public FoodTruckBitmapIndex<Integer> getCnnBitmaps()
+	{
+		return cnnBitmaps;
+	}
+
+	/**
+	 * Returns the bitmap index of the permit prefixes
+	 *
+	 * @return The permit prefix index (must not be modified)
+	 */
+	public FoodTruckBitmapIndex<String> getPermitPrefixBitmaps()
+	{
+		return permitPrefixBitmaps;
+	}
+
+	/**
+	 * Returns the interval index of the opening hours
+	 *
+	 * @return The opening hours index (must not be modified)
+	 */
+	public FoodTruckOpeningHoursIndex getOpeningHoursIndex()
+	{
+		return openingHoursIndex;
+	}
+
+	/**
+	 * Returns the indexed value of the given facility type
+	 *
+	 * @param facilityType Facility type of a food truck, e.g. "Push Cart"
+	 * @return The facility type in upper case, "" if the facility type is null
+	 */
+	public static String getFacilityTypeKey(String facilityType)
+	{
+		return (facilityType != null) ? facilityType.toUpperCase(Locale.ROOT) : "";
+	}
+
+	/**
+	 * Returns the indexed permit prefix of the given permit: the part before the first '-' in upper case
+	 *
+	 * @param permit Permit of a food truck, e.g. "17MFF-0110"
+	 * @return The permit prefix, e.g. "17MFF", "" if the permit is null
+	 */
+	public static String getPermitPrefixKey(String permit)
+	{
+		if (permit == null)
+		{
+			return "";
+		}
+
+		int separator = permit.indexOf('-');
+		return ((separator < 0) ? permit : permit.substring(0, separator)).toUpperCase(Locale.ROOT);
+	}
+
+	/**
+	 * Adds the given row to the bitmap indexes
+	 */
+	private void addToBitmaps(int row)
+	{
+		FoodTruck foodTruck = foodTrucks[row];
+		statusBitmaps.add(STATUS_VALUES[statuses[row]], row);
+		facilityTypeBitmaps.add(getFacilityTypeKey(foodTruck.getFacilitytype()), row);
+		cnnBitmaps.add(foodTruck.getCnn(), row);
+		permitPrefixBitmaps.add(getPermitPrefixKey(foodTruck.getPermit()), row);
+		openingHoursIndex.add(foodTruck.getDayshours(), row);
+	}
+
+	/**
+	 * Removes the given row from the bitmap indexes
+	 */
+	private void removeFromBitmaps(int row)
+	{
+		FoodTruck foodTruck = foodTrucks[row];
+		statusBitmaps.remove(STATUS_VALUES[statuses[row]], row);
+		facilityTypeBitmaps.remove(getFacilityTypeKey(foodTruck.getFacilitytype()), row);
+		cnnBitmaps.remove(foodTruck.getCnn(), row);
+		permitPrefixBitmaps.remove(getPermitPrefixKey(foodTruck.getPermit()), row);
+		openingHoursIndex.remove(foodTruck.getDayshours(), row);
+	}
+
+	/**
+	 * Copies the shared arrays (and the row map and the bitmap indexes) before the first modification,
+	 * and grows the arrays if they cannot hold the given number of rows.
+	 *
+	 * @param requiredCapacity Number of rows that the arrays must hold
+	 */
+	private void makeOwned(int requiredCapacity)
+	{
+		if (frozen)
+		{
+			throw new IllegalStateException("Column store is frozen");
+		}
+
+		if (! owned || requiredCapacity > latitudes.length)
+		{
+			int capacity = Math.max(latitudes.length,
+					(requiredCapacity > latitudes.length) ? 2 * requiredCapacity : 0);
+
+			latitudes = Arrays.copyOf(latitudes, capacity);
+			longitudes = Arrays.copyOf(longitudes, capacity);
+			objectids = Arrays.copyOf(objectids, capacity);
+			statuses = Arrays.copyOf(statuses, capacity);
+			foodTrucks = Arrays.copyOf(foodTrucks, capacity);
+
+			if (! owned)
+			{
+				rowMap = new HashMap<Long, Integer>(rowMap);
+				statusBitmaps = new FoodTruckBitmapIndex<FoodTruckStatusEnum>(statusBitmaps);
+				facilityTypeBitmaps = new FoodTruckBitmapIndex<String>(facilityTypeBitmaps);
+				cnnBitmaps = new FoodTruckBitmapIndex<Integer>(cnnBitmaps);
+				permitPrefixBitmaps = new FoodTruckBitmapIndex<String>(permitPrefixBitmaps);
+				openingHoursIndex = new FoodTruckOpeningHoursIndex(openingHoursIndex);
+				owned = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,450 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+
+/**
+ * Attribute filter of the food trucks: a tree of AND, OR and NOT operations over the terms
+ * "status in (...)", "facility type in (...)", "cnn in (...)", "permit starts with (...)",
+ * "food items or applicant contain all the words of a text" and "open at a minute of the week".
+ *
+ * A filter is evaluated on a snapshot as bitmap operations: every term is the bitmap of a bitmap index
+ * (or the union of a few of them), AND / OR / NOT combine the bitmaps
+ * (see FoodTruckBitmap), and no food truck object is read until the resulting rows are visited.
+ * A NOT under an AND is evaluated as AND NOT, so the complement of a term is not built.
+ *
+ * As in the status queries, ALL matches every food truck and NO_STATEMENT matches none.
+ *
+ * @author alper.karacelik
+ *
+ */
+public abstract class FoodTruckFilter
+{
+	// Constructor(s) ----------------------------------------------------
+	private FoodTruckFilter() {}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns the bitmap of the rows of the given column store that are accepted by this filter
+	 *
+	 * @param columnStore Column store (and bitmap indexes) of a snapshot
+	 * @param textIndex Text index of the same snapshot
+	 * @return The accepted rows
+	 */
+	abstract FoodTruckBitmap evaluate(FoodTruckColumnStore columnStore, FoodTruckTextIndex textIndex);
+
+	/**
+	 * Returns the filter of the food trucks that have one of the given statuses
+	 *
+	 * @param statuses Food Truck Statuses
+	 * @return The status filter
+	 */
+	public static FoodTruckFilter status(FoodTruckStatusEnum... statuses)
+	{
+		return new StatusTerm(new LinkedHashSet<FoodTruckStatusEnum>(Arrays.asList(statuses)));
+	}
+
+	/**
+	 * Returns the filter of the food trucks that have one of the given statuses
+	 *
+	 * @param statuses Food Truck Statuses
+	 * @return The status filter
+	 */
+	public static FoodTruckFilter status(Collection<FoodTruckStatusEnum> statuses)
+	{
+		return new StatusTerm(new LinkedHashSet<FoodTruckStatusEnum>(statuses));
+	}
+
+	/**
+	 * Returns the filter of the food trucks that have one of the given facility types (case-insensitive)
+	 *
+	 * @param facilityTypes Facility types, e.g. "Truck", "Push Cart"
+	 * @return The facility type filter
+	 */
+	public static FoodTruckFilter facilityType(Collection<String> facilityTypes)
+	{
+		return new FacilityTypeTerm(new LinkedHashSet<String>(facilityTypes));
+	}
+
+	/**
+	 * Returns the filter of the food trucks that are on one of the given street segments
+	 *
+	 * @param cnns Street segment (cnn) numbers
+	 * @return The cnn filter
+	 */
+	public static FoodTruckFilter cnn(Collection<Integer> cnns)
+	{
+		return new CnnTerm(new LinkedHashSet<Integer>(cnns));
+	}
+
+	/**
+	 * Returns the filter of the food trucks whose permits start with one of the given prefixes
+	 * (case-insensitive). A prefix is matched against the part of the permit before the first '-',
+	 * so "17MFF" and "17" both match the permit "17MFF-0110".
+	 *
+	 * @param prefixes Permit prefixes
+	 * @return The permit filter
+	 */
+	public static FoodTruckFilter permitPrefix(Collection<String> prefixes)
+	{
+		return new PermitPrefixTerm(new LinkedHashSet<String>(prefixes));
+	}
+
+	/**
+	 * Returns the filter of the food trucks whose food items or applicant contain all the words of the given text
+	 * (see FoodTruckTextIndex)
+	 *
+	 * @param text Query text
+	 * @return The text filter
+	 */
+	public static FoodTruckFilter text(String text)
+	{
+		return new TextTerm(text);
+	}
+
+	/**
+	 * Returns the filter of the food trucks whose days and hours include the given minute of the week
+	 * (see FoodTruckOpeningHoursIndex). Food trucks whose days and hours cannot be parsed are never open.
+	 *
+	 * @param minuteOfWeek Minute of the week (see FoodTruckOpeningHours), a negative value matches no food truck
+	 * @return The opening hours filter
+	 */
+	public static FoodTruckFilter openAt(int minuteOfWeek)
+	{
+		return new OpenAtTerm(minuteOfWeek);
+	}
+
+	/**
+	 * Returns the filter of the food trucks that are accepted by all the given filters
+	 *
+	 * @param filters Filters
+	 * @return The AND filter
+	 */
+	public static FoodTruckFilter and(FoodTruckFilter... filters)
+	{
+		return and(Arrays.asList(filters));
+	}
+
+	/**
+	 * Returns the filter of the food trucks that are accepted by all the given filters
+	 *
+	 * @param filters Filters
+	 * @return The AND filter (the filter itself if only one filter is given)
+	 */
+	public static FoodTruckFilter and(List<FoodTruckFilter> filters)
+	{
+		return (filters.size() == 1) ? filters.get(0) : new And(new ArrayList<FoodTruckFilter>(filters));
+	}
+
+	/**
+	 * Returns the filter of the food trucks that are accepted by any of the given filters
+	 *
+	 * @param filters Filters
+	 * @return The OR filter
+	 */
+	public static FoodTruckFilter or(FoodTruckFilter... filters)
+	{
+		return or(Arrays.asList(filters));
+	}
+
+	/**
+	 * Returns the filter of the food trucks that are accepted by any of the given filters
+	 *
+	 * @param filters Filters
+	 * @return The OR filter (the filter itself if only one filter is given)
+	 */
+	public static FoodTruckFilter or(List<FoodTruckFilter> filters)
+	{
+		return (filters.size() == 1) ? filters.get(0) : new Or(new ArrayList<FoodTruckFilter>(filters));
+	}
+
+	/**
+	 * Returns the filter of the food trucks that are not accepted by the given filter
+	 *
+	 * @param filter Filter
+	 * @return The NOT filter
+	 */
+	public static FoodTruckFilter not(FoodTruckFilter filter)
+	{
+		return (filter instanceof Not) ? ((Not) filter).filter : new Not(filter);
+	}
+
+	/**
+	 * Returns the union of the bitmaps of the given values in the given index
+	 */
+	private static <K> FoodTruckBitmap union(FoodTruckBitmapIndex<K> bitmapIndex, Set<K> values)
+	{
+		FoodTruckBitmap result = null;
+
+		for (K value : values)
+		{
+			FoodTruckBitmap bitmap = bitmapIndex.get(value);
+			if (bitmap != null)
+			{
+				result = (result == null) ? bitmap : FoodTruckBitmap.or(result, bitmap);
+			}
+		}
+
+		return (result != null) ? result : new FoodTruckBitmap();
+	}
+
+	/**
+	 * status in (...)
+	 */
+	private static final class StatusTerm extends FoodTruckFilter
+	{
+		private final Set<FoodTruckStatusEnum> statuses;
+
+		StatusTerm(Set<FoodTruckStatusEnum> statuses)
+		{
+			this.statuses = statuses;
+		}
+
+		@Override
+		FoodTruckBitmap evaluate(FoodTruckColumnStore columnStore, FoodTruckTextIndex textIndex)
+		{
+			if (statuses.contains(FoodTruckStatusEnum.ALL))
+			{
+				return FoodTruckBitmap.range(columnStore.size());
+			}
+
+			// No food truck has the 'NO STATEMENT' status
+			Set<FoodTruckStatusEnum> queriedStatuses = new LinkedHashSet<FoodTruckStatusEnum>(statuses);
+			queriedStatuses.remove(FoodTruckStatusEnum.NO_STATEMENT);
+
+			return union(columnStore.getStatusBitmaps(), queriedStatuses);
+		}
+	}
+
+	/**
+	 * facility type in (...)
+	 */
+	private static final class FacilityTypeTerm extends FoodTruckFilter
+	{
+		private final Set<String> facilityTypes;
+
+		FacilityTypeTerm(Set<String> facilityTypes)
+		{
+			this.facilityTypes = facilityTypes;
+		}
+
+		@Override
+		FoodTruckBitmap evaluate(FoodTruckColumnStore columnStore, FoodTruckTextIndex textIndex)
+		{
+			Set<String> keys = new LinkedHashSet<String>();
+			for (String facilityType : facilityTypes)
+			{
+				keys.add(FoodTruckColumnStore.getFacilityTypeKey(facilityType));
+			}
+
+			return union(columnStore.getFacilityTypeBitmaps(), keys);
+		}
+	}
+
+	/**
+	 * cnn in (...)
+	 */
+	private static final class CnnTerm extends FoodTruckFilter
+	{
+		private final Set<Integer> cnns;
+
+		CnnTerm(Set<Integer> cnns)
+		{
+			this.cnns = cnns;
+		}
+
+		@Override
+		FoodTruckBitmap evaluate(FoodTruckColumnStore columnStore, FoodTruckTextIndex textIndex)
+		{
+			return union(columnStore.getCnnBitmaps(), cnns);
+		}
+	}
+
+	/**
+	 * permit starts with (...)
+	 */
+	private static final class PermitPrefixTerm extends FoodTruckFilter
+	{
+		private final Set<String> prefixes;
+
+		PermitPrefixTerm(Set<String> prefixes)
+		{
+			this.prefixes = prefixes;
+		}
+
+		@Override
+		FoodTruckBitmap evaluate(FoodTruckColumnStore columnStore, FoodTruckTextIndex textIndex)
+		{
+			FoodTruckBitmapIndex<String> bitmapIndex = columnStore.getPermitPrefixBitmaps();
+			Set<String> keys = new LinkedHashSet<String>();
+
+			// There are a few distinct permit prefixes (year and permit type), all of them are checked
+			for (String prefix : prefixes)
+			{
+				String prefixKey = FoodTruckColumnStore.getPermitPrefixKey(prefix);
+				for (String key : bitmapIndex.getValues())
+				{
+					if (key.startsWith(prefixKey))
+					{
+						keys.add(key);
+					}
+				}
+			}
+
+			return union(bitmapIndex, keys);
+		}
+	}
+
+	/**
+	 * food items or applicant contain all the words of a text
+	 */
+	private static final class TextTerm extends FoodTruckFilter
+	{
+		private final String text;
+
+		TextTerm(String text)
+		{
+			this.text = text;
+		}
+
+		@Override
+		FoodTruckBitmap evaluate(FoodTruckColumnStore columnStore, FoodTruckTextIndex textIndex)
+		{
+			long[] ids = textIndex.search(text);
+			int[] rows = new int[ids.length];
+
+			for (int i = 0; i < ids.length; i++)
+			{
+				rows[i] = columnStore.getRow(ids[i]);
+			}
+
+			// Sorted rows are appended to the containers
+			Arrays.sort(rows);
+
+			FoodTruckBitmap result = new FoodTruckBitmap();
+			for (int row : rows)
+			{
+				if (row >= 0)
+				{
+					result.add(row);
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * open at a minute of the week
+	 */
+	private static final class OpenAtTerm extends FoodTruckFilter
+	{
+		private final int minuteOfWeek;
+
+		OpenAtTerm(int minuteOfWeek)
+		{
+			this.minuteOfWeek = minuteOfWeek;
+		}
+
+		@Override
+		FoodTruckBitmap evaluate(FoodTruckColumnStore columnStore, FoodTruckTextIndex textIndex)
+		{
+			FoodTruckBitmap bitmap = (minuteOfWeek >= 0 && minuteOfWeek < FoodTruckOpeningHours.MINUTES_PER_WEEK)
+					? columnStore.getOpeningHoursIndex().get(minuteOfWeek)
+					: null;
+
+			return (bitmap != null) ? bitmap : new FoodTruckBitmap();
+		}
+	}
+
+	private static final class And extends FoodTruckFilter
+	{
+		private final List<FoodTruckFilter> filters;
+
+		And(List<FoodTruckFilter> filters)
+		{
+			this.filters = filters;
+		}
+
+		@Override
+		FoodTruckBitmap evaluate(FoodTruckColumnStore columnStore, FoodTruckTextIndex textIndex)
+		{
+			FoodTruckBitmap result = null;
+			List<FoodTruckFilter> negatedFilters = new ArrayList<FoodTruckFilter>();
+
+			for (FoodTruckFilter filter : filters)
+			{
+				if (filter instanceof Not)
+				{
+					negatedFilters.add(((Not) filter).filter);
+					continue;
+				}
+
+				FoodTruckBitmap bitmap = filter.evaluate(columnStore, textIndex);
+				result = (result == null) ? bitmap : FoodTruckBitmap.and(result, bitmap);
+
+				if (result.isEmpty())
+				{
+					return result;
+				}
+			}
+
+			if (result == null)
+			{
+				result = FoodTruckBitmap.range(columnStore.size());
+			}
+
+			for (FoodTruckFilter filter : negatedFilters)
+			{
+				result = FoodTruckBitmap.andNot(result, filter.evaluate(columnStore, textIndex));
+			}
+
+			return result;
+		}
+	}
+
+	private static final class Or extends FoodTruckFilter
+	{
+		private final List<FoodTruckFilter> filters;
+
+		Or(List<FoodTruckFilter> filters)
+		{
+			this.filters = filters;
+		}
+
+		@Override
+		FoodTruckBitmap evaluate(FoodTruckColumnStore columnStore, FoodTruckTextIndex textIndex)
+		{
+			FoodTruckBitmap result = new FoodTruckBitmap();
+
+			for (FoodTruckFilter filter : filters)
+			{
+				result = FoodTruckBitmap.or(result, filter.evaluate(columnStore, textIndex));
+			}
+
+			return result;
+		}
+	}
+
+	private static final class Not extends FoodTruckFilter
+	{
+		private final FoodTruckFilter filter;
+
+		Not(FoodTruckFilter filter)
+		{
+			this.filter = filter;
+		}
+
+		@Override
+		FoodTruckBitmap evaluate(FoodTruckColumnStore columnStore, FoodTruckTextIndex textIndex)
+		{
+			return FoodTruckBitmap.andNot(
+					FoodTruckBitmap.range(columnStore.size()), filter.evaluate(columnStore, textIndex));
+		}
+	}
+}
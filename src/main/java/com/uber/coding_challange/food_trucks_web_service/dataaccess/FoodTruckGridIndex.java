@@ -0,0 +1,367 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Spatial index over the food truck coordinates.
+ * The surface is divided into a fixed latitude/longitude grid,
+ * and every food truck is kept in the list of the cell that contains its position.
+ * A bounding box query only visits the cells that overlap the box;
+ * therefore, the cost of a radius query depends on the trucks around the center,
+ * not on the total number of trucks.
+ * The index also keeps the number of the food trucks in every block of 16x16 cells;
+ * these counts are the statistics that the query planner uses to estimate the candidates of large boxes
+ * without visiting their cells (see estimateCandidates()).
+ *
+ * Copies share the cell lists with the original index; a cell list is copied
+ * the first time a copy modifies it. Therefore, an index that is published in a snapshot
+ * is never modified, writers always work on a copy.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckGridIndex
+{
+	// Constants ---------------------------------------------------------
+	public static final double CELL_SIZE_DEGREES = 0.005; // ~550 meters on latitude
+	private static final long COLUMN_COUNT = (long) Math.ceil(360 / CELL_SIZE_DEGREES) + 1;
+	private static final int BLOCK_SIZE = 16; // in cells
+	private static final long BLOCK_COLUMN_COUNT = COLUMN_COUNT / BLOCK_SIZE + 1;
+	private static final long MAX_EXACT_ESTIMATE_CELLS = 256;
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private HashMap<Long, List<FoodTruck>> cellMap;
+	private HashSet<Long> ownedCells; // Cells that are copied by this index, null if the index is frozen
+	private HashMap<Long, Integer> blockCounts; // Number of the food trucks in every block of cells
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckGridIndex()
+	{
+		cellMap = new HashMap<Long, List<FoodTruck>>();
+		ownedCells = new HashSet<Long>();
+		blockCounts = new HashMap<Long, Integer>();
+	}
+
+	/**
+	 * Creates a modifiable copy of the given index.
+	 * Cell lists are shared until they are modified.
+	 *
+	 * @param gridIndex The index that will be copied
+	 */
+	public FoodTruckGridIndex(FoodTruckGridIndex gridIndex)
+	{
+		cellMap = new HashMap<Long, List<FoodTruck>>(gridIndex.cellMap);
+		ownedCells = new HashSet<Long>();
+		blockCounts = new HashMap<Long, Integer>(gridIndex.blockCounts);
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Marks the index as read-only. Modifications after this call throw an exception.
+	 */
+	public void freeze()
+	{
+		ownedCells = null;
+	}
+
+	/**
+	 * Adds the given food truck to the cell that contains its position.
+	 *
+	 * @param foodTruck new food truck
+	 */
+	public void add(FoodTruck foodTruck)
+	{
+		long cellKey = getCellKey(foodTruck.getLatitude(), foodTruck.getLongitude());
+		getOwnedCell(cellKey).add(foodTruck);
+		updateBlockCount(cellKey, 1);
+	}
+
+	/**
+	 * Removes the given food truck from the cell that contains its position.
+	 * Empty cells are dropped, so the map only holds the occupied cells.
+	 *
+	 * @param foodTruck Removed food truck
+	 */
+	public void remove(FoodTruck foodTruck)
+	{
+		long cellKey = getCellKey(foodTruck.getLatitude(), foodTruck.getLongitude());
+
+		if (cellMap.containsKey(cellKey))
+		{
+			List<FoodTruck> foodTrucks = getOwnedCell(cellKey);
+			if (foodTrucks.remove(foodTruck))
+			{
+				updateBlockCount(cellKey, -1);
+			}
+
+			if (foodTrucks.isEmpty())
+			{
+				cellMap.remove(cellKey);
+				ownedCells.remove(cellKey);
+			}
+		}
+	}
+
+	/**
+	 * Returns the list of the given cell that can be modified by this index.
+	 * Shared lists are copied, missing lists are created.
+	 *
+	 * @param cellKey Key of the cell
+	 * @return The list of the given cell that can be modified by this index
+	 */
+	private List<FoodTruck> getOwnedCell(long cellKey)
+	{
+		if (ownedCells == null)
+		{
+			throw new IllegalStateException("Grid index is frozen");
+		}
+
+		List<FoodTruck> foodTrucks = cellMap.get(cellKey);
+
+		if (! ownedCells.contains(cellKey))
+		{
+			foodTrucks = (foodTrucks == null) 
+					? new ArrayList<FoodTruck>() 
+					: new ArrayList<FoodTruck>(foodTrucks);
+			cellMap.put(cellKey, foodTrucks);
+			ownedCells.add(cellKey);
+		}
+
+		return foodTrucks;
+	}
+
+	/**
+	 * Adds the given delta to the food truck count of the block that contains the given cell
+	 */
+	private void updateBlockCount(long cellKey, int delta)
+	{
+		long blockKey = getBlockKey(cellKey / COLUMN_COUNT, cellKey % COLUMN_COUNT);
+		Integer count = blockCounts.get(blockKey);
+		int newCount = ((count != null) ? count : 0) + delta;
+
+		if (newCount == 0)
+		{
+			blockCounts.remove(blockKey);
+		}
+		else
+		{
+			blockCounts.put(blockKey, newCount);
+		}
+	}
+
+	/**
+	 * Returns the estimated number of the food trucks in the cells that overlap the given bounding box,
+	 * i.e. the number of the candidates that visitCandidates() would pass to its visitor.
+	 * Small boxes are counted exactly from their cells; for larger boxes, the count of every block
+	 * that overlaps the box is scaled by the overlapping part of the block, so the cost of the estimate
+	 * does not depend on the size of the box.
+	 *
+	 * @param minLatitude Southern edge of the box (in decimal degrees)
+	 * @param minLongitude Western edge of the box (in decimal degrees)
+	 * @param maxLatitude Northern edge of the box (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the box (in decimal degrees)
+	 * @return The estimated number of the candidates of the box
+	 */
+	public long estimateCandidates(
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude)
+	{
+		long minRow = getRow(minLatitude);
+		long maxRow = getRow(maxLatitude);
+		long minColumn = getColumn(minLongitude);
+		long maxColumn = getColumn(maxLongitude);
+
+		if ((maxRow - minRow + 1) * (maxColumn - minColumn + 1) <= MAX_EXACT_ESTIMATE_CELLS)
+		{
+			long count = 0;
+			for (long row = minRow; row <= maxRow; row++)
+			{
+				for (long column = minColumn; column <= maxColumn; column++)
+				{
+					List<FoodTruck> foodTrucks = cellMap.get(row * COLUMN_COUNT + column);
+					count += (foodTrucks != null) ? foodTrucks.size() : 0;
+				}
+			}
+			return count;
+		}
+
+		double estimate = 0;
+		for (Map.Entry<Long, Integer> block : blockCounts.entrySet())
+		{
+			long blockRow = block.getKey() / BLOCK_COLUMN_COUNT;
+			long blockColumn = block.getKey() % BLOCK_COLUMN_COUNT;
+
+			// Number of the rows and the columns of the block that are in the box
+			long rows = Math.min(maxRow, blockRow * BLOCK_SIZE + BLOCK_SIZE - 1) 
+					- Math.max(minRow, blockRow * BLOCK_SIZE) + 1;
+			long columns = Math.min(maxColumn, blockColumn * BLOCK_SIZE + BLOCK_SIZE - 1) 
+					- Math.max(minColumn, blockColumn * BLOCK_SIZE) + 1;
+
+			if (rows > 0 && columns > 0)
+			{
+				estimate += block.getValue() * (double) (rows * columns) / (BLOCK_SIZE * BLOCK_SIZE);
+			}
+		}
+
+		return Math.round(estimate);
+	}
+
+	/**
+	 * Returns the number of the cells that visitCandidates() looks up for the given bounding box
+	 *
+	 * @param minLatitude Southern edge of the box (in decimal degrees)
+	 * @param minLongitude Western edge of the box (in decimal degrees)
+	 * @param maxLatitude Northern edge of the box (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the box (in decimal degrees)
+	 * @return The number of the cells in the box, or the number of the occupied cells if it is smaller
+	 */
+	public long getVisitedCellCount(
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude)
+	{
+		long cellCount = (getRow(maxLatitude) - getRow(minLatitude) + 1) 
+				* (getColumn(maxLongitude) - getColumn(minLongitude) + 1);
+		return Math.min(cellCount, cellMap.size());
+	}
+
+	/**
+	 * Returns the food trucks in the cells that overlap the given bounding box.
+	 * The result is a candidate list: trucks close to the box but outside of it may be returned,
+	 * caller is responsible for the exact check.
+	 *
+	 * @param minLatitude Southern edge of the box (in decimal degrees)
+	 * @param minLongitude Western edge of the box (in decimal degrees)
+	 * @param maxLatitude Northern edge of the box (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the box (in decimal degrees)
+	 * @return The food trucks in the cells that overlap the given bounding box
+	 */
+	public List<FoodTruck> getCandidates(
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude)
+	{
+		final List<FoodTruck> candidates = new ArrayList<FoodTruck>();
+
+		visitCandidates(minLatitude, minLongitude, maxLatitude, maxLongitude, new FoodTruckVisitor()
+		{
+			@Override
+			public boolean visit(FoodTruck foodTruck)
+			{
+				return candidates.add(foodTruck);
+			}
+		});
+
+		return candidates;
+	}
+
+	/**
+	 * Passes the food trucks that reside in the cells overlapping the given bounding box
+	 * to the given visitor, until the visitor stops the traversal.
+	 *
+	 * @param minLatitude Southern edge of the box (in decimal degrees)
+	 * @param minLongitude Western edge of the box (in decimal degrees)
+	 * @param maxLatitude Northern edge of the box (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the box (in decimal degrees)
+	 * @param visitor Receives the food trucks
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	public boolean visitCandidates(
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude,
+			FoodTruckVisitor visitor)
+	{
+		long minRow = getRow(minLatitude);
+		long maxRow = getRow(maxLatitude);
+		long minColumn = getColumn(minLongitude);
+		long maxColumn = getColumn(maxLongitude);
+
+		// If the box covers more cells than the occupied ones,
+		// then traversing the occupied cells is cheaper.
+		if ((maxRow - minRow + 1) * (maxColumn - minColumn + 1) > cellMap.size())
+		{
+			for (Map.Entry<Long, List<FoodTruck>> cell : cellMap.entrySet())
+			{
+				long row = cell.getKey() / COLUMN_COUNT;
+				long column = cell.getKey() % COLUMN_COUNT;
+
+				if (row >= minRow && row <= maxRow && column >= minColumn && column <= maxColumn
+						&& ! visitCell(cell.getValue(), visitor))
+				{
+					return false;
+				}
+			}
+		}
+		else
+		{
+			for (long row = minRow; row <= maxRow; row++)
+			{
+				for (long column = minColumn; column <= maxColumn; column++)
+				{
+					List<FoodTruck> foodTrucks = cellMap.get(row * COLUMN_COUNT + column);
+
+					if (foodTrucks != null && ! visitCell(foodTrucks, visitor))
+					{
+						return false;
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean visitCell(List<FoodTruck> foodTrucks, FoodTruckVisitor visitor)
+	{
+		for (FoodTruck foodTruck : foodTrucks)
+		{
+			if (! visitor.visit(foodTruck))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the key of the cell that contains the given position
+	 *
+	 * @param latitude Latitude of the position (in decimal degrees)
+	 * @param longitude Longitude of the position (in decimal degrees)
+	 * @return The key of the cell that contains the given position
+	 */
+	private static long getCellKey(double latitude, double longitude)
+	{
+		return getRow(latitude) * COLUMN_COUNT + getColumn(longitude);
+	}
+
+	private static long getBlockKey(long row, long column)
+	{
+		return (row / BLOCK_SIZE) * BLOCK_COLUMN_COUNT + column / BLOCK_SIZE;
+	}
+
+	private static long getRow(double latitude)
+	{
+		return (long) Math.floor((latitude + 90) / CELL_SIZE_DEGREES);
+	}
+
+	private static long getColumn(double longitude)
+	{
+		return (long) Math.floor((longitude + 180) / CELL_SIZE_DEGREES);
+	}
+}
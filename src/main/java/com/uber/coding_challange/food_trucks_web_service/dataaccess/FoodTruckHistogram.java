@@ -0,0 +1,161 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckHistogramStats;
+
+/**
+ * Concurrent histogram of non-negative long values (e.g. latencies in nanoseconds or result sizes)
+ * with log-linear buckets, as in HdrHistogram: values below 64 have their own buckets, and every power of two
+ * above them is split into 32 buckets, so a reported percentile is within ~3% of the recorded value.
+ * All the values up to Long.MAX_VALUE fit in 1888 buckets (15 KB).
+ *
+ * Recording is lock-free and allocation-free (a bucket index calculation and a few atomic increments),
+ * so it can be called on the hot paths by any number of threads.
+ * Statistics are calculated from a copy of the buckets, which may miss the values that are recorded meanwhile.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckHistogram
+{
+	// Constants ---------------------------------------------------------
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS; // 32 buckets per power of two
+	private static final int BUCKET_COUNT = (62 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + 2 * SUB_BUCKET_COUNT;
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	// -------------------------------------------------------------------
+
+	/**
+	 * Records the given value, negative values are recorded as 0
+	 *
+	 * @param value Recorded value
+	 */
+	public void record(long value)
+	{
+		if (value < 0)
+		{
+			value = 0;
+		}
+
+		counts.incrementAndGet(getBucket(value));
+		totalCount.incrementAndGet();
+		sum.addAndGet(value);
+
+		long currentMax = max.get();
+		while (value > currentMax && ! max.compareAndSet(currentMax, value))
+		{
+			currentMax = max.get();
+		}
+	}
+
+	/**
+	 * Returns the number of the recorded values
+	 *
+	 * @return The number of the recorded values
+	 */
+	public long getCount()
+	{
+		return totalCount.get();
+	}
+
+	/**
+	 * Returns the count, mean, percentiles and maximum of the recorded values, every value is divided by the given
+	 * scale (e.g. 1000 for nanoseconds reported in microseconds)
+	 *
+	 * @param scale Divisor of the reported values
+	 * @param unit Unit of the reported values
+	 * @return Statistics of the recorded values
+	 */
+	public FoodTruckHistogramStats getStats(double scale, String unit)
+	{
+		long[] bucketCounts = new long[BUCKET_COUNT];
+		long count = 0;
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+		{
+			bucketCounts[bucket] = counts.get(bucket);
+			count += bucketCounts[bucket];
+		}
+
+		long maxValue = max.get();
+		return new FoodTruckHistogramStats(
+				count,
+				(count > 0) ? sum.get() / (double) count / scale : 0,
+				getPercentile(bucketCounts, count, 50, maxValue) / scale,
+				getPercentile(bucketCounts, count, 90, maxValue) / scale,
+				getPercentile(bucketCounts, count, 99, maxValue) / scale,
+				getPercentile(bucketCounts, count, 99.9, maxValue) / scale,
+				maxValue / scale,
+				unit);
+	}
+
+	/**
+	 * Returns the value of the given percentile: the middle of the bucket of the value of its rank,
+	 * limited to the maximum value. 0 if there is no value.
+	 */
+	private static double getPercentile(long[] bucketCounts, long count, double percentile, long maxValue)
+	{
+		if (count == 0)
+		{
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+		{
+			seen += bucketCounts[bucket];
+			if (seen >= rank)
+			{
+				return Math.min(getLowerBound(bucket) + (getWidth(bucket) - 1) / 2.0, maxValue);
+			}
+		}
+		return maxValue;
+	}
+
+	/**
+	 * Returns the bucket of the given non-negative value
+	 */
+	static int getBucket(long value)
+	{
+		if (value < 2 * SUB_BUCKET_COUNT)
+		{
+			return (int) value;
+		}
+
+		// Position of the highest one bit, then the next SUB_BUCKET_BITS bits
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS));
+		return (exponent - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * Returns the smallest value of the given bucket
+	 */
+	static long getLowerBound(int bucket)
+	{
+		if (bucket < 2 * SUB_BUCKET_COUNT)
+		{
+			return bucket;
+		}
+
+		int exponent = bucket / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+		long subBucket = bucket % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		return subBucket << (exponent - SUB_BUCKET_BITS);
+	}
+
+	/**
+	 * Returns the number of the values of the given bucket
+	 */
+	private static long getWidth(int bucket)
+	{
+		return (bucket < 2 * SUB_BUCKET_COUNT) ? 1 : 1L << (bucket / SUB_BUCKET_COUNT - 1);
+	}
+}
@@ -0,0 +1,394 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+
+/**
+ * KD-tree over the food truck positions, used for k-nearest queries.
+ * Positions are converted to points on the unit sphere (x, y, z),
+ * so the euclidean (chord) distance between two points grows with their great circle distance
+ * and the tree has no special cases around the poles or the 180th meridian.
+ *
+ * The tree is persistent: nodes are never modified,
+ * insert and remove copy the path from the root and return a new tree.
+ * Removed trucks are left in place as tombstones and the tree is rebuilt
+ * when tombstones or unbalanced inserts pile up.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckKdTree
+{
+	// Constants ---------------------------------------------------------
+	private static final int DIMENSION_COUNT = 3;
+	private static final int MIN_REBUILD_SIZE = 32;
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final Node root;
+	private final int size;
+	private final int removedCount;
+	private final int builtSize;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	/**
+	 * Creates an empty tree
+	 */
+	public FoodTruckKdTree()
+	{
+		this(null, 0, 0, 0);
+	}
+
+	/**
+	 * Creates a balanced tree that contains the given food trucks
+	 *
+	 * @param foodTrucks Food trucks that will be indexed
+	 */
+	public FoodTruckKdTree(Collection<FoodTruck> foodTrucks)
+	{
+		Node[] nodes = new Node[foodTrucks.size()];
+		int index = 0;
+		for (FoodTruck foodTruck : foodTrucks)
+		{
+			nodes[index++] = new Node(foodTruck, toPoint(foodTruck.getLatitude(), foodTruck.getLongitude()));
+		}
+
+		this.root = build(nodes, 0, nodes.length, 0);
+		this.size = nodes.length;
+		this.removedCount = 0;
+		this.builtSize = nodes.length;
+	}
+
+	private FoodTruckKdTree(Node root, int size, int removedCount, int builtSize)
+	{
+		this.root = root;
+		this.size = size;
+		this.removedCount = removedCount;
+		this.builtSize = builtSize;
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns the number of food trucks in the tree
+	 *
+	 * @return The number of food trucks in the tree
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Returns a new tree that also contains the given food truck.
+	 *
+	 * @param foodTruck new food truck
+	 * @return A new tree that also contains the given food truck
+	 */
+	public FoodTruckKdTree insert(FoodTruck foodTruck)
+	{
+		Node node = new Node(foodTruck, toPoint(foodTruck.getLatitude(), foodTruck.getLongitude()));
+		FoodTruckKdTree tree = new FoodTruckKdTree(insert(root, node, 0), size + 1, removedCount, builtSize);
+
+		// Rebuild if the tree has grown too much since the last build
+		return (size + 1 + removedCount > 2 * builtSize + MIN_REBUILD_SIZE) ? tree.rebuild() : tree;
+	}
+
+	/**
+	 * Returns a new tree that does not contain the given food truck.
+	 * The food truck is found by reference, so the instance that was inserted must be given.
+	 * If the food truck is not in the tree, then this tree is returned.
+	 *
+	 * @param foodTruck Removed food truck
+	 * @return A new tree that does not contain the given food truck
+	 */
+	public FoodTruckKdTree remove(FoodTruck foodTruck)
+	{
+		Node newRoot = remove(root, foodTruck, toPoint(foodTruck.getLatitude(), foodTruck.getLongitude()));
+
+		// If the food truck is not found
+		if (newRoot == root)
+		{
+			return this;
+		}
+
+		FoodTruckKdTree tree = new FoodTruckKdTree(newRoot, size - 1, removedCount + 1, builtSize);
+
+		// Rebuild if tombstones outnumber the food trucks
+		return (removedCount + 1 > size - 1 + MIN_REBUILD_SIZE) ? tree.rebuild() : tree;
+	}
+
+	/**
+	 * Returns at most 'k' food trucks that are nearest to the given position and have the given status.
+	 * Bounded best-first search is used: subtrees are visited in the order of their distance
+	 * to the given position, and the search stops when no subtree can contain a nearer truck.
+	 *
+	 * @param latitude Latitude of the position (in decimal degrees)
+	 * @param longitude Longitude of the position (in decimal degrees)
+	 * @param k Maximum number of food trucks (at most the size of the tree is used)
+	 * @param status Food Truck Status for querying (ALL accepts every status)
+	 * @return Nearest food trucks, sorted by their distance to the given position
+	 */
+	public List<FoodTruck> nearest(double latitude, double longitude, int k, FoodTruckStatusEnum status)
+	{
+		if (k <= 0 || root == null || size == 0)
+		{
+			return new ArrayList<FoodTruck>();
+		}
+
+		// There cannot be more results than food trucks, so a large k does not size the heap
+		k = Math.min(k, size);
+		double[] target = toPoint(latitude, longitude);
+
+		// Best results found so far, farthest one on the top
+		PriorityQueue<Candidate> results = new PriorityQueue<Candidate>(k, Collections.reverseOrder());
+		// Subtrees that are waiting to be visited, nearest one on the top
+		PriorityQueue<Candidate> subtrees = new PriorityQueue<Candidate>();
+		subtrees.add(new Candidate(root, 0));
+
+		while (! subtrees.isEmpty())
+		{
+			Candidate subtree = subtrees.poll();
+
+			// No remaining subtree can contain a nearer food truck
+			if (results.size() == k && subtree.distance >= results.peek().distance)
+			{
+				break;
+			}
+
+			Node node = subtree.node;
+
+			// Check the food truck of the current node
+			if (! node.removed
+					&& (status == FoodTruckStatusEnum.ALL || node.foodTruck.getStatusEnum() == status))
+			{
+				double distance = squaredDistance(node.point, target);
+
+				if (results.size() < k)
+				{
+					results.add(new Candidate(node, distance));
+				}
+				else if (distance < results.peek().distance)
+				{
+					results.poll();
+					results.add(new Candidate(node, distance));
+				}
+			}
+
+			// Near side inherits the bound of the parent, far side is bounded by the splitting plane
+			double planeDistance = target[node.axis] - node.point[node.axis];
+			double farDistance = Math.max(subtree.distance, planeDistance * planeDistance);
+			Node near = (planeDistance < 0) ? node.left : node.right;
+			Node far = (planeDistance < 0) ? node.right : node.left;
+
+			if (near != null)
+			{
+				subtrees.add(new Candidate(near, subtree.distance));
+			}
+			if (far != null && (results.size() < k || farDistance < results.peek().distance))
+			{
+				subtrees.add(new Candidate(far, farDistance));
+			}
+		}
+
+		// Sort the results by their distance
+		Candidate[] sortedResults = results.toArray(new Candidate[results.size()]);
+		Arrays.sort(sortedResults);
+
+		List<FoodTruck> nearestFoodTrucks = new ArrayList<FoodTruck>(sortedResults.length);
+		for (Candidate candidate : sortedResults)
+		{
+			nearestFoodTrucks.add(candidate.node.foodTruck);
+		}
+
+		return nearestFoodTrucks;
+	}
+
+	/**
+	 * Returns a balanced tree that contains the food trucks of this tree (tombstones are dropped)
+	 *
+	 * @return A balanced tree that contains the food trucks of this tree
+	 */
+	private FoodTruckKdTree rebuild()
+	{
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>(size);
+		collect(root, foodTrucks);
+		return new FoodTruckKdTree(foodTrucks);
+	}
+
+	private static void collect(Node node, List<FoodTruck> foodTrucks)
+	{
+		if (node != null)
+		{
+			if (! node.removed)
+			{
+				foodTrucks.add(node.foodTruck);
+			}
+			collect(node.left, foodTrucks);
+			collect(node.right, foodTrucks);
+		}
+	}
+
+	/**
+	 * Builds a balanced subtree from the given range of nodes.
+	 * Nodes with a smaller coordinate than the median go to the left,
+	 * nodes with an equal or greater coordinate go to the right (same as insert).
+	 */
+	private static Node build(Node[] nodes, int from, int to, int depth)
+	{
+		if (from >= to)
+		{
+			return null;
+		}
+
+		final int axis = depth % DIMENSION_COUNT;
+		Arrays.sort(nodes, from, to, new Comparator<Node>()
+		{
+			@Override
+			public int compare(Node node1, Node node2)
+			{
+				return Double.compare(node1.point[axis], node2.point[axis]);
+			}
+		});
+
+		// Equal coordinates must stay on the right side of the median
+		int median = (from + to) >>> 1;
+		while (median > from && nodes[median - 1].point[axis] == nodes[median].point[axis])
+		{
+			median--;
+		}
+
+		return new Node(
+				nodes[median].foodTruck, nodes[median].point, axis, false,
+				build(nodes, from, median, depth + 1),
+				build(nodes, median + 1, to, depth + 1));
+	}
+
+	private static Node insert(Node node, Node newNode, int depth)
+	{
+		if (node == null)
+		{
+			return new Node(newNode.foodTruck, newNode.point, depth % DIMENSION_COUNT, false, null, null);
+		}
+
+		if (newNode.point[node.axis] < node.point[node.axis])
+		{
+			return node.withChildren(insert(node.left, newNode, depth + 1), node.right);
+		}
+		else
+		{
+			return node.withChildren(node.left, insert(node.right, newNode, depth + 1));
+		}
+	}
+
+	/**
+	 * Returns the given subtree with the given food truck marked as removed.
+	 * If the food truck is not found, then the given subtree is returned.
+	 */
+	private static Node remove(Node node, FoodTruck foodTruck, double[] point)
+	{
+		if (node == null)
+		{
+			return null;
+		}
+
+		if (point[node.axis] < node.point[node.axis])
+		{
+			Node left = remove(node.left, foodTruck, point);
+			return (left == node.left) ? node : node.withChildren(left, node.right);
+		}
+		else if (! node.removed && node.foodTruck == foodTruck)
+		{
+			return new Node(node.foodTruck, node.point, node.axis, true, node.left, node.right);
+		}
+		else
+		{
+			Node right = remove(node.right, foodTruck, point);
+			return (right == node.right) ? node : node.withChildren(node.left, right);
+		}
+	}
+
+	/**
+	 * Converts the given position to a point on the unit sphere
+	 */
+	private static double[] toPoint(double latitude, double longitude)
+	{
+		double latitudeRad = Math.toRadians(latitude);
+		double longitudeRad = Math.toRadians(longitude);
+
+		return new double[] {
+				Math.cos(latitudeRad) * Math.cos(longitudeRad),
+				Math.cos(latitudeRad) * Math.sin(longitudeRad),
+				Math.sin(latitudeRad)};
+	}
+
+	private static double squaredDistance(double[] point1, double[] point2)
+	{
+		double dx = point1[0] - point2[0];
+		double dy = point1[1] - point2[1];
+		double dz = point1[2] - point2[2];
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	/**
+	 * Immutable tree node
+	 */
+	private static final class Node
+	{
+		final FoodTruck foodTruck;
+		final double[] point;
+		final int axis;
+		final boolean removed;
+		final Node left;
+		final Node right;
+
+		Node(FoodTruck foodTruck, double[] point)
+		{
+			this(foodTruck, point, 0, false, null, null);
+		}
+
+		Node(FoodTruck foodTruck, double[] point, int axis, boolean removed, Node left, Node right)
+		{
+			this.foodTruck = foodTruck;
+			this.point = point;
+			this.axis = axis;
+			this.removed = removed;
+			this.left = left;
+			this.right = right;
+		}
+
+		Node withChildren(Node left, Node right)
+		{
+			return new Node(foodTruck, point, axis, removed, left, right);
+		}
+	}
+
+	/**
+	 * A node (or the subtree under it) and its squared distance (or lower bound) to the target
+	 */
+	private static final class Candidate implements Comparable<Candidate>
+	{
+		final Node node;
+		final double distance;
+
+		Candidate(Node node, double distance)
+		{
+			this.node = node;
+			this.distance = distance;
+		}
+
+		@Override
+		public int compareTo(Candidate other)
+		{
+			return Double.compare(distance, other.distance);
+		}
+	}
+}
@@ -0,0 +1,280 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parser of the free text days and hours of the food trucks (e.g. "Mo-Fr:7AM-7PM", "Mo/We/Fr:11AM-2PM",
+ * "Sa-Su:8AM-4PM;Mo-Fr:9AM-2PM") into weekly intervals.
+ *
+ * A time is a minute of the week: Monday 00:00 is 0 and Sunday 23:59 is MINUTES_PER_WEEK - 1.
+ * Intervals are [start, end) pairs of minutes of the week, sorted and merged; an interval that passes
+ * the end of the week (e.g. "Su:10PM-2AM") is split at it. A range that ends before (or when) it starts
+ * ends on the next day, "12AM-12AM" is the whole day.
+ *
+ * Days are ranges ("Mo-Fr", "Fr-Mo" passes the end of the week) or lists ("Mo/We/Fr"); hours are ranges
+ * in 12-hour ("7AM-7PM", "10:30AM-2PM") or 24-hour ("07:00-19:00") format, a range applies to the days
+ * that precede it. The parser is lenient: separators are ignored, and a text without any day and hour range
+ * has no intervals (the food truck is never open).
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckOpeningHours
+{
+	// Constants ---------------------------------------------------------
+	public static final int MINUTES_PER_DAY = 24 * 60;
+	public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+	public static final ZoneId SAN_FRANCISCO_ZONE = ZoneId.of("America/Los_Angeles");
+	private static final int[] NO_INTERVALS = new int[0];
+	private static final List<String> DAYS = Arrays.asList("MO", "TU", "WE", "TH", "FR", "SA", "SU");
+	private static final String DAY = "(MO|TU|WE|TH|FR|SA|SU)[A-Z]*";
+	private static final String TIME = "(\\d{1,2})(?:[:.](\\d{2}))?(?:\\s*([AP])\\.?M\\.?)?";
+	private static final Pattern TOKEN_PATTERN = Pattern.compile(
+			"(?:" + DAY + "(?:\\s*-\\s*" + DAY + ")?)|(?:" + TIME + "\\s*-\\s*" + TIME + ")");
+	private static final Pattern OPEN_AT_PATTERN = Pattern.compile("\\s*" + DAY + "\\s*,?\\s*" + TIME + "\\s*");
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	private FoodTruckOpeningHours() {}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns the weekly intervals of the given days and hours
+	 *
+	 * @param dayshours Days and hours of a food truck, e.g. "Mo-Fr:7AM-7PM", may be null
+	 * @return Sorted and merged [start, end) minute of the week pairs, empty if no interval is found
+	 */
+	public static int[] parse(String dayshours)
+	{
+		if (dayshours == null || dayshours.isEmpty())
+		{
+			return NO_INTERVALS;
+		}
+
+		List<int[]> intervals = new ArrayList<int[]>();
+		boolean[] days = new boolean[DAYS.size()];
+		boolean hasDays = false;
+		boolean afterHours = false;
+
+		Matcher matcher = TOKEN_PATTERN.matcher(dayshours.toUpperCase(Locale.ROOT));
+		while (matcher.find())
+		{
+			if (matcher.group(1) != null)
+			{
+				// The days after an hour range start a new group of days
+				if (afterHours)
+				{
+					Arrays.fill(days, false);
+					afterHours = false;
+				}
+
+				int firstDay = DAYS.indexOf(matcher.group(1));
+				int lastDay = (matcher.group(2) != null) ? DAYS.indexOf(matcher.group(2)) : firstDay;
+				for (int day = firstDay; ; day = (day + 1) % DAYS.size())
+				{
+					days[day] = true;
+					if (day == lastDay)
+					{
+						break;
+					}
+				}
+				hasDays = true;
+			}
+			else if (hasDays)
+			{
+				int end = toMinuteOfDay(matcher.group(6), matcher.group(7), matcher.group(8));
+				int start = toMinuteOfDay(matcher.group(3), matcher.group(4),
+						(matcher.group(5) != null) ? matcher.group(5) : getMeridiem(matcher, end));
+				afterHours = true;
+
+				if (start < 0 || end < 0)
+				{
+					continue;
+				}
+
+				int length = (end > start) ? end - start : end + MINUTES_PER_DAY - start;
+				for (int day = 0; day < days.length; day++)
+				{
+					if (days[day])
+					{
+						addInterval(intervals, day * MINUTES_PER_DAY + start, length);
+					}
+				}
+			}
+		}
+
+		return merge(intervals);
+	}
+
+	/**
+	 * Returns true if the given minute of the week is in one of the given intervals
+	 *
+	 * @param intervals Intervals returned by parse()
+	 * @param minuteOfWeek Minute of the week
+	 * @return True if the food truck of the intervals is open at the given minute
+	 */
+	public static boolean isOpen(int[] intervals, int minuteOfWeek)
+	{
+		for (int i = 0; i < intervals.length; i += 2)
+		{
+			if (minuteOfWeek >= intervals[i] && minuteOfWeek < intervals[i + 1])
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the minute of the week of the given time
+	 *
+	 * @param dateTime Local time
+	 * @return The minute of the week
+	 */
+	public static int getMinuteOfWeek(LocalDateTime dateTime)
+	{
+		return (dateTime.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY
+				+ dateTime.getHour() * 60 + dateTime.getMinute();
+	}
+
+	/**
+	 * Returns the current minute of the week in San Francisco
+	 *
+	 * @return The current minute of the week
+	 */
+	public static int getCurrentMinuteOfWeek()
+	{
+		return getMinuteOfWeek(LocalDateTime.now(SAN_FRANCISCO_ZONE));
+	}
+
+	/**
+	 * Parses a time of the week: a day and a time (e.g. "Mo 13:30", "Fr 7:15PM", "Sunday 9AM")
+	 * or an ISO local date and time (e.g. "2017-10-02T13:30").
+	 *
+	 * @param openAt Time of the week
+	 * @return The minute of the week, -1 if the time is invalid
+	 */
+	public static int parseMinuteOfWeek(String openAt)
+	{
+		Matcher matcher = OPEN_AT_PATTERN.matcher(openAt.toUpperCase(Locale.ROOT));
+		if (matcher.matches())
+		{
+			int minuteOfDay = toMinuteOfDay(matcher.group(2), matcher.group(3), matcher.group(4));
+			return (minuteOfDay >= 0 && minuteOfDay < MINUTES_PER_DAY)
+					? DAYS.indexOf(matcher.group(1)) * MINUTES_PER_DAY + minuteOfDay
+					: -1;
+		}
+
+		try
+		{
+			return getMinuteOfWeek(LocalDateTime.parse(openAt.trim()));
+		}
+		catch (DateTimeParseException e)
+		{
+			// Not a time of the week either, the caller rejects the request
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns the minute of the day of the given hour, minute and meridiem ("A", "P" or null for 24-hour times),
+	 * -1 if they are invalid. Midnight at the end of a day is 24:00, so it is returned as 1440; 24:01 and later are invalid.
+	 */
+	private static int toMinuteOfDay(String hourStr, String minuteStr, String meridiem)
+	{
+		int hour = Integer.parseInt(hourStr);
+		int minute = (minuteStr != null) ? Integer.parseInt(minuteStr) : 0;
+
+		if (minute >= 60 || (meridiem != null && (hour < 1 || hour > 12)) || hour > 24 || (hour == 24 && minute > 0))
+		{
+			return -1;
+		}
+
+		if (meridiem != null)
+		{
+			hour = (hour % 12) + ("P".equals(meridiem) ? 12 : 0);
+		}
+
+		return hour * 60 + minute;
+	}
+
+	/**
+	 * Returns the meridiem of a range start that has none (e.g. "10-2PM"): the meridiem of the end,
+	 * unless the start would then be after the end
+	 */
+	private static String getMeridiem(Matcher matcher, int end)
+	{
+		String endMeridiem = matcher.group(8);
+		if (endMeridiem == null)
+		{
+			return null;
+		}
+
+		int start = toMinuteOfDay(matcher.group(3), matcher.group(4), endMeridiem);
+		return ("P".equals(endMeridiem) && start > end) ? "A" : endMeridiem;
+	}
+
+	/**
+	 * Adds the interval of the given start and length, split at the end of the week
+	 */
+	private static void addInterval(List<int[]> intervals, int start, int length)
+	{
+		int end = start + length;
+		if (end > MINUTES_PER_WEEK)
+		{
+			intervals.add(new int[] {start, MINUTES_PER_WEEK});
+			intervals.add(new int[] {0, end - MINUTES_PER_WEEK});
+		}
+		else
+		{
+			intervals.add(new int[] {start, end});
+		}
+	}
+
+	/**
+	 * Returns the sorted and merged [start, end) pairs of the given intervals
+	 */
+	private static int[] merge(List<int[]> intervals)
+	{
+		if (intervals.isEmpty())
+		{
+			return NO_INTERVALS;
+		}
+
+		int[][] sortedIntervals = intervals.toArray(new int[intervals.size()][]);
+		Arrays.sort(sortedIntervals, new Comparator<int[]>()
+		{
+			@Override
+			public int compare(int[] first, int[] second)
+			{
+				return Integer.compare(first[0], second[0]);
+			}
+		});
+
+		int[] result = new int[2 * sortedIntervals.length];
+		int count = 0;
+		for (int[] interval : sortedIntervals)
+		{
+			if (count > 0 && interval[0] <= result[count - 1])
+			{
+				result[count - 1] = Math.max(result[count - 1], interval[1]);
+			}
+			else
+			{
+				result[count++] = interval[0];
+				result[count++] = interval[1];
+			}
+		}
+
+		return Arrays.copyOf(result, count);
+	}
+}
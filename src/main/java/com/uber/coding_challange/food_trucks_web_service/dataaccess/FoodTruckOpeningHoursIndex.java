@@ -0,0 +1,209 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Interval index of the opening hours of the food trucks (see FoodTruckOpeningHours), keyed by minute of the week.
+ *
+ * The week is split into segments at the start and the end of every indexed interval, so the food trucks
+ * that are open do not change within a segment. Every segment has the bitmap of the column store rows
+ * that are open during it (a bitmap index keyed by the first minute of the segment), and the open rows
+ * of a minute are the bitmap of the segment that contains it: a binary search over the segment starts.
+ * Opening hours are given in whole hours or half hours, so there are a few hundred segments at most.
+ *
+ * Segments are split when a new boundary is added and never merged (the bitmaps of the unused
+ * segments are removed with their last row). The segment before the first boundary continues
+ * the last segment of the week, since the week wraps around.
+ *
+ * The days and hours are parsed when a row is added or removed. The parsed intervals of the recent distinct
+ * days and hours are cached, since they repeat across the food trucks (e.g. every location of a permit).
+ *
+ * Copies share the boundaries and the bitmaps with the original index until they are modified,
+ * an index that is published in a snapshot is never modified. Copies also share the parse cache,
+ * which is only used by the writer (see FoodTruckWriteSession).
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckOpeningHoursIndex
+{
+	// Constants ---------------------------------------------------------
+	private static final int PARSE_CACHE_CAPACITY = 4096; // distinct days and hours
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private int[] boundaries; // first minutes of the segments, sorted; replaced (never modified) when a boundary is added
+	private final FoodTruckBitmapIndex<Integer> segmentBitmaps;
+	private final HashMap<String, int[]> parseCache;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckOpeningHoursIndex()
+	{
+		boundaries = new int[0];
+		segmentBitmaps = new FoodTruckBitmapIndex<Integer>();
+		parseCache = new HashMap<String, int[]>();
+	}
+
+	/**
+	 * Creates a modifiable copy of the given index.
+	 * Boundaries and bitmaps are shared until they are modified.
+	 *
+	 * @param openingHoursIndex The index that will be copied
+	 */
+	public FoodTruckOpeningHoursIndex(FoodTruckOpeningHoursIndex openingHoursIndex)
+	{
+		boundaries = openingHoursIndex.boundaries;
+		segmentBitmaps = new FoodTruckBitmapIndex<Integer>(openingHoursIndex.segmentBitmaps);
+		parseCache = openingHoursIndex.parseCache;
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Adds the given row to the segments of its opening hours
+	 *
+	 * @param dayshours Days and hours of the row, e.g. "Mo-Fr:7AM-7PM" (see FoodTruckOpeningHours), may be null
+	 * @param row Row id
+	 */
+	public void add(String dayshours, int row)
+	{
+		int[] intervals = getIntervals(dayshours);
+
+		for (int i = 0; i < intervals.length; i += 2)
+		{
+			addBoundary(intervals[i]);
+			addBoundary(intervals[i + 1] % FoodTruckOpeningHours.MINUTES_PER_WEEK);
+		}
+
+		for (int i = 0; i < intervals.length; i += 2)
+		{
+			for (int index = getSegmentIndex(intervals[i]);
+					index < boundaries.length && boundaries[index] < intervals[i + 1]; index++)
+			{
+				segmentBitmaps.add(boundaries[index], row);
+			}
+		}
+	}
+
+	/**
+	 * Removes the given row from the segments of its opening hours
+	 *
+	 * @param dayshours Days and hours of the row, the same value that was added
+	 * @param row Row id
+	 */
+	public void remove(String dayshours, int row)
+	{
+		int[] intervals = getIntervals(dayshours);
+
+		for (int i = 0; i < intervals.length; i += 2)
+		{
+			for (int index = getSegmentIndex(intervals[i]);
+					index < boundaries.length && boundaries[index] < intervals[i + 1]; index++)
+			{
+				segmentBitmaps.remove(boundaries[index], row);
+			}
+		}
+	}
+
+	/**
+	 * Returns the rows that are open at the given minute of the week
+	 *
+	 * @param minuteOfWeek Minute of the week, [0, FoodTruckOpeningHours.MINUTES_PER_WEEK)
+	 * @return The bitmap of the open rows (must not be modified), null if no row is open
+	 */
+	public FoodTruckBitmap get(int minuteOfWeek)
+	{
+		int[] currentBoundaries = boundaries;
+		if (currentBoundaries.length == 0)
+		{
+			return null;
+		}
+
+		int index = getSegmentIndex(currentBoundaries, minuteOfWeek);
+		// Before the first boundary, the last segment of the previous week continues
+		return segmentBitmaps.get(currentBoundaries[(index >= 0) ? index : currentBoundaries.length - 1]);
+	}
+
+	/**
+	 * Returns the number of the segments
+	 *
+	 * @return The number of the segment boundaries
+	 */
+	public int getSegmentCount()
+	{
+		return boundaries.length;
+	}
+
+	/**
+	 * Returns the parsed intervals of the given days and hours, from the parse cache if they are parsed recently
+	 */
+	private int[] getIntervals(String dayshours)
+	{
+		if (dayshours == null)
+		{
+			return FoodTruckOpeningHours.parse(null);
+		}
+
+		int[] intervals = parseCache.get(dayshours);
+		if (intervals == null)
+		{
+			if (parseCache.size() == PARSE_CACHE_CAPACITY)
+			{
+				parseCache.clear();
+			}
+			intervals = FoodTruckOpeningHours.parse(dayshours);
+			parseCache.put(dayshours, intervals);
+		}
+		return intervals;
+	}
+
+	/**
+	 * Adds the given boundary if it is new: the segment that contains it is split,
+	 * and the new segment starts with a copy of the rows of the split segment
+	 */
+	private void addBoundary(int boundary)
+	{
+		int index = Arrays.binarySearch(boundaries, boundary);
+		if (index >= 0)
+		{
+			return;
+		}
+
+		int insertionIndex = -index - 1;
+		if (boundaries.length > 0)
+		{
+			int splitBoundary = boundaries[(insertionIndex > 0) ? insertionIndex - 1 : boundaries.length - 1];
+			FoodTruckBitmap splitBitmap = segmentBitmaps.get(splitBoundary);
+			if (splitBitmap != null)
+			{
+				segmentBitmaps.put(boundary, splitBitmap);
+			}
+		}
+
+		int[] newBoundaries = new int[boundaries.length + 1];
+		System.arraycopy(boundaries, 0, newBoundaries, 0, insertionIndex);
+		newBoundaries[insertionIndex] = boundary;
+		System.arraycopy(boundaries, insertionIndex, newBoundaries, insertionIndex + 1,
+				boundaries.length - insertionIndex);
+		boundaries = newBoundaries;
+	}
+
+	/**
+	 * Returns the index of the segment that starts at the given minute (the minute must be a boundary)
+	 */
+	private int getSegmentIndex(int minuteOfWeek)
+	{
+		return Arrays.binarySearch(boundaries, minuteOfWeek);
+	}
+
+	/**
+	 * Returns the index of the segment that contains the given minute in the given boundaries,
+	 * -1 if the minute is before the first boundary
+	 */
+	private static int getSegmentIndex(int[] boundaries, int minuteOfWeek)
+	{
+		int index = Arrays.binarySearch(boundaries, minuteOfWeek);
+		return (index >= 0) ? index : -index - 2;
+	}
+}
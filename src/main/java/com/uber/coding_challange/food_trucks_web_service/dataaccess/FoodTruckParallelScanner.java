@@ -0,0 +1,198 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The Parallel Scanner class. Singleton pattern is used.
+ * Evaluates a row filter on the column store with several threads: the rows are split in partitions
+ * of PARTITION_SIZE rows (the latitude, longitude and status columns of a partition fit in the L2 cache
+ * of a core), every partition collects its accepted rows in its own buffer, and the buffers are merged
+ * in row order. Therefore, the food trucks are visited in the same order with a sequential scan,
+ * and the visitor is only called by the calling thread.
+ *
+ * Stores with fewer rows than the threshold are scanned sequentially, since splitting a small scan
+ * costs more than it saves: handing a scan to the pool costs about 40-65 us, and the partition buffers
+ * make the checked rows about 15% slower (see FoodTruckScanBenchmark). The default threshold is 4 partitions,
+ * about 1 ms of sequential scan, which is the smallest store that still runs 1.5 times faster on 2 cores.
+ * Partitions run on a dedicated fork-join pool.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckParallelScanner
+{
+	// Constants ---------------------------------------------------------
+	public static final int DEFAULT_THRESHOLD = 32768; // rows, 4 partitions
+	private static final int PARTITION_SIZE = 8192; // rows, 136 KB of latitude, longitude and status columns
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private volatile ForkJoinPool pool = createPool(Runtime.getRuntime().availableProcessors());
+	private volatile int threshold = DEFAULT_THRESHOLD;
+	// -------------------------------------------------------------------
+
+	// SINGLETON Implementation ------------------------------------------
+	private static FoodTruckParallelScanner INSTANCE = new FoodTruckParallelScanner();
+	private FoodTruckParallelScanner() {}
+	public static FoodTruckParallelScanner getInstance() {return INSTANCE;}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Passes the food trucks of the given store that are accepted by the given filter to the given visitor,
+	 * in row order, until the visitor stops the scan.
+	 * If the store has fewer rows than the threshold (or the pool has a single thread),
+	 * then the store is scanned sequentially.
+	 * Otherwise, all the rows are checked before the first food truck is visited.
+	 *
+	 * @param columnStore Column store of a frozen snapshot
+	 * @param filter Row filter, called by several threads at the same time
+	 * @param visitor Receives the accepted food trucks
+	 * @return False if the visitor stopped the scan, true otherwise
+	 */
+	public boolean scan(FoodTruckColumnStore columnStore, FoodTruckRowFilter filter, FoodTruckVisitor visitor)
+	{
+		ForkJoinPool currentPool = pool;
+		int size = columnStore.size();
+
+		if (size < threshold || currentPool.getParallelism() < 2)
+		{
+			return columnStore.scan(filter, visitor);
+		}
+
+		int[][] partitionRows = new int[(size + PARTITION_SIZE - 1) / PARTITION_SIZE][];
+		PartitionTask task = new PartitionTask(columnStore, filter, partitionRows, 0, partitionRows.length);
+
+		try
+		{
+			currentPool.invoke(task);
+		}
+		catch (RejectedExecutionException e)
+		{
+			// The pool is replaced (see setParallelism) after this scan obtained it
+			pool.invoke(task);
+		}
+
+		// Merge the buffers of the partitions in row order
+		for (int[] rows : partitionRows)
+		{
+			for (int row : rows)
+			{
+				if (! visitor.visit(columnStore.getFoodTruck(row)))
+				{
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Sets the number of the worker threads of the scan pool.
+	 * The current pool finishes its running scans and is shut down.
+	 *
+	 * @param parallelism Number of the worker threads, the number of the processors if it is not positive
+	 */
+	public void setParallelism(int parallelism)
+	{
+		ForkJoinPool previousPool = pool;
+		pool = createPool((parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors());
+		previousPool.shutdown();
+	}
+
+	/**
+	 * Returns the number of the worker threads of the scan pool
+	 *
+	 * @return The parallelism of the scan pool
+	 */
+	public int getParallelism()
+	{
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Sets the minimum number of the rows of a store that is scanned in parallel
+	 *
+	 * @param threshold Number of rows, DEFAULT_THRESHOLD if it is not positive
+	 */
+	public void setThreshold(int threshold)
+	{
+		this.threshold = (threshold > 0) ? threshold : DEFAULT_THRESHOLD;
+	}
+
+	/**
+	 * Returns the minimum number of the rows of a store that is scanned in parallel
+	 *
+	 * @return The threshold in rows
+	 */
+	public int getThreshold()
+	{
+		return threshold;
+	}
+
+	/**
+	 * Creates the fork-join pool of the scans, its workers are daemon threads
+	 */
+	private static ForkJoinPool createPool(int parallelism)
+	{
+		return new ForkJoinPool(parallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory()
+		{
+			@Override
+			public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+			{
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName("food-truck-scan-" + thread.getPoolIndex());
+				return thread;
+			}
+		}, null, false);
+	}
+
+	/**
+	 * Scans the partitions [from, to); ranges of more than one partition are split in two halves
+	 * that are scanned in parallel. Every task writes the buffers of its own partitions,
+	 * the buffers are read after the root task is joined.
+	 */
+	private static final class PartitionTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final FoodTruckColumnStore columnStore;
+		private final FoodTruckRowFilter filter;
+		private final int[][] partitionRows;
+		private final int from;
+		private final int to;
+
+		PartitionTask(
+				FoodTruckColumnStore columnStore,
+				FoodTruckRowFilter filter,
+				int[][] partitionRows,
+				int from,
+				int to)
+		{
+			this.columnStore = columnStore;
+			this.filter = filter;
+			this.partitionRows = partitionRows;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from == 1)
+			{
+				int firstRow = from * PARTITION_SIZE;
+				int lastRow = Math.min(firstRow + PARTITION_SIZE, columnStore.size());
+				partitionRows[from] = columnStore.scanRows(filter, firstRow, lastRow);
+				return;
+			}
+
+			int middle = (from + to) >>> 1;
+			invokeAll(new PartitionTask(columnStore, filter, partitionRows, from, middle),
+					new PartitionTask(columnStore, filter, partitionRows, middle, to));
+		}
+	}
+}
@@ -0,0 +1,24 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+
+/**
+ * Predicate that is evaluated on the primitive columns of a food truck row.
+ * Implementations must not allocate, since they are called once for every row of a scan.
+ *
+ * @author alper.karacelik
+ *
+ */
+public interface FoodTruckRowFilter
+{
+	/**
+	 * Returns true if the food truck with the given column values is accepted
+	 *
+	 * @param objectid Object id of the food truck
+	 * @param latitude Latitude of the food truck (in decimal degrees)
+	 * @param longitude Longitude of the food truck (in decimal degrees)
+	 * @param status Status of the food truck
+	 * @return True if the food truck is accepted, false otherwise
+	 */
+	boolean accept(long objectid, double latitude, double longitude, FoodTruckStatusEnum status);
+}
@@ -0,0 +1,745 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckCluster;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+
+/**
+ * Immutable, versioned view of the food truck storage.
+ * Holds the food truck map, the status map, the grid index, the KD-tree, 
+ * the column store (with its bitmap indexes), the text index and the cluster index of one version.
+ * Food Truck Accessor publishes the current snapshot through a single volatile reference;
+ * readers never lock, and a reader that obtained a snapshot sees all of its maps and indexes
+ * in the same version.
+ *
+ * Writers create the next snapshot as a copy of the current one, apply their changes to the copy
+ * and freeze it before publishing. Lists and cells that are not modified are shared between versions.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckSnapshot
+{
+	// Attributes --------------------------------------------------------
+	private final long version;
+	private final HashMap<Long, FoodTruck> foodTruckMap;
+	private final HashMap<FoodTruckStatusEnum, List<FoodTruck>> statusMap;
+	private final FoodTruckGridIndex gridIndex;
+	private FoodTruckKdTree kdTree;
+	private final FoodTruckColumnStore columnStore;
+	private final FoodTruckTextIndex textIndex;
+	private final FoodTruckClusterIndex clusterIndex;
+	private volatile List<FoodTruck> readOnlyFoodTrucks; // all the food trucks, created on the first request of ALL
+	private volatile FoodTruck[] objectidOrder; // all the food trucks sorted by objectid, created on the first seek
+
+	// Used only while the snapshot is built, null after it is frozen
+	private EnumSet<FoodTruckStatusEnum> ownedStatusLists;
+	private Set<FoodTruck> statusRemoves;
+	private Set<FoodTruck> kdTreeInserts;
+	private List<FoodTruck> kdTreeRemoves;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	/**
+	 * Creates an empty snapshot (version 0)
+	 */
+	FoodTruckSnapshot()
+	{
+		this.version = 0;
+		this.foodTruckMap = new HashMap<Long, FoodTruck>();
+		this.statusMap = new HashMap<FoodTruckStatusEnum, List<FoodTruck>>();
+		this.gridIndex = new FoodTruckGridIndex();
+		this.kdTree = new FoodTruckKdTree();
+		this.columnStore = new FoodTruckColumnStore();
+		this.textIndex = new FoodTruckTextIndex();
+		this.clusterIndex = new FoodTruckClusterIndex();
+		freeze();
+	}
+
+	/**
+	 * Creates the next version of the given snapshot.
+	 * The new snapshot can be modified until it is frozen.
+	 *
+	 * @param previous Current snapshot
+	 */
+	FoodTruckSnapshot(FoodTruckSnapshot previous)
+	{
+		this.version = previous.version + 1;
+		this.foodTruckMap = new HashMap<Long, FoodTruck>(previous.foodTruckMap);
+		this.statusMap = new HashMap<FoodTruckStatusEnum, List<FoodTruck>>(previous.statusMap);
+		this.gridIndex = new FoodTruckGridIndex(previous.gridIndex);
+		this.kdTree = previous.kdTree;
+		this.columnStore = new FoodTruckColumnStore(previous.columnStore);
+		this.textIndex = new FoodTruckTextIndex(previous.textIndex);
+		this.clusterIndex = new FoodTruckClusterIndex(previous.clusterIndex);
+		this.ownedStatusLists = EnumSet.noneOf(FoodTruckStatusEnum.class);
+		this.statusRemoves = new HashSet<FoodTruck>();
+		this.kdTreeInserts = new HashSet<FoodTruck>();
+		this.kdTreeRemoves = new ArrayList<FoodTruck>();
+	}
+	// -------------------------------------------------------------------
+
+	// Read Methods ------------------------------------------------------
+	/**
+	 * Returns the version of the snapshot. Every published snapshot has a greater version.
+	 *
+	 * @return The version of the snapshot
+	 */
+	public long getVersion()
+	{
+		return version;
+	}
+
+	/**
+	 * Returns the number of food trucks in the snapshot
+	 *
+	 * @return The number of food trucks in the snapshot
+	 */
+	public int size()
+	{
+		return foodTruckMap.size();
+	}
+
+	/**
+	 * Returns all the food trucks in the snapshot
+	 *
+	 * @return All the food trucks in the snapshot
+	 */
+	public List<FoodTruck> getAllFoodTrucks()
+	{
+		return new ArrayList<FoodTruck>(foodTruckMap.values());
+	}
+
+	/**
+	 * Returns the food trucks that have the specified status.
+	 * If the specified status is ALL, then all food trucks are returned; the list is created once per snapshot
+	 * and shared by the callers.
+	 * If the specified status is NO_STATEMENT, then an empty list is returned.
+	 * If no food truck has ever had the specified status, then null is returned.
+	 *
+	 * @param status Food Truck Status for querying
+	 * @return The food trucks which have the specified status (read-only)
+	 */
+	public List<FoodTruck> getFoodTrucks(FoodTruckStatusEnum status)
+	{
+		if (status == FoodTruckStatusEnum.ALL)
+		{
+			List<FoodTruck> foodTrucks = readOnlyFoodTrucks;
+			if (foodTrucks == null)
+			{
+				foodTrucks = Collections.unmodifiableList(getAllFoodTrucks());
+				// Only a frozen snapshot keeps the list; concurrent first requests may create it more than once,
+				// every copy has the same trucks
+				if (kdTreeInserts == null)
+				{
+					readOnlyFoodTrucks = foodTrucks;
+				}
+			}
+			return foodTrucks;
+		}
+		else if (status == FoodTruckStatusEnum.NO_STATEMENT)
+		{
+			return Collections.emptyList();
+		}
+		else
+		{
+			List<FoodTruck> foodTrucks = statusMap.get(status);
+			return (foodTrucks == null) ? null : Collections.unmodifiableList(foodTrucks);
+		}
+	}
+
+	/**
+	 * Passes the food trucks that have the specified status to the given visitor,
+	 * until the visitor stops the traversal. No list is created.
+	 * If the specified status is ALL, then all food trucks are passed.
+	 *
+	 * @param status Food Truck Status for querying
+	 * @param visitor Receives the food trucks
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	public boolean visitFoodTrucks(FoodTruckStatusEnum status, FoodTruckVisitor visitor)
+	{
+		Collection<FoodTruck> foodTrucks;
+
+		if (status == FoodTruckStatusEnum.ALL)
+		{
+			foodTrucks = foodTruckMap.values();
+		}
+		else
+		{
+			foodTrucks = statusMap.get(status);
+			if (foodTrucks == null)
+			{
+				return true;
+			}
+		}
+
+		for (FoodTruck foodTruck : foodTrucks)
+		{
+			if (! visitor.visit(foodTruck))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Passes the food trucks whose objectids are greater than the given one to the given visitor in objectid order,
+	 * until the visitor stops the traversal. The food trucks are sorted by objectid once per snapshot
+	 * (on the first call), then a traversal starts with a binary search.
+	 *
+	 * @param afterObjectid Only the food trucks with greater objectids are passed
+	 * @param visitor Receives the food trucks
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	public boolean visitFoodTrucksAfter(long afterObjectid, FoodTruckVisitor visitor)
+	{
+		FoodTruck[] foodTrucks = getObjectidOrder();
+
+		// First food truck after the given objectid
+		int low = 0;
+		int high = foodTrucks.length;
+		while (low < high)
+		{
+			int middle = (low + high) >>> 1;
+			if (foodTrucks[middle].getObjectid() <= afterObjectid)
+			{
+				low = middle + 1;
+			}
+			else
+			{
+				high = middle;
+			}
+		}
+
+		for (int i = low; i < foodTrucks.length; i++)
+		{
+			if (! visitor.visit(foodTrucks[i]))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the number of the food trucks that have the specified status.
+	 * If the specified status is ALL, then the number of all food trucks is returned.
+	 *
+	 * @param status Food Truck Status
+	 * @return The number of the food trucks which have the specified status
+	 */
+	public int getStatusCount(FoodTruckStatusEnum status)
+	{
+		if (status == FoodTruckStatusEnum.ALL)
+		{
+			return foodTruckMap.size();
+		}
+
+		List<FoodTruck> foodTrucks = statusMap.get(status);
+		return (foodTrucks == null) ? 0 : foodTrucks.size();
+	}
+
+	/**
+	 * Returns the food truck with the given id
+	 *
+	 * @param id Object id of a food truck
+	 * @return The food truck with the given id
+	 */
+	public FoodTruck getFoodTruck(long id)
+	{
+		return foodTruckMap.get(id);
+	}
+
+	/**
+	 * Returns true if a food truck with given id exist, false otherwise
+	 *
+	 * @param id Object id of a food truck
+	 * @return True if a food truck with given id exist, false otherwise
+	 */
+	public boolean foodTruckExist(long id)
+	{
+		return foodTruckMap.containsKey(id);
+	}
+
+	/**
+	 * Returns the food trucks that reside in the grid cells overlapping the given bounding box.
+	 * Returned list is a candidate list, exact position checks are left to the caller.
+	 *
+	 * @param minLatitude Southern edge of the box (in decimal degrees)
+	 * @param minLongitude Western edge of the box (in decimal degrees)
+	 * @param maxLatitude Northern edge of the box (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the box (in decimal degrees)
+	 * @return The food trucks in the grid cells that overlap the given bounding box
+	 */
+	public List<FoodTruck> getFoodTrucksInsideBox(
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude)
+	{
+		return gridIndex.getCandidates(minLatitude, minLongitude, maxLatitude, maxLongitude);
+	}
+
+	/**
+	 * Passes the food trucks that reside in the grid cells overlapping the given bounding box
+	 * to the given visitor, until the visitor stops the traversal.
+	 * Exact position checks are left to the visitor.
+	 *
+	 * @param minLatitude Southern edge of the box (in decimal degrees)
+	 * @param minLongitude Western edge of the box (in decimal degrees)
+	 * @param maxLatitude Northern edge of the box (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the box (in decimal degrees)
+	 * @param visitor Receives the food trucks
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	public boolean visitFoodTrucksInsideBox(
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude,
+			FoodTruckVisitor visitor)
+	{
+		return gridIndex.visitCandidates(minLatitude, minLongitude, maxLatitude, maxLongitude, visitor);
+	}
+
+	/**
+	 * Returns the estimated number of the food trucks that reside in the grid cells 
+	 * overlapping the given bounding box (see FoodTruckGridIndex.estimateCandidates()).
+	 *
+	 * @param minLatitude Southern edge of the box (in decimal degrees)
+	 * @param minLongitude Western edge of the box (in decimal degrees)
+	 * @param maxLatitude Northern edge of the box (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the box (in decimal degrees)
+	 * @return The estimated number of the food trucks in the grid cells that overlap the given bounding box
+	 */
+	public long estimateFoodTrucksInsideBox(
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude)
+	{
+		return gridIndex.estimateCandidates(minLatitude, minLongitude, maxLatitude, maxLongitude);
+	}
+
+	/**
+	 * Returns the number of the grid cells that are looked up for the given bounding box
+	 *
+	 * @param minLatitude Southern edge of the box (in decimal degrees)
+	 * @param minLongitude Western edge of the box (in decimal degrees)
+	 * @param maxLatitude Northern edge of the box (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the box (in decimal degrees)
+	 * @return The number of the grid cells that are looked up for the given bounding box
+	 */
+	public long getGridCellCountInsideBox(
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude)
+	{
+		return gridIndex.getVisitedCellCount(minLatitude, minLongitude, maxLatitude, maxLongitude);
+	}
+
+	/**
+	 * Returns the marker clusters of the given zoom level inside the given viewport
+	 * (see FoodTruckClusterIndex)
+	 *
+	 * @param zoom Zoom level of the map
+	 * @param minLatitude Southern edge of the viewport (in decimal degrees)
+	 * @param minLongitude Western edge of the viewport (in decimal degrees)
+	 * @param maxLatitude Northern edge of the viewport (in decimal degrees)
+	 * @param maxLongitude Eastern edge of the viewport (in decimal degrees)
+	 * @return The clusters of the viewport
+	 */
+	public List<FoodTruckCluster> getClusters(
+			int zoom,
+			double minLatitude,
+			double minLongitude,
+			double maxLatitude,
+			double maxLongitude)
+	{
+		return clusterIndex.getClusters(zoom, minLatitude, minLongitude, maxLatitude, maxLongitude, foodTruckMap);
+	}
+
+	/**
+	 * Returns at most 'k' food trucks that are nearest to the given position and have the given status.
+	 * If the specified status is NO_STATEMENT, then an empty list is returned.
+	 *
+	 * @param latitude Latitude of the position (in decimal degrees)
+	 * @param longitude Longitude of the position (in decimal degrees)
+	 * @param k Maximum number of food trucks
+	 * @param status Food Truck Status for querying
+	 * @return Nearest food trucks, sorted by their distance to the given position
+	 */
+	public List<FoodTruck> getNearestFoodTrucks(
+			double latitude,
+			double longitude,
+			int k,
+			FoodTruckStatusEnum status)
+	{
+		if (status == FoodTruckStatusEnum.NO_STATEMENT)
+		{
+			return new ArrayList<FoodTruck>();
+		}
+
+		return kdTree.nearest(latitude, longitude, k, status);
+	}
+
+	/**
+	 * Returns the food trucks that are accepted by the given filter.
+	 * Every food truck is checked, but the filter only reads the primitive columns.
+	 *
+	 * @param filter Row filter
+	 * @return The food trucks that are accepted by the given filter
+	 */
+	public List<FoodTruck> scan(FoodTruckRowFilter filter)
+	{
+		return columnStore.scan(filter);
+	}
+
+	/**
+	 * Passes the food trucks that are accepted by the given filter to the given visitor,
+	 * until the visitor stops the scan.
+	 *
+	 * @param filter Row filter
+	 * @param visitor Receives the accepted food trucks
+	 * @return False if the visitor stopped the scan, true otherwise
+	 */
+	public boolean scan(FoodTruckRowFilter filter, FoodTruckVisitor visitor)
+	{
+		return columnStore.scan(filter, visitor);
+	}
+
+	/**
+	 * Passes the food trucks that are accepted by the given filter to the given visitor, in row order,
+	 * until the visitor stops the scan. The rows are checked in parallel if there are enough of them
+	 * (see FoodTruckParallelScanner); the visitor is called by the calling thread.
+	 *
+	 * @param filter Row filter, called by several threads at the same time
+	 * @param visitor Receives the accepted food trucks
+	 * @return False if the visitor stopped the scan, true otherwise
+	 */
+	public boolean parallelScan(FoodTruckRowFilter filter, FoodTruckVisitor visitor)
+	{
+		return FoodTruckParallelScanner.getInstance().scan(columnStore, filter, visitor);
+	}
+
+	/**
+	 * Returns the sorted object ids of the food trucks whose food items or applicant
+	 * contain all the words of the given text (see FoodTruckTextIndex)
+	 *
+	 * @param text Query text
+	 * @return The object ids of the matching food trucks (must not be modified)
+	 */
+	public long[] searchText(String text)
+	{
+		return textIndex.search(text);
+	}
+
+	/**
+	 * Passes the food trucks whose food items or applicant contain all the words of the given text
+	 * to the given visitor in the order of their object ids, until the visitor stops the traversal.
+	 *
+	 * @param text Query text
+	 * @param visitor Receives the matching food trucks
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	public boolean visitFoodTrucksMatchingText(String text, FoodTruckVisitor visitor)
+	{
+		for (long id : textIndex.search(text))
+		{
+			if (! visitor.visit(foodTruckMap.get(id)))
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the rows of the food trucks that are accepted by the given attribute filter.
+	 * The filter is evaluated on the bitmap indexes, no food truck is read.
+	 *
+	 * @param filter Attribute filter
+	 * @return The rows (of the column store of this snapshot) of the accepted food trucks
+	 */
+	public FoodTruckBitmap evaluate(FoodTruckFilter filter)
+	{
+		return filter.evaluate(columnStore, textIndex);
+	}
+
+	/**
+	 * Passes the food trucks that are accepted by the given attribute filter and the given row filter
+	 * to the given visitor, until the visitor stops the traversal.
+	 * The attribute filter is evaluated on the bitmap indexes first; the row filter only reads
+	 * the primitive columns of the resulting rows.
+	 *
+	 * @param filter Attribute filter
+	 * @param rowFilter Row filter (e.g. a circle), null to accept all the rows of the attribute filter
+	 * @param visitor Receives the accepted food trucks
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	public boolean visitFoodTrucks(FoodTruckFilter filter, FoodTruckRowFilter rowFilter, FoodTruckVisitor visitor)
+	{
+		return columnStore.scan(evaluate(filter), rowFilter, visitor);
+	}
+
+	/**
+	 * Passes the food trucks of the given rows that are accepted by the given row filter
+	 * to the given visitor, until the visitor stops the traversal.
+	 *
+	 * @param rows Rows of the column store of this snapshot (see evaluate())
+	 * @param rowFilter Row filter (e.g. a circle), null to accept all the given rows
+	 * @param visitor Receives the accepted food trucks
+	 * @return False if the visitor stopped the traversal, true otherwise
+	 */
+	public boolean visitFoodTrucks(FoodTruckBitmap rows, FoodTruckRowFilter rowFilter, FoodTruckVisitor visitor)
+	{
+		return columnStore.scan(rows, rowFilter, visitor);
+	}
+
+	/**
+	 * Returns true if the row of the food truck with the given id is one of the given rows
+	 *
+	 * @param rows Rows of the column store of this snapshot (see evaluate())
+	 * @param id Object id of a food truck
+	 * @return True if the food truck is in the given rows, false otherwise
+	 */
+	public boolean containsRow(FoodTruckBitmap rows, long id)
+	{
+		int row = columnStore.getRow(id);
+		return row >= 0 && rows.contains(row);
+	}
+
+	/**
+	 * Returns the number of the food trucks that contain the given term of the text index
+	 *
+	 * @param term A term (see FoodTruckTextIndex.tokenize())
+	 * @return The number of the food trucks that contain the term
+	 */
+	public int getTextPostingCount(String term)
+	{
+		return textIndex.getPostingCount(term);
+	}
+	// -------------------------------------------------------------------
+
+	// Write Methods (only before the snapshot is frozen) ----------------
+	/**
+	 * Adds the given food truck.
+	 * If a food truck with the same object id exists, then it is updated instead.
+	 *
+	 * @param foodTruck new food truck
+	 */
+	void add(FoodTruck foodTruck)
+	{
+		if (foodTruckMap.containsKey(foodTruck.getObjectid()))
+		{
+			update(foodTruck);
+		}
+		else
+		{
+			foodTruckMap.put(foodTruck.getObjectid(), foodTruck);
+			addToIndexes(foodTruck);
+		}
+	}
+
+	/**
+	 * Updates the given food truck.
+	 * If there no food truck with the object id of the given food truck, then does nothing.
+	 *
+	 * @param foodTruck updated food truck
+	 */
+	void update(FoodTruck foodTruck)
+	{
+		FoodTruck existingFoodTruck = foodTruckMap.get(foodTruck.getObjectid());
+
+		// Continue only if the given food truck already exist
+		if (existingFoodTruck != null)
+		{
+			removeFromIndexes(existingFoodTruck);
+			foodTruckMap.put(foodTruck.getObjectid(), foodTruck);
+			addToIndexes(foodTruck);
+		}
+	}
+
+	/**
+	 * Removes and returns the food truck with the given id.
+	 *
+	 * @param id Object id of a food truck
+	 * @return The removed food truck, null if there is no food truck with the given id
+	 */
+	FoodTruck remove(long id)
+	{
+		FoodTruck foodTruck = foodTruckMap.remove(id);
+
+		// Continue only if the food truck with the given id exist
+		if (foodTruck != null)
+		{
+			removeFromIndexes(foodTruck);
+		}
+
+		return foodTruck;
+	}
+
+	/**
+	 * Returns the food trucks sorted by objectid; only a frozen snapshot keeps the array, concurrent first calls
+	 * may sort it more than once
+	 */
+	private FoodTruck[] getObjectidOrder()
+	{
+		FoodTruck[] foodTrucks = objectidOrder;
+		if (foodTrucks == null)
+		{
+			foodTrucks = foodTruckMap.values().toArray(new FoodTruck[foodTruckMap.size()]);
+			Arrays.sort(foodTrucks, new Comparator<FoodTruck>()
+			{
+				@Override
+				public int compare(FoodTruck first, FoodTruck second)
+				{
+					return Long.compare(first.getObjectid(), second.getObjectid());
+				}
+			});
+			if (kdTreeInserts == null)
+			{
+				objectidOrder = foodTrucks;
+			}
+		}
+		return foodTrucks;
+	}
+
+	/**
+	 * Makes the snapshot read-only. Pending status map, KD-tree and text index changes are applied;
+	 * if there are more changes than food trucks in the tree, the tree is rebuilt instead.
+	 */
+	void freeze()
+	{
+		if (kdTreeInserts != null)
+		{
+			// Removed trucks are dropped from the status lists in one pass
+			if (! statusRemoves.isEmpty())
+			{
+				for (FoodTruckStatusEnum status : ownedStatusLists)
+				{
+					statusMap.get(status).removeAll(statusRemoves);
+				}
+			}
+			
+			if (kdTreeInserts.size() + kdTreeRemoves.size() > kdTree.size())
+			{
+				kdTree = new FoodTruckKdTree(foodTruckMap.values());
+			}
+			else
+			{
+				for (FoodTruck foodTruck : kdTreeRemoves)
+				{
+					kdTree = kdTree.remove(foodTruck);
+				}
+				for (FoodTruck foodTruck : kdTreeInserts)
+				{
+					kdTree = kdTree.insert(foodTruck);
+				}
+			}
+		}
+
+		gridIndex.freeze();
+		columnStore.freeze();
+		textIndex.freeze();
+		clusterIndex.freeze();
+		ownedStatusLists = null;
+		statusRemoves = null;
+		kdTreeInserts = null;
+		kdTreeRemoves = null;
+	}
+
+	/**
+	 * Adds the given food truck to the status map, the grid index, the KD-tree, the column store,
+	 * the text index and the cluster index.
+	 * Example: If the status of the given food truck is 'REQUESTED';
+	 * then, the given truck is added to the list of the 'REQUESTED' map item.
+	 *
+	 * @param foodTruck new food truck
+	 */
+	private void addToIndexes(FoodTruck foodTruck)
+	{
+		// A truck that is removed and added back in this version is still in its status list
+		if (! statusRemoves.remove(foodTruck))
+		{
+			getOwnedStatusList(foodTruck.getStatusEnum()).add(foodTruck);
+		}
+		gridIndex.add(foodTruck);
+		kdTreeInserts.add(foodTruck);
+		columnStore.put(foodTruck);
+		textIndex.add(foodTruck);
+		clusterIndex.add(foodTruck);
+	}
+
+	/**
+	 * Removes the given food truck from the status map, the grid index, the KD-tree, the column store,
+	 * the text index and the cluster index.
+	 *
+	 * @param foodTruck Removed food truck
+	 */
+	private void removeFromIndexes(FoodTruck foodTruck)
+	{
+		// Status lists are filtered when the snapshot is frozen
+		if (statusMap.containsKey(foodTruck.getStatusEnum()))
+		{
+			getOwnedStatusList(foodTruck.getStatusEnum());
+			statusRemoves.add(foodTruck);
+		}
+		gridIndex.remove(foodTruck);
+		columnStore.remove(foodTruck.getObjectid());
+		textIndex.remove(foodTruck);
+		clusterIndex.remove(foodTruck);
+
+		// A truck that is added in this version has not reached the KD-tree yet
+		if (! kdTreeInserts.remove(foodTruck))
+		{
+			kdTreeRemoves.add(foodTruck);
+		}
+	}
+
+	/**
+	 * Returns the list of the given status that can be modified by this snapshot.
+	 * Shared lists are copied, missing lists are created.
+	 *
+	 * @param status Food Truck Status
+	 * @return The list of the given status that can be modified by this snapshot
+	 */
+	private List<FoodTruck> getOwnedStatusList(FoodTruckStatusEnum status)
+	{
+		if (ownedStatusLists == null)
+		{
+			throw new IllegalStateException("Snapshot is frozen");
+		}
+
+		List<FoodTruck> foodTrucks = statusMap.get(status);
+
+		if (! ownedStatusLists.contains(status))
+		{
+			foodTrucks = (foodTrucks == null)
+					? new ArrayList<FoodTruck>()
+					: new ArrayList<FoodTruck>(foodTrucks);
+			statusMap.put(status, foodTrucks);
+			ownedStatusLists.add(status);
+		}
+
+		return foodTrucks;
+	}
+	// -------------------------------------------------------------------
+}
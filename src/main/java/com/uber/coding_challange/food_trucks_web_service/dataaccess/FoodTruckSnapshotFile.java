@@ -0,0 +1,250 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Food truck snapshot file class. Singleton pattern is used.
+ * Writes the food trucks of a storage snapshot to a compact binary file
+ * and reads them back through a memory-mapped file channel,
+ * so the service can start serving without waiting for the DataSF API.
+ *
+ * File format (big-endian):
+ * Header:  magic (int), format version (int), creation time (long), storage version (long),
+ *          record count (int), payload length (long), CRC32 of the payload (long)
+ * Payload: for each food truck; objectid (long), latitude (double), longitude (double), cnn (int),
+ *          then address, locationdescription, applicant, dayshours, facilitytype, fooditems,
+ *          permit, schedule and status as UTF-8 strings (int length, -1 for null, then the bytes)
+ *
+ * Files are written to a temporary file and moved over the old one, so a reader sees either the
+ * old or the new file. A file with a different format version or a wrong checksum is rejected.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckSnapshotFile
+{
+	// Constants ---------------------------------------------------------
+	public static final int MAGIC = 0x46545331; // "FTS1"
+	public static final int FORMAT_VERSION = 1;
+	public static final int HEADER_SIZE = 44;
+	private static final int MIN_RECORD_SIZE = 64; // numbers and 9 string lengths
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	// -------------------------------------------------------------------
+
+	// SINGLETON Implementation ------------------------------------------
+	private static FoodTruckSnapshotFile INSTANCE = new FoodTruckSnapshotFile();
+	private FoodTruckSnapshotFile() {}
+	public static FoodTruckSnapshotFile getInstance() {return INSTANCE;}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Writes the food trucks of the given snapshot to the given file atomically
+	 *
+	 * @param snapshot Storage snapshot
+	 * @param file Snapshot file
+	 * @throws IOException If the file cannot be written
+	 */
+	public void write(FoodTruckSnapshot snapshot, File file) throws IOException
+	{
+		List<FoodTruck> foodTrucks = snapshot.getAllFoodTrucks();
+		File directory = file.getAbsoluteFile().getParentFile();
+		Path tempPath = File.createTempFile(file.getName(), ".tmp", directory).toPath();
+
+		try
+		{
+			FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE);
+			try
+			{
+				// Payload first, the header needs its length and checksum
+				channel.position(HEADER_SIZE);
+				CRC32 crc = new CRC32();
+				DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+						new CheckedOutputStream(Channels.newOutputStream(channel), crc), 65536));
+
+				for (FoodTruck foodTruck : foodTrucks)
+				{
+					output.writeLong(foodTruck.getObjectid());
+					output.writeDouble(foodTruck.getLatitude());
+					output.writeDouble(foodTruck.getLongitude());
+					output.writeInt(foodTruck.getCnn());
+					writeString(output, foodTruck.getAddress());
+					writeString(output, foodTruck.getLocationdescription());
+					writeString(output, foodTruck.getApplicant());
+					writeString(output, foodTruck.getDayshours());
+					writeString(output, foodTruck.getFacilitytype());
+					writeString(output, foodTruck.getFooditems());
+					writeString(output, foodTruck.getPermit());
+					writeString(output, foodTruck.getSchedule());
+					writeString(output, foodTruck.getStatus());
+				}
+				output.flush();
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC);
+				header.putInt(FORMAT_VERSION);
+				header.putLong(System.currentTimeMillis());
+				header.putLong(snapshot.getVersion());
+				header.putInt(foodTrucks.size());
+				header.putLong(channel.position() - HEADER_SIZE);
+				header.putLong(crc.getValue());
+				header.flip();
+				while (header.hasRemaining())
+				{
+					channel.write(header, header.position());
+				}
+
+				channel.force(true);
+			}
+			finally
+			{
+				channel.close();
+			}
+
+			Files.move(tempPath, file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		finally
+		{
+			Files.deleteIfExists(tempPath);
+		}
+	}
+
+	/**
+	 * Reads the food trucks from the given file through a memory-mapped file channel
+	 *
+	 * @param file Snapshot file
+	 * @return The food trucks in the file
+	 * @throws IOException If the file cannot be read, is corrupt or has a different format version
+	 */
+	public List<FoodTruck> read(File file) throws IOException
+	{
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try
+		{
+			if (channel.size() < HEADER_SIZE)
+			{
+				throw new IOException("Food truck snapshot is truncated: " + file);
+			}
+
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.getInt() != MAGIC)
+			{
+				throw new IOException("Not a food truck snapshot: " + file);
+			}
+			int formatVersion = buffer.getInt();
+			if (formatVersion != FORMAT_VERSION)
+			{
+				throw new IOException("Unsupported food truck snapshot version " + formatVersion + ": " + file);
+			}
+			buffer.getLong(); // creation time
+			buffer.getLong(); // storage version
+			int recordCount = buffer.getInt();
+			long payloadLength = buffer.getLong();
+			long checksum = buffer.getLong();
+
+			if (payloadLength != channel.size() - HEADER_SIZE
+					|| recordCount < 0
+					|| recordCount > payloadLength / MIN_RECORD_SIZE)
+			{
+				throw new IOException("Food truck snapshot is truncated: " + file);
+			}
+
+			CRC32 crc = new CRC32();
+			crc.update(buffer.duplicate());
+			if (crc.getValue() != checksum)
+			{
+				throw new IOException("Food truck snapshot checksum does not match: " + file);
+			}
+
+			try
+			{
+				List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>(recordCount);
+				FoodTruckStringPool stringPool = new FoodTruckStringPool();
+
+				for (int i = 0; i < recordCount; i++)
+				{
+					FoodTruck foodTruck = new FoodTruck();
+					foodTruck.setObjectid(buffer.getLong());
+					foodTruck.setLatitude(buffer.getDouble());
+					foodTruck.setLongitude(buffer.getDouble());
+					foodTruck.setCnn(buffer.getInt());
+					foodTruck.setAddress(readString(buffer));
+					foodTruck.setLocationdescription(readString(buffer));
+					foodTruck.setApplicant(readString(buffer));
+					foodTruck.setDayshours(readString(buffer));
+					foodTruck.setFacilitytype(readString(buffer));
+					foodTruck.setFooditems(readString(buffer));
+					foodTruck.setPermit(readString(buffer));
+					foodTruck.setSchedule(readString(buffer));
+					foodTruck.setStatus(readString(buffer));
+					stringPool.deduplicate(foodTruck);
+					foodTrucks.add(foodTruck);
+				}
+
+				if (buffer.hasRemaining())
+				{
+					throw new IOException("Food truck snapshot is corrupt: " + file);
+				}
+
+				return foodTrucks;
+			}
+			catch (BufferUnderflowException e)
+			{
+				throw new IOException("Food truck snapshot is corrupt: " + file, e);
+			}
+		}
+		finally
+		{
+			channel.close();
+		}
+	}
+
+	private static void writeString(DataOutputStream output, String value) throws IOException
+	{
+		if (value == null)
+		{
+			output.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(UTF8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) throws IOException
+	{
+		int length = buffer.getInt();
+		if (length == -1)
+		{
+			return null;
+		}
+		if (length < 0 || length > buffer.remaining())
+		{
+			throw new IOException("Food truck snapshot is corrupt");
+		}
+
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, UTF8);
+	}
+}
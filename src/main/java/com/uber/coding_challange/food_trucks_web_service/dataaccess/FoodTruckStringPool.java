@@ -0,0 +1,70 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.HashMap;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Deduplicates the long string fields that repeat across the food trucks of a load: the applicant, the permit,
+ * the schedule URL, the days and hours, and the food items (e.g. every location of a permit has the same
+ * applicant, schedule and food items). Equal values of the deduplicated food trucks share one String instance.
+ *
+ * A pool lives as long as a single load (an ingest or a snapshot file), so the values of the removed food trucks
+ * are not kept after it. Unlike String.intern(), it costs a single hash lookup per value.
+ * This class is not thread-safe.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckStringPool
+{
+	// Attributes --------------------------------------------------------
+	private final HashMap<String, String> strings = new HashMap<String, String>();
+	// -------------------------------------------------------------------
+
+	/**
+	 * Replaces the repeated string fields of the given food truck with the pooled instances
+	 *
+	 * @param foodTruck Food truck of the load
+	 */
+	public void deduplicate(FoodTruck foodTruck)
+	{
+		foodTruck.setApplicant(deduplicate(foodTruck.getApplicant()));
+		foodTruck.setPermit(deduplicate(foodTruck.getPermit()));
+		foodTruck.setSchedule(deduplicate(foodTruck.getSchedule()));
+		foodTruck.setDayshours(deduplicate(foodTruck.getDayshours()));
+		foodTruck.setFooditems(deduplicate(foodTruck.getFooditems()));
+	}
+
+	/**
+	 * Returns the pooled instance that is equal to the given value, the value is pooled if it is new
+	 *
+	 * @param value String value, may be null
+	 * @return The pooled instance
+	 */
+	public String deduplicate(String value)
+	{
+		if (value == null)
+		{
+			return null;
+		}
+
+		String pooledValue = strings.get(value);
+		if (pooledValue == null)
+		{
+			strings.put(value, value);
+			return value;
+		}
+		return pooledValue;
+	}
+
+	/**
+	 * Returns the number of the distinct values in the pool
+	 *
+	 * @return The size of the pool
+	 */
+	public int size()
+	{
+		return strings.size();
+	}
+}
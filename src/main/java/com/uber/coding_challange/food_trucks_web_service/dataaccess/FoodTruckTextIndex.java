@@ -0,0 +1,423 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Inverted index over the words of the food items and the applicant of the food trucks.
+ * Every term has a posting list: the sorted object ids (primitive long array) of the food trucks
+ * that contain the term. A text query is answered by intersecting the posting lists of its terms,
+ * starting from the shortest one.
+ *
+ * Texts are split on the characters that are not letters or digits and lower-cased;
+ * a trailing 's' is dropped from the words that are longer than 3 characters, so "taco" and "tacos" match.
+ *
+ * Copies share the posting lists with the original index. Added and removed food trucks are kept
+ * until the index is frozen; then the posting lists of the affected terms are merged once,
+ * so loading many food trucks does not copy a posting list for every truck.
+ * An index that is published in a snapshot is never modified, writers always work on a copy.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckTextIndex
+{
+	// Constants ---------------------------------------------------------
+	private static final long[] EMPTY_POSTINGS = new long[0];
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final HashMap<String, long[]> postingMap;
+
+	// Used only while the index is modified, null after it is frozen
+	private Set<FoodTruck> inserts;
+	private List<FoodTruck> removes;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckTextIndex()
+	{
+		postingMap = new HashMap<String, long[]>();
+		inserts = new HashSet<FoodTruck>();
+		removes = new ArrayList<FoodTruck>();
+	}
+
+	/**
+	 * Creates a modifiable copy of the given index.
+	 * Posting lists are shared until they are modified.
+	 *
+	 * @param textIndex The index that will be copied
+	 */
+	public FoodTruckTextIndex(FoodTruckTextIndex textIndex)
+	{
+		postingMap = new HashMap<String, long[]>(textIndex.postingMap);
+		inserts = new HashSet<FoodTruck>();
+		removes = new ArrayList<FoodTruck>();
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns the terms of the given text, in the order of their first occurrence
+	 *
+	 * @param text Food items, applicant or a query text, may be null
+	 * @return The distinct terms of the text
+	 */
+	public static Set<String> tokenize(String text)
+	{
+		Set<String> terms = new LinkedHashSet<String>();
+		addTerms(text, terms);
+		return terms;
+	}
+
+	/**
+	 * Adds the terms of the given text to the given set.
+	 * Every word is lower-cased into a reused buffer, so a term costs a single String allocation.
+	 */
+	private static void addTerms(String text, Set<String> terms)
+	{
+		if (text == null)
+		{
+			return;
+		}
+
+		char[] buffer = new char[text.length()];
+		int length = 0;
+
+		for (int i = 0; i <= text.length(); i++)
+		{
+			char character = (i < text.length()) ? text.charAt(i) : ' ';
+
+			if (Character.isLetterOrDigit(character))
+			{
+				buffer[length++] = Character.toLowerCase(character);
+			}
+			else if (length > 0)
+			{
+				// Plural and singular forms share the term
+				if (length > 3 && buffer[length - 1] == 's' && buffer[length - 2] != 's')
+				{
+					length--;
+				}
+				terms.add(new String(buffer, 0, length));
+				length = 0;
+			}
+		}
+	}
+
+	/**
+	 * Returns the terms of the indexed fields (food items and applicant) of the given food truck
+	 *
+	 * @param foodTruck Food truck
+	 * @return The distinct terms of the food truck
+	 */
+	public static Set<String> getTerms(FoodTruck foodTruck)
+	{
+		Set<String> terms = new HashSet<String>();
+		addTerms(foodTruck.getFooditems(), terms);
+		addTerms(foodTruck.getApplicant(), terms);
+		return terms;
+	}
+
+	/**
+	 * Adds the given food truck to the posting lists of its terms (when the index is frozen)
+	 *
+	 * @param foodTruck new food truck
+	 */
+	public void add(FoodTruck foodTruck)
+	{
+		checkModifiable();
+		inserts.add(foodTruck);
+	}
+
+	/**
+	 * Removes the given food truck from the posting lists of its terms (when the index is frozen)
+	 *
+	 * @param foodTruck Removed food truck
+	 */
+	public void remove(FoodTruck foodTruck)
+	{
+		checkModifiable();
+
+		// A truck that is added to this copy has not reached the posting lists yet
+		if (! inserts.remove(foodTruck))
+		{
+			removes.add(foodTruck);
+		}
+	}
+
+	/**
+	 * Merges the added and removed food trucks into the posting lists
+	 * and marks the index as read-only. Modifications after this call throw an exception.
+	 */
+	public void freeze()
+	{
+		if (inserts == null)
+		{
+			return;
+		}
+
+		HashMap<String, PostingBuilder> termRemoves = collectPostings(removes);
+		HashMap<String, PostingBuilder> termAdds = collectPostings(inserts);
+
+		for (Map.Entry<String, PostingBuilder> entry : termRemoves.entrySet())
+		{
+			PostingBuilder added = termAdds.remove(entry.getKey());
+			updatePostings(entry.getKey(), entry.getValue().toSortedArray(),
+					(added != null) ? added.toSortedArray() : EMPTY_POSTINGS);
+		}
+		for (Map.Entry<String, PostingBuilder> entry : termAdds.entrySet())
+		{
+			updatePostings(entry.getKey(), EMPTY_POSTINGS, entry.getValue().toSortedArray());
+		}
+
+		inserts = null;
+		removes = null;
+	}
+
+	/**
+	 * Replaces the posting list of the given term with (postings - removed) + added
+	 */
+	private void updatePostings(String term, long[] removed, long[] added)
+	{
+		long[] postings = postingMap.get(term);
+		postings = (postings == null && removed.length == 0)
+				? added
+				: merge(postings, removed, added);
+
+		if (postings.length == 0)
+		{
+			postingMap.remove(term);
+		}
+		else
+		{
+			postingMap.put(term, postings);
+		}
+	}
+
+	/**
+	 * Returns the number of the indexed terms
+	 *
+	 * @return The number of the terms
+	 */
+	public int getTermCount()
+	{
+		return postingMap.size();
+	}
+
+	/**
+	 * Returns the number of the food trucks that contain the given term
+	 *
+	 * @param term A term (see tokenize())
+	 * @return The length of the posting list of the term
+	 */
+	public int getPostingCount(String term)
+	{
+		long[] postings = postingMap.get(term);
+		return (postings != null) ? postings.length : 0;
+	}
+
+	/**
+	 * Returns the sorted object ids of the food trucks that contain all the terms of the given text
+	 *
+	 * @param text Query text
+	 * @return The object ids of the matching food trucks (must not be modified),
+	 * empty if the text has no terms or a term is not indexed
+	 */
+	public long[] search(String text)
+	{
+		Set<String> terms = tokenize(text);
+		List<long[]> postingLists = new ArrayList<long[]>(terms.size());
+
+		for (String term : terms)
+		{
+			long[] postings = postingMap.get(term);
+			if (postings == null)
+			{
+				return EMPTY_POSTINGS;
+			}
+			postingLists.add(postings);
+		}
+
+		if (postingLists.isEmpty())
+		{
+			return EMPTY_POSTINGS;
+		}
+
+		// Shortest lists first, so the intermediate results stay small
+		Collections.sort(postingLists, new Comparator<long[]>()
+		{
+			@Override
+			public int compare(long[] first, long[] second)
+			{
+				return Integer.compare(first.length, second.length);
+			}
+		});
+
+		long[] result = postingLists.get(0);
+		for (int i = 1; i < postingLists.size() && result.length > 0; i++)
+		{
+			result = intersect(result, postingLists.get(i));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the object ids that are in both of the given sorted arrays.
+	 * Every id of the shorter array is searched in the longer one with a galloping search,
+	 * so a short list is intersected with a long one in O(short * log(long)).
+	 *
+	 * @param first Sorted object ids
+	 * @param second Sorted object ids
+	 * @return The sorted object ids that are in both arrays
+	 */
+	static long[] intersect(long[] first, long[] second)
+	{
+		long[] shorter = (first.length <= second.length) ? first : second;
+		long[] longer = (shorter == first) ? second : first;
+		long[] result = new long[shorter.length];
+		int size = 0;
+		int position = 0;
+
+		for (int i = 0; i < shorter.length && position < longer.length; i++)
+		{
+			long id = shorter[i];
+
+			// Gallop to the range that may contain the id, then binary search in it
+			int step = 1;
+			int high = position;
+			while (high < longer.length && longer[high] < id)
+			{
+				position = high + 1;
+				high += step;
+				step <<= 1;
+			}
+
+			int index = Arrays.binarySearch(longer, position, Math.min(high + 1, longer.length), id);
+			if (index >= 0)
+			{
+				result[size++] = id;
+				position = index + 1;
+			}
+			else
+			{
+				position = -index - 1;
+			}
+		}
+
+		return (size == result.length) ? result : Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Returns (postings - removed) + added, all of them are sorted object ids
+	 */
+	private static long[] merge(long[] postings, long[] removed, long[] added)
+	{
+		if (postings == null)
+		{
+			postings = EMPTY_POSTINGS;
+		}
+
+		long[] result = new long[postings.length + added.length];
+		int size = 0;
+		int removedIndex = 0;
+		int addedIndex = 0;
+
+		for (long id : postings)
+		{
+			while (removedIndex < removed.length && removed[removedIndex] < id)
+			{
+				removedIndex++;
+			}
+			if (removedIndex < removed.length && removed[removedIndex] == id)
+			{
+				continue;
+			}
+
+			while (addedIndex < added.length && added[addedIndex] < id)
+			{
+				result[size++] = added[addedIndex++];
+			}
+			if (addedIndex < added.length && added[addedIndex] == id)
+			{
+				addedIndex++;
+			}
+			result[size++] = id;
+		}
+
+		while (addedIndex < added.length)
+		{
+			result[size++] = added[addedIndex++];
+		}
+
+		return (size == result.length) ? result : Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * Groups the object ids of the given food trucks by their terms
+	 */
+	private static HashMap<String, PostingBuilder> collectPostings(Collection<FoodTruck> foodTrucks)
+	{
+		HashMap<String, PostingBuilder> termPostings = new HashMap<String, PostingBuilder>();
+
+		for (FoodTruck foodTruck : foodTrucks)
+		{
+			for (String term : getTerms(foodTruck))
+			{
+				PostingBuilder builder = termPostings.get(term);
+				if (builder == null)
+				{
+					builder = new PostingBuilder();
+					termPostings.put(term, builder);
+				}
+				builder.add(foodTruck.getObjectid());
+			}
+		}
+
+		return termPostings;
+	}
+
+	private void checkModifiable()
+	{
+		if (inserts == null)
+		{
+			throw new IllegalStateException("Text index is frozen");
+		}
+	}
+
+	/**
+	 * Growable array of object ids
+	 */
+	private static final class PostingBuilder
+	{
+		private long[] ids = new long[4];
+		private int size = 0;
+
+		void add(long id)
+		{
+			if (size == ids.length)
+			{
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			ids[size++] = id;
+		}
+
+		long[] toSortedArray()
+		{
+			long[] sorted = Arrays.copyOf(ids, size);
+			Arrays.sort(sorted);
+			return sorted;
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Callback that receives food trucks one by one while they are read from a snapshot,
+ * so the caller does not need to build a result list.
+ *
+ * @author alper.karacelik
+ *
+ */
+public interface FoodTruckVisitor
+{
+	/**
+	 * Receives the next food truck
+	 *
+	 * @param foodTruck The next food truck
+	 * @return True to continue, false to stop the traversal
+	 */
+	boolean visit(FoodTruck foodTruck);
+}
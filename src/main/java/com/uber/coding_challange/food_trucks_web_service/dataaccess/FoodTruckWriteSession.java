@@ -0,0 +1,155 @@
+package com.uber.coding_challange.food_trucks_web_service.dataaccess;
+
+import java.io.Closeable;
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Write session of the food truck storage.
+ * Holds the writer lock of the Food Truck Accessor from the time it is opened until it is
+ * published or closed, and builds the next snapshot incrementally.
+ * Changes can be pushed in any number of batches; each batch costs only its own size,
+ * and readers see none of the changes until the session is published.
+ *
+ * A session must be used by the thread that opened it and must always be closed
+ * (publishing closes the session).
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckWriteSession implements Closeable
+{
+	// Attributes --------------------------------------------------------
+	private final FoodTruckSnapshot baseSnapshot;
+	private final FoodTruckSnapshot nextSnapshot;
+	private final ReentrantLock writeLock;
+	private boolean changed = false;
+	private boolean closed = false;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	/**
+	 * Creates the session on the given snapshot, the writer lock must be held by the caller
+	 *
+	 * @param baseSnapshot Current snapshot
+	 * @param writeLock Writer lock of the accessor, released when the session is closed
+	 */
+	FoodTruckWriteSession(FoodTruckSnapshot baseSnapshot, ReentrantLock writeLock)
+	{
+		this.baseSnapshot = baseSnapshot;
+		this.nextSnapshot = new FoodTruckSnapshot(baseSnapshot);
+		this.writeLock = writeLock;
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns the snapshot that the session is based on.
+	 * It does not change while the session is open, since no other writer can publish.
+	 *
+	 * @return The snapshot that the session is based on
+	 */
+	public FoodTruckSnapshot getBaseSnapshot()
+	{
+		return baseSnapshot;
+	}
+
+	/**
+	 * Adds the given food trucks to the next snapshot.
+	 * If a food truck with the same object id exists, then it is updated instead.
+	 *
+	 * @param foodTrucks new food trucks
+	 */
+	public void add(Collection<FoodTruck> foodTrucks)
+	{
+		checkOpen();
+		for (FoodTruck foodTruck : foodTrucks)
+		{
+			nextSnapshot.add(foodTruck);
+			changed = true;
+		}
+	}
+
+	/**
+	 * Updates the given food trucks in the next snapshot.
+	 * Food trucks that do not exist are ignored.
+	 *
+	 * @param foodTrucks updated food trucks
+	 */
+	public void update(Collection<FoodTruck> foodTrucks)
+	{
+		checkOpen();
+		for (FoodTruck foodTruck : foodTrucks)
+		{
+			nextSnapshot.update(foodTruck);
+			changed = true;
+		}
+	}
+
+	/**
+	 * Removes and returns the food truck with the given id from the next snapshot
+	 *
+	 * @param id Object id of a food truck
+	 * @return The removed food truck, null if it does not exist
+	 */
+	public FoodTruck remove(long id)
+	{
+		checkOpen();
+		FoodTruck removedFoodTruck = nextSnapshot.remove(id);
+		if (removedFoodTruck != null)
+		{
+			changed = true;
+		}
+
+		return removedFoodTruck;
+	}
+
+	/**
+	 * Freezes and publishes the next snapshot, then closes the session.
+	 * If nothing is changed, the current snapshot is kept (its version does not change).
+	 *
+	 * @return The current snapshot after publishing
+	 */
+	public FoodTruckSnapshot publish()
+	{
+		checkOpen();
+		try
+		{
+			if (! changed)
+			{
+				return baseSnapshot;
+			}
+
+			nextSnapshot.freeze();
+			FoodTruckAccessor.publish(nextSnapshot);
+			return nextSnapshot;
+		}
+		finally
+		{
+			close();
+		}
+	}
+
+	/**
+	 * Closes the session and releases the writer lock.
+	 * Changes that are not published are discarded.
+	 */
+	@Override
+	public void close()
+	{
+		if (! closed)
+		{
+			closed = true;
+			writeLock.unlock();
+		}
+	}
+
+	private void checkOpen()
+	{
+		if (closed)
+		{
+			throw new IllegalStateException("Write session is closed");
+		}
+	}
+}
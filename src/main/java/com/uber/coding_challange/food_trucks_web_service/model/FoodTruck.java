@@ -1,5 +1,8 @@
 package com.uber.coding_challange.food_trucks_web_service.model;
 
+import java.util.Arrays;
+import java.util.Objects;
+
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
 
@@ -8,12 +11,25 @@ import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckSt
  * This class is associated with both requested and provided Food Truck JSON objects
  * Jackson framework is used for JSON convertions
  * 
+ * The status and the facility type have a few distinct values, so they are kept as codes of shared dictionaries
+ * (see FoodTruckDictionary) instead of String copies. The status dictionary starts with the values of
+ * FoodTruckStatusEnum, so the code of a known status is the ordinal of its enumeration and getStatusEnum()
+ * does not parse the string. Statuses in another case or that are not known are kept as they are.
+ * The dictionaries are shared by the whole process and never shrink, so they are limited to DICTIONARY_CAPACITY
+ * values: a value that does not fit is kept as a String by the food truck itself, like the other fields.
+ * 
  * @author alper.karacelik
  *
  */
 @JsonIgnoreProperties(ignoreUnknown=true)
 public class FoodTruck 
 {	
+	// Constants ---------------------------------------------------------
+	private static final int DICTIONARY_CAPACITY = 1024; // distinct values of a field that are encoded
+	private static final FoodTruckDictionary STATUSES = new FoodTruckDictionary(DICTIONARY_CAPACITY, getStatusValues());
+	private static final FoodTruckDictionary FACILITY_TYPES = new FoodTruckDictionary(DICTIONARY_CAPACITY);
+	// -------------------------------------------------------------------
+	
 	// Attributes --------------------------------------------------------
 	private long objectid;
 	private String address;
@@ -21,15 +37,20 @@ public class FoodTruck
 	private String applicant;
 	private int cnn;
 	private String dayshours;
-	private String facilitytype;
+	private short facilitytypeCode = FoodTruckDictionary.NULL_CODE;
 	private String fooditems;
 	private double latitude;
 	private double longitude;
 	private String permit;
 	private String schedule;
-	private String status;
+	private short statusCode = FoodTruckDictionary.NULL_CODE;
+	private String facilitytypeValue; // only if facilitytypeCode is OVERFLOW_CODE
+	private String statusValue; // only if statusCode is OVERFLOW_CODE
 	// -------------------------------------------------------------------
 	
+	// Status enumerations of the status codes, extended when a code that is not known appears
+	private static volatile FoodTruckStatusEnum[] statusEnums = FoodTruckStatusEnum.values();
+	
 	// Constructor(s) ----------------------------------------------------
 	public FoodTruck() 
 	{
@@ -75,10 +96,12 @@ public class FoodTruck
 		this.dayshours = dayshours;
 	}
 	public String getFacilitytype() {
-		return facilitytype;
+		return (facilitytypeCode == FoodTruckDictionary.OVERFLOW_CODE) 
+				? facilitytypeValue : FACILITY_TYPES.decode(facilitytypeCode);
 	}
 	public void setFacilitytype(String facilitytype) {
-		this.facilitytype = facilitytype;
+		this.facilitytypeCode = FACILITY_TYPES.encode(facilitytype);
+		this.facilitytypeValue = (facilitytypeCode == FoodTruckDictionary.OVERFLOW_CODE) ? facilitytype : null;
 	}
 	public String getFooditems() {
 		return fooditems;
@@ -111,10 +134,11 @@ public class FoodTruck
 		this.schedule = schedule;
 	}
 	public String getStatus() {
-		return status;
+		return (statusCode == FoodTruckDictionary.OVERFLOW_CODE) ? statusValue : STATUSES.decode(statusCode);
 	}
 	public void setStatus(String status) {
-		this.status = status;
+		this.statusCode = STATUSES.encode(status);
+		this.statusValue = (statusCode == FoodTruckDictionary.OVERFLOW_CODE) ? status : null;
 	}
 	// -------------------------------------------------------------------
 	
@@ -125,7 +149,78 @@ public class FoodTruck
 	 */
 	public FoodTruckStatusEnum getStatusEnum()
 	{
-		return FoodTruckStatusEnum.getFromStringValue(status);
+		if (statusCode == FoodTruckDictionary.NULL_CODE)
+		{
+			return FoodTruckStatusEnum.NO_STATEMENT;
+		}
+		if (statusCode == FoodTruckDictionary.OVERFLOW_CODE)
+		{
+			return FoodTruckStatusEnum.getFromStringValue(statusValue);
+		}
+		
+		FoodTruckStatusEnum[] enums = statusEnums;
+		return (statusCode < enums.length) ? enums[statusCode] : getStatusEnum(statusCode);
+	}
+	
+	/**
+	 * Returns true if all the attributes of the given food truck are equal to the attributes of this one.
+	 * equals() is not overridden, since the storage keeps track of the food truck instances.
+	 * 
+	 * @param other Food truck to compare
+	 * @return True if all the attributes are equal, false otherwise
+	 */
+	public boolean contentEquals(FoodTruck other)
+	{
+		return other != null
+				&& objectid == other.objectid
+				&& cnn == other.cnn
+				&& Double.compare(latitude, other.latitude) == 0
+				&& Double.compare(longitude, other.longitude) == 0
+				&& Objects.equals(address, other.address)
+				&& Objects.equals(locationdescription, other.locationdescription)
+				&& Objects.equals(applicant, other.applicant)
+				&& facilitytypeCode == other.facilitytypeCode
+				&& statusCode == other.statusCode
+				&& Objects.equals(facilitytypeValue, other.facilitytypeValue)
+				&& Objects.equals(statusValue, other.statusValue)
+				&& Objects.equals(dayshours, other.dayshours)
+				&& Objects.equals(fooditems, other.fooditems)
+				&& Objects.equals(permit, other.permit)
+				&& Objects.equals(schedule, other.schedule);
+	}
+	
+	/**
+	 * Returns the status enumeration of the given code, after adding the enumerations of all the codes 
+	 * that are not known yet (a status string is parsed once per dictionary value)
+	 */
+	private static synchronized FoodTruckStatusEnum getStatusEnum(short statusCode)
+	{
+		FoodTruckStatusEnum[] enums = statusEnums;
+		if (statusCode >= enums.length)
+		{
+			int knownCount = enums.length;
+			enums = Arrays.copyOf(enums, STATUSES.size());
+			for (int code = knownCount; code < enums.length; code++)
+			{
+				enums[code] = FoodTruckStatusEnum.getFromStringValue(STATUSES.decode((short) code));
+			}
+			statusEnums = enums;
+		}
+		return enums[statusCode];
+	}
+	
+	/**
+	 * Returns the string values of the status enumerations, in the order of their ordinals
+	 */
+	private static String[] getStatusValues()
+	{
+		FoodTruckStatusEnum[] enums = FoodTruckStatusEnum.values();
+		String[] values = new String[enums.length];
+		for (int i = 0; i < enums.length; i++)
+		{
+			values[i] = enums[i].getStrValue();
+		}
+		return values;
 	}
 	// -------------------------------------------------------------------
 }
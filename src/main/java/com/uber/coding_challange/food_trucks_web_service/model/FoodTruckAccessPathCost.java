@@ -0,0 +1,43 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+import com.uber.coding_challange.food_trucks_web_service.model.enums.QueryAccessPathEnum;
+
+/**
+ * Food Truck Access Path Cost class.
+ * Estimated number of the food trucks that an access path produces for a query 
+ * and the estimated cost of the query on that path (in the units of the query planner).
+ * Jackson framework is used for JSON convertions
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckAccessPathCost
+{
+	// Attributes --------------------------------------------------------
+	private final QueryAccessPathEnum accessPath;
+	private final long estimatedRows;
+	private final double estimatedCost;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckAccessPathCost(QueryAccessPathEnum accessPath, long estimatedRows, double estimatedCost)
+	{
+		super();
+		this.accessPath = accessPath;
+		this.estimatedRows = estimatedRows;
+		this.estimatedCost = estimatedCost;
+	}
+	// -------------------------------------------------------------------
+
+	// Getters -----------------------------------------------------------
+	public QueryAccessPathEnum getAccessPath() {
+		return accessPath;
+	}
+	public long getEstimatedRows() {
+		return estimatedRows;
+	}
+	public double getEstimatedCost() {
+		return estimatedCost;
+	}
+	// -------------------------------------------------------------------
+}
@@ -0,0 +1,77 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Food Truck Batch Query class.
+ * One query of a batch request: the same parameters with the "/food-trucks/query" URI
+ * (status, latitude, longitude, radius and radius_unit), every one of them is optional.
+ * Values are kept as they are received and checked by the Query Handler.
+ * Jackson framework is used for JSON convertions
+ *
+ * @author alper.karacelik
+ *
+ */
+@JsonIgnoreProperties(ignoreUnknown=true)
+public class FoodTruckBatchQuery
+{
+	// Attributes --------------------------------------------------------
+	private String status;
+	private String latitude;
+	private String longitude;
+	private String radius;
+	@JsonProperty("radius_unit")
+	private String radiusUnit;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckBatchQuery()
+	{
+		super();
+	}
+
+	public FoodTruckBatchQuery(String status, String latitude, String longitude, String radius, String radiusUnit)
+	{
+		super();
+		this.status = status;
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.radius = radius;
+		this.radiusUnit = radiusUnit;
+	}
+	// -------------------------------------------------------------------
+
+	// Getters & Setters -------------------------------------------------
+	public String getStatus() {
+		return status;
+	}
+	public void setStatus(String status) {
+		this.status = status;
+	}
+	public String getLatitude() {
+		return latitude;
+	}
+	public void setLatitude(String latitude) {
+		this.latitude = latitude;
+	}
+	public String getLongitude() {
+		return longitude;
+	}
+	public void setLongitude(String longitude) {
+		this.longitude = longitude;
+	}
+	public String getRadius() {
+		return radius;
+	}
+	public void setRadius(String radius) {
+		this.radius = radius;
+	}
+	public String getRadiusUnit() {
+		return radiusUnit;
+	}
+	public void setRadiusUnit(String radiusUnit) {
+		this.radiusUnit = radiusUnit;
+	}
+	// -------------------------------------------------------------------
+}
@@ -0,0 +1,39 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Food Truck Batch Result class.
+ * Results of the queries of a batch request, keyed by the indexes of the queries in the request,
+ * and the storage version they are read from (all the queries of a batch read the same version).
+ * Jackson framework is used for JSON convertions
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckBatchResult
+{
+	// Attributes --------------------------------------------------------
+	private final long storageVersion;
+	private final Map<Integer, List<FoodTruck>> results;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckBatchResult(long storageVersion, Map<Integer, List<FoodTruck>> results)
+	{
+		super();
+		this.storageVersion = storageVersion;
+		this.results = results;
+	}
+	// -------------------------------------------------------------------
+
+	// Getters -----------------------------------------------------------
+	public long getStorageVersion() {
+		return storageVersion;
+	}
+	public Map<Integer, List<FoodTruck>> getResults() {
+		return results;
+	}
+	// -------------------------------------------------------------------
+}
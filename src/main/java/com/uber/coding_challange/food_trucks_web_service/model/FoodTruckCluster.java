@@ -0,0 +1,46 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+/**
+ * Food Truck Cluster class.
+ * Food trucks of one cell of a zoom level of the map: their number and their centroid.
+ * A cluster of a single food truck carries the food truck itself, so it can be drawn as a marker.
+ * Jackson framework is used for JSON convertions
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckCluster
+{
+	// Attributes --------------------------------------------------------
+	private final double latitude;
+	private final double longitude;
+	private final int count;
+	private final FoodTruck foodTruck; // null if the cluster has more than one food truck
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckCluster(double latitude, double longitude, int count, FoodTruck foodTruck)
+	{
+		super();
+		this.latitude = latitude;
+		this.longitude = longitude;
+		this.count = count;
+		this.foodTruck = foodTruck;
+	}
+	// -------------------------------------------------------------------
+
+	// Getters -----------------------------------------------------------
+	public double getLatitude() {
+		return latitude;
+	}
+	public double getLongitude() {
+		return longitude;
+	}
+	public int getCount() {
+		return count;
+	}
+	public FoodTruck getFoodTruck() {
+		return foodTruck;
+	}
+	// -------------------------------------------------------------------
+}
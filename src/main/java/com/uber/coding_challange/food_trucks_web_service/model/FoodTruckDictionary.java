@@ -0,0 +1,135 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Food Truck Dictionary class.
+ * Dictionary encoding of a low-cardinality string field of the food trucks (e.g. the status or the facility type):
+ * every distinct value is stored once and a food truck keeps its 2 byte code instead of its own String copy.
+ * Codes are given in the order of the first appearance of the values and are never reused, null is NULL_CODE.
+ *
+ * Decoding is lock-free (an array read), encoding a known value is a hash lookup, and only the first encoding
+ * of a new value takes a lock. Values are never removed, so the dictionary is only suitable for the fields
+ * that have a few distinct values. A dictionary has a fixed capacity: once it is full, a new value is not added
+ * and its code is OVERFLOW_CODE, the owner of the value keeps the String itself.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckDictionary
+{
+	// Constants ---------------------------------------------------------
+	public static final short NULL_CODE = -1;
+	public static final short OVERFLOW_CODE = -2;
+	public static final int MAX_SIZE = Short.MAX_VALUE + 1; // codes [0, 32767]
+	// -------------------------------------------------------------------
+
+	// Attributes --------------------------------------------------------
+	private final int capacity;
+	private final ConcurrentHashMap<String, Short> codes = new ConcurrentHashMap<String, Short>();
+	private volatile String[] values = new String[16];
+	private int size = 0; // guarded by this
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	/**
+	 * Creates a dictionary of MAX_SIZE values whose first codes are the given values, in the given order
+	 *
+	 * @param initialValues Values of the codes 0, 1, 2, ...
+	 */
+	public FoodTruckDictionary(String... initialValues)
+	{
+		this(MAX_SIZE, initialValues);
+	}
+
+	/**
+	 * Creates a dictionary of the given capacity whose first codes are the given values, in the given order
+	 *
+	 * @param capacity Maximum number of the values, [1, MAX_SIZE]
+	 * @param initialValues Values of the codes 0, 1, 2, ...
+	 */
+	public FoodTruckDictionary(int capacity, String... initialValues)
+	{
+		super();
+		if (capacity < 1 || capacity > MAX_SIZE)
+		{
+			throw new IllegalArgumentException("Invalid food truck dictionary capacity: " + capacity);
+		}
+		this.capacity = capacity;
+		for (String value : initialValues)
+		{
+			encode(value);
+		}
+	}
+	// -------------------------------------------------------------------
+
+	/**
+	 * Returns the code of the given value, the value is added if it is new
+	 *
+	 * @param value Encoded value, may be null
+	 * @return The code of the value, NULL_CODE for null, OVERFLOW_CODE if the value is new and the dictionary is full
+	 */
+	public short encode(String value)
+	{
+		if (value == null)
+		{
+			return NULL_CODE;
+		}
+
+		Short code = codes.get(value);
+		return (code != null) ? code : add(value);
+	}
+
+	/**
+	 * Returns the value of the given code
+	 *
+	 * @param code Code returned by encode()
+	 * @return The value of the code, null for NULL_CODE and OVERFLOW_CODE
+	 */
+	public String decode(short code)
+	{
+		return (code < 0) ? null : values[code];
+	}
+
+	/**
+	 * Returns the number of the values
+	 *
+	 * @return The number of the values
+	 */
+	public synchronized int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Adds the given value (if another thread has not added it meanwhile) and returns its code,
+	 * OVERFLOW_CODE if the dictionary is full
+	 */
+	private synchronized short add(String value)
+	{
+		Short code = codes.get(value);
+		if (code != null)
+		{
+			return code;
+		}
+
+		if (size == capacity)
+		{
+			return OVERFLOW_CODE;
+		}
+
+		String[] currentValues = values;
+		if (size == currentValues.length)
+		{
+			currentValues = Arrays.copyOf(currentValues, Math.min(size * 2, capacity));
+		}
+		currentValues[size] = value;
+
+		// Publish the value before its code, a reader that has the code always finds the value
+		values = currentValues;
+		code = (short) size++;
+		codes.put(value, code);
+		return code;
+	}
+}
@@ -0,0 +1,73 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+/**
+ * Food Truck Histogram Stats class.
+ * Count, mean, percentiles (50, 90, 99, 99.9) and maximum of the values of a histogram, in the given unit.
+ * Jackson framework is used for JSON convertions
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckHistogramStats
+{
+	// Attributes --------------------------------------------------------
+	private final long count;
+	private final double mean;
+	private final double p50;
+	private final double p90;
+	private final double p99;
+	private final double p999;
+	private final double max;
+	private final String unit;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckHistogramStats(
+			long count,
+			double mean,
+			double p50,
+			double p90,
+			double p99,
+			double p999,
+			double max,
+			String unit)
+	{
+		super();
+		this.count = count;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.p999 = p999;
+		this.max = max;
+		this.unit = unit;
+	}
+	// -------------------------------------------------------------------
+
+	// Getters -----------------------------------------------------------
+	public long getCount() {
+		return count;
+	}
+	public double getMean() {
+		return mean;
+	}
+	public double getP50() {
+		return p50;
+	}
+	public double getP90() {
+		return p90;
+	}
+	public double getP99() {
+		return p99;
+	}
+	public double getP999() {
+		return p999;
+	}
+	public double getMax() {
+		return max;
+	}
+	public String getUnit() {
+		return unit;
+	}
+	// -------------------------------------------------------------------
+}
@@ -0,0 +1,57 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+import java.util.Map;
+
+/**
+ * Food Truck Metrics Report class.
+ * Histograms (latencies, phases, sizes), counters and gauges of the service, keyed by their names.
+ * Jackson framework is used for JSON convertions
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckMetricsReport
+{
+	// Attributes --------------------------------------------------------
+	private final long timestamp;
+	private final long uptimeMillis;
+	private final Map<String, FoodTruckHistogramStats> histograms;
+	private final Map<String, Long> counters;
+	private final Map<String, Double> gauges;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckMetricsReport(
+			long timestamp,
+			long uptimeMillis,
+			Map<String, FoodTruckHistogramStats> histograms,
+			Map<String, Long> counters,
+			Map<String, Double> gauges)
+	{
+		super();
+		this.timestamp = timestamp;
+		this.uptimeMillis = uptimeMillis;
+		this.histograms = histograms;
+		this.counters = counters;
+		this.gauges = gauges;
+	}
+	// -------------------------------------------------------------------
+
+	// Getters -----------------------------------------------------------
+	public long getTimestamp() {
+		return timestamp;
+	}
+	public long getUptimeMillis() {
+		return uptimeMillis;
+	}
+	public Map<String, FoodTruckHistogramStats> getHistograms() {
+		return histograms;
+	}
+	public Map<String, Long> getCounters() {
+		return counters;
+	}
+	public Map<String, Double> getGauges() {
+		return gauges;
+	}
+	// -------------------------------------------------------------------
+}
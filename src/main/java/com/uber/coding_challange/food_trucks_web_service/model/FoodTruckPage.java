@@ -0,0 +1,39 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+import java.util.List;
+
+/**
+ * Food Truck Page class.
+ * A page of a query result, sorted by objectid, with the cursor of the next page.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckPage
+{
+	// Attributes --------------------------------------------------------
+	private final List<FoodTruck> foodTrucks;
+	private final String nextCursor;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckPage(List<FoodTruck> foodTrucks, String nextCursor)
+	{
+		super();
+		this.foodTrucks = foodTrucks;
+		this.nextCursor = nextCursor;
+	}
+	// -------------------------------------------------------------------
+
+	// Getters -----------------------------------------------------------
+	public List<FoodTruck> getFoodTrucks() {
+		return foodTrucks;
+	}
+	/**
+	 * @return Cursor of the next page, null if this is the last page
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+	// -------------------------------------------------------------------
+}
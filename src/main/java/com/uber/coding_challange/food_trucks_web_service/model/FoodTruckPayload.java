@@ -0,0 +1,40 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+/**
+ * Food Truck Payload class.
+ * A food truck list that is already serialized to JSON, with its strong entity tag.
+ * Payloads are shared between requests; the body must not be modified.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckPayload
+{
+	// Attributes --------------------------------------------------------
+	private final byte[] body;
+	private final String etag;
+	private final long storageVersion;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckPayload(byte[] body, String etag, long storageVersion)
+	{
+		super();
+		this.body = body;
+		this.etag = etag;
+		this.storageVersion = storageVersion;
+	}
+	// -------------------------------------------------------------------
+
+	// Getters -----------------------------------------------------------
+	public byte[] getBody() {
+		return body;
+	}
+	public String getEtag() {
+		return etag;
+	}
+	public long getStorageVersion() {
+		return storageVersion;
+	}
+	// -------------------------------------------------------------------
+}
@@ -0,0 +1,67 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+/**
+ * Food Truck Query Cache Stats class.
+ * Hit, miss, eviction and invalidation counts of the query result cache.
+ * Jackson framework is used for JSON convertions
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckQueryCacheStats
+{
+	// Attributes --------------------------------------------------------
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+	private final long invalidationCount;
+	private final int size;
+	private final int capacity;
+	private final long storageVersion;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckQueryCacheStats(
+			long hitCount,
+			long missCount,
+			long evictionCount,
+			long invalidationCount,
+			int size,
+			int capacity,
+			long storageVersion)
+	{
+		super();
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.invalidationCount = invalidationCount;
+		this.size = size;
+		this.capacity = capacity;
+		this.storageVersion = storageVersion;
+	}
+	// -------------------------------------------------------------------
+
+	// Getters -----------------------------------------------------------
+	public long getHitCount() {
+		return hitCount;
+	}
+	public long getMissCount() {
+		return missCount;
+	}
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+	public long getInvalidationCount() {
+		return invalidationCount;
+	}
+	public int getSize() {
+		return size;
+	}
+	public int getCapacity() {
+		return capacity;
+	}
+	public long getStorageVersion() {
+		return storageVersion;
+	}
+	// -------------------------------------------------------------------
+}
@@ -0,0 +1,87 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+import java.util.List;
+
+import com.uber.coding_challange.food_trucks_web_service.model.enums.QueryAccessPathEnum;
+
+/**
+ * Food Truck Query Plan class.
+ * The access path that the query planner chose for a query, the estimates of all the access paths
+ * that were considered and, if the query is explained, the measured execution of the plan.
+ * Jackson framework is used for JSON convertions
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckQueryPlan
+{
+	// Attributes --------------------------------------------------------
+	private final QueryAccessPathEnum accessPath;
+	private final List<FoodTruckAccessPathCost> candidates;
+	private final long storageVersion;
+
+	// Measured while the plan is executed (see FoodTruckQueryHandler.explainQuery())
+	private long examinedRows;
+	private long resultRows;
+	private long planningMicros;
+	private long executionMicros;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckQueryPlan(
+			QueryAccessPathEnum accessPath,
+			List<FoodTruckAccessPathCost> candidates,
+			long storageVersion)
+	{
+		super();
+		this.accessPath = accessPath;
+		this.candidates = candidates;
+		this.storageVersion = storageVersion;
+	}
+	// -------------------------------------------------------------------
+
+	// Getters & Setters -------------------------------------------------
+	public QueryAccessPathEnum getAccessPath() {
+		return accessPath;
+	}
+	/**
+	 * @return Estimates of the considered access paths, in the order they were considered
+	 */
+	public List<FoodTruckAccessPathCost> getCandidates() {
+		return candidates;
+	}
+	public long getStorageVersion() {
+		return storageVersion;
+	}
+	/**
+	 * @return Number of the food trucks that the access path produced and the remaining conditions checked
+	 */
+	public long getExaminedRows() {
+		return examinedRows;
+	}
+	public void setExaminedRows(long examinedRows) {
+		this.examinedRows = examinedRows;
+	}
+	public long getResultRows() {
+		return resultRows;
+	}
+	public void setResultRows(long resultRows) {
+		this.resultRows = resultRows;
+	}
+	/**
+	 * @return Time spent to parse the query, evaluate its attribute filter and choose the access path
+	 */
+	public long getPlanningMicros() {
+		return planningMicros;
+	}
+	public void setPlanningMicros(long planningMicros) {
+		this.planningMicros = planningMicros;
+	}
+	public long getExecutionMicros() {
+		return executionMicros;
+	}
+	public void setExecutionMicros(long executionMicros) {
+		this.executionMicros = executionMicros;
+	}
+	// -------------------------------------------------------------------
+}
@@ -0,0 +1,116 @@
+package com.uber.coding_challange.food_trucks_web_service.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Food Truck Refresh Result class.
+ * Records the changes that a refresh of the DataSF data applied to the storage.
+ * Counts cover all the changes; id lists may be limited for large feeds.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckRefreshResult
+{
+	// Attributes --------------------------------------------------------
+	private final long timestamp;
+	private final long durationMillis;
+	private final int receivedCount;
+	private final List<Long> addedIds;
+	private final List<Long> updatedIds;
+	private final List<Long> removedIds;
+	private final int addedCount;
+	private final int updatedCount;
+	private final int removedCount;
+	// -------------------------------------------------------------------
+
+	// Constructor(s) ----------------------------------------------------
+	public FoodTruckRefreshResult(
+			long timestamp,
+			long durationMillis,
+			int receivedCount,
+			List<Long> addedIds,
+			List<Long> updatedIds,
+			List<Long> removedIds)
+	{
+		this(timestamp, durationMillis, receivedCount,
+				addedIds, updatedIds, removedIds,
+				addedIds.size(), updatedIds.size(), removedIds.size());
+	}
+
+	public FoodTruckRefreshResult(
+			long timestamp,
+			long durationMillis,
+			int receivedCount,
+			List<Long> addedIds,
+			List<Long> updatedIds,
+			List<Long> removedIds,
+			int addedCount,
+			int updatedCount,
+			int removedCount)
+	{
+		super();
+		this.timestamp = timestamp;
+		this.durationMillis = durationMillis;
+		this.receivedCount = receivedCount;
+		this.addedIds = Collections.unmodifiableList(addedIds);
+		this.updatedIds = Collections.unmodifiableList(updatedIds);
+		this.removedIds = Collections.unmodifiableList(removedIds);
+		this.addedCount = addedCount;
+		this.updatedCount = updatedCount;
+		this.removedCount = removedCount;
+	}
+	// -------------------------------------------------------------------
+
+	// Getters -----------------------------------------------------------
+	public long getTimestamp() {
+		return timestamp;
+	}
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+	public int getReceivedCount() {
+		return receivedCount;
+	}
+	public List<Long> getAddedIds() {
+		return addedIds;
+	}
+	public List<Long> getUpdatedIds() {
+		return updatedIds;
+	}
+	public List<Long> getRemovedIds() {
+		return removedIds;
+	}
+	public int getAddedCount() {
+		return addedCount;
+	}
+	public int getUpdatedCount() {
+		return updatedCount;
+	}
+	public int getRemovedCount() {
+		return removedCount;
+	}
+	// -------------------------------------------------------------------
+
+	// Miscellaneous -----------------------------------------------------
+	/**
+	 * Returns true if the refresh changed the storage
+	 * @return True if the refresh changed the storage, false otherwise
+	 */
+	public boolean hasChanges()
+	{
+		return (addedCount + updatedCount + removedCount) > 0;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "received: " + receivedCount
+				+ ", added: " + addedCount
+				+ ", updated: " + updatedCount
+				+ ", removed: " + removedCount
+				+ ", duration: " + durationMillis + " ms";
+	}
+	// -------------------------------------------------------------------
+}
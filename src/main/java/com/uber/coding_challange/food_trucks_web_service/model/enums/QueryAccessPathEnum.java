@@ -0,0 +1,22 @@
+package com.uber.coding_challange.food_trucks_web_service.model.enums;
+
+/**
+ * Access path enumeration: the index (or scan) that produces the food trucks
+ * a query starts from; the remaining conditions are checked on these food trucks.
+ * STATUS_INDEX: Food trucks of the queried status (status lists / status bitmap)
+ * SPATIAL_INDEX: Food trucks in the grid cells around the circle
+ * TEXT_INDEX: Food trucks in the posting lists of the query words
+ * ATTRIBUTE_INDEX: Rows of a multi-value attribute filter (bitmap indexes)
+ * FULL_SCAN: All the food trucks
+ * 
+ * @author alper.karacelik
+ *
+ */
+public enum QueryAccessPathEnum 
+{
+	STATUS_INDEX,
+	SPATIAL_INDEX,
+	TEXT_INDEX,
+	ATTRIBUTE_INDEX,
+	FULL_SCAN;
+}
@@ -0,0 +1,102 @@
+package com.uber.coding_challange.food_trucks_test;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckBinaryEncoder;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+
+/**
+ * Reference decoder of the binary food truck format (see FoodTruckBinaryEncoder),
+ * as a client of the "application/x-food-trucks" media type would implement it.
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckBinaryDecoder
+{
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * Decodes the given food truck list
+	 *
+	 * @param bytes Encoded food trucks
+	 * @return The food trucks
+	 * @throws IOException If the bytes are not a valid food truck list
+	 */
+	public static List<FoodTruck> decode(byte[] bytes) throws IOException
+	{
+		try
+		{
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+			if (buffer.getInt() != FoodTruckBinaryEncoder.MAGIC)
+			{
+				throw new IOException("Not a food truck list");
+			}
+			if (buffer.getInt() != FoodTruckBinaryEncoder.FORMAT_VERSION)
+			{
+				throw new IOException("Unsupported food truck list version");
+			}
+			int recordCount = buffer.getInt();
+			int stringCount = buffer.getInt();
+
+			String[] strings = new String[stringCount];
+			for (int i = 0; i < stringCount; i++)
+			{
+				byte[] string = new byte[buffer.getInt()];
+				buffer.get(string);
+				strings[i] = new String(string, UTF8);
+			}
+
+			if (buffer.remaining() != recordCount * FoodTruckBinaryEncoder.RECORD_SIZE)
+			{
+				throw new IOException("Food truck list is corrupt");
+			}
+
+			List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>(recordCount);
+			for (int i = 0; i < recordCount; i++)
+			{
+				FoodTruck foodTruck = new FoodTruck();
+				foodTruck.setObjectid(buffer.getLong());
+				foodTruck.setLatitude(buffer.getDouble());
+				foodTruck.setLongitude(buffer.getDouble());
+				foodTruck.setCnn(buffer.getInt());
+				foodTruck.setAddress(readString(buffer, strings));
+				foodTruck.setLocationdescription(readString(buffer, strings));
+				foodTruck.setApplicant(readString(buffer, strings));
+				foodTruck.setDayshours(readString(buffer, strings));
+				foodTruck.setFacilitytype(readString(buffer, strings));
+				foodTruck.setFooditems(readString(buffer, strings));
+				foodTruck.setPermit(readString(buffer, strings));
+				foodTruck.setSchedule(readString(buffer, strings));
+				foodTruck.setStatus(readString(buffer, strings));
+				foodTrucks.add(foodTruck);
+			}
+
+			return foodTrucks;
+		}
+		catch (BufferUnderflowException e)
+		{
+			throw new IOException("Food truck list is truncated", e);
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{
+			throw new IOException("Food truck list is corrupt", e);
+		}
+		catch (NegativeArraySizeException e)
+		{
+			throw new IOException("Food truck list is corrupt", e);
+		}
+	}
+
+	private static String readString(ByteBuffer buffer, String[] strings)
+	{
+		int index = buffer.getInt();
+		return (index == -1) ? null : strings[index];
+	}
+}
@@ -0,0 +1,486 @@
+package com.uber.coding_challange.food_trucks_test;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckClient;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckIngester;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckSnapshotFile;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckRefreshResult;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ContextConfiguration(classes=FoodTruckTestConfiguration.class)
+public class FoodTruckClientTester
+{
+	// Can be increased for a multi-million record run: -Dingest.records=3000000
+	private static final int INGEST_RECORD_COUNT = Integer.getInteger("ingest.records", 200000);
+	private static final long INGEST_FIRST_ID = 1000000;
+
+	private FoodTruckClient client = FoodTruckClient.getInstance();
+	private FoodTruckAccessor accessor = FoodTruckAccessor.getInstance();
+	private File dataSourceFile;
+	private File snapshotFile;
+	private String originalDataSourceUrl;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		// Local file stands in for the DataSF API
+		dataSourceFile = File.createTempFile("food-trucks", ".json");
+		originalDataSourceUrl = client.getDataSourceUrl();
+		client.setDataSourceUrl(dataSourceFile.toURI().toString());
+
+		snapshotFile = File.createTempFile("food-trucks", ".snapshot");
+		snapshotFile.delete();
+	}
+
+	@After
+	public void tearDown() throws Exception
+	{
+		client.setDataSourceUrl(originalDataSourceUrl);
+		dataSourceFile.delete();
+		client.setSnapshotFile(null);
+		snapshotFile.delete();
+
+		for (long id = 30000; id < 30010; id++)
+		{
+			accessor.removeFoodTruck(id);
+		}
+	}
+
+	@Test
+	public void refreshTest() throws Exception
+	{
+		System.out.println("Refresh tests are running...");
+
+		// First refresh adds everything
+		writeDataSource(
+				createFoodTruck(30000, FoodTruckStatusEnum.APPROVED, 37.77),
+				createFoodTruck(30001, FoodTruckStatusEnum.APPROVED, 37.78),
+				createFoodTruck(30002, FoodTruckStatusEnum.REQUESTED, 37.79));
+
+		FoodTruckRefreshResult result = client.refresh();
+		assertThat(result.getAddedIds().size(), is(3));
+		assertThat(result.getUpdatedIds().size(), is(0));
+		assertThat(result.getRemovedIds().size(), is(0));
+		assertThat(accessor.getFoodTruck(30002).getStatusEnum(), is(FoodTruckStatusEnum.REQUESTED));
+
+		// Same data changes nothing, the storage keeps the same snapshot
+		long version = accessor.getSnapshot().getVersion();
+		result = client.refresh();
+		assertThat(result.hasChanges(), is(false));
+		assertThat(accessor.getSnapshot().getVersion(), is(version));
+
+		// One update, one removal, one addition
+		writeDataSource(
+				createFoodTruck(30000, FoodTruckStatusEnum.APPROVED, 37.77),
+				createFoodTruck(30002, FoodTruckStatusEnum.APPROVED, 37.79),
+				createFoodTruck(30003, FoodTruckStatusEnum.REQUESTED, 37.80));
+
+		result = client.refresh();
+		assertThat(result.getAddedIds(), is(Arrays.asList(30003L)));
+		assertThat(result.getUpdatedIds(), is(Arrays.asList(30002L)));
+		assertThat(result.getRemovedIds(), is(Arrays.asList(30001L)));
+		assertThat(accessor.foodTruckExist(30001), is(false));
+		assertThat(accessor.getFoodTruck(30002).getStatusEnum(), is(FoodTruckStatusEnum.APPROVED));
+		assertThat(accessor.getFoodTruck(30003), is(notNullValue()));
+		assertThat(client.getRefreshHistory().get(0), is(result));
+
+		// Empty response is treated as an outage
+		writeDataSource();
+		result = client.refresh();
+		assertThat(result.hasChanges(), is(false));
+		assertThat(accessor.foodTruckExist(30000), is(true));
+
+		System.out.println("Refresh tests are passed!");
+	}
+
+	@Test
+	public void streamingIngestTest() throws Exception
+	{
+		System.out.println("Streaming ingest tests are running...");
+
+		FoodTruckIngester ingester = FoodTruckIngester.getInstance();
+
+		// Input stream source, object ids are checked
+		byte[] json = "[{\"objectid\":\"30005\",\"status\":\"APPROVED\",\"latitude\":\"37.7\",\"longitude\":\"-122.4\"}]"
+				.getBytes("UTF-8");
+		FoodTruckRefreshResult result = ingester.ingest(new ByteArrayInputStream(json));
+		assertThat(result.getAddedIds(), is(Arrays.asList(30005L)));
+		assertThat(accessor.getFoodTruck(30005).getLatitude(), is(37.7));
+
+		// Broken input changes nothing
+		long version = accessor.getSnapshot().getVersion();
+		try
+		{
+			ingester.ingest(new ByteArrayInputStream("[{\"objectid\":30006},{\"objectid\":".getBytes("UTF-8")));
+			fail("Broken input must not be ingested");
+		}
+		catch (Exception e)
+		{
+			assertThat(accessor.getSnapshot().getVersion(), is(version));
+			assertThat(accessor.foodTruckExist(30006), is(false));
+		}
+
+		// Generated file with many food trucks
+		File largeFile = File.createTempFile("food-trucks-large", ".json");
+		try
+		{
+			writeLargeDataSource(largeFile, INGEST_RECORD_COUNT);
+
+			System.gc();
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			{
+				pool.resetPeakUsage();
+			}
+			long start = System.nanoTime();
+
+			result = ingester.ingest(largeFile);
+
+			long nanos = System.nanoTime() - start;
+			long peakHeap = 0;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			{
+				if (pool.getType() == MemoryType.HEAP)
+				{
+					peakHeap += pool.getPeakUsage().getUsed();
+				}
+			}
+
+			assertThat(result.getAddedCount(), is(INGEST_RECORD_COUNT));
+			assertThat(result.getRemovedCount(), is(1));
+			assertThat(result.getAddedIds().size(), is(FoodTruckIngester.MAX_RECORDED_IDS));
+			assertThat(accessor.getSnapshot().size(), is(INGEST_RECORD_COUNT));
+			assertThat(accessor.getFoodTruck(INGEST_FIRST_ID + 7).getApplicant(), is("Applicant 7"));
+
+			System.out.println(String.format(
+					"Ingested %d records (%.1f MB) in %d ms: %.0f records/sec, peak heap: %.1f MB",
+					INGEST_RECORD_COUNT, largeFile.length() / 1048576.0, nanos / 1000000,
+					INGEST_RECORD_COUNT * 1e9 / nanos, peakHeap / 1048576.0));
+		}
+		finally
+		{
+			largeFile.delete();
+
+			List<Long> ids = new ArrayList<Long>(INGEST_RECORD_COUNT);
+			for (int i = 0; i < INGEST_RECORD_COUNT; i++)
+			{
+				ids.add(INGEST_FIRST_ID + i);
+			}
+			accessor.applyChanges(new ArrayList<FoodTruck>(), new ArrayList<FoodTruck>(), ids);
+		}
+
+		System.out.println("Streaming ingest tests are passed!");
+	}
+
+	@Test
+	public void snapshotFileTest() throws Exception
+	{
+		System.out.println("Snapshot file tests are running...");
+
+		FoodTruck foodTruck1 = createFoodTruck(30007, FoodTruckStatusEnum.APPROVED, 37.77);
+		FoodTruck foodTruck2 = createFoodTruck(30008, FoodTruckStatusEnum.REQUESTED, 37.78);
+		foodTruck1.setFooditems("Crêpes: Açaí bowls");
+		foodTruck1.setCnn(9090000);
+		foodTruck2.setApplicant(null);
+		writeDataSource(foodTruck1, foodTruck2);
+
+		// A successful load writes the snapshot file
+		client.setSnapshotFile(snapshotFile);
+		client.refresh();
+		assertThat(snapshotFile.exists(), is(true));
+
+		List<FoodTruck> foodTrucks = FoodTruckSnapshotFile.getInstance().read(snapshotFile);
+		assertThat(foodTrucks.size(), is(accessor.getSnapshot().size()));
+
+		// Loading the snapshot file restores the storage
+		accessor.applyChanges(new ArrayList<FoodTruck>(), new ArrayList<FoodTruck>(), Arrays.asList(30007L, 30008L));
+		assertThat(client.loadSnapshot(), is(true));
+		assertThat(accessor.getFoodTruck(30007).contentEquals(foodTruck1), is(true));
+		assertThat(accessor.getFoodTruck(30008).contentEquals(foodTruck2), is(true));
+
+		// Corrupt snapshot files are rejected
+		RandomAccessFile randomAccessFile = new RandomAccessFile(snapshotFile, "rw");
+		try
+		{
+			randomAccessFile.seek(FoodTruckSnapshotFile.HEADER_SIZE + 10);
+			int value = randomAccessFile.read();
+			randomAccessFile.seek(FoodTruckSnapshotFile.HEADER_SIZE + 10);
+			randomAccessFile.write(value ^ 0xFF);
+		}
+		finally
+		{
+			randomAccessFile.close();
+		}
+		assertSnapshotRejected();
+
+		randomAccessFile = new RandomAccessFile(snapshotFile, "rw");
+		try
+		{
+			randomAccessFile.setLength(FoodTruckSnapshotFile.HEADER_SIZE - 1);
+		}
+		finally
+		{
+			randomAccessFile.close();
+		}
+		assertSnapshotRejected();
+
+		System.out.println("Snapshot file tests are passed!");
+	}
+
+	@Test
+	public void concurrentIngestTest() throws Exception
+	{
+		System.out.println("Concurrent ingest tests are running...");
+
+		FoodTruck foodTruck1 = createFoodTruck(30000, FoodTruckStatusEnum.APPROVED, 37.77);
+		FoodTruck foodTruck2 = createFoodTruck(30001, FoodTruckStatusEnum.APPROVED, 37.78);
+		accessor.addFoodTrucks(Arrays.asList(foodTruck1, foodTruck2));
+
+		// The input is written by the test while the ingester reads it
+		final PipedOutputStream output = new PipedOutputStream();
+		final CountDownLatch reading = new CountDownLatch(1);
+		final InputStream input = new FilterInputStream(new PipedInputStream(output, 65536))
+		{
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException
+			{
+				reading.countDown();
+				return super.read(buffer, offset, length);
+			}
+		};
+
+		final FoodTruckRefreshResult[] ingestResult = new FoodTruckRefreshResult[1];
+		Thread ingestThread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					ingestResult[0] = FoodTruckIngester.getInstance().ingest(input);
+				}
+				catch (Exception e)
+				{
+					e.printStackTrace();
+				}
+			}
+		});
+		ingestThread.start();
+
+		ObjectMapper mapper = new ObjectMapper();
+		output.write('[');
+		output.write(mapper.writeValueAsBytes(createFoodTruck(30000, FoodTruckStatusEnum.APPROVED, 37.77)));
+		output.write(',');
+		output.flush();
+		assertThat(reading.await(5, TimeUnit.SECONDS), is(true));
+
+		// Other writers are not blocked while the input is read
+		Thread writerThread = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				accessor.updateFoodTruck(createFoodTruck(30001, FoodTruckStatusEnum.REQUESTED, 37.78));
+				accessor.addFoodTruck(createFoodTruck(30003, FoodTruckStatusEnum.APPROVED, 37.80));
+			}
+		});
+		writerThread.start();
+		writerThread.join(5000);
+		assertThat(writerThread.isAlive(), is(false));
+		assertThat(ingestThread.isAlive(), is(true));
+
+		output.write(mapper.writeValueAsBytes(createFoodTruck(30001, FoodTruckStatusEnum.APPROVED, 37.78)));
+		output.write(',');
+		output.write(mapper.writeValueAsBytes(createFoodTruck(30002, FoodTruckStatusEnum.REQUESTED, 37.79)));
+		output.write(']');
+		output.close();
+		ingestThread.join(10000);
+		assertThat(ingestThread.isAlive(), is(false));
+
+		// The input wins over the write that was published while it was read
+		FoodTruckRefreshResult result = ingestResult[0];
+		assertThat(result.getAddedIds(), is(Arrays.asList(30002L)));
+		assertThat(result.getUpdatedIds(), is(Arrays.asList(30001L)));
+		assertThat(result.getRemovedIds().contains(30003L), is(true));
+		assertThat(accessor.getFoodTruck(30000).contentEquals(foodTruck1), is(true));
+		assertThat(accessor.getFoodTruck(30001).getStatusEnum(), is(FoodTruckStatusEnum.APPROVED));
+		assertThat(accessor.foodTruckExist(30002), is(true));
+		assertThat(accessor.foodTruckExist(30003), is(false));
+
+		System.out.println("Concurrent ingest tests are passed!");
+	}
+
+	@Test
+	public void stalledDataSourceTest() throws Exception
+	{
+		System.out.println("Stalled data source tests are running...");
+
+		// The data source accepts the connection and never answers
+		final ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		final CountDownLatch accepted = new CountDownLatch(1);
+		Thread acceptor = new Thread(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				try
+				{
+					Socket socket = serverSocket.accept();
+					accepted.countDown();
+					Thread.sleep(10000);
+					socket.close();
+				}
+				catch (Exception e)
+				{
+					// The server socket is closed by the test
+				}
+			}
+		});
+		acceptor.setDaemon(true);
+		acceptor.start();
+
+		client.setDataSourceUrl("http://127.0.0.1:" + serverSocket.getLocalPort() + "/resource/6a9r-agq8.json");
+		client.setTimeouts(1000, 2000);
+		try
+		{
+			final Exception[] refreshFailure = new Exception[1];
+			Thread refreshThread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						client.refresh();
+					}
+					catch (Exception e)
+					{
+						refreshFailure[0] = e;
+					}
+				}
+			});
+			refreshThread.start();
+			assertThat(accepted.await(5, TimeUnit.SECONDS), is(true));
+
+			// The refresher control does not wait for the fetch
+			long start = System.currentTimeMillis();
+			client.getRefreshHistory();
+			client.stopRefresher();
+			assertThat(System.currentTimeMillis() - start < 1000, is(true));
+
+			// The read timeout fails the refresh, the storage is not changed
+			refreshThread.join(10000);
+			assertThat(refreshThread.isAlive(), is(false));
+			assertThat(refreshFailure[0] instanceof SocketTimeoutException, is(true));
+		}
+		finally
+		{
+			client.setTimeouts(0, 0);
+			serverSocket.close();
+		}
+
+		System.out.println("Stalled data source tests are passed!");
+	}
+
+	private void assertSnapshotRejected() throws Exception
+	{
+		try
+		{
+			FoodTruckSnapshotFile.getInstance().read(snapshotFile);
+			fail("Corrupt snapshot file must be rejected");
+		}
+		catch (IOException e)
+		{
+			assertThat(client.loadSnapshot(), is(false));
+		}
+	}
+
+	private static void writeLargeDataSource(File file, int count) throws Exception
+	{
+		// Written with the streaming generator, so the test does not hold the records either
+		Random random = new Random(17);
+		JsonGenerator generator = new ObjectMapper().getFactory().createGenerator(file, JsonEncoding.UTF8);
+		try
+		{
+			generator.writeStartArray();
+			for (int i = 0; i < count; i++)
+			{
+				generator.writeStartObject();
+				generator.writeStringField("objectid", String.valueOf(INGEST_FIRST_ID + i));
+				generator.writeStringField("applicant", "Applicant " + i);
+				generator.writeStringField("facilitytype", (i % 3) == 0 ? "Push Cart" : "Truck");
+				generator.writeStringField("cnn", String.valueOf(random.nextInt(20000000)));
+				generator.writeStringField("locationdescription", "STREET " + (i % 500) + ": A ST to B ST (" + i + ")");
+				generator.writeStringField("address", i + " MARKET ST");
+				generator.writeStringField("permit", "17MFF-" + String.format("%04d", i % 10000));
+				generator.writeStringField("status", (i % 2) == 0 ? "APPROVED" : "REQUESTED");
+				generator.writeStringField("fooditems", "Tacos: Burritos: Quesadillas: Sodas");
+				generator.writeStringField("latitude", String.valueOf(37.70 + random.nextDouble() * 0.12));
+				generator.writeStringField("longitude", String.valueOf(-122.51 + random.nextDouble() * 0.15));
+				generator.writeStringField("schedule", "http://bsm.sfdpw.org/PermitsTracker/reports/report.aspx?permit=" + i);
+				generator.writeStringField("dayshours", "Mo-Fr:10AM-3PM");
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+		}
+		finally
+		{
+			generator.close();
+		}
+	}
+
+	private void writeDataSource(FoodTruck... foodTrucks) throws Exception
+	{
+		List<FoodTruck> foodTruckList = new ArrayList<FoodTruck>(Arrays.asList(foodTrucks));
+		new ObjectMapper().writeValue(dataSourceFile, foodTruckList);
+	}
+
+	private static FoodTruck createFoodTruck(long id, FoodTruckStatusEnum status, double latitude)
+	{
+		FoodTruck foodTruck = new FoodTruck();
+		foodTruck.setObjectid(id);
+		foodTruck.setApplicant("Applicant " + id);
+		foodTruck.setStatus(status.getStrValue());
+		foodTruck.setLatitude(latitude);
+		foodTruck.setLongitude(-122.42);
+		return foodTruck;
+	}
+}
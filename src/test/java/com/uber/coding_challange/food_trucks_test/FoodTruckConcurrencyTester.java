@@ -0,0 +1,352 @@
+package com.uber.coding_challange.food_trucks_test;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.uber.coding_challange.food_trucks_web_service.FoodTruckRestController;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckNdjsonWriter;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckRequestExecutor;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckSnapshot;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ContextConfiguration(classes=FoodTruckTestConfiguration.class)
+public class FoodTruckConcurrencyTester
+{
+	private static final long FIRST_ID = 20000;
+	private static final int FOOD_TRUCK_COUNT = 2000;
+	private static final int GENERATION_COUNT = 100;
+	private static final int READER_COUNT = 4;
+
+	private FoodTruckAccessor accessor = FoodTruckAccessor.getInstance();
+
+	@Test
+	public void snapshotConsistencyTest() throws Exception
+	{
+		System.out.println("Snapshot consistency tests are running...");
+
+		accessor.addFoodTrucks(createGeneration(0));
+
+		final AtomicBoolean writerFinished = new AtomicBoolean(false);
+		final AtomicReference<String> failure = new AtomicReference<String>();
+
+		// Readers check that every snapshot they see holds exactly one generation
+		List<Thread> readers = new ArrayList<Thread>();
+		for (int i = 0; i < READER_COUNT; i++)
+		{
+			Thread reader = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					long lastVersion = -1;
+					while (! writerFinished.get() && failure.get() == null)
+					{
+						FoodTruckSnapshot snapshot = accessor.getSnapshot();
+
+						if (snapshot.getVersion() < lastVersion)
+						{
+							failure.set("Snapshot version went back");
+						}
+						lastVersion = snapshot.getVersion();
+
+						String error = checkSnapshot(snapshot);
+						if (error != null)
+						{
+							failure.set(error);
+						}
+					}
+				}
+			});
+			readers.add(reader);
+			reader.start();
+		}
+
+		// Writer replaces every food truck in a single call per generation
+		try
+		{
+			for (int generation = 1; generation <= GENERATION_COUNT && failure.get() == null; generation++)
+			{
+				accessor.applyChanges(
+						Collections.<FoodTruck>emptyList(),
+						createGeneration(generation),
+						Collections.<Long>emptyList());
+			}
+		}
+		finally
+		{
+			writerFinished.set(true);
+			for (Thread reader : readers)
+			{
+				reader.join();
+			}
+
+			List<Long> ids = new ArrayList<Long>();
+			for (long id = FIRST_ID; id < FIRST_ID + FOOD_TRUCK_COUNT; id++)
+			{
+				ids.add(id);
+			}
+			accessor.applyChanges(Collections.<FoodTruck>emptyList(), Collections.<FoodTruck>emptyList(), ids);
+		}
+
+		assertThat(failure.get(), is(nullValue()));
+		assertThat(accessor.foodTruckExist(FIRST_ID), is(false));
+
+		System.out.println("Snapshot consistency tests are passed!");
+	}
+
+	@Test
+	public void requestExecutorTest() throws Exception
+	{
+		System.out.println("Request executor tests are running...");
+
+		FoodTruckRequestExecutor executor = FoodTruckRequestExecutor.getInstance();
+		FoodTruckRestController restController = new FoodTruckRestController();
+		ServletWebRequest request = new ServletWebRequest(
+				new MockHttpServletRequest("GET", "/food-trucks/nearest"), new MockHttpServletResponse());
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicBoolean blockerFinished = new AtomicBoolean(false);
+		final AtomicBoolean expiredTaskStarted = new AtomicBoolean(false);
+
+		// Synchronous mode runs the request on the calling thread
+		assertThat(executor.isEnabled(), is(false));
+		assertThat(restController.getNearestFoodTrucksAsync("37.77", "-122.41", "3", null, request).isDone(), is(true));
+
+		executor.enable(1, 1, 300);
+		try
+		{
+			assertThat(restController.getNearestFoodTrucksAsync("37.77", "-122.41", "3", null, request)
+					.get(5, TimeUnit.SECONDS).getStatusCode(), is(HttpStatus.OK));
+
+			long rejectedCount = executor.getRejectedCount();
+			long expiredCount = executor.getExpiredCount();
+
+			// The only worker is busy and the queue holds a single task
+			CompletableFuture<Boolean> blocker = executor.submit(new Callable<Boolean>()
+			{
+				@Override
+				public Boolean call() throws Exception
+				{
+					release.await();
+					blockerFinished.set(true);
+					return true;
+				}
+			});
+			while (executor.getActiveCount() == 0)
+			{
+				Thread.sleep(1);
+			}
+			long startTime = System.currentTimeMillis();
+			CompletableFuture<Boolean> queued = executor.submit(new Callable<Boolean>()
+			{
+				@Override
+				public Boolean call() throws Exception
+				{
+					expiredTaskStarted.set(true);
+					return true;
+				}
+			});
+
+			// The next request is rejected at once with 503
+			CompletableFuture<ResponseEntity<?>> rejected =
+					restController.getNearestFoodTrucksAsync("37.77", "-122.41", "3", null, request);
+			assertThat(rejected.isDone(), is(true));
+			assertThat(rejected.get().getStatusCode(), is(HttpStatus.SERVICE_UNAVAILABLE));
+			assertThat(rejected.get().getHeaders().getFirst(HttpHeaders.RETRY_AFTER), is(notNullValue()));
+			assertThat(executor.getRejectedCount(), is(rejectedCount + 1));
+
+			// Streamed queries do not need the pool, they are written on the asynchronous request threads
+			accessor.addFoodTruck(createGeneration(0).get(0));
+			MockHttpServletResponse streamResponse = new MockHttpServletResponse();
+			Object streamed = restController.getFoodTrucksByQueryAsync(
+					"APPROVED", null, null, null, null, null, null, null, null, null, null, null, null, null, "true", null,
+					new ServletWebRequest(new MockHttpServletRequest("GET", "/food-trucks/query"), streamResponse), 
+					streamResponse).get(1, TimeUnit.SECONDS);
+			assertThat(streamed instanceof StreamingResponseBody, is(true));
+			assertThat(streamResponse.getContentType(), startsWith(FoodTruckNdjsonWriter.MEDIA_TYPE));
+			ByteArrayOutputStream streamOutput = new ByteArrayOutputStream();
+			((StreamingResponseBody) streamed).writeTo(streamOutput);
+			assertThat(streamOutput.toString("UTF-8").contains(String.valueOf(FIRST_ID)), is(true));
+			assertThat(executor.getRejectedCount(), is(rejectedCount + 1));
+
+			// Both tasks expire at their deadline, although the worker is still busy
+			try
+			{
+				queued.get(5, TimeUnit.SECONDS);
+				fail("Queued task should expire");
+			}
+			catch (ExecutionException e)
+			{
+				assertThat(e.getCause() instanceof TimeoutException, is(true));
+			}
+			assertThat(System.currentTimeMillis() - startTime < 2000, is(true));
+			try
+			{
+				blocker.get(5, TimeUnit.SECONDS);
+				fail("Running task should expire");
+			}
+			catch (ExecutionException e)
+			{
+				assertThat(e.getCause() instanceof TimeoutException, is(true));
+			}
+			// The counter is incremented right after the future is completed
+			long countDeadline = System.currentTimeMillis() + 1000;
+			while (executor.getExpiredCount() < expiredCount + 2 && System.currentTimeMillis() < countDeadline)
+			{
+				Thread.sleep(1);
+			}
+			assertThat(executor.getExpiredCount(), is(expiredCount + 2));
+
+			// The running task runs to the end, the expired queued task is never started
+			release.countDown();
+			assertThat(restController.getNearestFoodTrucksAsync("37.77", "-122.41", "3", null, request)
+					.get(5, TimeUnit.SECONDS).getStatusCode(), is(HttpStatus.OK));
+			assertThat(blockerFinished.get(), is(true));
+			assertThat(expiredTaskStarted.get(), is(false));
+
+			// Entity tag check of a pooled task does not write the servlet response
+			ResponseEntity<?> payload = getStatusPayload(restController, null, new MockHttpServletResponse());
+			MockHttpServletResponse notModifiedResponse = new MockHttpServletResponse();
+			ResponseEntity<?> notModified = getStatusPayload(
+					restController, payload.getHeaders().getETag(), notModifiedResponse);
+			assertThat(notModified.getStatusCode(), is(HttpStatus.NOT_MODIFIED));
+			assertThat(notModified.getHeaders().getETag(), is(payload.getHeaders().getETag()));
+			assertThat(notModifiedResponse.getStatus(), is(200));
+			assertThat(notModifiedResponse.getHeader(HttpHeaders.ETAG), is(nullValue()));
+		}
+		finally
+		{
+			release.countDown();
+			executor.disable();
+			accessor.removeFoodTruck(FIRST_ID);
+		}
+
+		System.out.println("Request executor tests are passed!");
+	}
+
+	/**
+	 * Returns the response of the "APPROVED" status query, which is answered with a pre-serialized payload
+	 */
+	private static ResponseEntity<?> getStatusPayload(
+			FoodTruckRestController restController, 
+			String ifNoneMatch, 
+			MockHttpServletResponse response) throws Exception
+	{
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/food-trucks/query");
+		if (ifNoneMatch != null)
+		{
+			request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+		}
+		return (ResponseEntity<?>) restController.getFoodTrucksByQueryAsync(
+				"APPROVED", null, null, null, null, null, null, null, null, null, null, null, null, null, null, null,
+				new ServletWebRequest(request, response), response).get(5, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Creates the food trucks of the given generation.
+	 * Every generation moves all the trucks and flips their status.
+	 */
+	private static List<FoodTruck> createGeneration(int generation)
+	{
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>();
+		for (long id = FIRST_ID; id < FIRST_ID + FOOD_TRUCK_COUNT; id++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(id);
+			foodTruck.setAddress(String.valueOf(generation));
+			foodTruck.setLatitude(40 + (id - FIRST_ID) * 0.001);
+			foodTruck.setLongitude(-100 + generation * 0.01);
+			foodTruck.setStatus(((generation % 2) == 0)
+					? FoodTruckStatusEnum.APPROVED.getStrValue()
+					: FoodTruckStatusEnum.REQUESTED.getStrValue());
+			foodTrucks.add(foodTruck);
+		}
+		return foodTrucks;
+	}
+
+	/**
+	 * Returns an error message if the food truck map, the status map and the grid index
+	 * of the given snapshot do not agree on a single generation, null otherwise.
+	 */
+	private static String checkSnapshot(FoodTruckSnapshot snapshot)
+	{
+		String generation = snapshot.getFoodTruck(FIRST_ID).getAddress();
+		FoodTruckStatusEnum status = snapshot.getFoodTruck(FIRST_ID).getStatusEnum();
+
+		for (long id = FIRST_ID; id < FIRST_ID + FOOD_TRUCK_COUNT; id++)
+		{
+			FoodTruck foodTruck = snapshot.getFoodTruck(id);
+			if (foodTruck == null || ! foodTruck.getAddress().equals(generation))
+			{
+				return "Food truck map holds more than one generation";
+			}
+		}
+
+		for (FoodTruckStatusEnum checkedStatus :
+			new FoodTruckStatusEnum[] {FoodTruckStatusEnum.APPROVED, FoodTruckStatusEnum.REQUESTED})
+		{
+			List<FoodTruck> foodTrucks = snapshot.getFoodTrucks(checkedStatus);
+			int count = 0;
+			for (FoodTruck foodTruck : (foodTrucks == null) ? Collections.<FoodTruck>emptyList() : foodTrucks)
+			{
+				if (foodTruck.getObjectid() >= FIRST_ID && foodTruck.getObjectid() < FIRST_ID + FOOD_TRUCK_COUNT)
+				{
+					if (snapshot.getFoodTruck(foodTruck.getObjectid()) != foodTruck)
+					{
+						return "Status map and food truck map hold different instances";
+					}
+					count++;
+				}
+			}
+			if (count != ((checkedStatus == status) ? FOOD_TRUCK_COUNT : 0))
+			{
+				return "Status map does not match the food truck map";
+			}
+		}
+
+		int gridCount = 0;
+		for (FoodTruck foodTruck : snapshot.getFoodTrucksInsideBox(39, -101, 43, -97))
+		{
+			if (snapshot.getFoodTruck(foodTruck.getObjectid()) != foodTruck)
+			{
+				return "Grid index and food truck map hold different instances";
+			}
+			gridCount++;
+		}
+		if (gridCount != FOOD_TRUCK_COUNT)
+		{
+			return "Grid index does not match the food truck map";
+		}
+
+		return null;
+	}
+}
@@ -0,0 +1,116 @@
+package com.uber.coding_challange.food_trucks_test;
+
+import java.util.Random;
+
+import com.uber.coding_challange.food_trucks_web_service.ctrl.GeodesicCircle;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckColumnStore;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckParallelScanner;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckRowFilter;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckVisitor;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.DistanceUnitEnum;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+
+/**
+ * Compares the sequential scan of the column store with the parallel scan (see FoodTruckParallelScanner)
+ * on 16,384 to 10,000,000 food trucks that are spread over the world.
+ * The sizes around the threshold (2 to 32 partitions) show where the parallel scan starts to pay off,
+ * query.parallel-scan-threshold can be tuned from them.
+ * The filter is the column check of a status and circle query, as in the full scan of /query.
+ * It is not a unit test; run it with a large heap, e.g.
+ *
+ * java -Xmx6g -cp ... com.uber.coding_challange.food_trucks_test.FoodTruckScanBenchmark [parallelism]
+ *
+ * @author alper.karacelik
+ *
+ */
+public class FoodTruckScanBenchmark
+{
+	private static final int[] SIZES = {16384, 32768, 65536, 100000, 131072, 262144, 1000000, 10000000};
+	private static final int WARMUP_RUNS = 5;
+	private static final int MEASURED_RUNS = 10;
+
+	public static void main(String[] args)
+	{
+		int parallelism = (args.length > 0) ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+
+		FoodTruckParallelScanner scanner = FoodTruckParallelScanner.getInstance();
+		scanner.setParallelism(parallelism);
+		scanner.setThreshold(1);
+
+		final GeodesicCircle circle = new GeodesicCircle(37.77, -122.42, 2000, DistanceUnitEnum.KILOMETERS);
+		FoodTruckRowFilter filter = new FoodTruckRowFilter()
+		{
+			@Override
+			public boolean accept(long objectid, double latitude, double longitude, FoodTruckStatusEnum status)
+			{
+				return status == FoodTruckStatusEnum.APPROVED && circle.contains(latitude, longitude);
+			}
+		};
+
+		System.out.println("Parallelism: " + scanner.getParallelism());
+		System.out.println("Food trucks\tSequential (ms)\tParallel (ms)\tSpeedup\tResults");
+
+		Random random = new Random(19);
+		FoodTruckColumnStore columnStore = new FoodTruckColumnStore();
+		for (int size : SIZES)
+		{
+			while (columnStore.size() < size)
+			{
+				FoodTruck foodTruck = new FoodTruck();
+				foodTruck.setObjectid(columnStore.size());
+				foodTruck.setStatus(random.nextBoolean() ? "APPROVED" : "REQUESTED");
+				foodTruck.setLatitude(Math.toDegrees(Math.asin(2 * random.nextDouble() - 1)));
+				foodTruck.setLongitude(360 * random.nextDouble() - 180);
+				columnStore.put(foodTruck);
+			}
+			columnStore.freeze();
+
+			long sequentialNanos = Long.MAX_VALUE;
+			long parallelNanos = Long.MAX_VALUE;
+			long resultCount = 0;
+			for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++)
+			{
+				Counter sequentialCounter = new Counter();
+				long start = System.nanoTime();
+				columnStore.scan(filter, sequentialCounter);
+				long sequential = System.nanoTime() - start;
+
+				Counter parallelCounter = new Counter();
+				start = System.nanoTime();
+				scanner.scan(columnStore, filter, parallelCounter);
+				long parallel = System.nanoTime() - start;
+
+				if (sequentialCounter.count != parallelCounter.count)
+				{
+					throw new IllegalStateException("Scans returned different results");
+				}
+
+				if (run >= WARMUP_RUNS)
+				{
+					sequentialNanos = Math.min(sequentialNanos, sequential);
+					parallelNanos = Math.min(parallelNanos, parallel);
+					resultCount = parallelCounter.count;
+				}
+			}
+
+			System.out.println(String.format("%d\t%.2f\t%.2f\t%.2fx\t%d", size, sequentialNanos / 1e6,
+					parallelNanos / 1e6, (double) sequentialNanos / parallelNanos, resultCount));
+
+			// The next size is added to a modifiable copy of the store
+			columnStore = new FoodTruckColumnStore(columnStore);
+		}
+	}
+
+	private static final class Counter implements FoodTruckVisitor
+	{
+		long count;
+
+		@Override
+		public boolean visit(FoodTruck foodTruck)
+		{
+			count++;
+			return true;
+		}
+	}
+}
@@ -3,19 +3,64 @@ package com.uber.coding_challange.food_trucks_test;
 import static org.junit.Assert.*;
 import static org.hamcrest.CoreMatchers.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import com.uber.coding_challange.food_trucks_web_service.FoodTruckRestController;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckBinaryEncoder;
 import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckClient;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckMetrics;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckNdjsonWriter;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckProjection;
 import com.uber.coding_challange.food_trucks_web_service.ctrl.FoodTruckQueryHandler;
+import com.uber.coding_challange.food_trucks_web_service.ctrl.GeodesicCircle;
 import com.uber.coding_challange.food_trucks_web_service.ctrl.GeodesicDistanceCalculator;
 import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckAccessor;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckBitmap;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckColumnStore;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckFilter;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckHistogram;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckOpeningHours;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckParallelScanner;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckRowFilter;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckSnapshot;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckStringPool;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckTextIndex;
+import com.uber.coding_challange.food_trucks_web_service.dataaccess.FoodTruckVisitor;
 import com.uber.coding_challange.food_trucks_web_service.model.FoodTruck;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckBatchQuery;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckBatchResult;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckCluster;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckDictionary;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckHistogramStats;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckMetricsReport;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckPage;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckQueryCacheStats;
+import com.uber.coding_challange.food_trucks_web_service.model.FoodTruckQueryPlan;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.DistanceUnitEnum;
 import com.uber.coding_challange.food_trucks_web_service.model.enums.FoodTruckStatusEnum;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.QueryAccessPathEnum;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -81,4 +126,1688 @@ public class FoodTruckUnitTester
 		
 		System.out.println("Accessor load tests are passed!");
 	}
+	
+	@Test
+	public void circleQueryTest() throws Exception
+	{
+		System.out.println("Circle query tests are running...");
+		
+		// Add food trucks around San Francisco
+		Random random = new Random(42);
+		for (long id = 1000; id < 3000; id++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(id);
+			foodTruck.setLatitude(37.70 + random.nextDouble() * 0.12);
+			foodTruck.setLongitude(-122.51 + random.nextDouble() * 0.15);
+			foodTruck.setStatus(((id % 2) == 0) 
+					? FoodTruckStatusEnum.APPROVED.getStrValue() 
+					: FoodTruckStatusEnum.REQUESTED.getStrValue());
+			accessor.addFoodTruck(foodTruck);
+		}
+		
+		try
+		{
+			double latitude = 37.7749;
+			double longitude = -122.4194;
+			
+			for (FoodTruckStatusEnum status : 
+				new FoodTruckStatusEnum[] {FoodTruckStatusEnum.ALL, FoodTruckStatusEnum.APPROVED})
+			{
+				for (double radius : new double[] {0.1, 0.5, 2, 5, 50, 15000})
+				{
+					// Grid index results must be equal to the results of the full scan
+					List<FoodTruck> expected = queryHandler.getFoodTrucksInsideCircle(
+							accessor.getFoodTrucks(status), 
+							latitude, longitude, radius, DistanceUnitEnum.KILOMETERS);
+					List<FoodTruck> actual = queryHandler.getFoodTrucksInsideCircle(
+							status, latitude, longitude, radius, DistanceUnitEnum.KILOMETERS);
+					
+					assertThat(new HashSet<FoodTruck>(actual), is(new HashSet<FoodTruck>(expected)));
+					assertThat(actual.size(), is(expected.size()));
+				}
+			}
+			
+			// Moved food truck must be found at its new position only
+			FoodTruck movedFoodTruck = new FoodTruck();
+			movedFoodTruck.setObjectid(1000);
+			movedFoodTruck.setLatitude(10.0);
+			movedFoodTruck.setLongitude(10.0);
+			movedFoodTruck.setStatus(FoodTruckStatusEnum.APPROVED.getStrValue());
+			accessor.updateFoodTruck(movedFoodTruck);
+			
+			assertThat(queryHandler.getFoodTrucksInsideCircle(
+					FoodTruckStatusEnum.ALL, 10.001, 10.001, 1, DistanceUnitEnum.KILOMETERS).size(), is(1));
+			assertThat(queryHandler.getFoodTrucksInsideCircle(
+					FoodTruckStatusEnum.ALL, 37.7749, -122.4194, 50, DistanceUnitEnum.KILOMETERS).size(), 
+					is(1999));
+		}
+		finally
+		{
+			for (long id = 1000; id < 3000; id++)
+			{
+				accessor.removeFoodTruck(id);
+			}
+		}
+		
+		assertThat(queryHandler.getFoodTrucksInsideCircle(
+				FoodTruckStatusEnum.ALL, 37.7749, -122.4194, 50, DistanceUnitEnum.KILOMETERS).size(), is(0));
+		
+		System.out.println("Circle query tests are passed!");
+	}
+	
+	@Test
+	public void nearestQueryTest() throws Exception
+	{
+		System.out.println("Nearest query tests are running...");
+		
+		// Add food trucks around San Francisco
+		Random random = new Random(7);
+		for (long id = 5000; id < 6000; id++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(id);
+			foodTruck.setLatitude(37.70 + random.nextDouble() * 0.12);
+			foodTruck.setLongitude(-122.51 + random.nextDouble() * 0.15);
+			foodTruck.setStatus(((id % 3) == 0) 
+					? FoodTruckStatusEnum.APPROVED.getStrValue() 
+					: FoodTruckStatusEnum.REQUESTED.getStrValue());
+			accessor.addFoodTruck(foodTruck);
+		}
+		
+		try
+		{
+			// Remove and move some of the food trucks
+			for (long id = 5000; id < 5100; id++)
+			{
+				accessor.removeFoodTruck(id);
+			}
+			for (long id = 5100; id < 5200; id++)
+			{
+				FoodTruck movedFoodTruck = new FoodTruck();
+				movedFoodTruck.setObjectid(id);
+				movedFoodTruck.setLatitude(37.70 + random.nextDouble() * 0.12);
+				movedFoodTruck.setLongitude(-122.51 + random.nextDouble() * 0.15);
+				movedFoodTruck.setStatus(accessor.getFoodTruck(id).getStatus());
+				accessor.updateFoodTruck(movedFoodTruck);
+			}
+			
+			for (FoodTruckStatusEnum status : 
+				new FoodTruckStatusEnum[] {FoodTruckStatusEnum.ALL, FoodTruckStatusEnum.APPROVED})
+			{
+				for (int k : new int[] {1, 10, 50})
+				{
+					double latitude = 37.70 + random.nextDouble() * 0.12;
+					double longitude = -122.51 + random.nextDouble() * 0.15;
+					
+					List<FoodTruck> nearest = queryHandler.getNearestFoodTrucks(
+							status.getStrValue(), 
+							String.valueOf(latitude), String.valueOf(longitude), String.valueOf(k));
+					assertThat(nearest.size(), is(k));
+					
+					// Results must be sorted and no other food truck can be nearer than the last one
+					double lastDistance = 0;
+					for (FoodTruck foodTruck : nearest)
+					{
+						double distance = geodesicDistanceCalculator.distance(
+								foodTruck.getLatitude(), foodTruck.getLongitude(), 
+								latitude, longitude, DistanceUnitEnum.KILOMETERS);
+						assertThat(distance >= lastDistance, is(true));
+						lastDistance = distance;
+					}
+					
+					int nearerCount = 0;
+					for (FoodTruck foodTruck : accessor.getFoodTrucks(status))
+					{
+						if (geodesicDistanceCalculator.distance(
+								foodTruck.getLatitude(), foodTruck.getLongitude(), 
+								latitude, longitude, DistanceUnitEnum.KILOMETERS) < lastDistance)
+						{
+							nearerCount++;
+						}
+					}
+					assertThat(nearerCount, is(k - 1));
+				}
+			}
+			
+			// A large k is limited to the food trucks, and the controller rejects k out of range
+			assertThat(accessor.getNearestFoodTrucks(37.77, -122.41, Integer.MAX_VALUE, FoodTruckStatusEnum.ALL).size(), 
+					is(accessor.getFoodTrucks(FoodTruckStatusEnum.ALL).size()));
+			assertThat(queryHandler.getNearestFoodTrucks(null, "37.77", "-122.41", "2000000000").size(), 
+					is(Math.min(FoodTruckQueryHandler.MAX_NEAREST_COUNT, accessor.getFoodTrucks(FoodTruckStatusEnum.ALL).size())));
+			for (String k : new String[] {"2000000000", "0", "-1", "ten"})
+			{
+				assertThat(restController.getNearestFoodTrucks("37.77", "-122.41", k, null, createWebRequest(null))
+						.getStatusCode(), is(HttpStatus.BAD_REQUEST));
+			}
+			assertThat(restController.getNearestFoodTrucks("37.77", "-122.41", "5", null, createWebRequest(null))
+					.getStatusCode(), is(HttpStatus.OK));
+			
+			// Validation and execution parse k the same way
+			ResponseEntity<?> paddedResponse = 
+					restController.getNearestFoodTrucks("37.77", "-122.41", " 5 ", null, createWebRequest(null));
+			assertThat(paddedResponse.getStatusCode(), is(HttpStatus.OK));
+			assertThat(((List<?>) paddedResponse.getBody()).size(), is(5));
+		}
+		finally
+		{
+			for (long id = 5000; id < 6000; id++)
+			{
+				accessor.removeFoodTruck(id);
+			}
+		}
+		
+		assertThat(queryHandler.getNearestFoodTrucks(null, "37.7749", "-122.4194", "10").size(), is(0));
+		
+		System.out.println("Nearest query tests are passed!");
+	}
+	
+	@Test
+	public void columnStoreTest() throws Exception
+	{
+		System.out.println("Column store tests are running...");
+		
+		FoodTruckColumnStore columnStore = new FoodTruckColumnStore();
+		for (long id = 0; id < 100; id++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(id);
+			foodTruck.setLatitude(id);
+			foodTruck.setStatus(((id % 2) == 0) 
+					? FoodTruckStatusEnum.APPROVED.getStrValue() 
+					: FoodTruckStatusEnum.REQUESTED.getStrValue());
+			columnStore.put(foodTruck);
+		}
+		
+		FoodTruckRowFilter approvedFilter = new FoodTruckRowFilter()
+		{
+			@Override
+			public boolean accept(long objectid, double latitude, double longitude, FoodTruckStatusEnum status)
+			{
+				return status == FoodTruckStatusEnum.APPROVED;
+			}
+		};
+		assertThat(columnStore.scan(approvedFilter).size(), is(50));
+		
+		// Copy must not see the changes of the original store
+		FoodTruckColumnStore copy = new FoodTruckColumnStore(columnStore);
+		columnStore.freeze();
+		for (long id = 0; id < 10; id++)
+		{
+			copy.remove(id);
+		}
+		FoodTruck updatedFoodTruck = new FoodTruck();
+		updatedFoodTruck.setObjectid(11);
+		updatedFoodTruck.setStatus(FoodTruckStatusEnum.APPROVED.getStrValue());
+		copy.put(updatedFoodTruck);
+		
+		assertThat(columnStore.size(), is(100));
+		assertThat(columnStore.scan(approvedFilter).size(), is(50));
+		assertThat(copy.size(), is(90));
+		assertThat(copy.scan(approvedFilter).size(), is(46));
+		
+		for (FoodTruck foodTruck : copy.scan(approvedFilter))
+		{
+			assertThat(foodTruck.getObjectid() >= 10, is(true));
+		}
+		
+		System.out.println("Column store tests are passed!");
+	}
+	
+	@Test
+	public void queryCacheTest() throws Exception
+	{
+		System.out.println("Query cache tests are running...");
+		
+		for (long id = 31000; id < 31100; id++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(id);
+			foodTruck.setLatitude(37.77 + (id - 31000) * 0.0001);
+			foodTruck.setLongitude(-122.42);
+			foodTruck.setStatus(FoodTruckStatusEnum.APPROVED.getStrValue());
+			accessor.addFoodTruck(foodTruck);
+		}
+		
+		try
+		{
+			FoodTruckQueryCacheStats before = queryHandler.getQueryCacheStats();
+			
+			// Centers a few centimeters apart share the same entry
+			List<FoodTruck> first = queryHandler.getFoodTrucksByQuery(
+					"APPROVED", "37.7750", "-122.4200", "0.5", "km");
+			List<FoodTruck> second = queryHandler.getFoodTrucksByQuery(
+					"APPROVED", "37.775001", "-122.420001", "0.5", "km");
+			
+			FoodTruckQueryCacheStats after = queryHandler.getQueryCacheStats();
+			assertThat(second, is(sameInstance(first)));
+			assertThat(after.getMissCount() - before.getMissCount(), is(1L));
+			assertThat(after.getHitCount() - before.getHitCount(), is(1L));
+			assertThat(new HashSet<FoodTruck>(first), is(new HashSet<FoodTruck>(queryHandler.getFoodTrucksInsideCircle(
+					FoodTruckStatusEnum.APPROVED, 37.775, -122.42, 0.5, DistanceUnitEnum.KILOMETERS))));
+			
+			// A different radius or unit is a different query
+			queryHandler.getFoodTrucksByQuery("APPROVED", "37.7750", "-122.4200", "0.5", "mi");
+			assertThat(queryHandler.getQueryCacheStats().getMissCount() - before.getMissCount(), is(2L));
+			
+			// Any change of the storage invalidates the cached results
+			FoodTruck newFoodTruck = new FoodTruck();
+			newFoodTruck.setObjectid(31100);
+			newFoodTruck.setLatitude(37.775);
+			newFoodTruck.setLongitude(-122.42);
+			newFoodTruck.setStatus(FoodTruckStatusEnum.APPROVED.getStrValue());
+			accessor.addFoodTruck(newFoodTruck);
+			
+			List<FoodTruck> third = queryHandler.getFoodTrucksByQuery(
+					"APPROVED", "37.7750", "-122.4200", "0.5", "km");
+			assertThat(third.size(), is(first.size() + 1));
+			assertThat(queryHandler.getQueryCacheStats().getInvalidationCount() 
+					- before.getInvalidationCount() >= 2, is(true));
+			
+			// Least recently used entries are evicted
+			int capacity = queryHandler.getQueryCacheStats().getCapacity();
+			for (int i = 0; i <= capacity; i++)
+			{
+				queryHandler.getFoodTrucksByQuery("APPROVED", "37.7750", "-122.4200", String.valueOf(i + 1), "km");
+			}
+			FoodTruckQueryCacheStats full = queryHandler.getQueryCacheStats();
+			assertThat(full.getSize(), is(capacity));
+			assertThat(full.getEvictionCount() - before.getEvictionCount() >= 1, is(true));
+		}
+		finally
+		{
+			for (long id = 31000; id <= 31100; id++)
+			{
+				accessor.removeFoodTruck(id);
+			}
+		}
+		
+		System.out.println("Query cache tests are passed!");
+	}
+	
+	@Test
+	public void payloadTest() throws Exception
+	{
+		System.out.println("Payload tests are running...");
+		
+		for (long id = 32000; id < 32010; id++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(id);
+			foodTruck.setApplicant("Applicant " + id);
+			foodTruck.setStatus(((id % 2) == 0) 
+					? FoodTruckStatusEnum.APPROVED.getStrValue() 
+					: FoodTruckStatusEnum.REQUESTED.getStrValue());
+			accessor.addFoodTruck(foodTruck);
+		}
+		
+		try
+		{
+			ObjectMapper jsonMapper = new ObjectMapper();
+			
+			// Full list is serialized once per version
+			ResponseEntity<byte[]> first = getFoodTrucks(createWebRequest(null));
+			ResponseEntity<byte[]> second = getFoodTrucks(createWebRequest(null));
+			String etag = first.getHeaders().getETag();
+			assertThat(etag, is(notNullValue()));
+			assertThat(second.getBody(), is(sameInstance(first.getBody())));
+			assertThat(first.getBody(), is(jsonMapper.writeValueAsBytes(accessor.getFoodTrucks(FoodTruckStatusEnum.ALL))));
+			
+			// Client that has the same payload gets "304 Not Modified"
+			ResponseEntity<byte[]> notModified = getFoodTrucks(createWebRequest(etag));
+			assertThat(notModified.getStatusCodeValue(), is(304));
+			assertThat(notModified.getBody(), is(nullValue()));
+			assertThat(notModified.getHeaders().getETag(), is(etag));
+			assertThat(getFoodTrucks(createWebRequest("\"0\", " + etag)).getStatusCodeValue(), is(304));
+			
+			// Status queries have their own payloads
+			ServletWebRequest approvedRequest = createWebRequest(null);
+			ResponseEntity<?> approved = restController.getFoodTrucksByQuery(
+					"APPROVED", null, null, null, null, null, null, null, null, null, null, null, null, null, null, null, approvedRequest, approvedRequest.getResponse());
+			assertThat((byte[]) approved.getBody(), 
+					is(jsonMapper.writeValueAsBytes(accessor.getFoodTrucks(FoodTruckStatusEnum.APPROVED))));
+			assertThat(approved.getHeaders().getETag(), is(not(etag)));
+			
+			// Any change of the storage changes the payload
+			accessor.removeFoodTruck(32000);
+			ResponseEntity<byte[]> third = getFoodTrucks(createWebRequest(etag));
+			assertThat(third.getStatusCodeValue(), is(200));
+			assertThat(third.getHeaders().getETag(), is(not(etag)));
+		}
+		finally
+		{
+			for (long id = 32000; id < 32010; id++)
+			{
+				accessor.removeFoodTruck(id);
+			}
+		}
+		
+		System.out.println("Payload tests are passed!");
+	}
+	
+	@Test
+	public void ndjsonTest() throws Exception
+	{
+		System.out.println("NDJSON tests are running...");
+		
+		int count = 2 * FoodTruckNdjsonWriter.FLUSH_INTERVAL + 10;
+		for (long id = 33000; id < 33000 + count; id++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(id);
+			foodTruck.setApplicant("Applicant " + id);
+			foodTruck.setStatus(FoodTruckStatusEnum.APPROVED.getStrValue());
+			foodTruck.setLatitude(-33.9 + (id - 33000) * 0.00001);
+			foodTruck.setLongitude(18.4);
+			accessor.addFoodTruck(foodTruck);
+		}
+		
+		try
+		{
+			ObjectMapper jsonMapper = new ObjectMapper();
+			
+			// Streamed lines are the same food trucks as the list query
+			List<FoodTruck> expected = FoodTruckQueryHandler.getInstance().getFoodTrucksByQuery(
+					"APPROVED", "-33.9", "18.4", "5", "KILOMETERS");
+			assertThat(expected.size(), is(count));
+			
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/food-trucks/query");
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			assertThat(restController.getFoodTrucksByQuery(
+					"APPROVED", "-33.9", "18.4", "5", "KILOMETERS", null, null, null, null, null, null, null, null, null, "true", null, 
+					new ServletWebRequest(request, response), response), is(nullValue()));
+			assertThat(response.getContentType(), startsWith(FoodTruckNdjsonWriter.MEDIA_TYPE));
+			
+			String[] lines = response.getContentAsString().split("\n");
+			assertThat(lines.length, is(count));
+			HashSet<Long> ids = new HashSet<Long>();
+			for (String line : lines)
+			{
+				ids.add(jsonMapper.readValue(line, FoodTruck.class).getObjectid());
+			}
+			for (FoodTruck foodTruck : expected)
+			{
+				assertThat(ids.contains(foodTruck.getObjectid()), is(true));
+			}
+			
+			// "Accept" header also selects streaming, full list has one line per food truck
+			request = new MockHttpServletRequest("GET", "/food-trucks");
+			request.addHeader("Accept", FoodTruckNdjsonWriter.MEDIA_TYPE);
+			response = new MockHttpServletResponse();
+			assertThat(restController.getFoodTrucks(null, null, null, null, new ServletWebRequest(request, response), response), 
+					is(nullValue()));
+			assertThat(response.getContentAsString().split("\n").length, 
+					is(accessor.getFoodTrucks(FoodTruckStatusEnum.ALL).size()));
+			
+			// Traversal is stopped when the client is disconnected
+			final int[] visitCount = {0};
+			final FoodTruckNdjsonWriter writer = new FoodTruckNdjsonWriter(new OutputStream()
+			{
+				@Override
+				public void write(int b) throws IOException
+				{
+					throw new IOException("Connection reset by peer");
+				}
+			});
+			FoodTruckQueryHandler.getInstance().visitFoodTrucksByQuery(
+					"APPROVED", "-33.9", "18.4", "5", "KILOMETERS", new FoodTruckVisitor()
+					{
+						@Override
+						public boolean visit(FoodTruck foodTruck)
+						{
+							visitCount[0]++;
+							return writer.visit(foodTruck);
+						}
+					});
+			writer.finish();
+			assertThat(writer.isAborted(), is(true));
+			assertThat(visitCount[0] <= FoodTruckNdjsonWriter.FLUSH_INTERVAL, is(true));
+		}
+		finally
+		{
+			for (long id = 33000; id < 33000 + count; id++)
+			{
+				accessor.removeFoodTruck(id);
+			}
+		}
+		
+		System.out.println("NDJSON tests are passed!");
+	}
+	
+	@Test
+	public void pagingTest() throws Exception
+	{
+		System.out.println("Paging and projection tests are running...");
+		
+		for (long id = 34000; id < 34050; id++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(id);
+			foodTruck.setApplicant("Applicant " + id);
+			foodTruck.setFooditems("Tacos: Burritos: Quesadillas: Nachos: Soft Drinks");
+			foodTruck.setStatus(((id % 2) == 0) 
+					? FoodTruckStatusEnum.APPROVED.getStrValue() 
+					: FoodTruckStatusEnum.REQUESTED.getStrValue());
+			foodTruck.setLatitude(-34.6 + (id - 34000) * 0.0001);
+			foodTruck.setLongitude(-58.4);
+			accessor.addFoodTruck(foodTruck);
+		}
+		
+		try
+		{
+			ObjectMapper jsonMapper = new ObjectMapper();
+			FoodTruckQueryHandler handler = FoodTruckQueryHandler.getInstance();
+			
+			// Pages are sorted by objectid and follow each other
+			FoodTruckPage first = handler.getFoodTrucksPageByQuery(
+					"APPROVED", "-34.6", "-58.4", "10", "KILOMETERS", null, "10", null);
+			assertThat(first.getFoodTrucks().size(), is(10));
+			assertThat(first.getFoodTrucks().get(0).getObjectid(), is(34000L));
+			assertThat(first.getFoodTrucks().get(9).getObjectid(), is(34018L));
+			assertThat(first.getNextCursor(), is(notNullValue()));
+			
+			// A removed food truck on the first page does not shift the second page
+			accessor.removeFoodTruck(34002);
+			FoodTruckPage second = handler.getFoodTrucksPageByQuery(
+					"APPROVED", "-34.6", "-58.4", "10", "KILOMETERS", null, "10", first.getNextCursor());
+			assertThat(second.getFoodTrucks().size(), is(10));
+			assertThat(second.getFoodTrucks().get(0).getObjectid(), is(34020L));
+			
+			FoodTruckPage third = handler.getFoodTrucksPageByQuery(
+					"APPROVED", "-34.6", "-58.4", "10", "KILOMETERS", null, "10", second.getNextCursor());
+			assertThat(third.getFoodTrucks().size(), is(5));
+			assertThat(third.getFoodTrucks().get(4).getObjectid(), is(34048L));
+			assertThat(third.getNextCursor(), is(nullValue()));
+			
+			// Queries that match many food trucks seek to the cursor in objectid order, the pages are the same
+			for (FoodTruckFilter filter : new FoodTruckFilter[] {null, handler.parseFilter(
+					"APPROVED,REQUESTED,ONHOLD,EXPIRED,SUSPEND,INACTIVE,ISSUED", null, null, null, null, null)})
+			{
+				List<Long> expected = new ArrayList<Long>(getObjectids((filter != null)
+						? handler.getFoodTrucksByFilter(filter, null, null, null, null, null)
+						: accessor.getAllFoodTrucks()));
+				Collections.sort(expected);
+				
+				List<Long> actual = new ArrayList<Long>();
+				String cursor = null;
+				do
+				{
+					FoodTruckPage page = (filter != null)
+							? handler.getFoodTrucksPageByFilter(filter, null, null, null, null, null, "7", cursor)
+							: handler.getFoodTrucksPageByQuery(null, null, null, null, null, null, "7", cursor);
+					assertThat(page.getFoodTrucks().size() <= 7, is(true));
+					for (FoodTruck foodTruck : page.getFoodTrucks())
+					{
+						actual.add(foodTruck.getObjectid());
+					}
+					cursor = page.getNextCursor();
+				}
+				while (cursor != null);
+				assertThat(actual, is(expected));
+			}
+			
+			// The objectid order starts after the given objectid and stops with the visitor
+			final List<Long> visited = new ArrayList<Long>();
+			accessor.getSnapshot().visitFoodTrucksAfter(34010, new FoodTruckVisitor()
+			{
+				@Override
+				public boolean visit(FoodTruck foodTruck)
+				{
+					visited.add(foodTruck.getObjectid());
+					return visited.size() < 3;
+				}
+			});
+			assertThat(visited, is(Arrays.asList(34011L, 34012L, 34013L)));
+			
+			// Only the requested fields are written
+			ServletWebRequest request = createWebRequest(null);
+			ResponseEntity<?> response = restController.getFoodTrucksByQuery(
+					"APPROVED", "-34.6", "-58.4", "10", "KILOMETERS", null, null, null, null, 
+					null, null, "objectid,latitude,longitude,status,unknown", "3", null, null, null, 
+					request, request.getResponse());
+			assertThat(response.getHeaders().getFirst(FoodTruckRestController.NEXT_CURSOR_HEADER), is("34006"));
+			JsonNode foodTrucks = jsonMapper.readTree((byte[]) response.getBody());
+			assertThat(foodTrucks.size(), is(3));
+			assertThat(foodTrucks.get(0).size(), is(4));
+			assertThat(foodTrucks.get(0).get("objectid").asLong(), is(34000L));
+			assertThat(foodTrucks.get(0).has("fooditems"), is(false));
+			
+			// Projection without paging keeps all the matches, unknown fields alone select all the fields
+			assertThat(FoodTruckProjection.parse("unknown").isAllFields(), is(true));
+			request = createWebRequest(null);
+			response = restController.getFoodTrucksByQuery(
+					"REQUESTED", "-34.6", "-58.4", "10", "KILOMETERS", null, null, null, null, null, null, "objectid", null, null, null, null, 
+					request, request.getResponse());
+			assertThat(jsonMapper.readTree((byte[]) response.getBody()).size(), is(25));
+			assertThat(response.getHeaders().containsKey(FoodTruckRestController.NEXT_CURSOR_HEADER), is(false));
+		}
+		finally
+		{
+			for (long id = 34000; id < 34050; id++)
+			{
+				accessor.removeFoodTruck(id);
+			}
+		}
+		
+		System.out.println("Paging and projection tests are passed!");
+	}
+	
+	@Test
+	public void binaryFormatTest() throws Exception
+	{
+		System.out.println("Binary format tests are running...");
+		
+		String[] facilityTypes = {"Truck", "Push Cart", null};
+		String[] foodItems = {
+				"Cold Truck: Hot/Cold Sandwiches: Water: Soda: Juice: Snacks: Milk: Candies: Canned Food: Soups",
+				"Tacos: Burritos: Quesadillas: Tortas: Aguas Frescas", 
+				"Hot dogs: Pretzels: Soft drinks"};
+		for (long id = 35000; id < 37000; id++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(id);
+			foodTruck.setAddress((id % 300) + " MARKET ST");
+			foodTruck.setLocationdescription("MARKET ST: 01ST ST to 02ND ST (" + (id % 300) + ")");
+			foodTruck.setApplicant("Applicant " + (id % 150));
+			foodTruck.setCnn((int) (id * 7));
+			foodTruck.setDayshours("Mo-Fr:7AM-3PM");
+			foodTruck.setFacilitytype(facilityTypes[(int) (id % 3)]);
+			foodTruck.setFooditems(foodItems[(int) (id % 3)]);
+			foodTruck.setLatitude(37.7 + (id - 35000) * 0.00001);
+			foodTruck.setLongitude(-122.4);
+			foodTruck.setPermit("17MFF-" + id);
+			foodTruck.setSchedule("http://bsm.sfdpw.org/PermitsTracker/reports/report.aspx?permit=17MFF-" + id);
+			foodTruck.setStatus(((id % 2) == 0) 
+					? FoodTruckStatusEnum.APPROVED.getStrValue() 
+					: FoodTruckStatusEnum.REQUESTED.getStrValue());
+			accessor.addFoodTruck(foodTruck);
+		}
+		
+		try
+		{
+			ObjectMapper jsonMapper = new ObjectMapper();
+			FoodTruckBinaryEncoder encoder = FoodTruckBinaryEncoder.getInstance();
+			List<FoodTruck> foodTrucks = accessor.getFoodTrucks(FoodTruckStatusEnum.ALL);
+			
+			// Round trip keeps all the fields, including the nulls
+			byte[] binary = encoder.encode(foodTrucks);
+			List<FoodTruck> decoded = FoodTruckBinaryDecoder.decode(binary);
+			assertThat(decoded.size(), is(foodTrucks.size()));
+			for (int i = 0; i < foodTrucks.size(); i++)
+			{
+				assertThat(decoded.get(i).contentEquals(foodTrucks.get(i)), is(true));
+			}
+			assertThat(FoodTruckBinaryDecoder.decode(encoder.encode(null)).size(), is(0));
+			
+			// Size and throughput compared to JSON
+			byte[] json = jsonMapper.writeValueAsBytes(foodTrucks);
+			assertThat(binary.length < json.length / 2, is(true));
+			
+			int rounds = 20;
+			long jsonStart = System.nanoTime();
+			for (int i = 0; i < rounds; i++)
+			{
+				jsonMapper.readValue(jsonMapper.writeValueAsBytes(foodTrucks), FoodTruck[].class);
+			}
+			long binaryStart = System.nanoTime();
+			for (int i = 0; i < rounds; i++)
+			{
+				FoodTruckBinaryDecoder.decode(encoder.encode(foodTrucks));
+			}
+			long binaryEnd = System.nanoTime();
+			System.out.println(String.format(
+					"%d food trucks; JSON: %d bytes, %.2f ms per round trip; binary: %d bytes, %.2f ms per round trip", 
+					foodTrucks.size(), 
+					json.length, (binaryStart - jsonStart) / (rounds * 1e6), 
+					binary.length, (binaryEnd - binaryStart) / (rounds * 1e6)));
+			
+			// Binary format is selected by the "Accept" header, payloads have their own entity tags
+			MockHttpServletRequest request = new MockHttpServletRequest("GET", "/food-trucks");
+			request.addHeader("Accept", FoodTruckBinaryEncoder.MEDIA_TYPE);
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			ResponseEntity<byte[]> binaryResponse = restController.getFoodTrucks(
+					null, null, null, null, new ServletWebRequest(request, response), response);
+			assertThat(binaryResponse.getHeaders().getContentType().toString(), is(FoodTruckBinaryEncoder.MEDIA_TYPE));
+			assertThat(binaryResponse.getBody(), is(binary));
+			assertThat(binaryResponse.getHeaders().getETag(), 
+					is(not(getFoodTrucks(createWebRequest(null)).getHeaders().getETag())));
+			
+			request = new MockHttpServletRequest("GET", "/food-trucks/query");
+			request.addHeader("Accept", FoodTruckBinaryEncoder.MEDIA_TYPE);
+			response = new MockHttpServletResponse();
+			ResponseEntity<?> circleResponse = restController.getFoodTrucksByQuery(
+					"APPROVED", "37.7", "-122.4", "1", "KILOMETERS", null, null, null, null, null, null, null, null, null, null, null, 
+					new ServletWebRequest(request, response), response);
+			assertThat(FoodTruckBinaryDecoder.decode((byte[]) circleResponse.getBody()).size(), 
+					is(FoodTruckQueryHandler.getInstance().getFoodTrucksByQuery(
+							"APPROVED", "37.7", "-122.4", "1", "KILOMETERS").size()));
+		}
+		finally
+		{
+			for (long id = 35000; id < 37000; id++)
+			{
+				accessor.removeFoodTruck(id);
+			}
+		}
+		
+		System.out.println("Binary format tests are passed!");
+	}
+	
+	@Test
+	public void textSearchTest() throws Exception
+	{
+		System.out.println("Text search tests are running...");
+		
+		String[] foodItems = {"Tacos: Burritos: Quesadillas", "Hot Dogs: Pretzels", "Fish Tacos: Ceviche", null};
+		for (long id = 37000; id < 37100; id++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(id);
+			foodTruck.setApplicant((id < 37050) ? "Senor Zxqw Taqueria" : "Zxqw Grill");
+			foodTruck.setFooditems(foodItems[(int) (id % 4)]);
+			foodTruck.setStatus(((id % 2) == 0) 
+					? FoodTruckStatusEnum.APPROVED.getStrValue() 
+					: FoodTruckStatusEnum.REQUESTED.getStrValue());
+			foodTruck.setLatitude(51.5 + (id - 37000) * 0.001);
+			foodTruck.setLongitude(-0.12);
+			accessor.addFoodTruck(foodTruck);
+		}
+		
+		try
+		{
+			FoodTruckQueryHandler handler = FoodTruckQueryHandler.getInstance();
+			
+			// Words are matched case-insensitively, plural and singular forms match
+			assertThat(FoodTruckTextIndex.tokenize("Fish Tacos: CEVICHE, hot-dogs").toString(), 
+					is("[fish, taco, ceviche, hot, dog]"));
+			
+			// All the words must match (postings are intersected)
+			List<FoodTruck> tacos = handler.getFoodTrucksByQuery(null, null, null, null, null, "zxqw taco");
+			assertThat(tacos.size(), is(50));
+			List<FoodTruck> fishTacos = handler.getFoodTrucksByQuery(null, null, null, null, null, "zxqw fish TACO");
+			assertThat(fishTacos.size(), is(25));
+			for (int i = 0; i < fishTacos.size(); i++)
+			{
+				assertThat(fishTacos.get(i).getObjectid() % 4, is(2L));
+				if (i > 0)
+				{
+					assertThat(fishTacos.get(i).getObjectid() > fishTacos.get(i - 1).getObjectid(), is(true));
+				}
+			}
+			
+			// Applicant words are indexed too
+			assertThat(handler.getFoodTrucksByQuery(null, null, null, null, null, "zxqw taqueria").size(), is(50));
+			assertThat(handler.getFoodTrucksByQuery(null, null, null, null, null, "zxqw sushi").size(), is(0));
+			
+			// Combined with the status and the circle
+			assertThat(handler.getFoodTrucksByQuery("APPROVED", null, null, null, null, "zxqw taco").size(), is(50));
+			assertThat(handler.getFoodTrucksByQuery("REQUESTED", null, null, null, null, "zxqw taco").size(), is(0));
+			assertThat(handler.getFoodTrucksByQuery(
+					"ALL", "51.5", "-0.12", "5.5", "KILOMETERS", "zxqw taco").size(), 
+					is(handler.getFoodTrucksByQuery("ALL", "51.5", "-0.12", "5.5", "KILOMETERS").size() / 2));
+			
+			// Index follows the updates and the removals
+			FoodTruck updated = new FoodTruck();
+			updated.setObjectid(37000);
+			updated.setApplicant("Zxqw Grill");
+			updated.setFooditems("Sushi");
+			updated.setStatus(FoodTruckStatusEnum.APPROVED.getStrValue());
+			accessor.updateFoodTruck(updated);
+			accessor.removeFoodTruck(37002);
+			assertThat(handler.getFoodTrucksByQuery(null, null, null, null, null, "zxqw taco").size(), is(48));
+			assertThat(handler.getFoodTrucksByQuery(null, null, null, null, null, "zxqw sushi").size(), is(1));
+			
+			// Blank texts are ignored
+			assertThat(handler.getFoodTrucksByQuery("APPROVED", null, null, null, null, " ").size(), 
+					is(accessor.getFoodTrucks(FoodTruckStatusEnum.APPROVED).size()));
+		}
+		finally
+		{
+			for (long id = 37000; id < 37100; id++)
+			{
+				accessor.removeFoodTruck(id);
+			}
+		}
+		
+		assertThat(FoodTruckAccessor.getInstance().getSnapshot().getTextPostingCount("zxqw"), is(0));
+		
+		System.out.println("Text search tests are passed!");
+	}
+	
+	@Test
+	public void bitmapFilterTest() throws Exception
+	{
+		System.out.println("Bitmap filter tests are running...");
+		
+		// Bitmap operations are compared with java.util.BitSet on sparse (array) and dense (bitset) chunks
+		Random random = new Random(38);
+		for (int round = 0; round < 20; round++)
+		{
+			BitSet firstBits = new BitSet();
+			BitSet secondBits = new BitSet();
+			FoodTruckBitmap first = new FoodTruckBitmap();
+			FoodTruckBitmap second = new FoodTruckBitmap();
+			int firstRange = (round % 2 == 0) ? 200000 : 20000;
+			
+			for (int i = 0; i < 10000; i++)
+			{
+				int firstRow = random.nextInt(firstRange);
+				int secondRow = random.nextInt(200000);
+				firstBits.set(firstRow);
+				first.add(firstRow);
+				secondBits.set(secondRow);
+				second.add(secondRow);
+			}
+			for (int i = 0; i < 3000; i++)
+			{
+				int row = random.nextInt(firstRange);
+				firstBits.clear(row);
+				first.remove(row);
+			}
+			
+			BitSet and = (BitSet) firstBits.clone();
+			and.and(secondBits);
+			BitSet or = (BitSet) firstBits.clone();
+			or.or(secondBits);
+			BitSet andNot = (BitSet) firstBits.clone();
+			andNot.andNot(secondBits);
+			
+			assertThat(toBitSet(first), is(firstBits));
+			assertThat(toBitSet(FoodTruckBitmap.and(first, second)), is(and));
+			assertThat(toBitSet(FoodTruckBitmap.or(first, second)), is(or));
+			assertThat(toBitSet(FoodTruckBitmap.andNot(first, second)), is(andNot));
+			assertThat(FoodTruckBitmap.or(first, second).cardinality(), is(or.cardinality()));
+		}
+		assertThat(FoodTruckBitmap.range(70000).cardinality(), is(70000));
+		assertThat(FoodTruckBitmap.range(70000).contains(69999), is(true));
+		assertThat(FoodTruckBitmap.range(70000).contains(70000), is(false));
+		
+		String[] facilityTypes = {"Zxqw Truck", "Zxqw Cart", "Zxqw Kiosk"};
+		String[] statuses = {"APPROVED", "APPROVED", "REQUESTED", "EXPIRED", "SUSPEND"};
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>();
+		for (long id = 38000; id < 38200; id++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(id);
+			foodTruck.setFacilitytype(facilityTypes[(int) (id % 3)]);
+			foodTruck.setStatus(statuses[(int) (id % 5)]);
+			foodTruck.setCnn(99900000 + (int) (id % 10));
+			foodTruck.setPermit(((id < 38100) ? "99ZXQA-" : "98ZXQB-") + id);
+			foodTruck.setLatitude(40.0 + (id - 38000) * 0.001);
+			foodTruck.setLongitude(29.0);
+			foodTrucks.add(foodTruck);
+		}
+		accessor.addFoodTrucks(foodTrucks);
+		
+		try
+		{
+			// Single statuses are left to the status queries
+			assertThat(queryHandler.parseFilter("APPROVED", null, null, null), is(nullValue()));
+			
+			// OR inside a parameter, AND between the parameters
+			HashSet<Long> expected = new HashSet<Long>();
+			for (FoodTruck foodTruck : foodTrucks)
+			{
+				if (foodTruck.getFacilitytype().equals("Zxqw Truck")
+						&& (foodTruck.getStatus().equals("APPROVED") || foodTruck.getStatus().equals("REQUESTED")))
+				{
+					expected.add(foodTruck.getObjectid());
+				}
+			}
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter("APPROVED,REQUESTED", "Zxqw Truck", null, null), 
+					null, null, null, null, null)), is(expected));
+			
+			// NOT, case-insensitive facility types
+			expected.clear();
+			for (FoodTruck foodTruck : foodTrucks)
+			{
+				if (! foodTruck.getFacilitytype().equals("Zxqw Kiosk") && ! foodTruck.getStatus().equals("EXPIRED"))
+				{
+					expected.add(foodTruck.getObjectid());
+				}
+			}
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter("!EXPIRED", "zxqw truck, ZXQW CART", null, null), 
+					null, null, null, null, null)), is(expected));
+			
+			// cnn numbers and permit prefixes
+			expected.clear();
+			for (FoodTruck foodTruck : foodTrucks)
+			{
+				if ((foodTruck.getCnn() == 99900003 || foodTruck.getCnn() == 99900007) 
+						&& foodTruck.getPermit().startsWith("98"))
+				{
+					expected.add(foodTruck.getObjectid());
+				}
+			}
+			assertThat(expected.size(), is(20));
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter(null, null, "99900003,99900007", "98zxq"), 
+					null, null, null, null, null)), is(expected));
+			assertThat(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter(null, "Zxqw Cart", null, "!99,98"), 
+					null, null, null, null, null).size(), is(0));
+			assertThat(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter("NO STATEMENT,UNKNOWN", "Zxqw Cart", null, null), 
+					null, null, null, null, null).size(), is(0));
+			
+			// Combined with the circle (only the columns of the filtered rows are checked)
+			GeodesicCircle circle = new GeodesicCircle(40.05, 29.0, 3, DistanceUnitEnum.KILOMETERS);
+			expected.clear();
+			for (FoodTruck foodTruck : foodTrucks)
+			{
+				if (foodTruck.getFacilitytype().equals("Zxqw Cart") 
+						&& circle.contains(foodTruck.getLatitude(), foodTruck.getLongitude()))
+				{
+					expected.add(foodTruck.getObjectid());
+				}
+			}
+			assertThat(expected.isEmpty(), is(false));
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter("ALL", "Zxqw Cart", null, null), 
+					"40.05", "29.0", "3", "km", null)), is(expected));
+			
+			// Bitmaps follow the updates and the removals (the moved last row included)
+			FoodTruck updated = new FoodTruck();
+			updated.setObjectid(38000);
+			updated.setFacilitytype("Zxqw Cart");
+			updated.setStatus("REQUESTED");
+			updated.setPermit("99ZXQA-38000");
+			accessor.updateFoodTruck(updated);
+			accessor.removeFoodTruck(38004);
+			accessor.removeFoodTruck(38007);
+			FoodTruckFilter trucks = queryHandler.parseFilter(null, "Zxqw Truck", null, null);
+			assertThat(queryHandler.getFoodTrucksByFilter(trucks, null, null, null, null, null).size(), is(65));
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter("REQUESTED", "Zxqw Cart", "0", null), 
+					null, null, null, null, null)), is(new HashSet<Long>(Arrays.asList(38000L))));
+			assertThat(queryHandler.getFoodTrucksByFilter(
+					FoodTruckFilter.and(trucks, FoodTruckFilter.status(FoodTruckStatusEnum.ALL)), 
+					null, null, null, null, null).size(), is(65));
+			
+			// Controller: pages of a multi-value query
+			ServletWebRequest request = createWebRequest(null);
+			ResponseEntity<?> response = restController.getFoodTrucksByQuery(
+					"APPROVED,REQUESTED", null, null, null, null, null, "Zxqw Truck,Zxqw Kiosk", null, "99ZXQA", 
+					null, null, "objectid", "10", null, null, null, request, request.getResponse());
+			JsonNode page = new ObjectMapper().readTree((byte[]) response.getBody());
+			assertThat(page.size(), is(10));
+			assertThat(page.get(0).get("objectid").asLong(), is(38001L));
+			assertThat(response.getHeaders().getFirst(FoodTruckRestController.NEXT_CURSOR_HEADER), is(notNullValue()));
+		}
+		finally
+		{
+			for (long id = 38000; id < 38200; id++)
+			{
+				accessor.removeFoodTruck(id);
+			}
+		}
+		
+		System.out.println("Bitmap filter tests are passed!");
+	}
+	
+	@Test
+	public void queryPlannerTest() throws Exception
+	{
+		System.out.println("Query planner tests are running...");
+		
+		// 20x20 food trucks (one per grid cell), a few of them are 'ONHOLD' or sell dumplings
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>();
+		for (int i = 0; i < 400; i++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(39000 + i);
+			foodTruck.setStatus((i % 40 == 0) ? "ONHOLD" : "APPROVED");
+			foodTruck.setFooditems((i % 80 == 0) ? "Zxqv Dumplings" : "Zxqv Noodles");
+			foodTruck.setLatitude(-45.0 + (i / 20) * 0.005);
+			foodTruck.setLongitude(170.0 + (i % 20) * 0.005);
+			foodTrucks.add(foodTruck);
+		}
+		accessor.addFoodTrucks(foodTrucks);
+		
+		try
+		{
+			// Narrow status, large circle: the status bitmap
+			FoodTruckQueryPlan plan = queryHandler.explainQuery(
+					null, "ONHOLD", "-44.95", "170.05", "50", "km", null);
+			assertThat(plan.getAccessPath(), is(QueryAccessPathEnum.STATUS_INDEX));
+			assertThat(plan.getResultRows(), is(10L));
+			assertThat(getObjectids(queryHandler.getFoodTrucksByQuery("ONHOLD", "-44.95", "170.05", "50", "km")), 
+					is(getObjectidsInsideCircle(foodTrucks, "ONHOLD", null, -44.95, 170.05, 50)));
+			
+			// Broad status, tiny circle: the grid cells around the circle
+			plan = queryHandler.explainQuery(null, null, "-44.95", "170.05", "0.06", "km", null);
+			assertThat(plan.getAccessPath(), is(QueryAccessPathEnum.SPATIAL_INDEX));
+			assertThat(plan.getResultRows(), is(1L));
+			assertThat(plan.getExaminedRows() < 400, is(true));
+			assertThat(getObjectids(queryHandler.getFoodTrucksByQuery(null, "-44.95", "170.05", "0.06", "km")), 
+					is(getObjectidsInsideCircle(foodTrucks, null, null, -44.95, 170.05, 0.06)));
+			
+			// Rare word, large circle: the posting list of the word
+			plan = queryHandler.explainQuery(null, null, "-44.95", "170.05", "50", "km", "zxqv dumplings");
+			assertThat(plan.getAccessPath(), is(QueryAccessPathEnum.TEXT_INDEX));
+			assertThat(plan.getExaminedRows(), is(5L));
+			assertThat(getObjectids(queryHandler.getFoodTrucksByQuery(
+					null, "-44.95", "170.05", "50", "km", "zxqv dumplings")), 
+					is(getObjectidsInsideCircle(foodTrucks, null, "Zxqv Dumplings", -44.95, 170.05, 50)));
+			
+			// Common word, small circle: the grid cells, the text is checked on the candidates
+			plan = queryHandler.explainQuery(null, "APPROVED", "-44.95", "170.05", "0.15", "km", "zxqv noodles");
+			assertThat(plan.getAccessPath(), is(QueryAccessPathEnum.SPATIAL_INDEX));
+			List<FoodTruck> noodles = queryHandler.getFoodTrucksByQuery(
+					"APPROVED", "-44.95", "170.05", "0.15", "km", "zxqv noodles");
+			assertThat(getObjectids(noodles), 
+					is(getObjectidsInsideCircle(foodTrucks, "APPROVED", "Zxqv Noodles", -44.95, 170.05, 0.15)));
+			for (int i = 1; i < noodles.size(); i++)
+			{
+				assertThat(noodles.get(i).getObjectid() > noodles.get(i - 1).getObjectid(), is(true));
+			}
+			
+			// A circle without a bounding box (contains the pole) is answered by a scan
+			plan = queryHandler.explainQuery(null, null, "-89", "0", "6000", "km", null);
+			assertThat(plan.getAccessPath(), is(QueryAccessPathEnum.FULL_SCAN));
+			assertThat(plan.getCandidates().size(), is(1));
+			assertThat(plan.getResultRows() >= 400, is(true));
+			
+			// Attribute filter with a tiny circle
+			plan = queryHandler.explainQuery(queryHandler.parseFilter("APPROVED,ONHOLD", null, null, null), 
+					null, "-44.95", "170.05", "0.06", "km", null);
+			assertThat(plan.getAccessPath(), is(QueryAccessPathEnum.SPATIAL_INDEX));
+			assertThat(plan.getResultRows(), is(1L));
+			
+			// Controller: "explain=true" returns the plan instead of the food trucks
+			ServletWebRequest request = createWebRequest(null);
+			ResponseEntity<?> response = restController.getFoodTrucksByQuery(
+					null, "-44.95", "170.05", "50", "km", "zxqv dumplings", null, null, null, 
+					null, null, null, null, null, null, "true", request, request.getResponse());
+			plan = (FoodTruckQueryPlan) response.getBody();
+			assertThat(plan.getAccessPath(), is(QueryAccessPathEnum.TEXT_INDEX));
+			assertThat(plan.getResultRows(), is(5L));
+			assertThat(plan.getCandidates().size(), is(3));
+			assertThat(plan.getStorageVersion(), is(accessor.getSnapshot().getVersion()));
+		}
+		finally
+		{
+			for (FoodTruck foodTruck : foodTrucks)
+			{
+				accessor.removeFoodTruck(foodTruck.getObjectid());
+			}
+		}
+		
+		System.out.println("Query planner tests are passed!");
+	}
+	
+	@Test
+	public void viewportClusterTest() throws Exception
+	{
+		System.out.println("Viewport cluster tests are running...");
+		
+		// 10x10 food trucks 0.01 degrees apart and a lone food truck
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>();
+		for (int i = 0; i < 101; i++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(40000 + i);
+			foodTruck.setStatus("APPROVED");
+			foodTruck.setLatitude((i < 100) ? -60.0 + (i / 10) * 0.01 : -60.5);
+			foodTruck.setLongitude((i < 100) ? -150.0 + (i % 10) * 0.01 : -150.5);
+			foodTrucks.add(foodTruck);
+		}
+		accessor.addFoodTrucks(foodTrucks);
+		
+		try
+		{
+			// Every zoom level has all the food trucks of the viewport, with the same total position
+			for (int zoom = 0; zoom <= 20; zoom++)
+			{
+				List<FoodTruckCluster> clusters = accessor.getClusters(zoom, -61, -151, -59, -149);
+				assertThat(getClusterCount(clusters), is(101));
+				assertThat(Math.abs(getClusterLatitudeSum(clusters) - getLatitudeSum(foodTrucks)) < 1e-6, is(true));
+			}
+			
+			// The lowest zoom level has one cluster, the highest one has a cluster per food truck
+			List<FoodTruckCluster> clusters = accessor.getClusters(0, -61, -151, -59, -149);
+			assertThat(clusters.size(), is(1));
+			assertThat(clusters.get(0).getFoodTruck(), is(nullValue()));
+			assertThat(Math.abs(clusters.get(0).getLatitude() - getLatitudeSum(foodTrucks) / 101) < 1e-9, is(true));
+			
+			clusters = accessor.getClusters(18, -61, -151, -59, -149);
+			assertThat(clusters.size(), is(101));
+			HashSet<Long> objectids = new HashSet<Long>();
+			for (FoodTruckCluster cluster : clusters)
+			{
+				assertThat(cluster.getCount(), is(1));
+				assertThat(cluster.getLatitude(), is(cluster.getFoodTruck().getLatitude()));
+				objectids.add(cluster.getFoodTruck().getObjectid());
+			}
+			assertThat(objectids, is(getObjectids(foodTrucks)));
+			
+			// Only the cells of the viewport are returned
+			assertThat(getClusterCount(accessor.getClusters(18, -60.6, -150.6, -60.4, -150.4)), is(1));
+			assertThat(getClusterCount(accessor.getClusters(18, -60.001, -150.001, -59.955, -149.905)), is(50));
+			
+			// Moving the lone food truck next to the others updates both cells
+			FoodTruckSnapshot oldSnapshot = accessor.getSnapshot();
+			FoodTruck movedFoodTruck = new FoodTruck();
+			movedFoodTruck.setObjectid(40100);
+			movedFoodTruck.setStatus("APPROVED");
+			movedFoodTruck.setLatitude(-59.945);
+			movedFoodTruck.setLongitude(-149.945);
+			accessor.updateFoodTruck(movedFoodTruck);
+			
+			assertThat(getClusterCount(accessor.getClusters(18, -60.6, -150.6, -60.4, -150.4)), is(0));
+			clusters = accessor.getClusters(18, -59.946, -149.946, -59.944, -149.944);
+			assertThat(clusters.size(), is(1));
+			assertThat(clusters.get(0).getFoodTruck().getObjectid(), is(40100L));
+			assertThat(getClusterCount(accessor.getClusters(5, -61, -151, -59, -149)), is(101));
+			
+			// Older snapshots keep their clusters
+			assertThat(getClusterCount(oldSnapshot.getClusters(18, -60.6, -150.6, -60.4, -150.4)), is(1));
+			
+			// A viewport that crosses the 180th meridian
+			FoodTruck eastFoodTruck = new FoodTruck();
+			eastFoodTruck.setObjectid(40101);
+			eastFoodTruck.setStatus("APPROVED");
+			eastFoodTruck.setLatitude(-60.0);
+			eastFoodTruck.setLongitude(179.5);
+			accessor.addFoodTruck(eastFoodTruck);
+			foodTrucks.add(eastFoodTruck);
+			assertThat(getClusterCount(accessor.getClusters(10, -61, 179, -59, -149)), is(102));
+			assertThat(getClusterCount(accessor.getClusters(10, -61, 179, -59, 180)), is(1));
+			
+			// Removed food trucks leave their clusters
+			for (int i = 0; i < 50; i++)
+			{
+				accessor.removeFoodTruck(40000 + i);
+			}
+			for (int zoom = 0; zoom <= 18; zoom += 6)
+			{
+				assertThat(getClusterCount(accessor.getClusters(zoom, -61, -151, -59, -149)), is(51));
+			}
+			
+			// Controller
+			List<FoodTruckCluster> response = restController.getFoodTruckClusters("-61", "-151", "-59", "-149", "14");
+			assertThat(getClusterCount(response), is(51));
+			assertThat(restController.getFoodTruckClusters("-61", "abc", "-59", "-149", "14").isEmpty(), is(true));
+		}
+		finally
+		{
+			for (FoodTruck foodTruck : foodTrucks)
+			{
+				accessor.removeFoodTruck(foodTruck.getObjectid());
+			}
+		}
+		
+		System.out.println("Viewport cluster tests are passed!");
+	}
+	
+	@Test
+	public void batchQueryTest() throws Exception
+	{
+		System.out.println("Batch query tests are running...");
+		
+		// 20x20 food trucks 0.002 degrees apart
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>();
+		for (int i = 0; i < 400; i++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(41000 + i);
+			foodTruck.setStatus((i % 3 == 0) ? "ONHOLD" : "APPROVED");
+			foodTruck.setLatitude(-30.0 + (i / 20) * 0.002);
+			foodTruck.setLongitude(100.0 + (i % 20) * 0.002);
+			foodTrucks.add(foodTruck);
+		}
+		accessor.addFoodTrucks(foodTrucks);
+		
+		// Random circles around the food trucks, an invalid circle and a missing query
+		Random random = new Random(18);
+		String[] statuses = {null, "APPROVED", "ONHOLD"};
+		List<FoodTruckBatchQuery> queries = new ArrayList<FoodTruckBatchQuery>();
+		for (int i = 0; i < 60; i++)
+		{
+			queries.add(new FoodTruckBatchQuery(statuses[i % 3], 
+					String.valueOf(-30.0 + random.nextDouble() * 0.04), 
+					String.valueOf(100.0 + random.nextDouble() * 0.04), 
+					String.valueOf(0.1 + random.nextDouble()), "km"));
+		}
+		queries.add(new FoodTruckBatchQuery("ONHOLD", "abc", "100", "1", "km"));
+		queries.add(null);
+		
+		try
+		{
+			for (int parallelism : new int[] {1, 3})
+			{
+				queryHandler.setBatchParallelism(parallelism);
+				assertThat(queryHandler.getBatchParallelism(), is(parallelism));
+				
+				FoodTruckBatchResult result = queryHandler.getFoodTrucksByBatchQuery(queries);
+				assertThat(result.getStorageVersion(), is(accessor.getSnapshot().getVersion()));
+				assertThat(result.getResults().size(), is(62));
+				
+				// Every result is the result of the same query alone
+				for (int i = 0; i < 60; i++)
+				{
+					FoodTruckBatchQuery query = queries.get(i);
+					List<FoodTruck> expected = queryHandler.getFoodTrucksInsideCircle(
+							(query.getStatus() != null) 
+									? FoodTruckStatusEnum.getFromStringValue(query.getStatus()) 
+									: FoodTruckStatusEnum.ALL,
+							Double.parseDouble(query.getLatitude()), Double.parseDouble(query.getLongitude()), 
+							Double.parseDouble(query.getRadius()), DistanceUnitEnum.KILOMETERS);
+					assertThat(getObjectids(result.getResults().get(i)), is(getObjectids(expected)));
+				}
+				
+				// Invalid circle: the food trucks of the status, missing query: no food truck
+				assertThat(result.getResults().get(60).size(), 
+						is(accessor.getFoodTrucks(FoodTruckStatusEnum.ONHOLD).size()));
+				assertThat(result.getResults().get(61).isEmpty(), is(true));
+			}
+			
+			// Controller, with a JSON body
+			List<FoodTruckBatchQuery> jsonQueries = new ObjectMapper().readValue(
+					"[{\"status\":\"ONHOLD\",\"latitude\":-29.99,\"longitude\":100.01,"
+					+ "\"radius\":0.5,\"radius_unit\":\"km\"},{\"latitude\":-29.99}]",
+					new ObjectMapper().getTypeFactory().constructCollectionType(List.class, FoodTruckBatchQuery.class));
+			assertThat(jsonQueries.get(0).getRadiusUnit(), is("km"));
+			
+			FoodTruckBatchResult result = 
+					(FoodTruckBatchResult) restController.getFoodTrucksByBatchQuery(jsonQueries).getBody();
+			assertThat(getObjectids(result.getResults().get(0)), 
+					is(getObjectids(queryHandler.getFoodTrucksInsideCircle(
+							FoodTruckStatusEnum.ONHOLD, -29.99, 100.01, 0.5, DistanceUnitEnum.KILOMETERS))));
+			assertThat(result.getResults().get(0).isEmpty(), is(false));
+			assertThat(result.getResults().get(1).size(), is(accessor.getAllFoodTrucks().size()));
+			
+			// Queries without a circle share the read-only list of the snapshot
+			List<FoodTruckBatchQuery> statusQueries = new ArrayList<FoodTruckBatchQuery>();
+			statusQueries.add(new FoodTruckBatchQuery(null, null, null, null, null));
+			statusQueries.add(new FoodTruckBatchQuery("ALL", null, null, null, null));
+			result = queryHandler.getFoodTrucksByBatchQuery(statusQueries);
+			assertThat(result.getResults().get(0) == result.getResults().get(1), is(true));
+			assertThat(result.getResults().get(0) == accessor.getFoodTrucks(FoodTruckStatusEnum.ALL), is(true));
+			
+			// The controller rejects the batches that are larger than the limit
+			List<FoodTruckBatchQuery> largeQueries = new ArrayList<FoodTruckBatchQuery>(
+					Collections.nCopies(FoodTruckQueryHandler.MAX_BATCH_SIZE, statusQueries.get(0)));
+			assertThat(restController.getFoodTrucksByBatchQuery(largeQueries).getStatusCode(), is(HttpStatus.OK));
+			largeQueries.add(statusQueries.get(0));
+			assertThat(restController.getFoodTrucksByBatchQuery(largeQueries).getStatusCode(), 
+					is(HttpStatus.PAYLOAD_TOO_LARGE));
+			assertThat(restController.getFoodTrucksByBatchQuery(null).getStatusCode(), is(HttpStatus.BAD_REQUEST));
+		}
+		finally
+		{
+			queryHandler.setBatchParallelism(0);
+			for (FoodTruck foodTruck : foodTrucks)
+			{
+				accessor.removeFoodTruck(foodTruck.getObjectid());
+			}
+		}
+		
+		System.out.println("Batch query tests are passed!");
+	}
+	
+	@Test
+	public void parallelScanTest() throws Exception
+	{
+		System.out.println("Parallel scan tests are running...");
+		
+		// More food trucks than the threshold, in several partitions
+		Random random = new Random(19);
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>();
+		for (int i = 0; i < 20000; i++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(42000 + i);
+			foodTruck.setStatus((i % 4 == 0) ? "REQUESTED" : "APPROVED");
+			foodTruck.setLatitude(-80.0 + random.nextDouble() * 10);
+			foodTruck.setLongitude(-20.0 + random.nextDouble() * 40);
+			foodTrucks.add(foodTruck);
+		}
+		accessor.addFoodTrucks(foodTrucks);
+		
+		FoodTruckParallelScanner scanner = FoodTruckParallelScanner.getInstance();
+		try
+		{
+			scanner.setParallelism(3);
+			scanner.setThreshold(10000);
+			assertThat(scanner.getParallelism(), is(3));
+			
+			// Same food trucks in the same order with the sequential scan
+			final GeodesicCircle circle = new GeodesicCircle(-75, 0, 500, DistanceUnitEnum.KILOMETERS);
+			FoodTruckRowFilter filter = new FoodTruckRowFilter()
+			{
+				@Override
+				public boolean accept(long objectid, double latitude, double longitude, FoodTruckStatusEnum status)
+				{
+					return status == FoodTruckStatusEnum.REQUESTED && circle.contains(latitude, longitude);
+				}
+			};
+			final List<FoodTruck> parallelResult = new ArrayList<FoodTruck>();
+			assertThat(accessor.getSnapshot().parallelScan(filter, new FoodTruckVisitor()
+			{
+				@Override
+				public boolean visit(FoodTruck foodTruck)
+				{
+					return parallelResult.add(foodTruck);
+				}
+			}), is(true));
+			List<FoodTruck> sequentialResult = accessor.getSnapshot().scan(filter);
+			assertThat(parallelResult.isEmpty(), is(false));
+			assertThat(parallelResult, is(sequentialResult));
+			
+			// The visitor can stop the scan
+			final int[] visitCount = new int[1];
+			assertThat(accessor.getSnapshot().parallelScan(filter, new FoodTruckVisitor()
+			{
+				@Override
+				public boolean visit(FoodTruck foodTruck)
+				{
+					return ++visitCount[0] < 5;
+				}
+			}), is(false));
+			assertThat(visitCount[0], is(5));
+			
+			// A circle that contains the pole is answered by a full (parallel) scan
+			FoodTruckQueryPlan plan = queryHandler.explainQuery(null, null, "-89", "0", "2500", "km", null);
+			assertThat(plan.getAccessPath(), is(QueryAccessPathEnum.FULL_SCAN));
+			assertThat(plan.getExaminedRows(), is((long) accessor.getSnapshot().size()));
+			assertThat(getObjectids(queryHandler.getFoodTrucksInsideCircle(
+					FoodTruckStatusEnum.ALL, -89, 0, 2500, DistanceUnitEnum.KILOMETERS)),
+					is(getObjectids(accessor.getSnapshot().scan(new FoodTruckRowFilter()
+					{
+						GeodesicCircle poleCircle = new GeodesicCircle(-89, 0, 2500, DistanceUnitEnum.KILOMETERS);
+						
+						@Override
+						public boolean accept(long objectid, double latitude, double longitude, FoodTruckStatusEnum status)
+						{
+							return poleCircle.contains(latitude, longitude);
+						}
+					}))));
+		}
+		finally
+		{
+			scanner.setParallelism(0);
+			scanner.setThreshold(0);
+			List<Long> ids = new ArrayList<Long>();
+			for (FoodTruck foodTruck : foodTrucks)
+			{
+				ids.add(foodTruck.getObjectid());
+			}
+			accessor.applyChanges(new ArrayList<FoodTruck>(), new ArrayList<FoodTruck>(), ids);
+		}
+		
+		System.out.println("Parallel scan tests are passed!");
+	}
+	
+	@Test
+	public void metricsTest() throws Exception
+	{
+		System.out.println("Metrics tests are running...");
+		
+		// Percentiles are within the bucket precision (~3%), count, mean and max are exact
+		FoodTruckHistogram histogram = new FoodTruckHistogram();
+		for (long value = 1; value <= 100000; value++)
+		{
+			histogram.record(value);
+		}
+		histogram.record(-5);
+		FoodTruckHistogramStats stats = histogram.getStats(1, "rows");
+		assertThat(stats.getCount(), is(100001L));
+		assertThat(stats.getMax(), is(100000.0));
+		assertThat(Math.abs(stats.getMean() - 100000 / 2.0) < 1, is(true));
+		assertThat(Math.abs(stats.getP50() - 50000) <= 50000 * 0.03, is(true));
+		assertThat(Math.abs(stats.getP90() - 90000) <= 90000 * 0.03, is(true));
+		assertThat(Math.abs(stats.getP99() - 99000) <= 99000 * 0.03, is(true));
+		assertThat(stats.getP999() <= stats.getMax(), is(true));
+		assertThat(histogram.getStats(1000, "us").getMax(), is(100.0));
+		assertThat(new FoodTruckHistogram().getStats(1, "rows").getP99(), is(0.0));
+		
+		// Every executed query is recorded by its plan, access path and rows
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>();
+		for (int i = 0; i < 10; i++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(62000 + i);
+			foodTruck.setStatus("APPROVED");
+			foodTruck.setLatitude(-60.0 + i * 0.001);
+			foodTruck.setLongitude(-150.0);
+			foodTrucks.add(foodTruck);
+		}
+		accessor.addFoodTrucks(foodTrucks);
+		
+		try
+		{
+			FoodTruckMetricsReport before = FoodTruckMetrics.getInstance().getReport();
+			assertThat(queryHandler.getFoodTrucksInsideCircle(
+					FoodTruckStatusEnum.ALL, -60, -150, 5, DistanceUnitEnum.KILOMETERS).size(), is(10));
+			FoodTruckMetricsReport after = FoodTruckMetrics.getInstance().getReport();
+			
+			assertThat(getQueryCount(after) - getQueryCount(before), is(1L));
+			assertThat(after.getHistograms().get("query.plan").getCount() 
+					- before.getHistograms().get("query.plan").getCount(), is(1L));
+			assertThat(after.getHistograms().get("query.resultRows").getMax() >= 10, is(true));
+			assertThat(after.getHistograms().get("accessor.lockWait").getCount() > 0, is(true));
+			assertThat(after.getGauges().get("storage.size") >= 10, is(true));
+			
+			// Requests are recorded by their paths
+			FoodTruckMetrics.getInstance().recordRequest("/food-trucks/nearest", 200, 2000000);
+			FoodTruckMetrics.getInstance().recordRequest("/unknown", 500, 1000);
+			FoodTruckMetricsReport report = restController.getMetrics();
+			assertThat(report.getHistograms().get("request./food-trucks/nearest").getCount() 
+					- after.getHistograms().get("request./food-trucks/nearest").getCount(), is(1L));
+			assertThat(report.getHistograms().get("request.other").getCount() 
+					- after.getHistograms().get("request.other").getCount(), is(1L));
+			assertThat(report.getCounters().get("request.serverErrors") 
+					- after.getCounters().get("request.serverErrors"), is(1L));
+		}
+		finally
+		{
+			List<Long> ids = new ArrayList<Long>();
+			for (FoodTruck foodTruck : foodTrucks)
+			{
+				ids.add(foodTruck.getObjectid());
+			}
+			accessor.applyChanges(new ArrayList<FoodTruck>(), new ArrayList<FoodTruck>(), ids);
+		}
+		
+		System.out.println("Metrics tests are passed!");
+	}
+	
+	@Test
+	public void compactModelTest() throws Exception
+	{
+		System.out.println("Compact model tests are running...");
+		
+		// Codes are given in the order of the first appearance and never change
+		FoodTruckDictionary dictionary = new FoodTruckDictionary("Truck", "Push Cart");
+		assertThat(dictionary.encode("Truck"), is((short) 0));
+		assertThat(dictionary.encode("Push Cart"), is((short) 1));
+		assertThat(dictionary.encode(new String("Truck")), is((short) 0));
+		assertThat(dictionary.encode("Cart"), is((short) 2));
+		assertThat(dictionary.encode(null), is(FoodTruckDictionary.NULL_CODE));
+		assertThat(dictionary.decode((short) 2), is("Cart"));
+		assertThat(dictionary.decode(FoodTruckDictionary.NULL_CODE), is(nullValue()));
+		assertThat(dictionary.size(), is(3));
+		
+		// A full dictionary does not add new values, known values keep their codes
+		FoodTruckDictionary fullDictionary = new FoodTruckDictionary();
+		for (int i = 0; i < FoodTruckDictionary.MAX_SIZE; i++)
+		{
+			assertThat(fullDictionary.encode("Value " + i), is((short) i));
+		}
+		assertThat(fullDictionary.encode("Value " + FoodTruckDictionary.MAX_SIZE), is(FoodTruckDictionary.OVERFLOW_CODE));
+		assertThat(fullDictionary.encode("Value 7"), is((short) 7));
+		assertThat(fullDictionary.decode(FoodTruckDictionary.OVERFLOW_CODE), is(nullValue()));
+		assertThat(fullDictionary.size(), is(FoodTruckDictionary.MAX_SIZE));
+		
+		// Food trucks keep the values that do not fit in the shared dictionaries
+		for (int i = 0; i < 2 * FoodTruckDictionary.MAX_SIZE / 16; i++)
+		{
+			FoodTruck first = new FoodTruck();
+			first.setFacilitytype("Facility Type " + i);
+			first.setStatus("Status " + i);
+			FoodTruck second = new FoodTruck();
+			second.setFacilitytype(new String("Facility Type " + i));
+			second.setStatus(new String("Status " + i));
+			assertThat(first.getFacilitytype(), is("Facility Type " + i));
+			assertThat(first.getStatus(), is("Status " + i));
+			assertThat(first.getStatusEnum(), is(FoodTruckStatusEnum.NO_STATEMENT));
+			assertThat(first.contentEquals(second), is(true));
+			second.setStatus("APPROVED");
+			assertThat(second.getStatusEnum(), is(FoodTruckStatusEnum.APPROVED));
+			assertThat(first.contentEquals(second), is(false));
+		}
+		
+		// Statuses keep their strings, including the ones that are not in the enumeration
+		String[] statuses = {"APPROVED", "Requested", "ISSUED", "NO STATEMENT", null};
+		FoodTruckStatusEnum[] statusEnums = {FoodTruckStatusEnum.APPROVED, FoodTruckStatusEnum.REQUESTED, 
+				FoodTruckStatusEnum.NO_STATEMENT, FoodTruckStatusEnum.NO_STATEMENT, FoodTruckStatusEnum.NO_STATEMENT};
+		for (int i = 0; i < statuses.length; i++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setStatus(statuses[i]);
+			assertThat(foodTruck.getStatus(), is(statuses[i]));
+			assertThat(foodTruck.getStatusEnum(), is(statusEnums[i]));
+		}
+		
+		// JSON is the same with the string fields
+		FoodTruck foodTruck = new FoodTruck();
+		foodTruck.setObjectid(62100);
+		foodTruck.setStatus("EXPIRED");
+		foodTruck.setFacilitytype("Push Cart");
+		foodTruck.setApplicant("Curry Up Now");
+		ObjectMapper jsonMapper = new ObjectMapper();
+		JsonNode json = jsonMapper.readTree(jsonMapper.writeValueAsBytes(foodTruck));
+		assertThat(json.get("status").asText(), is("EXPIRED"));
+		assertThat(json.get("facilitytype").asText(), is("Push Cart"));
+		assertThat(json.get("statusEnum").asText(), is("EXPIRED"));
+		assertThat(json.has("statusCode"), is(false));
+		assertThat(json.has("facilitytypeCode"), is(false));
+		assertThat(json.get("dayshours").isNull(), is(true));
+		assertThat(jsonMapper.treeToValue(json, FoodTruck.class).contentEquals(foodTruck), is(true));
+		
+		// Equal strings of a load share one instance
+		FoodTruckStringPool stringPool = new FoodTruckStringPool();
+		FoodTruck otherFoodTruck = new FoodTruck();
+		otherFoodTruck.setApplicant(new String("Curry Up Now"));
+		otherFoodTruck.setFooditems("Curry: Rice");
+		stringPool.deduplicate(foodTruck);
+		stringPool.deduplicate(otherFoodTruck);
+		assertThat(otherFoodTruck.getApplicant(), is(sameInstance(foodTruck.getApplicant())));
+		assertThat(otherFoodTruck.getFooditems(), is("Curry: Rice"));
+		assertThat(otherFoodTruck.getPermit(), is(nullValue()));
+		assertThat(stringPool.size(), is(2));
+		
+		System.out.println("Compact model tests are passed!");
+	}
+	
+	@Test
+	public void openingHoursTest() throws Exception
+	{
+		System.out.println("Opening hours tests are running...");
+		
+		// Days and hours are parsed into [start, end) minutes of the week (Monday 00:00 is 0)
+		assertThat(FoodTruckOpeningHours.parse("Mo/We:11AM-2PM"), is(new int[] {660, 840, 3540, 3720}));
+		assertThat(FoodTruckOpeningHours.parse("Sa-Su:8AM-4PM;Mo:9:30AM-2PM"), 
+				is(new int[] {570, 840, 7680, 8160, 9120, 9600}));
+		assertThat(FoodTruckOpeningHours.parse("Su:10PM-2AM"), is(new int[] {0, 120, 9960, 10080}));
+		assertThat(FoodTruckOpeningHours.parse("Mo-Su:12AM-12AM"), is(new int[] {0, 10080}));
+		assertThat(FoodTruckOpeningHours.parse("Tu 07:00-19:30/Th-Fr:8AM-10AM"), 
+				is(new int[] {1860, 2610, 4800, 4920, 6240, 6360}));
+		assertThat(FoodTruckOpeningHours.parse("Call for hours").length, is(0));
+		assertThat(FoodTruckOpeningHours.parse(null).length, is(0));
+		assertThat(FoodTruckOpeningHours.parseMinuteOfWeek("Mo 13:30"), is(810));
+		assertThat(FoodTruckOpeningHours.parseMinuteOfWeek("friday 7:15PM"), is(6915));
+		assertThat(FoodTruckOpeningHours.parseMinuteOfWeek("2017-10-08T23:59"), is(10079));
+		assertThat(FoodTruckOpeningHours.parseMinuteOfWeek("Mo 25:00"), is(-1));
+		assertThat(FoodTruckOpeningHours.parseMinuteOfWeek("Mo 24:30"), is(-1));
+		assertThat(FoodTruckOpeningHours.parseMinuteOfWeek("someday"), is(-1));
+		
+		// 24:00 ends the day, later times are invalid
+		assertThat(FoodTruckOpeningHours.parse("Mo:20:00-24:00"), is(new int[] {1200, 1440}));
+		assertThat(FoodTruckOpeningHours.parse("Mo:20:00-24:30").length, is(0));
+		
+		String[] daysHours = {"Mo-Fr:7AM-7PM", "Mo/We:11AM-2PM", "Sa:10PM-2AM", "Mo-Su:12AM-12AM", null, "Call for hours"};
+		List<FoodTruck> foodTrucks = new ArrayList<FoodTruck>();
+		for (int i = 0; i < 12; i++)
+		{
+			FoodTruck foodTruck = new FoodTruck();
+			foodTruck.setObjectid(63000 + i);
+			foodTruck.setStatus((i < 6) ? "APPROVED" : "REQUESTED");
+			foodTruck.setDayshours(daysHours[i % 6]);
+			foodTruck.setLatitude(71.0 + i * 0.001);
+			foodTruck.setLongitude(-8.0);
+			foodTrucks.add(foodTruck);
+		}
+		accessor.addFoodTrucks(foodTrucks);
+		
+		try
+		{
+			// Combined with the status and the circle
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter("APPROVED", null, null, null, "Mo 12:00", null), 
+					"71.0", "-8.0", "5", "km", null)), 
+					is(new HashSet<Long>(Arrays.asList(63000L, 63001L, 63003L))));
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter(null, null, null, null, "Tu 18:59", null), 
+					"71.0", "-8.0", "5", "km", null)), 
+					is(new HashSet<Long>(Arrays.asList(63000L, 63003L, 63006L, 63009L))));
+			// Overnight hours pass the end of the week
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter("APPROVED,REQUESTED", null, null, null, "Su 1:30AM", null), 
+					"71.0", "-8.0", "5", "km", null)), 
+					is(new HashSet<Long>(Arrays.asList(63002L, 63003L, 63008L, 63009L))));
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter("APPROVED", null, null, null, "Su 2:00AM", null), 
+					"71.0", "-8.0", "5", "km", null)), 
+					is(new HashSet<Long>(Arrays.asList(63003L))));
+			// Invalid times match no food truck
+			assertThat(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter(null, null, null, null, "someday", null), 
+					"71.0", "-8.0", "5", "km", null).size(), is(0));
+			// Food trucks that are open all the time are open now
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(
+					queryHandler.parseFilter("APPROVED", null, null, null, null, "true"), 
+					"71.0", "-8.0", "5", "km", null)).contains(63003L), is(true));
+			
+			// The index follows the updates and the removals (the moved last row included)
+			FoodTruck updated = new FoodTruck();
+			updated.setObjectid(63000);
+			updated.setStatus("APPROVED");
+			updated.setDayshours("Mo:11:45AM-12:15PM");
+			updated.setLatitude(71.0);
+			updated.setLongitude(-8.0);
+			accessor.updateFoodTruck(updated);
+			accessor.removeFoodTruck(63003);
+			FoodTruckFilter openAtNoon = FoodTruckFilter.openAt(FoodTruckOpeningHours.parseMinuteOfWeek("Mo 12:00"));
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(openAtNoon, "71.0", "-8.0", "5", "km", null)), 
+					is(new HashSet<Long>(Arrays.asList(63000L, 63001L, 63006L, 63007L, 63009L))));
+			assertThat(getObjectids(queryHandler.getFoodTrucksByFilter(
+					FoodTruckFilter.openAt(FoodTruckOpeningHours.parseMinuteOfWeek("Mo 12:15")), 
+					"71.0", "-8.0", "5", "km", null)), 
+					is(new HashSet<Long>(Arrays.asList(63001L, 63006L, 63007L, 63009L))));
+			
+			// Controller
+			ServletWebRequest request = createWebRequest(null);
+			ResponseEntity<?> response = restController.getFoodTrucksByQuery(
+					"REQUESTED", "71.0", "-8.0", "5", "km", null, null, null, null, "Mo 12:00", null, 
+					"objectid", null, null, null, null, request, request.getResponse());
+			assertThat(new ObjectMapper().readTree((byte[]) response.getBody()).size(), is(3));
+		}
+		finally
+		{
+			List<Long> ids = new ArrayList<Long>();
+			for (FoodTruck foodTruck : foodTrucks)
+			{
+				ids.add(foodTruck.getObjectid());
+			}
+			accessor.applyChanges(new ArrayList<FoodTruck>(), new ArrayList<FoodTruck>(), ids);
+		}
+		
+		System.out.println("Opening hours tests are passed!");
+	}
+	
+	private static long getQueryCount(FoodTruckMetricsReport report)
+	{
+		long count = 0;
+		for (QueryAccessPathEnum accessPath : QueryAccessPathEnum.values())
+		{
+			count += report.getHistograms().get("query.execute." + accessPath).getCount();
+		}
+		return count;
+	}
+	
+	private static int getClusterCount(List<FoodTruckCluster> clusters)
+	{
+		int count = 0;
+		for (FoodTruckCluster cluster : clusters)
+		{
+			count += cluster.getCount();
+		}
+		return count;
+	}
+	
+	private static double getClusterLatitudeSum(List<FoodTruckCluster> clusters)
+	{
+		double sum = 0;
+		for (FoodTruckCluster cluster : clusters)
+		{
+			sum += cluster.getCount() * cluster.getLatitude();
+		}
+		return sum;
+	}
+	
+	private static double getLatitudeSum(List<FoodTruck> foodTrucks)
+	{
+		double sum = 0;
+		for (FoodTruck foodTruck : foodTrucks)
+		{
+			sum += foodTruck.getLatitude();
+		}
+		return sum;
+	}
+	
+	private static HashSet<Long> getObjectidsInsideCircle(
+			List<FoodTruck> foodTrucks, 
+			String status, 
+			String foodItems, 
+			double latitude, 
+			double longitude, 
+			double radius)
+	{
+		GeodesicCircle circle = new GeodesicCircle(latitude, longitude, radius, DistanceUnitEnum.KILOMETERS);
+		HashSet<Long> objectids = new HashSet<Long>();
+		for (FoodTruck foodTruck : foodTrucks)
+		{
+			if ((status == null || foodTruck.getStatus().equals(status))
+					&& (foodItems == null || foodTruck.getFooditems().equals(foodItems))
+					&& circle.contains(foodTruck.getLatitude(), foodTruck.getLongitude()))
+			{
+				objectids.add(foodTruck.getObjectid());
+			}
+		}
+		return objectids;
+	}
+	
+	private static BitSet toBitSet(FoodTruckBitmap bitmap)
+	{
+		final BitSet bits = new BitSet();
+		bitmap.forEach(new FoodTruckBitmap.RowVisitor()
+		{
+			@Override
+			public boolean visit(int row)
+			{
+				bits.set(row);
+				return true;
+			}
+		});
+		return bits;
+	}
+	
+	private static HashSet<Long> getObjectids(List<FoodTruck> foodTrucks)
+	{
+		HashSet<Long> objectids = new HashSet<Long>();
+		for (FoodTruck foodTruck : foodTrucks)
+		{
+			objectids.add(foodTruck.getObjectid());
+		}
+		return objectids;
+	}
+	
+	private ResponseEntity<byte[]> getFoodTrucks(ServletWebRequest request) throws Exception
+	{
+		return restController.getFoodTrucks(null, null, null, null, request, request.getResponse());
+	}
+	
+	private static ServletWebRequest createWebRequest(String ifNoneMatch)
+	{
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/food-trucks");
+		if (ifNoneMatch != null)
+		{
+			request.addHeader("If-None-Match", ifNoneMatch);
+		}
+		return new ServletWebRequest(request, new MockHttpServletResponse());
+	}
 }
@@ -0,0 +1,163 @@
+package com.uber.coding_challange.food_trucks_test;
+
+import static org.junit.Assert.*;
+import static org.hamcrest.CoreMatchers.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.uber.coding_challange.food_trucks_web_service.ctrl.GeodesicDistanceCalculator;
+import com.uber.coding_challange.food_trucks_web_service.model.enums.DistanceUnitEnum;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ContextConfiguration(classes=FoodTruckTestConfiguration.class)
+public class GeodesicDistanceCalculatorTester
+{
+	private static final int POINT_COUNT = 200000;
+	private static final double BOUNDARY_TOLERANCE = 1e-9; // relative to the radius
+
+	private GeodesicDistanceCalculator calculator = GeodesicDistanceCalculator.getInstance();
+
+	@Test
+	public void distanceTest() throws Exception
+	{
+		System.out.println("Distance tests are running...");
+
+		// Same position must not return NaN
+		assertThat(calculator.distance(37.7749, -122.4194, 37.7749, -122.4194, DistanceUnitEnum.KILOMETERS), is(0.0));
+
+		// San Francisco - Los Angeles is ~559 km
+		double distance = calculator.distance(37.7749, -122.4194, 34.0522, -118.2437, DistanceUnitEnum.KILOMETERS);
+		assertThat(Math.abs(distance - 559) < 2, is(true));
+
+		// Batch distances must be equal to the single distances
+		Random random = new Random(3);
+		double[] latitudes = new double[1000];
+		double[] longitudes = new double[1000];
+		double[] distances = new double[1000];
+		for (int i = 0; i < latitudes.length; i++)
+		{
+			latitudes[i] = random.nextDouble() * 180 - 90;
+			longitudes[i] = random.nextDouble() * 360 - 180;
+		}
+		calculator.distances(10, 20, latitudes, longitudes, latitudes.length, DistanceUnitEnum.MILES, distances);
+		for (int i = 0; i < latitudes.length; i++)
+		{
+			assertThat(distances[i],
+					is(calculator.distance(latitudes[i], longitudes[i], 10, 20, DistanceUnitEnum.MILES)));
+		}
+
+		System.out.println("Distance tests are passed!");
+	}
+
+	@Test
+	public void withinRadiusCorrectnessTest() throws Exception
+	{
+		System.out.println("Within radius correctness tests are running...");
+
+		Random random = new Random(11);
+		double[] latitudes = new double[POINT_COUNT];
+		double[] longitudes = new double[POINT_COUNT];
+		boolean[] result = new boolean[POINT_COUNT];
+
+		double[][] centers = {{37.7749, -122.4194}, {0, 179.9}, {-89.5, 0}, {75, -10}, {-33.9, 18.4}};
+		double[] radii = {0.05, 1, 10, 100, 1000, 25000};
+
+		for (double[] center : centers)
+		{
+			for (double radius : radii)
+			{
+				// Half of the positions are around the center, the rest are anywhere on the surface
+				double spread = calculator.toAngularDistance(radius, DistanceUnitEnum.KILOMETERS) * 2;
+				for (int i = 0; i < POINT_COUNT; i++)
+				{
+					if ((i % 2) == 0)
+					{
+						latitudes[i] = Math.max(-90, Math.min(90, center[0] + (random.nextDouble() - 0.5) * spread));
+						longitudes[i] = center[1] + (random.nextDouble() - 0.5) * spread;
+						longitudes[i] = ((longitudes[i] + 540) % 360) - 180;
+					}
+					else
+					{
+						latitudes[i] = random.nextDouble() * 180 - 90;
+						longitudes[i] = random.nextDouble() * 360 - 180;
+					}
+				}
+
+				calculator.withinRadius(center[0], center[1], radius, DistanceUnitEnum.KILOMETERS,
+						latitudes, longitudes, POINT_COUNT, result);
+
+				for (int i = 0; i < POINT_COUNT; i++)
+				{
+					double distance = calculator.distance(
+							latitudes[i], longitudes[i], center[0], center[1], DistanceUnitEnum.KILOMETERS);
+
+					// Positions on the boundary may be decided differently by the two formulas
+					if (Math.abs(distance - radius) > radius * BOUNDARY_TOLERANCE)
+					{
+						assertThat(result[i], is(distance < radius));
+					}
+				}
+			}
+		}
+
+		System.out.println("Within radius correctness tests are passed!");
+	}
+
+	@Test
+	public void withinRadiusThroughputTest() throws Exception
+	{
+		System.out.println("Within radius throughput tests are running...");
+
+		// Positions around San Francisco, 2 km radius
+		Random random = new Random(5);
+		double[] latitudes = new double[POINT_COUNT];
+		double[] longitudes = new double[POINT_COUNT];
+		boolean[] result = new boolean[POINT_COUNT];
+		for (int i = 0; i < POINT_COUNT; i++)
+		{
+			latitudes[i] = 37.70 + random.nextDouble() * 0.12;
+			longitudes[i] = -122.51 + random.nextDouble() * 0.15;
+		}
+
+		long distanceNanos = Long.MAX_VALUE;
+		long batchNanos = Long.MAX_VALUE;
+		int distanceCount = 0;
+		int batchCount = 0;
+
+		// Best of several rounds, first rounds warm up the JIT
+		for (int round = 0; round < 10; round++)
+		{
+			long start = System.nanoTime();
+			distanceCount = 0;
+			for (int i = 0; i < POINT_COUNT; i++)
+			{
+				if (calculator.distance(latitudes[i], longitudes[i], 37.7749, -122.4194, DistanceUnitEnum.KILOMETERS) < 2)
+				{
+					distanceCount++;
+				}
+			}
+			distanceNanos = Math.min(distanceNanos, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			batchCount = calculator.withinRadius(37.7749, -122.4194, 2, DistanceUnitEnum.KILOMETERS,
+					latitudes, longitudes, POINT_COUNT, result);
+			batchNanos = Math.min(batchNanos, System.nanoTime() - start);
+		}
+
+		assertThat(batchCount, is(distanceCount));
+
+		System.out.println(String.format(
+				"distance(): %.1f M checks/sec, withinRadius(): %.1f M checks/sec, speedup: %.1fx",
+				POINT_COUNT * 1000.0 / distanceNanos,
+				POINT_COUNT * 1000.0 / batchNanos,
+				(double) distanceNanos / batchNanos));
+		System.out.println("Within radius throughput tests are passed!");
+	}
+}